@@ -0,0 +1,54 @@
+package uk.gov.dwp.uc.pairtest;
+
+import thirdparty.paymentgateway.RefundableTicketPaymentService;
+import thirdparty.seatbooking.ReleasableSeatReservationService;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Shared stand-in for both third-party services that only records totals.
+ * Safe to share between benchmark threads.
+ */
+public class CountingGateway implements RefundableTicketPaymentService, ReleasableSeatReservationService {
+
+    private final LongAdder amountPaid = new LongAdder();
+    private final LongAdder seatsReserved = new LongAdder();
+
+    @Override
+    public void makePayment(long accountId, int totalAmountToPay) {
+        amountPaid.add(totalAmountToPay);
+    }
+
+    @Override
+    public void reserveSeat(long accountId, int totalSeatsToAllocate) {
+        seatsReserved.add(totalSeatsToAllocate);
+    }
+
+    @Override
+    public void makePayment(long accountId, int totalAmountToPay, long orderReference) {
+        amountPaid.add(totalAmountToPay);
+    }
+
+    @Override
+    public void reserveSeat(long accountId, int totalSeatsToAllocate, long orderReference) {
+        seatsReserved.add(totalSeatsToAllocate);
+    }
+
+    @Override
+    public void refundPayment(long accountId, int totalAmountToRefund, long orderReference) {
+        amountPaid.add(-totalAmountToRefund);
+    }
+
+    @Override
+    public void releaseSeat(long accountId, int totalSeatsToRelease, long orderReference) {
+        seatsReserved.add(-totalSeatsToRelease);
+    }
+
+    public long getAmountPaid() {
+        return amountPaid.sum();
+    }
+
+    public long getSeatsReserved() {
+        return seatsReserved.sum();
+    }
+}
@@ -0,0 +1,229 @@
+package uk.gov.dwp.uc.pairtest;
+
+import uk.gov.dwp.uc.pairtest.http.PurchaseHttpServer;
+import uk.gov.dwp.uc.pairtest.metrics.LatencyHistogram;
+import uk.gov.dwp.uc.pairtest.shard.ShardedPurchaseProcessor;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Closed-loop load generator for the purchase endpoint. Each connection has its own thread that sends a batch
+ * of pipelined purchases, waits for every response, and repeats; latency is measured from sending the batch to
+ * reading each response. Without {@code --target} it starts an in-process server backed by a sharded processor
+ * and in-memory gateways, so the numbers are the HTTP and purchase path alone.
+ *
+ * <pre>
+ * gradle loadTest -Pload.args="--connections 32 --pipeline 16 --seconds 20"
+ * </pre>
+ */
+public final class HttpLoadGenerator {
+
+    private static final byte[] HEADER_END = "\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CONTENT_LENGTH = "Content-Length: ".getBytes(StandardCharsets.US_ASCII);
+
+    private final InetSocketAddress target;
+    private final int connections;
+    private final int pipeline;
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final LongAdder[] statusCounts = new LongAdder[6];
+    private volatile boolean recording;
+    private volatile boolean running = true;
+
+    private HttpLoadGenerator(InetSocketAddress target, int connections, int pipeline) {
+        this.target = target;
+        this.connections = connections;
+        this.pipeline = pipeline;
+        for (int i = 0; i < statusCounts.length; i++) {
+            statusCounts[i] = new LongAdder();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int connections = 16;
+        int pipeline = 8;
+        int seconds = 10;
+        int warmupSeconds = 3;
+        String target = null;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--connections": connections = Integer.parseInt(args[i + 1]); break;
+                case "--pipeline": pipeline = Integer.parseInt(args[i + 1]); break;
+                case "--seconds": seconds = Integer.parseInt(args[i + 1]); break;
+                case "--warmup": warmupSeconds = Integer.parseInt(args[i + 1]); break;
+                case "--target": target = args[i + 1]; break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        ShardedPurchaseProcessor processor = null;
+        PurchaseHttpServer server = null;
+        InetSocketAddress address;
+        if (target == null) {
+            CountingGateway gateway = new CountingGateway();
+            processor = new ShardedPurchaseProcessor(1024, shard -> new TicketServiceImpl(gateway, gateway));
+            server = new PurchaseHttpServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), processor);
+            address = new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getPort());
+        } else {
+            int colon = target.lastIndexOf(':');
+            address = new InetSocketAddress(target.substring(0, colon), Integer.parseInt(target.substring(colon + 1)));
+        }
+        try {
+            new HttpLoadGenerator(address, connections, pipeline).run(warmupSeconds, seconds);
+        } finally {
+            if (server != null) {
+                server.close();
+                processor.close();
+            }
+        }
+    }
+
+    private void run(int warmupSeconds, int seconds) throws Exception {
+        List<Thread> threads = new ArrayList<>();
+        List<Throwable> failures = new ArrayList<>();
+        for (int c = 0; c < connections; c++) {
+            int connection = c;
+            Thread thread = new Thread(() -> {
+                try {
+                    drive(connection);
+                } catch (IOException | RuntimeException e) {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                }
+            }, "load-" + c);
+            thread.setDaemon(true);
+            threads.add(thread);
+            thread.start();
+        }
+        Thread.sleep(TimeUnit.SECONDS.toMillis(warmupSeconds));
+        recording = true;
+        long start = System.nanoTime();
+        Thread.sleep(TimeUnit.SECONDS.toMillis(seconds));
+        recording = false;
+        long elapsed = System.nanoTime() - start;
+        running = false;
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        report(elapsed);
+        if (!failures.isEmpty()) {
+            System.out.println("Connections failed: " + failures.size() + ", first: " + failures.get(0));
+        }
+    }
+
+    private void drive(int connection) throws IOException {
+        byte[] batch = batch(connection);
+        ByteBuffer out = ByteBuffer.allocateDirect(batch.length);
+        ByteBuffer in = ByteBuffer.allocate(64 * 1024);
+        try (SocketChannel channel = SocketChannel.open(target)) {
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            while (running) {
+                out.clear();
+                out.put(batch).flip();
+                long sent = System.nanoTime();
+                while (out.hasRemaining()) {
+                    channel.write(out);
+                }
+                int remaining = pipeline;
+                while (remaining > 0) {
+                    if (channel.read(in) < 0) {
+                        throw new IOException("Server closed the connection");
+                    }
+                    int completed = readResponses(in, sent);
+                    remaining -= completed;
+                }
+            }
+        }
+    }
+
+    /**
+     * Consumes every complete response at the front of the buffer and returns how many there were.
+     */
+    private int readResponses(ByteBuffer in, long sent) {
+        int count = 0;
+        int start = 0;
+        int limit = in.position();
+        while (true) {
+            int headerEnd = indexOf(in, HEADER_END, start, limit);
+            if (headerEnd < 0) {
+                break;
+            }
+            int lengthAt = indexOf(in, CONTENT_LENGTH, start, headerEnd);
+            int contentLength = 0;
+            for (int i = lengthAt + CONTENT_LENGTH.length; in.get(i) >= '0' && in.get(i) <= '9'; i++) {
+                contentLength = contentLength * 10 + in.get(i) - '0';
+            }
+            int end = headerEnd + HEADER_END.length + contentLength;
+            if (end > limit) {
+                break;
+            }
+            if (recording) {
+                latencies.record(System.nanoTime() - sent);
+                statusCounts[in.get(start + 9) - '0'].increment();
+            }
+            count++;
+            start = end;
+        }
+        in.flip();
+        in.position(start);
+        in.compact();
+        return count;
+    }
+
+    private byte[] batch(int connection) {
+        StringBuilder requests = new StringBuilder();
+        for (int i = 0; i < pipeline; i++) {
+            long accountId = (long) connection * pipeline + i + 1;
+            String body = "{\"accountId\":" + accountId + ",\"ticketTypeRequests\":["
+                    + "{\"ticketType\":\"ADULT\",\"noOfTickets\":2},{\"ticketType\":\"CHILD\",\"noOfTickets\":1},"
+                    + "{\"ticketType\":\"INFANT\",\"noOfTickets\":1}]}";
+            requests.append("POST /purchases HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/json\r\n")
+                    .append("Content-Length: ").append(body.length()).append("\r\n\r\n").append(body);
+        }
+        return requests.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private void report(long elapsedNanos) {
+        LatencyHistogram.Snapshot snapshot = latencies.snapshot();
+        double seconds = elapsedNanos / 1e9;
+        System.out.printf("connections=%d pipeline=%d duration=%.1fs%n", connections, pipeline, seconds);
+        System.out.printf("requests=%d throughput=%.0f req/s%n", snapshot.getCount(), snapshot.getCount() / seconds);
+        System.out.printf("latency us: mean=%.1f p50=%.1f p90=%.1f p99=%.1f p99.9=%.1f max=%.1f%n",
+                snapshot.getMeanNanos() / 1e3, micros(snapshot, 0.5), micros(snapshot, 0.9), micros(snapshot, 0.99),
+                micros(snapshot, 0.999), snapshot.getMaxNanos() / 1e3);
+        StringBuilder statuses = new StringBuilder("status:");
+        for (int i = 1; i < statusCounts.length; i++) {
+            if (statusCounts[i].sum() > 0) {
+                statuses.append(' ').append(i).append("xx=").append(statusCounts[i].sum());
+            }
+        }
+        System.out.println(statuses);
+    }
+
+    private static double micros(LatencyHistogram.Snapshot snapshot, double percentile) {
+        return snapshot.getPercentileNanos(percentile) / 1e3;
+    }
+
+    private static int indexOf(ByteBuffer buffer, byte[] pattern, int start, int end) {
+        outer:
+        for (int i = start; i + pattern.length <= end; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (buffer.get(i + j) != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,76 @@
+package uk.gov.dwp.uc.pairtest;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.gov.dwp.uc.pairtest.ingest.BulkPurchaseIngestor;
+import uk.gov.dwp.uc.pairtest.ingest.IngestionSummary;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to ingest a generated file of one million orders, about 5% of them invalid, and write the result file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx256m")
+public class IngestionBenchmark {
+
+    private static final int ORDERS = 1_000_000;
+
+    private Path input;
+    private Path output;
+    private BulkPurchaseIngestor ingestor;
+
+    @Setup
+    public void setUp() throws IOException {
+        input = Files.createTempFile("orders", ".txt");
+        output = Files.createTempFile("results", ".txt");
+        SplittableRandom random = new SplittableRandom(42);
+        try (BufferedWriter writer = Files.newBufferedWriter(input, StandardCharsets.US_ASCII)) {
+            for (int i = 0; i < ORDERS; i++) {
+                writer.write(Long.toString(1 + random.nextInt(100_000)));
+                if (random.nextInt(20) != 0) {
+                    writer.write(",A" + (1 + random.nextInt(4)));
+                }
+                if (random.nextBoolean()) {
+                    writer.write(",C" + (1 + random.nextInt(3)));
+                }
+                if (random.nextInt(4) == 0) {
+                    writer.write(",I1");
+                }
+                writer.write('\n');
+            }
+        }
+        CountingGateway gateway = new CountingGateway();
+        ingestor = new BulkPurchaseIngestor(new TicketServiceImpl(gateway, gateway));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(input);
+        Files.deleteIfExists(output);
+    }
+
+    @Benchmark
+    public IngestionSummary ingestMillionOrders() throws IOException {
+        return ingestor.ingest(input, output);
+    }
+}
@@ -0,0 +1,70 @@
+package uk.gov.dwp.uc.pairtest;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.journal.JournalingTicketService;
+import uk.gov.dwp.uc.pairtest.journal.PurchaseJournal;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to append a batch of one million records to the memory-mapped purchase journal, with group commit
+ * every 10 ms, and to make one million journaled purchases (three records each).
+ * A fresh journal file is created for every iteration so the file never fills up.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, batchSize = JournalBenchmark.BATCH_SIZE)
+@Measurement(iterations = 5, batchSize = JournalBenchmark.BATCH_SIZE)
+@Fork(1)
+public class JournalBenchmark {
+
+    static final int BATCH_SIZE = 1_000_000;
+
+    private Path file;
+    private PurchaseJournal journal;
+    private JournalingTicketService ticketService;
+    private TicketTypeRequest[] order;
+    private long accountId;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("purchases", ".journal");
+        Files.delete(file);
+        journal = PurchaseJournal.open(file, 3 * BATCH_SIZE, 10, TimeUnit.MILLISECONDS);
+        CountingGateway gateway = new CountingGateway();
+        ticketService = new JournalingTicketService(new TicketServiceImpl(gateway, gateway), journal);
+        order = OrderShape.MIXED.requests();
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        journal.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public long appendIntent() {
+        return journal.logIntent(++accountId, 100, 5, 6);
+    }
+
+    @Benchmark
+    public void journaledPurchase() {
+        ticketService.purchaseTickets(++accountId, order);
+    }
+}
@@ -0,0 +1,116 @@
+package uk.gov.dwp.uc.pairtest;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.gov.dwp.uc.pairtest.domain.PurchaseResult;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException.Reason;
+import uk.gov.dwp.uc.pairtest.limit.PurchaseLimiter;
+import uk.gov.dwp.uc.pairtest.metrics.LatencyHistogram;
+import uk.gov.dwp.uc.pairtest.metrics.PurchaseMetrics;
+import uk.gov.dwp.uc.pairtest.metrics.PurchaseMetricsRecorder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of purchase metrics: the same purchases with metrics disabled, enabled and with sampled timings,
+ * the raw cost of recording into the lock-free counters and histograms, and the cost of a clock read.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsOverheadBenchmark {
+
+    private TicketServiceImpl withoutMetrics;
+    private TicketServiceImpl withMetrics;
+    private TicketServiceImpl withSampledMetrics;
+    private PurchaseMetricsRecorder recorder;
+    private LatencyHistogram histogram;
+
+    @Setup
+    public void setUp() {
+        CountingGateway gateway = new CountingGateway();
+        recorder = new PurchaseMetricsRecorder();
+        histogram = new LatencyHistogram();
+        withoutMetrics = new TicketServiceImpl(gateway, gateway, PurchaseLimiter.UNLIMITED, PurchaseMetrics.NOOP);
+        withMetrics = new TicketServiceImpl(gateway, gateway, PurchaseLimiter.UNLIMITED, recorder);
+        withSampledMetrics = new TicketServiceImpl(gateway, gateway, PurchaseLimiter.UNLIMITED,
+                new PurchaseMetricsRecorder(64));
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadOrder {
+        TicketTypeRequest[] valid;
+        TicketTypeRequest[] invalid;
+        long latency;
+
+        @Setup
+        public void setUp() {
+            valid = OrderShape.MIXED.requests();
+            invalid = OrderShape.INVALID_NO_ADULT.requests();
+        }
+    }
+
+    @Benchmark
+    public PurchaseResult purchaseWithoutMetrics(ThreadOrder order) {
+        return withoutMetrics.tryPurchaseTickets(1000L, order.valid);
+    }
+
+    @Benchmark
+    public PurchaseResult purchaseWithMetrics(ThreadOrder order) {
+        return withMetrics.tryPurchaseTickets(1000L, order.valid);
+    }
+
+    @Benchmark
+    public PurchaseResult purchaseWithSampledMetrics(ThreadOrder order) {
+        return withSampledMetrics.tryPurchaseTickets(1000L, order.valid);
+    }
+
+    @Benchmark
+    public PurchaseResult rejectionWithoutMetrics(ThreadOrder order) {
+        return withoutMetrics.tryPurchaseTickets(1000L, order.invalid);
+    }
+
+    @Benchmark
+    public PurchaseResult rejectionWithMetrics(ThreadOrder order) {
+        return withMetrics.tryPurchaseTickets(1000L, order.invalid);
+    }
+
+    @Benchmark
+    public PurchaseResult rejectionWithSampledMetrics(ThreadOrder order) {
+        return withSampledMetrics.tryPurchaseTickets(1000L, order.invalid);
+    }
+
+    @Benchmark
+    public long readClock() {
+        return System.nanoTime();
+    }
+
+    @Benchmark
+    public void recordRejection() {
+        recorder.recordRejection(Reason.NO_ADULT_TICKET);
+    }
+
+    @Benchmark
+    public void recordLatency(ThreadOrder order) {
+        histogram.record(order.latency++ & 0xFFFF);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void recordLatencyContended(ThreadOrder order) {
+        histogram.record(order.latency++ & 0xFFFF);
+    }
+}
@@ -0,0 +1,96 @@
+package uk.gov.dwp.uc.pairtest;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.gov.dwp.uc.pairtest.exception.SeatsUnavailableException;
+import uk.gov.dwp.uc.pairtest.seating.SeatMap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simulates a popular showing opening for sale: measures how long a crowd of buyers
+ * takes to sell out a whole auditorium.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+public class OnSaleRushBenchmark {
+
+    private static final int ROWS = 200;
+    private static final int ROW_WIDTH = 50;
+
+    @Param({"8", "64"})
+    public int buyers;
+
+    private SeatMap seatMap;
+    private ExecutorService executor;
+
+    @Setup(Level.Trial)
+    public void startBuyers() {
+        executor = Executors.newFixedThreadPool(buyers);
+    }
+
+    @Setup(Level.Invocation)
+    public void openShowing() {
+        seatMap = new SeatMap(1L, ROWS, ROW_WIDTH);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopBuyers() {
+        executor.shutdown();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 10)
+    @Measurement(iterations = 30)
+    public int sellOut() throws Exception {
+        CountDownLatch doorsOpen = new CountDownLatch(1);
+        List<Future<Integer>> sold = new ArrayList<>();
+        for (int b = 0; b < buyers; b++) {
+            long firstAccount = b + 1;
+            sold.add(executor.submit(() -> {
+                doorsOpen.await();
+                int seats = 0;
+                // Counting the available seats scans the whole map, so the loop ends on a failed hold instead
+                for (long accountId = firstAccount; ; accountId += buyers) {
+                    try {
+                        seats += seatMap.hold(accountId, 1 + ThreadLocalRandom.current().nextInt(6)).getSeatCount();
+                    } catch (SeatsUnavailableException e) {
+                        // Group too large for what is left; a single seat still fits unless the showing is sold out
+                        try {
+                            seats += seatMap.hold(accountId, 1).getSeatCount();
+                        } catch (SeatsUnavailableException soldOut) {
+                            break;
+                        }
+                    }
+                }
+                return seats;
+            }));
+        }
+        doorsOpen.countDown();
+        int total = 0;
+        for (Future<Integer> result : sold) {
+            total += result.get();
+        }
+        return total;
+    }
+}
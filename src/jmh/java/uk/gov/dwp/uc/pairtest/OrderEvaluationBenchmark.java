@@ -0,0 +1,70 @@
+package uk.gov.dwp.uc.pairtest;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import uk.gov.dwp.uc.pairtest.domain.OrderSummary;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the single-pass order evaluation with the original multi-pass calculations.
+ * Run with the GC profiler (the default for the jmh task) and check that
+ * gc.alloc.rate.norm is 0 B/op for the single-pass benchmarks.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderEvaluationBenchmark {
+
+    private TicketServiceImpl ticketService;
+    private OrderSummary summary;
+    private TicketTypeRequest[] order;
+
+    @Setup
+    public void setUp() {
+        ticketService = new TicketServiceImpl((accountId, amount) -> { }, (accountId, seats) -> { });
+        summary = new OrderSummary();
+        order = new TicketTypeRequest[] {
+                new TicketTypeRequest(TicketTypeRequest.TicketType.ADULT, 2),
+                new TicketTypeRequest(TicketTypeRequest.TicketType.CHILD, 3),
+                new TicketTypeRequest(TicketTypeRequest.TicketType.INFANT, 1)
+        };
+    }
+
+    @Benchmark
+    public void multiPassEvaluation(Blackhole blackhole) {
+        blackhole.consume(ticketService.calculateTotalTickets(order));
+        blackhole.consume(ticketService.calculateTotalAmount(order));
+        blackhole.consume(ticketService.calculateTotalSeats(order));
+        blackhole.consume(ticketService.containsAdultTicket(order));
+    }
+
+    @Benchmark
+    public OrderSummary singlePassEvaluation() {
+        ticketService.evaluateOrder(summary, order);
+        return summary;
+    }
+
+    @Benchmark
+    public void purchaseWithBoxedAccountId() {
+        ticketService.purchaseTickets(Long.valueOf(1000L), order);
+    }
+
+    @Benchmark
+    public void purchaseWithPrimitiveAccountId() {
+        ticketService.purchaseTickets(1000L, order);
+    }
+}
@@ -0,0 +1,38 @@
+package uk.gov.dwp.uc.pairtest;
+
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+
+import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.TicketType.ADULT;
+import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.TicketType.CHILD;
+import static uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.TicketType.INFANT;
+
+/**
+ * Representative orders used as JMH parameters.
+ */
+public enum OrderShape {
+    SINGLE_TYPE(true, new TicketTypeRequest(ADULT, 4)),
+    MIXED(true, new TicketTypeRequest(ADULT, 2), new TicketTypeRequest(CHILD, 3), new TicketTypeRequest(INFANT, 1)),
+    MAX_TICKETS(true, new TicketTypeRequest(ADULT, 10), new TicketTypeRequest(CHILD, 10), new TicketTypeRequest(INFANT, 5)),
+    INVALID_NO_ADULT(false, new TicketTypeRequest(CHILD, 3), new TicketTypeRequest(INFANT, 1)),
+    INVALID_TOO_MANY(false, new TicketTypeRequest(ADULT, 20), new TicketTypeRequest(CHILD, 6)),
+    INVALID_ZERO(false, new TicketTypeRequest(ADULT, 0));
+
+    private final boolean valid;
+    private final TicketTypeRequest[] requests;
+
+    OrderShape(boolean valid, TicketTypeRequest... requests) {
+        this.valid = valid;
+        this.requests = requests;
+    }
+
+    public boolean isValid() {
+        return valid;
+    }
+
+    /**
+     * Returns a fresh copy of the requests so callers cannot disturb other benchmarks.
+     */
+    public TicketTypeRequest[] requests() {
+        return requests.clone();
+    }
+}
@@ -0,0 +1,102 @@
+package uk.gov.dwp.uc.pairtest;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.pricing.PriceCatalogue;
+import uk.gov.dwp.uc.pairtest.pricing.PricingEngine;
+import uk.gov.dwp.uc.pairtest.pricing.PricingRules;
+import uk.gov.dwp.uc.pairtest.pricing.PricingRules.TimeBand;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Price lookups against the pricing engine, on their own and while another thread keeps
+ * compiling and publishing new rule sets, compared with the amount calculated from the enum prices.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PricingBenchmark {
+
+    private static final int PERFORMANCES = 1_000;
+
+    private PricingEngine pricingEngine;
+    private PricingRules[] ruleSets;
+    private TicketServiceImpl ticketService;
+    private TicketTypeRequest[] order;
+    private int nextRuleSet;
+
+    @Setup
+    public void setUp() {
+        ruleSets = new PricingRules[]{rules(0), rules(10)};
+        pricingEngine = new PricingEngine(ruleSets[0]);
+        CountingGateway gateway = new CountingGateway();
+        ticketService = new TicketServiceImpl(gateway, gateway);
+        order = OrderShape.MIXED.requests();
+    }
+
+    @Benchmark
+    @Group("enumPrices")
+    public int enumPrices() {
+        return ticketService.calculateTotalAmount(order);
+    }
+
+    @State(Scope.Thread)
+    public static class Performances {
+        long performanceId;
+
+        /**
+         * Cycles through performances with their own prices and performances priced from the default table.
+         */
+        long next() {
+            performanceId = (performanceId + 1) % (2 * PERFORMANCES);
+            return performanceId;
+        }
+    }
+
+    @Benchmark
+    @Group("lookupOnly")
+    public long lookupOnly(Performances performances) {
+        return pricingEngine.totalAmount(performances.next(), TimeBand.EVENING, order);
+    }
+
+    @Benchmark
+    @Group("lookupDuringReload")
+    @GroupThreads(3)
+    public long lookupDuringReload(Performances performances) {
+        return pricingEngine.totalAmount(performances.next(), TimeBand.EVENING, order);
+    }
+
+    @Benchmark
+    @Group("lookupDuringReload")
+    @GroupThreads(1)
+    public PriceCatalogue reload() {
+        nextRuleSet ^= 1;
+        return pricingEngine.publish(ruleSets[nextRuleSet]);
+    }
+
+    private static PricingRules rules(int promotionPercent) {
+        PricingRules rules = PricingRules.fromTicketTypes()
+                .timeBandAdjustment(TimeBand.MATINEE, -20)
+                .timeBandAdjustment(TimeBand.LATE, 10)
+                .promotion(promotionPercent, TicketTypeRequest.TicketType.CHILD);
+        for (long performance = 0; performance < PERFORMANCES; performance++) {
+            rules.performancePrice(performance, TicketTypeRequest.TicketType.ADULT, 2000 + performance);
+        }
+        return rules;
+    }
+}
@@ -0,0 +1,92 @@
+package uk.gov.dwp.uc.pairtest;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link TicketService#purchaseTickets} for different order sizes and mixes,
+ * including the rejection path and contention on shared third-party stubs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PurchaseBenchmark {
+
+    @Param({"SINGLE_TYPE", "MIXED", "MAX_TICKETS", "INVALID_NO_ADULT", "INVALID_TOO_MANY", "INVALID_ZERO"})
+    public OrderShape orderShape;
+
+    private CountingGateway gateway;
+    private TicketService ticketService;
+    private TicketTypeRequest[] mixedOrder;
+
+    @Setup
+    public void setUp() {
+        gateway = new CountingGateway();
+        ticketService = new TicketServiceImpl(gateway, gateway);
+        mixedOrder = OrderShape.MIXED.requests();
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadOrder {
+        TicketTypeRequest[] requests;
+
+        @Setup
+        public void setUp(PurchaseBenchmark benchmark) {
+            requests = benchmark.orderShape.requests();
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean purchaseSingleThreaded(ThreadOrder order) {
+        return purchase(order.requests);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public boolean purchaseContended(ThreadOrder order) {
+        return purchase(order.requests);
+    }
+
+    @Benchmark
+    @Group("mixedTraffic")
+    @GroupThreads(3)
+    public boolean validTraffic() {
+        return purchase(mixedOrder);
+    }
+
+    @Benchmark
+    @Group("mixedTraffic")
+    @GroupThreads(1)
+    public boolean invalidTraffic(ThreadOrder order) {
+        return purchase(order.requests);
+    }
+
+    private boolean purchase(TicketTypeRequest[] requests) {
+        try {
+            ticketService.purchaseTickets(1000L, requests);
+            return true;
+        } catch (InvalidPurchaseException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package uk.gov.dwp.uc.pairtest;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.gov.dwp.uc.pairtest.limit.PurchaseLimiter;
+import uk.gov.dwp.uc.pairtest.limit.StripedPurchaseLimiter;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Acquire/release throughput of the striped limiter against a single synchronized map,
+ * with every thread buying for random accounts out of a shared population.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(Threads.MAX)
+public class PurchaseLimiterBenchmark {
+
+    private static final int ACCOUNTS = 10_000;
+
+    @Param({"striped", "synchronized"})
+    public String limiterType;
+
+    private PurchaseLimiter limiter;
+
+    @Setup
+    public void setUp() {
+        limiter = "striped".equals(limiterType)
+                ? new StripedPurchaseLimiter(Integer.MAX_VALUE, 1, TimeUnit.HOURS, ACCOUNTS)
+                : new SynchronizedPurchaseLimiter(Integer.MAX_VALUE, TimeUnit.HOURS.toMillis(1));
+    }
+
+    @State(Scope.Thread)
+    public static class Accounts {
+        final SplittableRandom random = new SplittableRandom();
+    }
+
+    @Benchmark
+    public boolean acquireAndRelease(Accounts accounts) {
+        long accountId = 1 + accounts.random.nextInt(ACCOUNTS);
+        boolean acquired = limiter.tryAcquire(accountId, 4);
+        if (acquired) {
+            limiter.release(accountId, 4);
+        }
+        return acquired;
+    }
+}
@@ -0,0 +1,75 @@
+package uk.gov.dwp.uc.pairtest;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.gov.dwp.uc.pairtest.domain.OrderSummary;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the cost of rejecting invalid orders.
+ * The legacy path builds a new exception with a stack trace and message for every order,
+ * the same way the service did before rejection reasons were introduced.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RejectionBenchmark {
+
+    @Param({"INVALID_NO_ADULT", "INVALID_TOO_MANY", "INVALID_ZERO"})
+    public OrderShape orderShape;
+
+    private TicketServiceImpl ticketService;
+    private OrderSummary summary;
+    private TicketTypeRequest[] order;
+
+    @Setup
+    public void setUp() {
+        CountingGateway gateway = new CountingGateway();
+        ticketService = new TicketServiceImpl(gateway, gateway);
+        summary = new OrderSummary();
+        order = orderShape.requests();
+    }
+
+    @Benchmark
+    public Object legacyThrowWithStackTrace() {
+        try {
+            InvalidPurchaseException.Reason reason = ticketService.checkOrder(1000L, order, summary);
+            if (reason != null) {
+                throw new InvalidPurchaseException(reason.getMessage());
+            }
+            return null;
+        } catch (InvalidPurchaseException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object preallocatedThrow() {
+        try {
+            ticketService.purchaseTickets(1000L, order);
+            return null;
+        } catch (InvalidPurchaseException e) {
+            return e.getReason();
+        }
+    }
+
+    @Benchmark
+    public Object tryPurchase() {
+        return ticketService.tryPurchaseTickets(1000L, order).getRejectionReason();
+    }
+}
@@ -0,0 +1,47 @@
+package uk.gov.dwp.uc.pairtest;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.gov.dwp.uc.pairtest.seating.SeatHold;
+import uk.gov.dwp.uc.pairtest.seating.SeatMap;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Steady-state seat allocation throughput with all threads holding and releasing seats on one performance.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(Threads.MAX)
+public class SeatAllocationBenchmark {
+
+    private SeatMap seatMap;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        seatMap = new SeatMap(1L, 200, 50);
+    }
+
+    @Benchmark
+    public SeatHold holdAndRelease() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        SeatHold hold = seatMap.hold(1 + random.nextInt(1_000_000), 1 + random.nextInt(6));
+        seatMap.release(hold);
+        return hold;
+    }
+}
@@ -0,0 +1,108 @@
+package uk.gov.dwp.uc.pairtest;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import uk.gov.dwp.uc.pairtest.domain.PurchaseResult;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.limit.ConfinedPurchaseLimiter;
+import uk.gov.dwp.uc.pairtest.shard.ShardStats;
+import uk.gov.dwp.uc.pairtest.shard.ShardedPurchaseProcessor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Order throughput of the sharded processor as shards are added, with a fixed crowd of submitting threads.
+ * Each order does about a microsecond of gateway work and goes through a shard-local limiter, so shards
+ * are the bottleneck; throughput should grow close to linearly up to the number of free cores.
+ * Run with shard counts up to the machine's core count, e.g. {@code -p shards=1,2,4,8,16}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShardScalingBenchmark {
+
+    private static final int SUBMITTERS = 4;
+    private static final int ORDERS_PER_SUBMITTER = 5_000;
+    private static final int ACCOUNTS = 100_000;
+    private static final long GATEWAY_WORK = 250;
+
+    @Param({"1", "2", "4", "8"})
+    public int shards;
+
+    private ShardedPurchaseProcessor processor;
+    private ExecutorService submitters;
+    private TicketTypeRequest[] order;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        processor = new ShardedPurchaseProcessor(shards, 1024, shard -> new TicketServiceImpl(
+                (accountId, amount) -> Blackhole.consumeCPU(GATEWAY_WORK),
+                (accountId, seats) -> Blackhole.consumeCPU(GATEWAY_WORK),
+                new ConfinedPurchaseLimiter(Integer.MAX_VALUE, 1, TimeUnit.HOURS, ACCOUNTS)));
+        submitters = Executors.newFixedThreadPool(SUBMITTERS);
+        order = new TicketTypeRequest[] {
+                new TicketTypeRequest(TicketTypeRequest.TicketType.ADULT, 2),
+                new TicketTypeRequest(TicketTypeRequest.TicketType.CHILD, 1)
+        };
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        submitters.shutdown();
+        processor.close();
+        for (ShardStats stats : processor.getStats()) {
+            System.out.println(stats);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SUBMITTERS * ORDERS_PER_SUBMITTER)
+    public long purchase() throws Exception {
+        List<Future<Long>> accepted = new ArrayList<>();
+        for (int s = 0; s < SUBMITTERS; s++) {
+            int submitter = s;
+            accepted.add(submitters.submit(() -> {
+                @SuppressWarnings("unchecked")
+                CompletableFuture<PurchaseResult>[] results = new CompletableFuture[ORDERS_PER_SUBMITTER];
+                for (int i = 0; i < ORDERS_PER_SUBMITTER; i++) {
+                    long accountId = 1 + (submitter + (long) i * SUBMITTERS) % ACCOUNTS;
+                    results[i] = processor.purchaseTickets(accountId, order);
+                }
+                long count = 0;
+                for (CompletableFuture<PurchaseResult> result : results) {
+                    if (result.join().isAccepted()) {
+                        count++;
+                    }
+                }
+                return count;
+            }));
+        }
+        long total = 0;
+        for (Future<Long> result : accepted) {
+            total += result.get();
+        }
+        return total;
+    }
+}
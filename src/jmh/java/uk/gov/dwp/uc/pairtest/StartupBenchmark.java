@@ -0,0 +1,125 @@
+package uk.gov.dwp.uc.pairtest;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+
+/**
+ * Time from launching a fresh JVM to its first accepted purchase, the latency of adding an instance during
+ * an on-sale spike. Each invocation starts {@link StartupCheck} from a modular jar of the main classes:
+ * without class-data sharing, with the JDK's default archive, and with an application archive recorded
+ * from a training run, as the distribution ships.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 20)
+@Fork(1)
+public class StartupBenchmark {
+
+    private static final String MAIN = "uk.gov.dwp.uc.pairtest/" + StartupCheck.class.getName();
+
+    @Param({"off", "jdk", "app"})
+    public String sharing;
+
+    private Path workDir;
+    private List<String> command;
+    private Process process;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        workDir = Files.createTempDirectory("startup");
+        Path jar = workDir.resolve("app.jar");
+        writeJar(Paths.get(StartupCheck.class.getProtectionDomain().getCodeSource().getLocation().toURI()), jar);
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+
+        command = new ArrayList<>(List.of(java));
+        if ("off".equals(sharing)) {
+            command.add("-Xshare:off");
+        } else if ("app".equals(sharing)) {
+            Path archive = workDir.resolve("app.jsa");
+            run(List.of(java, "-XX:ArchiveClassesAtExit=" + archive, "-p", jar.toString(), "-m", MAIN));
+            command.add("-XX:SharedArchiveFile=" + archive);
+        }
+        command.addAll(List.of("-p", jar.toString(), "-m", MAIN));
+    }
+
+    @TearDown(Level.Invocation)
+    public void stopInstance() throws Exception {
+        process.waitFor();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(workDir)) {
+            for (Path file : files.sorted((a, b) -> b.compareTo(a)).toArray(Path[]::new)) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public String firstPurchase() throws IOException {
+        process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        String line;
+        while ((line = output.readLine()) != null) {
+            if (line.equals(StartupCheck.READY)) {
+                return line;
+            }
+        }
+        throw new IllegalStateException("Instance exited before its first purchase.");
+    }
+
+    private static void run(List<String> command) throws Exception {
+        Process training = new ProcessBuilder(command).redirectErrorStream(true).start();
+        training.getInputStream().transferTo(OutputStream.nullOutputStream());
+        if (training.waitFor() != 0) {
+            throw new IllegalStateException("Training run failed: " + command);
+        }
+    }
+
+    /**
+     * Class-data sharing only archives classes loaded from jars, so the compiled classes are packaged first.
+     */
+    private static void writeJar(Path classes, Path jar) throws IOException {
+        if (!Files.isDirectory(classes)) {
+            Files.copy(classes, jar);
+            return;
+        }
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar));
+             Stream<Path> files = Files.walk(classes)) {
+            for (Path file : files.filter(Files::isRegularFile).toArray(Path[]::new)) {
+                out.putNextEntry(new JarEntry(classes.relativize(file).toString().replace('\\', '/')));
+                Files.copy(file, out);
+                out.closeEntry();
+            }
+        }
+    }
+}
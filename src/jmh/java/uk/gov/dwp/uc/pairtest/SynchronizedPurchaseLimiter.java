@@ -0,0 +1,46 @@
+package uk.gov.dwp.uc.pairtest;
+
+import uk.gov.dwp.uc.pairtest.limit.PurchaseLimiter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Baseline limiter with the same fixed-window rules as the striped one:
+ * a HashMap of boxed account IDs behind a single lock.
+ */
+public class SynchronizedPurchaseLimiter implements PurchaseLimiter {
+
+    private final int maxTicketsPerWindow;
+    private final long windowMillis;
+    private final Map<Long, long[]> windowAndCountByAccount = new HashMap<>();
+
+    public SynchronizedPurchaseLimiter(int maxTicketsPerWindow, long windowMillis) {
+        this.maxTicketsPerWindow = maxTicketsPerWindow;
+        this.windowMillis = windowMillis;
+    }
+
+    @Override
+    public synchronized boolean tryAcquire(long accountId, int tickets) {
+        long window = System.currentTimeMillis() / windowMillis;
+        long[] windowAndCount = windowAndCountByAccount.computeIfAbsent(accountId, id -> new long[] {window, 0});
+        if (windowAndCount[0] != window) {
+            windowAndCount[0] = window;
+            windowAndCount[1] = 0;
+        }
+        if (tickets > maxTicketsPerWindow - windowAndCount[1]) {
+            return false;
+        }
+        windowAndCount[1] += tickets;
+        return true;
+    }
+
+    @Override
+    public synchronized void release(long accountId, int tickets) {
+        long window = System.currentTimeMillis() / windowMillis;
+        long[] windowAndCount = windowAndCountByAccount.get(accountId);
+        if (windowAndCount != null && windowAndCount[0] == window) {
+            windowAndCount[1] = Math.max(0, windowAndCount[1] - tickets);
+        }
+    }
+}
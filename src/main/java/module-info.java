@@ -1,9 +1,17 @@
 module uk.gov.dwp.uc.pairtest {
-    requires javafx.controls;
-    requires javafx.fxml;
-
-    opens uk.gov.dwp.uc.pairtest to javafx.fxml;
     exports uk.gov.dwp.uc.pairtest;
     exports uk.gov.dwp.uc.pairtest.exception;
     exports uk.gov.dwp.uc.pairtest.domain;
+    exports uk.gov.dwp.uc.pairtest.http;
+    exports uk.gov.dwp.uc.pairtest.batch;
+    exports uk.gov.dwp.uc.pairtest.idempotency;
+    exports uk.gov.dwp.uc.pairtest.ingest;
+    exports uk.gov.dwp.uc.pairtest.journal;
+    exports uk.gov.dwp.uc.pairtest.limit;
+    exports uk.gov.dwp.uc.pairtest.metrics;
+    exports uk.gov.dwp.uc.pairtest.pricing;
+    exports uk.gov.dwp.uc.pairtest.resilience;
+    exports uk.gov.dwp.uc.pairtest.saga;
+    exports uk.gov.dwp.uc.pairtest.seating;
+    exports uk.gov.dwp.uc.pairtest.shard;
 }
@@ -0,0 +1,9 @@
+package thirdparty.paymentgateway;
+
+public interface BatchTicketPaymentService extends TicketPaymentService {
+    /**
+     * Makes the first count payments in one call. The failure of each payment that was not taken is stored at its
+     * index in failures, which arrives all null. Throws only when no payment was taken.
+     */
+    void makePayments(long[] accountIds, int[] totalAmountsToPay, int count, RuntimeException[] failures);
+}
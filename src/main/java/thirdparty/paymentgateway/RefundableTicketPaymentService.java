@@ -0,0 +1,18 @@
+package thirdparty.paymentgateway;
+
+/**
+ * Payment service that takes payments under a reference chosen by the caller, so that a refund can name them later.
+ */
+public interface RefundableTicketPaymentService extends TicketPaymentService {
+    /**
+     * Takes a payment under the reference. The payment is refused if a refund for the reference has already arrived.
+     */
+    void makePayment(long accountId, int totalAmountToPay, long orderReference);
+
+    /**
+     * Refunds the payment taken under the reference, or voids it if it has not settled.
+     * Repeating a refund has no further effect, and a payment under the reference that arrives after its refund
+     * is refused, so a refund can safely be sent whenever the payment may have been taken.
+     */
+    void refundPayment(long accountId, int totalAmountToRefund, long orderReference);
+}
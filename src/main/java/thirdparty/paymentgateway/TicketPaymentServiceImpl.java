@@ -1,8 +1,29 @@
 package thirdparty.paymentgateway;
 
-public class TicketPaymentServiceImpl implements TicketPaymentService{
+public class TicketPaymentServiceImpl implements BatchTicketPaymentService, RefundableTicketPaymentService {
     @Override
     public void makePayment(long accountId, int totalAmountToPay) {
         System.out.println("Payment of £" + totalAmountToPay + " for account ID " + accountId + " was successful.");
     }
+
+    @Override
+    public void makePayment(long accountId, int totalAmountToPay, long orderReference) {
+        System.out.println("Payment of £" + totalAmountToPay + " for account ID " + accountId + " under reference " + orderReference + " was successful.");
+    }
+
+    @Override
+    public void refundPayment(long accountId, int totalAmountToRefund, long orderReference) {
+        System.out.println("Refund of £" + totalAmountToRefund + " for account ID " + accountId + " under reference " + orderReference + " was successful.");
+    }
+
+    @Override
+    public void makePayments(long[] accountIds, int[] totalAmountsToPay, int count, RuntimeException[] failures) {
+        for (int i = 0; i < count; i++) {
+            try {
+                makePayment(accountIds[i], totalAmountsToPay[i]);
+            } catch (RuntimeException e) {
+                failures[i] = e;
+            }
+        }
+    }
 }
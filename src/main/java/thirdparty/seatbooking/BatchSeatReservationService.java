@@ -0,0 +1,9 @@
+package thirdparty.seatbooking;
+
+public interface BatchSeatReservationService extends SeatReservationService {
+    /**
+     * Reserves the first count entries in one call. The failure of each reservation that was not made is stored at
+     * its index in failures, which arrives all null. Throws only when no reservation was made.
+     */
+    void reserveSeats(long[] accountIds, int[] totalSeatsToAllocate, int count, RuntimeException[] failures);
+}
@@ -0,0 +1,18 @@
+package thirdparty.seatbooking;
+
+/**
+ * Reservation service that reserves seats under a reference chosen by the caller, so that a release can name them later.
+ */
+public interface ReleasableSeatReservationService extends SeatReservationService {
+    /**
+     * Reserves seats under the reference. The reservation is refused if a release for the reference has already arrived.
+     */
+    void reserveSeat(long accountId, int totalSeatsToAllocate, long orderReference);
+
+    /**
+     * Releases the seats reserved under the reference.
+     * Repeating a release has no further effect, and a reservation under the reference that arrives after its
+     * release is refused, so a release can safely be sent whenever the seats may have been reserved.
+     */
+    void releaseSeat(long accountId, int totalSeatsToRelease, long orderReference);
+}
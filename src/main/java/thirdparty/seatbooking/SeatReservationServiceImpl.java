@@ -1,9 +1,30 @@
 package thirdparty.seatbooking;
 
-public class SeatReservationServiceImpl implements SeatReservationService {
+public class SeatReservationServiceImpl implements BatchSeatReservationService, ReleasableSeatReservationService {
     @Override
     public void reserveSeat(long accountId, int totalSeatsToAllocate) {
         System.out.println("Successfully reserved " + totalSeatsToAllocate + " seat(s) for account ID " + accountId + ".");
     }
 
+    @Override
+    public void reserveSeat(long accountId, int totalSeatsToAllocate, long orderReference) {
+        System.out.println("Successfully reserved " + totalSeatsToAllocate + " seat(s) for account ID " + accountId + " under reference " + orderReference + ".");
+    }
+
+    @Override
+    public void releaseSeat(long accountId, int totalSeatsToRelease, long orderReference) {
+        System.out.println("Successfully released " + totalSeatsToRelease + " seat(s) for account ID " + accountId + " under reference " + orderReference + ".");
+    }
+
+    @Override
+    public void reserveSeats(long[] accountIds, int[] totalSeatsToAllocate, int count, RuntimeException[] failures) {
+        for (int i = 0; i < count; i++) {
+            try {
+                reserveSeat(accountIds[i], totalSeatsToAllocate[i]);
+            } catch (RuntimeException e) {
+                failures[i] = e;
+            }
+        }
+    }
+
 }
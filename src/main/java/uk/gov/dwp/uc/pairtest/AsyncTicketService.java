@@ -0,0 +1,10 @@
+package uk.gov.dwp.uc.pairtest;
+
+import uk.gov.dwp.uc.pairtest.domain.PurchaseResult;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+
+import java.util.concurrent.CompletableFuture;
+
+public interface AsyncTicketService {
+    CompletableFuture<PurchaseResult> purchaseTickets(long accountId, TicketTypeRequest... ticketTypeRequests);
+}
@@ -0,0 +1,151 @@
+package uk.gov.dwp.uc.pairtest;
+
+import thirdparty.paymentgateway.TicketPaymentService;
+import thirdparty.seatbooking.SeatReservationService;
+import uk.gov.dwp.uc.pairtest.domain.OrderSummary;
+import uk.gov.dwp.uc.pairtest.domain.PurchaseResult;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException.Reason;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Non-blocking ticket service.
+ * Orders are validated and admitted on the calling thread with the rules of {@link TicketServiceImpl};
+ * the blocking gateway calls then run on a gateway executor, so no caller thread is held
+ * for the payment and reservation round-trips.
+ */
+public class AsyncTicketServiceImpl implements AsyncTicketService, AutoCloseable {
+    private final TicketServiceImpl ticketService;
+    private final ExecutorService executor;
+    private final boolean concurrentGatewayCalls;
+    private final ThreadLocal<OrderSummary> orderSummaries = ThreadLocal.withInitial(OrderSummary::new);
+
+    /**
+     * Creates a service on the default gateway executor that pays before it reserves seats.
+     */
+    public AsyncTicketServiceImpl(TicketPaymentService paymentService, SeatReservationService reservationService) {
+        this(paymentService, reservationService, GatewayExecutors.newGatewayExecutor(), false);
+    }
+
+    /**
+     * Creates a service on the given executor, which is shut down by {@link #close()}.
+     * When concurrentGatewayCalls is set, payment and reservation are started together under an order reference,
+     * so the gateways must take references: when one side fails, the side that succeeded is undone by reference.
+     */
+    public AsyncTicketServiceImpl(TicketPaymentService paymentService, SeatReservationService reservationService,
+                                  ExecutorService executor, boolean concurrentGatewayCalls) {
+        this(new TicketServiceImpl(paymentService, reservationService), executor, concurrentGatewayCalls);
+    }
+
+    /**
+     * Creates a service that uses the given synchronous service for its rules, limits and gateway calls.
+     */
+    public AsyncTicketServiceImpl(TicketServiceImpl ticketService, ExecutorService executor, boolean concurrentGatewayCalls) {
+        if (ticketService == null) {
+            throw new IllegalArgumentException("Ticket service cannot be null.");
+        }
+        if (executor == null) {
+            throw new IllegalArgumentException("Executor cannot be null.");
+        }
+        if (concurrentGatewayCalls && !ticketService.supportsOrderReferences()) {
+            throw new IllegalArgumentException("Concurrent gateway calls need gateways that take order references.");
+        }
+        this.ticketService = ticketService;
+        this.executor = executor;
+        this.concurrentGatewayCalls = concurrentGatewayCalls;
+    }
+
+    /**
+     * Validates the order and starts the gateway calls.
+     * Invalid orders complete immediately with a rejected result; gateway failures complete the future exceptionally,
+     * as does a full executor, and give the order's tickets back to the limiter.
+     */
+    @Override
+    public CompletableFuture<PurchaseResult> purchaseTickets(long accountId, TicketTypeRequest... ticketTypeRequests) {
+        OrderSummary summary = orderSummaries.get();
+        Reason reason = ticketService.admitOrder(accountId, ticketTypeRequests, summary);
+        if (reason != null) {
+            return CompletableFuture.completedFuture(PurchaseResult.rejected(reason));
+        }
+        int totalTickets = summary.getTotalTickets();
+        int totalAmount = summary.getTotalAmount();
+        int totalSeats = summary.getTotalSeats();
+        if (concurrentGatewayCalls) {
+            return purchaseConcurrently(accountId, totalTickets, totalAmount, totalSeats);
+        }
+
+        CompletableFuture<Void> payment;
+        try {
+            payment = CompletableFuture.runAsync(() -> ticketService.processPayment(accountId, totalAmount), executor);
+        } catch (RejectedExecutionException e) {
+            ticketService.releaseOrder(accountId, totalTickets);
+            return CompletableFuture.failedFuture(e);
+        }
+        CompletableFuture<Void> reservation = payment.thenRunAsync(() -> ticketService.reserveSeats(accountId, totalSeats), executor);
+
+        return reservation.thenApply(reserved -> PurchaseResult.accepted(accountId, totalAmount, totalSeats))
+                .whenComplete((result, failure) -> {
+                    if (failure != null) {
+                        ticketService.releaseOrder(accountId, totalTickets);
+                    }
+                });
+    }
+
+    /**
+     * Starts payment and reservation together and waits for both. If only one of them fails, the other is undone
+     * by the order reference before the future fails with the first failure; a failed undo is attached to it as
+     * a suppressed exception.
+     */
+    private CompletableFuture<PurchaseResult> purchaseConcurrently(long accountId, int totalTickets, int totalAmount, int totalSeats) {
+        long orderReference = ThreadLocalRandom.current().nextLong();
+        CompletableFuture<Throwable> paymentFailure = runOnExecutor(
+                () -> ticketService.processPayment(accountId, totalAmount, orderReference)).handle((paid, e) -> unwrap(e));
+        CompletableFuture<Throwable> reservationFailure = runOnExecutor(
+                () -> ticketService.reserveSeats(accountId, totalSeats, orderReference)).handle((reserved, e) -> unwrap(e));
+
+        return paymentFailure.thenCombine(reservationFailure, (paymentError, reservationError) -> {
+            if (paymentError == null && reservationError == null) {
+                return PurchaseResult.accepted(accountId, totalAmount, totalSeats);
+            }
+            Throwable failure = paymentError != null ? paymentError : reservationError;
+            try {
+                if (paymentError == null) {
+                    ticketService.refundPayment(accountId, totalAmount, orderReference);
+                } else if (reservationError == null) {
+                    ticketService.releaseSeats(accountId, totalSeats, orderReference);
+                }
+            } catch (RuntimeException e) {
+                failure.addSuppressed(e);
+            } finally {
+                ticketService.releaseOrder(accountId, totalTickets);
+            }
+            throw new CompletionException(failure);
+        });
+    }
+
+    private static Throwable unwrap(Throwable failure) {
+        return failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+    }
+
+    /**
+     * Starts the task on the executor. A rejected task yields a failed future, so the order is released
+     * once the call already started for it has finished.
+     */
+    private CompletableFuture<Void> runOnExecutor(Runnable task) {
+        try {
+            return CompletableFuture.runAsync(task, executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
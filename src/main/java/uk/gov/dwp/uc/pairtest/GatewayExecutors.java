@@ -0,0 +1,71 @@
+package uk.gov.dwp.uc.pairtest;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors for blocking third-party gateway calls.
+ */
+public final class GatewayExecutors {
+
+    private static final int DEFAULT_MAX_THREADS = 256;
+    private static final int DEFAULT_QUEUE_CAPACITY = 65_536;
+
+    private GatewayExecutors() {
+    }
+
+    /**
+     * Returns a virtual-thread-per-task executor when the runtime supports it (Java 21+),
+     * otherwise a bounded platform thread pool.
+     */
+    public static ExecutorService newGatewayExecutor() {
+        ExecutorService virtualThreads = newVirtualThreadExecutor();
+        return virtualThreads != null ? virtualThreads : newBoundedExecutor(DEFAULT_MAX_THREADS, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * Returns a fixed pool of daemon threads with a bounded queue.
+     * Tasks beyond the queue capacity are rejected rather than queued without limit.
+     */
+    public static ExecutorService newBoundedExecutor(int maxThreads, int queueCapacity) {
+        if (maxThreads <= 0) {
+            throw new IllegalArgumentException("Max threads must be positive.");
+        }
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("Queue capacity must be positive.");
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadFactory threadFactory = task -> {
+            Thread thread = new Thread(task, "ticket-gateway-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(maxThreads, maxThreads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Looks up Executors.newVirtualThreadPerTaskExecutor reflectively so the code still compiles for Java 17.
+     */
+    static ExecutorService newVirtualThreadExecutor() {
+        try {
+            MethodHandle factory = MethodHandles.publicLookup().findStatic(java.util.concurrent.Executors.class,
+                    "newVirtualThreadPerTaskExecutor", MethodType.methodType(ExecutorService.class));
+            return (ExecutorService) factory.invoke();
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        } catch (Throwable e) {
+            // Present but unusable, e.g. as a disabled preview feature on Java 19 and 20
+            return null;
+        }
+    }
+}
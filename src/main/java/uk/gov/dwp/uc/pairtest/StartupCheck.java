@@ -0,0 +1,58 @@
+package uk.gov.dwp.uc.pairtest;
+
+import uk.gov.dwp.uc.pairtest.http.PurchaseHttpServer;
+import uk.gov.dwp.uc.pairtest.limit.StripedPurchaseLimiter;
+import uk.gov.dwp.uc.pairtest.metrics.PurchaseMetricsRecorder;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Makes one purchase over HTTP with the service configured as in production, against in-process gateways,
+ * then exits. It is the training run that records which classes go into the class-data-sharing archive, and the
+ * workload of the startup benchmark, which times a fresh JVM until the line printed here appears.
+ */
+public final class StartupCheck {
+
+    /**
+     * Printed once the first purchase has been accepted.
+     */
+    public static final String READY = "First purchase accepted";
+
+    private static final String ORDER = "{\"accountId\":1,\"ticketTypeRequests\":[{\"ticketType\":\"ADULT\",\"noOfTickets\":2},"
+            + "{\"ticketType\":\"CHILD\",\"noOfTickets\":1},{\"ticketType\":\"INFANT\",\"noOfTickets\":1}]}";
+
+    private StartupCheck() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        TicketServiceImpl ticketService = new TicketServiceImpl((accountId, amount) -> { }, (accountId, seats) -> { },
+                new StripedPurchaseLimiter(100, 1, TimeUnit.HOURS), new PurchaseMetricsRecorder(64));
+        AsyncTicketService asyncTicketService = (accountId, requests) ->
+                CompletableFuture.completedFuture(ticketService.tryPurchaseTickets(accountId, requests));
+        String response;
+        try (PurchaseHttpServer server = new PurchaseHttpServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+                asyncTicketService, 1, 8 * 1024);
+             SocketChannel channel = SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getPort()))) {
+            String request = "POST /purchases HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\nContent-Length: "
+                    + ORDER.length() + "\r\n\r\n" + ORDER;
+            channel.write(ByteBuffer.wrap(request.getBytes(StandardCharsets.US_ASCII)));
+            ByteBuffer in = ByteBuffer.allocate(1024);
+            while (in.hasRemaining() && channel.read(in) >= 0) {
+                // Read until the server closes the connection after its response
+            }
+            response = new String(in.array(), 0, in.position(), StandardCharsets.US_ASCII);
+        }
+        if (!response.startsWith("HTTP/1.1 200")) {
+            System.err.println("First purchase failed: " + response);
+            System.exit(1);
+        }
+        System.out.println(READY);
+    }
+}
@@ -1,9 +1,16 @@
 package uk.gov.dwp.uc.pairtest;
 
+import thirdparty.paymentgateway.RefundableTicketPaymentService;
 import thirdparty.paymentgateway.TicketPaymentService;
+import thirdparty.seatbooking.ReleasableSeatReservationService;
 import thirdparty.seatbooking.SeatReservationService;
+import uk.gov.dwp.uc.pairtest.domain.OrderSummary;
+import uk.gov.dwp.uc.pairtest.domain.PurchaseResult;
 import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
 import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException.Reason;
+import uk.gov.dwp.uc.pairtest.limit.PurchaseLimiter;
+import uk.gov.dwp.uc.pairtest.metrics.PurchaseMetrics;
 
 import java.util.Arrays;
 
@@ -11,51 +18,214 @@ public class TicketServiceImpl implements TicketService{
     private final TicketPaymentService paymentService;
     private static final int MAX_TICKETS = 25;
     private final SeatReservationService reservationService;
+    private final PurchaseLimiter purchaseLimiter;
+    private final PurchaseMetrics metrics;
+    private final ThreadLocal<OrderSummary> orderSummaries = ThreadLocal.withInitial(OrderSummary::new);
 
     public TicketServiceImpl(TicketPaymentService paymentService, SeatReservationService reservationService) {
+        this(paymentService, reservationService, PurchaseLimiter.UNLIMITED);
+    }
+
+    /**
+     * Creates a service that also enforces a per-account limit across orders.
+     */
+    public TicketServiceImpl(TicketPaymentService paymentService, SeatReservationService reservationService,
+                             PurchaseLimiter purchaseLimiter) {
+        this(paymentService, reservationService, purchaseLimiter, PurchaseMetrics.NOOP);
+    }
+
+    /**
+     * Creates a service that enforces the given limit and reports to the given metrics.
+     */
+    public TicketServiceImpl(TicketPaymentService paymentService, SeatReservationService reservationService,
+                             PurchaseLimiter purchaseLimiter, PurchaseMetrics metrics) {
         if (paymentService == null) {
             throw new IllegalArgumentException("Payment service cannot be null.");
         }
         if (reservationService == null) {
             throw new IllegalArgumentException("Reservation service cannot be null.");
         }
+        if (purchaseLimiter == null) {
+            throw new IllegalArgumentException("Purchase limiter cannot be null.");
+        }
+        if (metrics == null) {
+            throw new IllegalArgumentException("Metrics cannot be null.");
+        }
         this.paymentService = paymentService;
         this.reservationService = reservationService;
+        this.purchaseLimiter = purchaseLimiter;
+        this.metrics = metrics;
     }
 
     @Override
     public void purchaseTickets(Long accountId, TicketTypeRequest... ticketTypeRequests) throws InvalidPurchaseException {
-        validateUserInput(accountId, ticketTypeRequests);
+        if (accountId == null) {
+            throw InvalidPurchaseException.of(Reason.INVALID_ACCOUNT_ID);
+        }
+        purchaseTickets(accountId.longValue(), ticketTypeRequests);
+    }
+
+    /**
+     * Purchases tickets for a primitive account ID.
+     * Evaluates the order in a single pass and does not allocate on the success path.
+     * Takes a plain array so callers can reuse it and the call stays unambiguous with the varargs overload.
+     */
+    public void purchaseTickets(long accountId, TicketTypeRequest[] ticketTypeRequests) throws InvalidPurchaseException {
+        OrderSummary summary = orderSummaries.get();
+        Reason reason = admitOrder(accountId, ticketTypeRequests, summary);
+        if (reason != null) {
+            throw InvalidPurchaseException.of(reason);
+        }
+
+        completeOrder(accountId, summary);
+    }
+
+    /**
+     * Purchases tickets without throwing for invalid orders.
+     * Rejections return a shared result carrying the reason, so they do not allocate.
+     */
+    public PurchaseResult tryPurchaseTickets(long accountId, TicketTypeRequest[] ticketTypeRequests) {
+        OrderSummary summary = orderSummaries.get();
+        Reason reason = admitOrder(accountId, ticketTypeRequests, summary);
+        if (reason != null) {
+            return PurchaseResult.rejected(reason);
+        }
+
+        completeOrder(accountId, summary);
+        return PurchaseResult.accepted(accountId, summary.getTotalAmount(), summary.getTotalSeats());
+    }
+
+    /**
+     * Checks the order and counts its tickets against the account's limit.
+     * Returns the rejection reason, or null when the order may go ahead; in that case the caller must
+     * either complete the order or give the tickets back with {@link #releaseOrder(long, int)}.
+     */
+    public Reason admitOrder(long accountId, TicketTypeRequest[] ticketTypeRequests, OrderSummary summary) {
+        Reason reason = validateOrder(accountId, ticketTypeRequests, summary);
+        return reason != null ? reason : admitValidatedOrder(accountId, summary);
+    }
 
-        int totalTickets = calculateTotalTickets(ticketTypeRequests);
-        int totalAmount = calculateTotalAmount(ticketTypeRequests);
-        int totalSeats = calculateTotalSeats(ticketTypeRequests);
-        boolean hasAdultTicket = containsAdultTicket(ticketTypeRequests);
+    /**
+     * Applies the purchase rules like {@link #checkOrder}, reporting the time taken and any rejection to the metrics.
+     * Does not touch the account limit, so orders may be validated on any thread and in any order;
+     * those it passes are then admitted with {@link #admitValidatedOrder(long, OrderSummary)}.
+     */
+    public Reason validateOrder(long accountId, TicketTypeRequest[] ticketTypeRequests, OrderSummary summary) {
+        long start = metrics.startTimer();
+        Reason reason = checkOrder(accountId, ticketTypeRequests, summary);
+        metrics.recordValidation(start);
+        if (reason != null) {
+            metrics.recordRejection(reason);
+        }
+        return reason;
+    }
 
-        validateTicketRules(totalTickets, hasAdultTicket);
+    /**
+     * Counts the tickets of a validated order against the account's limit.
+     * Returns null when the order may go ahead, with the same obligations as {@link #admitOrder}.
+     */
+    public Reason admitValidatedOrder(long accountId, OrderSummary summary) {
+        if (!purchaseLimiter.tryAcquire(accountId, summary.getTotalTickets())) {
+            metrics.recordRejection(Reason.ACCOUNT_LIMIT_EXCEEDED);
+            return Reason.ACCOUNT_LIMIT_EXCEEDED;
+        }
+        metrics.recordAdmitted(summary);
+        return null;
+    }
 
-        processPayment(accountId, totalAmount);
-        reserveSeats(accountId, totalSeats);
+    /**
+     * Gives back the account limit taken by an admitted order that failed to complete.
+     */
+    public void releaseOrder(long accountId, int totalTickets) {
+        purchaseLimiter.release(accountId, totalTickets);
+    }
+
+    private void completeOrder(long accountId, OrderSummary summary) {
+        try {
+            processPayment(accountId, summary.getTotalAmount());
+            reserveSeats(accountId, summary.getTotalSeats());
+        } catch (RuntimeException e) {
+            releaseOrder(accountId, summary.getTotalTickets());
+            throw e;
+        }
+    }
+
+    /**
+     * Applies all purchase rules to an order, filling the summary on the way.
+     * Returns the first rejection reason, or null when the order is valid.
+     */
+    public Reason checkOrder(long accountId, TicketTypeRequest[] ticketTypeRequests, OrderSummary summary) {
+        Reason reason = checkUserInput(accountId, ticketTypeRequests);
+        if (reason == null) {
+            reason = summarise(summary, ticketTypeRequests);
+        }
+        if (reason == null) {
+            reason = checkTicketRules(summary.getTotalTickets(), summary.hasAdultTicket());
+        }
+        return reason;
     }
 
     /**
      * Validates user input (Account ID and Ticket Type Requests)
      */
     public void validateUserInput(Long accountId, TicketTypeRequest... ticketTypeRequests) {
-        if (accountId == null || accountId <= 0) {
-            throw new InvalidPurchaseException("Invalid Account ID.");
+        if (accountId == null) {
+            throw InvalidPurchaseException.of(Reason.INVALID_ACCOUNT_ID);
+        }
+        Reason reason = checkUserInput(accountId, ticketTypeRequests);
+        if (reason != null) {
+            throw InvalidPurchaseException.of(reason);
+        }
+        for (TicketTypeRequest request : ticketTypeRequests) {
+            if (request == null) {
+                throw InvalidPurchaseException.of(Reason.NULL_REQUEST_ELEMENT);
+            }
+            if (request.getTicketType() == null) {
+                throw InvalidPurchaseException.of(Reason.NULL_TICKET_TYPE);
+            }
+        }
+    }
+
+    /**
+     * Checks the Account ID and the request array itself.
+     * Null elements and null ticket types are rejected while the order is evaluated.
+     */
+    private Reason checkUserInput(long accountId, TicketTypeRequest[] ticketTypeRequests) {
+        if (accountId <= 0) {
+            return Reason.INVALID_ACCOUNT_ID;
         }
         if (ticketTypeRequests == null) {
-            throw new InvalidPurchaseException("Ticket type requests cannot be null");
+            return Reason.NULL_REQUESTS;
         }
         if (ticketTypeRequests.length == 0) {
-            throw new InvalidPurchaseException("At least one ticket type must be specified.");
+            return Reason.EMPTY_REQUESTS;
+        }
+        return null;
+    }
+
+    /**
+     * Calculates ticket count, amount, seat count and adult presence in a single pass.
+     * The summary is reset before use.
+     */
+    public void evaluateOrder(OrderSummary summary, TicketTypeRequest... ticketTypeRequests) {
+        Reason reason = summarise(summary, ticketTypeRequests);
+        if (reason != null) {
+            throw InvalidPurchaseException.of(reason);
         }
+    }
+
+    private Reason summarise(OrderSummary summary, TicketTypeRequest[] ticketTypeRequests) {
+        summary.reset();
         for (TicketTypeRequest request : ticketTypeRequests) {
             if (request == null) {
-                throw new InvalidPurchaseException("Ticket type requests cannot contain null elements.");
+                return Reason.NULL_REQUEST_ELEMENT;
+            }
+            if (request.getTicketType() == null) {
+                return Reason.NULL_TICKET_TYPE;
             }
+            summary.add(request);
         }
+        return null;
     }
 
     /**
@@ -99,28 +269,107 @@ public class TicketServiceImpl implements TicketService{
      * Validates business rules related to ticket purchases.
      */
     public void validateTicketRules(int totalTickets, boolean hasAdultTicket) {
+        Reason reason = checkTicketRules(totalTickets, hasAdultTicket);
+        if (reason != null) {
+            throw InvalidPurchaseException.of(reason);
+        }
+    }
+
+    private Reason checkTicketRules(int totalTickets, boolean hasAdultTicket) {
         if (totalTickets <= 0) {
-            throw new InvalidPurchaseException("At least one ticket must be purchased.");
+            return Reason.NO_TICKETS;
         }
         if (totalTickets > MAX_TICKETS) {
-            throw new InvalidPurchaseException("Cannot purchase more than 25 tickets at a time.");
+            return Reason.TOO_MANY_TICKETS;
         }
         if (!hasAdultTicket) {
-            throw new InvalidPurchaseException("Child and Infant tickets cannot be purchased without an Adult ticket.");
+            return Reason.NO_ADULT_TICKET;
         }
+        return null;
     }
 
     /**
-     * Handles payment processing.
+     * Handles payment processing. Failed calls are timed too, as slow failures make up the latency tail.
      */
-    public void processPayment(Long accountId, int totalAmount) {
-        paymentService.makePayment(accountId, totalAmount);
+    public void processPayment(long accountId, int totalAmount) {
+        long start = metrics.startTimer();
+        try {
+            paymentService.makePayment(accountId, totalAmount);
+        } finally {
+            metrics.recordPayment(start);
+        }
     }
 
     /**
      * Handles seat reservation.
      */
-    public void reserveSeats(Long accountId, int totalSeats) {
-        reservationService.reserveSeat(accountId, totalSeats);
+    public void reserveSeats(long accountId, int totalSeats) {
+        long start = metrics.startTimer();
+        try {
+            reservationService.reserveSeat(accountId, totalSeats);
+        } finally {
+            metrics.recordReservation(start);
+        }
+    }
+
+    /**
+     * Returns true when both gateways take order references, so that the referenced calls below may be used.
+     * Services that compensate orders check this when they are created.
+     */
+    public boolean supportsOrderReferences() {
+        return paymentService instanceof RefundableTicketPaymentService
+                && reservationService instanceof ReleasableSeatReservationService;
+    }
+
+    /**
+     * Handles payment processing under a reference that a later refund can name.
+     */
+    public void processPayment(long accountId, int totalAmount, long orderReference) {
+        long start = metrics.startTimer();
+        try {
+            refundablePayments().makePayment(accountId, totalAmount, orderReference);
+        } finally {
+            metrics.recordPayment(start);
+        }
+    }
+
+    /**
+     * Handles seat reservation under a reference that a later release can name.
+     */
+    public void reserveSeats(long accountId, int totalSeats, long orderReference) {
+        long start = metrics.startTimer();
+        try {
+            releasableReservations().reserveSeat(accountId, totalSeats, orderReference);
+        } finally {
+            metrics.recordReservation(start);
+        }
+    }
+
+    /**
+     * Compensates the payment taken under the reference for an order that could not be completed.
+     */
+    public void refundPayment(long accountId, int totalAmount, long orderReference) {
+        refundablePayments().refundPayment(accountId, totalAmount, orderReference);
+    }
+
+    /**
+     * Compensates the seats reserved under the reference for an order that could not be completed.
+     */
+    public void releaseSeats(long accountId, int totalSeats, long orderReference) {
+        releasableReservations().releaseSeat(accountId, totalSeats, orderReference);
+    }
+
+    private RefundableTicketPaymentService refundablePayments() {
+        if (!(paymentService instanceof RefundableTicketPaymentService)) {
+            throw new IllegalStateException("Payment service does not take order references.");
+        }
+        return (RefundableTicketPaymentService) paymentService;
+    }
+
+    private ReleasableSeatReservationService releasableReservations() {
+        if (!(reservationService instanceof ReleasableSeatReservationService)) {
+            throw new IllegalStateException("Reservation service does not take order references.");
+        }
+        return (ReleasableSeatReservationService) reservationService;
     }
 }
@@ -0,0 +1,19 @@
+package uk.gov.dwp.uc.pairtest.batch;
+
+import java.util.concurrent.CompletionException;
+
+final class BatchFailures {
+
+    private BatchFailures() {
+    }
+
+    /**
+     * Rethrows the gateway's own runtime exception rather than the CompletionException wrapper.
+     */
+    static RuntimeException unwrap(CompletionException e) {
+        if (e.getCause() instanceof RuntimeException) {
+            return (RuntimeException) e.getCause();
+        }
+        return e;
+    }
+}
@@ -0,0 +1,50 @@
+package uk.gov.dwp.uc.pairtest.batch;
+
+import thirdparty.seatbooking.BatchSeatReservationService;
+import thirdparty.seatbooking.SeatReservationService;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reservation service that coalesces reservations from concurrent callers into micro-batches
+ * and submits each batch with a single call to the underlying gateway.
+ * Batch entries carry no order references, so seats reserved here cannot be released by reference.
+ */
+public class BatchingSeatReservationService implements SeatReservationService, AutoCloseable {
+
+    private final MicroBatcher batcher;
+
+    public BatchingSeatReservationService(BatchSeatReservationService reservationService, int maxBatchSize, long linger, TimeUnit unit) {
+        if (reservationService == null) {
+            throw new IllegalArgumentException("Reservation service cannot be null.");
+        }
+        this.batcher = new MicroBatcher("reservation-batcher", maxBatchSize, linger, unit, reservationService::reserveSeats,
+                reservationService::reserveSeat);
+    }
+
+    /**
+     * Reserves seats and waits until the batch it was placed in has been submitted.
+     */
+    @Override
+    public void reserveSeat(long accountId, int totalSeatsToAllocate) {
+        try {
+            submitReservation(accountId, totalSeatsToAllocate).join();
+        } catch (CompletionException e) {
+            throw BatchFailures.unwrap(e);
+        }
+    }
+
+    /**
+     * Queues a reservation and returns a future completed when its batch has been submitted.
+     */
+    public CompletableFuture<Void> submitReservation(long accountId, int totalSeatsToAllocate) {
+        return batcher.submit(accountId, totalSeatsToAllocate);
+    }
+
+    @Override
+    public void close() {
+        batcher.close();
+    }
+}
@@ -0,0 +1,50 @@
+package uk.gov.dwp.uc.pairtest.batch;
+
+import thirdparty.paymentgateway.BatchTicketPaymentService;
+import thirdparty.paymentgateway.TicketPaymentService;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Payment service that coalesces payments from concurrent callers into micro-batches
+ * and submits each batch with a single call to the underlying gateway.
+ * Batch entries carry no order references, so payments made here cannot be refunded by reference.
+ */
+public class BatchingTicketPaymentService implements TicketPaymentService, AutoCloseable {
+
+    private final MicroBatcher batcher;
+
+    public BatchingTicketPaymentService(BatchTicketPaymentService paymentService, int maxBatchSize, long linger, TimeUnit unit) {
+        if (paymentService == null) {
+            throw new IllegalArgumentException("Payment service cannot be null.");
+        }
+        this.batcher = new MicroBatcher("payment-batcher", maxBatchSize, linger, unit, paymentService::makePayments,
+                paymentService::makePayment);
+    }
+
+    /**
+     * Makes a payment and waits until the batch it was placed in has been submitted.
+     */
+    @Override
+    public void makePayment(long accountId, int totalAmountToPay) {
+        try {
+            submitPayment(accountId, totalAmountToPay).join();
+        } catch (CompletionException e) {
+            throw BatchFailures.unwrap(e);
+        }
+    }
+
+    /**
+     * Queues a payment and returns a future completed when its batch has been submitted.
+     */
+    public CompletableFuture<Void> submitPayment(long accountId, int totalAmountToPay) {
+        return batcher.submit(accountId, totalAmountToPay);
+    }
+
+    @Override
+    public void close() {
+        batcher.close();
+    }
+}
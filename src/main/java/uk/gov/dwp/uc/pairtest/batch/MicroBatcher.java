@@ -0,0 +1,235 @@
+package uk.gov.dwp.uc.pairtest.batch;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Collects (accountId, value) pairs from many threads into micro-batches.
+ * A batch is flushed when it reaches the maximum size or when the linger time since its
+ * first entry has passed. Each submitter gets a future completed with its own entry's outcome.
+ */
+public class MicroBatcher implements AutoCloseable {
+
+    /**
+     * Handles one batch; the first count entries of the arrays are valid.
+     * The failure of each entry that was not applied is stored at its index in failures, which arrives all null.
+     * Throwing means no entry was applied.
+     */
+    public interface BatchHandler {
+        void handle(long[] accountIds, int[] values, int count, RuntimeException[] failures);
+    }
+
+    /**
+     * Handles a single entry; used for each entry of a batch whose handler threw.
+     */
+    public interface EntryHandler {
+        void handle(long accountId, int value);
+    }
+
+    private final int maxBatchSize;
+    private final long lingerNanos;
+    private final BatchHandler handler;
+    private final EntryHandler entryHandler;
+    private final Thread flusher;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition batchReady = lock.newCondition();
+    private final Condition batchTaken = lock.newCondition();
+
+    private Batch pending;
+    private Batch spare;
+    private long pendingSince;
+    private boolean closed;
+
+    public MicroBatcher(String name, int maxBatchSize, long linger, TimeUnit unit, BatchHandler handler, EntryHandler entryHandler) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("Max batch size must be positive.");
+        }
+        if (linger < 0) {
+            throw new IllegalArgumentException("Linger time cannot be negative.");
+        }
+        if (handler == null) {
+            throw new IllegalArgumentException("Batch handler cannot be null.");
+        }
+        if (entryHandler == null) {
+            throw new IllegalArgumentException("Entry handler cannot be null.");
+        }
+        this.maxBatchSize = maxBatchSize;
+        this.lingerNanos = unit.toNanos(linger);
+        this.handler = handler;
+        this.entryHandler = entryHandler;
+        this.pending = new Batch(maxBatchSize);
+        this.spare = new Batch(maxBatchSize);
+        this.flusher = new Thread(this::flushLoop, name);
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Adds an entry to the current batch, waiting if the batch is full and the previous one
+     * is still being handled.
+     */
+    public CompletableFuture<Void> submit(long accountId, int value) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        lock.lock();
+        try {
+            while (!closed && pending.count == maxBatchSize) {
+                batchTaken.awaitUninterruptibly();
+            }
+            if (closed) {
+                throw new IllegalStateException("Batcher has been closed.");
+            }
+            if (pending.count == 0) {
+                pendingSince = System.nanoTime();
+            }
+            pending.add(accountId, value, future);
+            if (pending.count == 1 || pending.count == maxBatchSize) {
+                batchReady.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+        return future;
+    }
+
+    /**
+     * Stops accepting entries, flushes anything pending and waits for the flusher to finish.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            batchReady.signal();
+            batchTaken.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            Batch batch = takeBatch();
+            if (batch == null) {
+                return;
+            }
+            try {
+                handler.handle(batch.accountIds, batch.values, batch.count, batch.failures);
+                batch.complete();
+            } catch (RuntimeException e) {
+                // Nothing in the batch was applied, so each entry is tried on its own and gets its own outcome
+                handleEachEntry(batch);
+                batch.complete();
+            } catch (Throwable e) {
+                // Even an Error only fails this batch; the flusher must live on or every later submitter would hang
+                batch.fail(e);
+            }
+            batch.clear();
+            lock.lock();
+            try {
+                spare = batch;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void handleEachEntry(Batch batch) {
+        for (int i = 0; i < batch.count; i++) {
+            try {
+                entryHandler.handle(batch.accountIds[i], batch.values[i]);
+                batch.failures[i] = null;
+            } catch (RuntimeException e) {
+                batch.failures[i] = e;
+            }
+        }
+    }
+
+    /**
+     * Waits until the pending batch is full, has lingered long enough or the batcher is closed,
+     * then swaps it with the spare batch.
+     */
+    private Batch takeBatch() {
+        lock.lock();
+        try {
+            while (true) {
+                if (pending.count == 0) {
+                    if (closed) {
+                        return null;
+                    }
+                    batchReady.awaitUninterruptibly();
+                    continue;
+                }
+                long remaining = lingerNanos - (System.nanoTime() - pendingSince);
+                if (pending.count == maxBatchSize || remaining <= 0 || closed) {
+                    Batch batch = pending;
+                    pending = spare;
+                    spare = null;
+                    batchTaken.signalAll();
+                    return batch;
+                }
+                try {
+                    batchReady.awaitNanos(remaining);
+                } catch (InterruptedException e) {
+                    // The flusher thread is owned by this batcher; close() is the only way to stop it.
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static final class Batch {
+        final long[] accountIds;
+        final int[] values;
+        final RuntimeException[] failures;
+        final CompletableFuture<Void>[] futures;
+        int count;
+
+        @SuppressWarnings("unchecked")
+        Batch(int capacity) {
+            accountIds = new long[capacity];
+            values = new int[capacity];
+            failures = new RuntimeException[capacity];
+            futures = (CompletableFuture<Void>[]) new CompletableFuture<?>[capacity];
+        }
+
+        void add(long accountId, int value, CompletableFuture<Void> future) {
+            accountIds[count] = accountId;
+            values[count] = value;
+            futures[count] = future;
+            count++;
+        }
+
+        void complete() {
+            for (int i = 0; i < count; i++) {
+                if (failures[i] == null) {
+                    futures[i].complete(null);
+                } else {
+                    futures[i].completeExceptionally(failures[i]);
+                }
+            }
+        }
+
+        void fail(Throwable failure) {
+            for (int i = 0; i < count; i++) {
+                futures[i].completeExceptionally(failure);
+            }
+        }
+
+        void clear() {
+            for (int i = 0; i < count; i++) {
+                futures[i] = null;
+                failures[i] = null;
+            }
+            count = 0;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+import java.util.Arrays;
+
+/**
+ * Mutable, reusable totals for a single order.
+ * Instances are not thread safe and are meant to be reset and refilled per order.
+ */
+public final class OrderSummary {
+
+    private static final int TICKET_TYPES = TicketTypeRequest.TicketType.values().length;
+
+    private final int[] ticketsByType = new int[TICKET_TYPES];
+    private int totalTickets;
+    private int totalAmount;
+    private int totalSeats;
+    private boolean hasAdultTicket;
+
+    /**
+     * Clears all totals so the summary can be reused for the next order.
+     */
+    public void reset() {
+        totalTickets = 0;
+        totalAmount = 0;
+        totalSeats = 0;
+        hasAdultTicket = false;
+        Arrays.fill(ticketsByType, 0);
+    }
+
+    /**
+     * Adds a single ticket type request to the running totals.
+     * Infants are not allocated seats.
+     */
+    public void add(TicketTypeRequest request) {
+        TicketTypeRequest.TicketType type = request.getTicketType();
+        int noOfTickets = request.getNoOfTickets();
+
+        totalTickets += noOfTickets;
+        ticketsByType[type.ordinal()] += noOfTickets;
+        totalAmount += type.getPrice() * noOfTickets;
+        if (type != TicketTypeRequest.TicketType.INFANT) {
+            totalSeats += noOfTickets;
+        }
+        if (type == TicketTypeRequest.TicketType.ADULT) {
+            hasAdultTicket = true;
+        }
+    }
+
+    public int getTotalTickets() {
+        return totalTickets;
+    }
+
+    public int getTotalAmount() {
+        return totalAmount;
+    }
+
+    public int getTotalSeats() {
+        return totalSeats;
+    }
+
+    public boolean hasAdultTicket() {
+        return hasAdultTicket;
+    }
+
+    public int getTickets(TicketTypeRequest.TicketType type) {
+        return ticketsByType[type.ordinal()];
+    }
+}
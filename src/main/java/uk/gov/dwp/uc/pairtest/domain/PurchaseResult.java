@@ -0,0 +1,80 @@
+package uk.gov.dwp.uc.pairtest.domain;
+
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+
+/**
+ * Outcome of a purchase attempt.
+ * Rejected results are shared per reason so the rejection path does not allocate.
+ */
+public final class PurchaseResult {
+    private static final PurchaseResult[] REJECTED = new PurchaseResult[InvalidPurchaseException.Reason.values().length];
+
+    static {
+        for (InvalidPurchaseException.Reason reason : InvalidPurchaseException.Reason.values()) {
+            REJECTED[reason.ordinal()] = new PurchaseResult(0L, 0, 0, reason);
+        }
+    }
+
+    private final long accountId;
+    private final int totalAmount;
+    private final int totalSeats;
+    private final InvalidPurchaseException.Reason rejectionReason;
+
+    private PurchaseResult(long accountId, int totalAmount, int totalSeats, InvalidPurchaseException.Reason rejectionReason) {
+        this.accountId = accountId;
+        this.totalAmount = totalAmount;
+        this.totalSeats = totalSeats;
+        this.rejectionReason = rejectionReason;
+    }
+
+    public static PurchaseResult accepted(long accountId, int totalAmount, int totalSeats) {
+        return new PurchaseResult(accountId, totalAmount, totalSeats, null);
+    }
+
+    public static PurchaseResult rejected(InvalidPurchaseException.Reason reason) {
+        return REJECTED[reason.ordinal()];
+    }
+
+    public boolean isAccepted() {
+        return rejectionReason == null;
+    }
+
+    /**
+     * Returns the account ID of an accepted purchase, or 0 when rejected.
+     */
+    public long getAccountId() {
+        return accountId;
+    }
+
+    public int getTotalAmount() {
+        return totalAmount;
+    }
+
+    public int getTotalSeats() {
+        return totalSeats;
+    }
+
+    /**
+     * Returns why the purchase was rejected, or null when it was accepted.
+     */
+    public InvalidPurchaseException.Reason getRejectionReason() {
+        return rejectionReason;
+    }
+
+    /**
+     * Converts a rejected result back into the matching preallocated exception.
+     */
+    public InvalidPurchaseException toException() {
+        if (rejectionReason == null) {
+            throw new IllegalStateException("Purchase was accepted.");
+        }
+        return InvalidPurchaseException.of(rejectionReason);
+    }
+
+    @Override
+    public String toString() {
+        return isAccepted()
+                ? "PurchaseResult{accepted, accountId=" + accountId + ", totalAmount=" + totalAmount + ", totalSeats=" + totalSeats + "}"
+                : "PurchaseResult{rejected, reason=" + rejectionReason + "}";
+    }
+}
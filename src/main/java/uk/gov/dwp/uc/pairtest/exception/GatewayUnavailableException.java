@@ -0,0 +1,48 @@
+package uk.gov.dwp.uc.pairtest.exception;
+
+/**
+ * Thrown when a gateway call is refused or abandoned by the resilience layer rather than failed by the gateway.
+ * Instances are stackless and shared, so failing fast stays cheap under load.
+ */
+public class GatewayUnavailableException extends RuntimeException {
+    private static final GatewayUnavailableException[] PREALLOCATED = new GatewayUnavailableException[Reason.values().length];
+
+    static {
+        for (Reason reason : Reason.values()) {
+            PREALLOCATED[reason.ordinal()] = new GatewayUnavailableException(reason);
+        }
+    }
+
+    private final Reason reason;
+
+    private GatewayUnavailableException(Reason reason) {
+        super(reason.getMessage(), null, false, false);
+        this.reason = reason;
+    }
+
+    /**
+     * Returns the shared exception for the given reason.
+     */
+    public static GatewayUnavailableException of(Reason reason) {
+        return PREALLOCATED[reason.ordinal()];
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+
+    public enum Reason {
+        TIMEOUT("Gateway did not respond before the deadline."),
+        BULKHEAD_FULL("Too many gateway calls in progress."),
+        CIRCUIT_OPEN("Gateway is failing; calls are suspended."),
+        INTERRUPTED("Interrupted while waiting for the gateway.");
+
+        private final String message;
+        Reason(String message) {
+            this.message = message;
+        }
+        public String getMessage() {
+            return message;
+        }
+    }
+}
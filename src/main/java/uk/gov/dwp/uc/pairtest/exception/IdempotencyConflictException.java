@@ -0,0 +1,10 @@
+package uk.gov.dwp.uc.pairtest.exception;
+
+/**
+ * Thrown when an idempotency key is sent again with a request that differs from the one it was first used for.
+ */
+public class IdempotencyConflictException extends RuntimeException{
+    public IdempotencyConflictException(String message) {
+        super(message);
+    }
+}
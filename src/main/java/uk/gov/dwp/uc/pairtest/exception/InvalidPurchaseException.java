@@ -1,7 +1,61 @@
 package uk.gov.dwp.uc.pairtest.exception;
 
 public class InvalidPurchaseException extends RuntimeException{
+    private static final InvalidPurchaseException[] PREALLOCATED = new InvalidPurchaseException[Reason.values().length];
+
+    static {
+        for (Reason reason : Reason.values()) {
+            PREALLOCATED[reason.ordinal()] = new InvalidPurchaseException(reason);
+        }
+    }
+
+    private final Reason reason;
+
     public InvalidPurchaseException(String message) {
         super(message);
+        this.reason = null;
+    }
+
+    /**
+     * Creates a stackless exception for a known rejection reason.
+     * Prefer {@link #of(Reason)}, which returns a shared instance.
+     */
+    public InvalidPurchaseException(Reason reason) {
+        super(reason.getMessage(), null, false, false);
+        this.reason = reason;
+    }
+
+    /**
+     * Returns the preallocated, stackless exception for the given reason.
+     */
+    public static InvalidPurchaseException of(Reason reason) {
+        return PREALLOCATED[reason.ordinal()];
+    }
+
+    /**
+     * Returns the typed rejection reason, or null when created from a free-form message.
+     */
+    public Reason getReason() {
+        return reason;
+    }
+
+    public enum Reason {
+        INVALID_ACCOUNT_ID("Invalid Account ID."),
+        NULL_REQUESTS("Ticket type requests cannot be null"),
+        EMPTY_REQUESTS("At least one ticket type must be specified."),
+        NULL_REQUEST_ELEMENT("Ticket type requests cannot contain null elements."),
+        NO_TICKETS("At least one ticket must be purchased."),
+        TOO_MANY_TICKETS("Cannot purchase more than 25 tickets at a time."),
+        NO_ADULT_TICKET("Child and Infant tickets cannot be purchased without an Adult ticket."),
+        ACCOUNT_LIMIT_EXCEEDED("Account has reached its ticket limit for this period."),
+        NULL_TICKET_TYPE("Ticket type cannot be null.");
+
+        private final String message;
+        Reason(String message) {
+            this.message = message;
+        }
+        public String getMessage() {
+            return message;
+        }
     }
 }
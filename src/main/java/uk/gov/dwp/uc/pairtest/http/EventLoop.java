@@ -0,0 +1,174 @@
+package uk.gov.dwp.uc.pairtest.http;
+
+import uk.gov.dwp.uc.pairtest.AsyncTicketService;
+
+import java.io.IOException;
+import java.net.StandardSocketOptions;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A selector and the one thread that owns it and every connection registered with it.
+ * Other threads only hand it new channels or connections whose purchases have finished, through lock-free
+ * queues; the selector is woken at most once per batch of hand-offs.
+ */
+final class EventLoop {
+
+    private final Selector selector;
+    private final Thread thread;
+    private final AsyncTicketService ticketService;
+    private final int bufferSize;
+    private final OrderJsonParser parser = new OrderJsonParser();
+    private final ConcurrentLinkedQueue<SocketChannel> newChannels = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<HttpConnection> readyConnections = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean wakeupPending = new AtomicBoolean();
+    private ServerSocketChannel acceptChannel;
+    private PurchaseHttpServer server;
+    private volatile boolean closed;
+
+    EventLoop(int index, AsyncTicketService ticketService, int bufferSize) throws IOException {
+        this.selector = Selector.open();
+        this.thread = new Thread(this::run, "http-loop-" + index);
+        this.ticketService = ticketService;
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Makes this loop accept connections for the server; must be called before {@link #start()}.
+     */
+    void acceptFor(ServerSocketChannel acceptChannel, PurchaseHttpServer server) throws IOException {
+        this.acceptChannel = acceptChannel;
+        this.server = server;
+        acceptChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    void register(SocketChannel channel) {
+        newChannels.add(channel);
+        wakeup();
+    }
+
+    void ready(HttpConnection connection) {
+        readyConnections.add(connection);
+        wakeup();
+    }
+
+    void close() {
+        closed = true;
+        selector.wakeup();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void wakeup() {
+        if (wakeupPending.compareAndSet(false, true)) {
+            selector.wakeup();
+        }
+    }
+
+    private void run() {
+        try {
+            while (!closed) {
+                selector.select();
+                wakeupPending.set(false);
+                registerNewChannels();
+                HttpConnection connection;
+                while ((connection = readyConnections.poll()) != null) {
+                    onReady(connection);
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    handle(key);
+                }
+            }
+        } catch (IOException e) {
+            // The selector itself failed; fall through and close everything it owns
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof HttpConnection) {
+                    ((HttpConnection) key.attachment()).close();
+                }
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                // Nothing left to release
+            }
+        }
+    }
+
+    private void handle(SelectionKey key) {
+        try {
+            if (key.isAcceptable()) {
+                accept();
+                return;
+            }
+            HttpConnection connection = (HttpConnection) key.attachment();
+            if (key.isReadable()) {
+                connection.onReadable();
+            } else if (key.isWritable()) {
+                connection.onWritable();
+            }
+        } catch (CancelledKeyException e) {
+            // The connection was closed while handling an earlier event
+        } catch (RuntimeException e) {
+            // A failure on one connection must not end the loop that serves all the others
+            if (key.attachment() instanceof HttpConnection) {
+                ((HttpConnection) key.attachment()).close();
+            }
+        }
+    }
+
+    private void onReady(HttpConnection connection) {
+        try {
+            connection.onReady();
+        } catch (CancelledKeyException e) {
+            // Closed after its purchase was started
+        } catch (RuntimeException e) {
+            connection.close();
+        }
+    }
+
+    private void accept() {
+        SocketChannel channel;
+        try {
+            while ((channel = acceptChannel.accept()) != null) {
+                server.dispatch(channel);
+            }
+        } catch (IOException e) {
+            // Accepting fails while the server socket is closing, or when out of file descriptors; retry next select
+        }
+    }
+
+    private void registerNewChannels() {
+        SocketChannel channel;
+        while ((channel = newChannels.poll()) != null) {
+            try {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                HttpConnection connection = new HttpConnection(channel, this, ticketService, parser, bufferSize);
+                connection.setKey(channel.register(selector, SelectionKey.OP_READ, connection));
+            } catch (IOException e) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    // Already failed
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,416 @@
+package uk.gov.dwp.uc.pairtest.http;
+
+import uk.gov.dwp.uc.pairtest.AsyncTicketService;
+import uk.gov.dwp.uc.pairtest.domain.PurchaseResult;
+import uk.gov.dwp.uc.pairtest.exception.GatewayUnavailableException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * One keep-alive connection, used only by its event loop's thread.
+ * Requests are parsed in place from the input buffer, so a read holding several pipelined requests starts
+ * all of their purchases at once. Responses are queued in request order and written as soon as the oldest
+ * purchase is done, whatever order the purchases finish in. When too many requests are waiting, or the
+ * client stops reading responses, the connection stops reading until it catches up.
+ */
+final class HttpConnection {
+
+    static final int MAX_PIPELINED_REQUESTS = 64;
+
+    private static final byte[] HTTP_1_1 = ascii("HTTP/1.1");
+    private static final byte[] HTTP_1_0 = ascii("HTTP/1.0");
+    private static final byte[] GET = ascii("GET");
+    private static final byte[] POST = ascii("POST");
+    private static final byte[] PURCHASES = ascii("/purchases");
+    private static final byte[] HEALTH = ascii("/health");
+    private static final byte[] CONTENT_LENGTH = ascii("content-length");
+    private static final byte[] TRANSFER_ENCODING = ascii("transfer-encoding");
+    private static final byte[] CONNECTION = ascii("connection");
+    private static final byte[] CLOSE = ascii("close");
+    private static final byte[] KEEP_ALIVE = ascii("keep-alive");
+
+    private final SocketChannel channel;
+    private final EventLoop loop;
+    private final AsyncTicketService ticketService;
+    private final OrderJsonParser parser;
+    private final ByteBuffer in;
+    private final ByteBuffer out;
+    private final ArrayDeque<Pending> pending = new ArrayDeque<>();
+    private final AtomicBoolean readyQueued = new AtomicBoolean();
+    private SelectionKey key;
+    private boolean inputClosed;
+    private boolean lastRequestRead;
+    private boolean lastResponseWritten;
+    private boolean closed;
+
+    HttpConnection(SocketChannel channel, EventLoop loop, AsyncTicketService ticketService, OrderJsonParser parser,
+                   int bufferSize) {
+        this.channel = channel;
+        this.loop = loop;
+        this.ticketService = ticketService;
+        this.parser = parser;
+        this.in = ByteBuffer.allocateDirect(bufferSize);
+        this.out = ByteBuffer.allocateDirect(Math.max(bufferSize, HttpResponses.MAX_RESPONSE_SIZE));
+    }
+
+    void setKey(SelectionKey key) {
+        this.key = key;
+    }
+
+    void onReadable() {
+        try {
+            if (channel.read(in) < 0) {
+                inputClosed = true;
+            }
+        } catch (IOException e) {
+            close();
+            return;
+        }
+        service();
+    }
+
+    void onWritable() {
+        service();
+    }
+
+    /**
+     * Called by the event loop after a purchase on this connection finished.
+     */
+    void onReady() {
+        readyQueued.set(false);
+        service();
+    }
+
+    void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (key != null) {
+            key.cancel();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Nothing left to do for a connection that failed to close
+        }
+    }
+
+    private void service() {
+        if (closed) {
+            return;
+        }
+        int written;
+        do {
+            readRequests();
+            written = writeResponses();
+        } while (written > 0 && !lastResponseWritten && in.position() > 0);
+        try {
+            out.flip();
+            channel.write(out);
+            out.compact();
+        } catch (IOException e) {
+            close();
+            return;
+        }
+        boolean flushed = out.position() == 0;
+        if (flushed && (lastResponseWritten || (inputClosed && pending.isEmpty()))) {
+            close();
+            return;
+        }
+        int ops = flushed ? 0 : SelectionKey.OP_WRITE;
+        if (!inputClosed && !lastRequestRead && pending.size() < MAX_PIPELINED_REQUESTS && in.hasRemaining()) {
+            ops |= SelectionKey.OP_READ;
+        }
+        key.interestOps(ops);
+    }
+
+    /**
+     * Parses and starts every complete request in the input buffer, then moves any partial request to the front.
+     */
+    private void readRequests() {
+        int start = 0;
+        int limit = in.position();
+        while (!lastRequestRead && pending.size() < MAX_PIPELINED_REQUESTS && start < limit) {
+            int consumed = readRequest(start, limit);
+            if (consumed == 0) {
+                break;
+            }
+            start += consumed;
+        }
+        if (start > 0) {
+            in.flip();
+            in.position(start);
+            in.compact();
+        }
+        if (inputClosed && !lastRequestRead && pending.size() < MAX_PIPELINED_REQUESTS) {
+            // The client sent all it is going to; anything left is an incomplete request
+            lastRequestRead = true;
+        }
+    }
+
+    /**
+     * Reads the request starting at the given offset and queues its response.
+     * Returns the bytes it used, or 0 when the request is not complete yet.
+     */
+    private int readRequest(int start, int limit) {
+        int headerEnd = indexOfHeaderEnd(start, limit);
+        if (headerEnd < 0) {
+            if (start == 0 && limit == in.capacity()) {
+                respond(HttpResponses.TOO_LARGE, true);
+                return limit;
+            }
+            return 0;
+        }
+        int lineEnd = indexOf((byte) '\r', start, headerEnd + 2);
+        int methodEnd = indexOf((byte) ' ', start, lineEnd);
+        int pathEnd = methodEnd < 0 ? -1 : indexOf((byte) ' ', methodEnd + 1, lineEnd);
+        if (pathEnd < 0) {
+            respond(HttpResponses.BAD_REQUEST, true);
+            return headerEnd + 4 - start;
+        }
+        boolean keepAlive;
+        if (equalsBytes(pathEnd + 1, lineEnd, HTTP_1_1)) {
+            keepAlive = true;
+        } else if (equalsBytes(pathEnd + 1, lineEnd, HTTP_1_0)) {
+            keepAlive = false;
+        } else {
+            respond(HttpResponses.BAD_REQUEST, true);
+            return headerEnd + 4 - start;
+        }
+
+        long contentLength = 0;
+        boolean chunked = false;
+        for (int lineStart = lineEnd + 2; lineStart < headerEnd + 2; ) {
+            int end = indexOf((byte) '\r', lineStart, headerEnd + 2);
+            int colon = indexOf((byte) ':', lineStart, end);
+            if (colon < 0) {
+                respond(HttpResponses.BAD_REQUEST, true);
+                return headerEnd + 4 - start;
+            }
+            int valueStart = skipSpaces(colon + 1, end);
+            int valueEnd = trimSpaces(valueStart, end);
+            if (equalsIgnoreCase(lineStart, colon, CONTENT_LENGTH)) {
+                contentLength = parseLength(valueStart, valueEnd);
+                if (contentLength < 0) {
+                    respond(HttpResponses.BAD_REQUEST, true);
+                    return headerEnd + 4 - start;
+                }
+            } else if (equalsIgnoreCase(lineStart, colon, TRANSFER_ENCODING)) {
+                chunked = true;
+            } else if (equalsIgnoreCase(lineStart, colon, CONNECTION)) {
+                if (equalsIgnoreCase(valueStart, valueEnd, CLOSE)) {
+                    keepAlive = false;
+                } else if (equalsIgnoreCase(valueStart, valueEnd, KEEP_ALIVE)) {
+                    keepAlive = true;
+                }
+            }
+            lineStart = end + 2;
+        }
+        if (chunked) {
+            respond(HttpResponses.LENGTH_REQUIRED, true);
+            return headerEnd + 4 - start;
+        }
+        int bodyStart = headerEnd + 4;
+        if (contentLength > in.capacity() - (bodyStart - start)) {
+            respond(HttpResponses.TOO_LARGE, true);
+            return limit - start;
+        }
+        int bodyEnd = bodyStart + (int) contentLength;
+        if (bodyEnd > limit) {
+            return 0;
+        }
+
+        int queryStart = indexOf((byte) '?', methodEnd + 1, pathEnd);
+        int routeEnd = queryStart < 0 ? pathEnd : queryStart;
+        if (equalsBytes(methodEnd + 1, routeEnd, PURCHASES)) {
+            if (equalsBytes(start, methodEnd, POST)) {
+                purchase(bodyStart, bodyEnd, !keepAlive);
+            } else {
+                respond(HttpResponses.METHOD_NOT_ALLOWED, !keepAlive);
+            }
+        } else if (equalsBytes(methodEnd + 1, routeEnd, HEALTH)) {
+            respond(equalsBytes(start, methodEnd, GET) ? HttpResponses.HEALTHY : HttpResponses.METHOD_NOT_ALLOWED, !keepAlive);
+        } else {
+            respond(HttpResponses.NOT_FOUND, !keepAlive);
+        }
+        return bodyEnd - start;
+    }
+
+    private void purchase(int bodyStart, int bodyEnd, boolean close) {
+        if (!parser.parse(in, bodyStart, bodyEnd)) {
+            respond(HttpResponses.BAD_REQUEST, close);
+            return;
+        }
+        CompletableFuture<PurchaseResult> future;
+        try {
+            future = ticketService.purchaseTickets(parser.getAccountId(), parser.getRequests());
+        } catch (RuntimeException e) {
+            respond(HttpResponses.UNAVAILABLE, close);
+            return;
+        }
+        pending.add(new Pending(null, future, close));
+        lastRequestRead |= close;
+        if (!future.isDone()) {
+            future.whenComplete((result, failure) -> {
+                if (readyQueued.compareAndSet(false, true)) {
+                    loop.ready(this);
+                }
+            });
+        }
+    }
+
+    private void respond(HttpResponses.Fixed response, boolean close) {
+        pending.add(new Pending(response, null, close));
+        lastRequestRead |= close;
+    }
+
+    /**
+     * Encodes finished responses from the head of the queue while there is room.
+     * Returns how many were written.
+     */
+    private int writeResponses() {
+        int written = 0;
+        Pending next;
+        while ((next = pending.peek()) != null && out.remaining() >= HttpResponses.MAX_RESPONSE_SIZE) {
+            if (next.fixed != null) {
+                next.fixed.writeTo(out, next.close);
+            } else if (next.future.isDone()) {
+                writeOutcome(next.future, next.close);
+            } else {
+                break;
+            }
+            pending.poll();
+            written++;
+            if (next.close) {
+                lastResponseWritten = true;
+                break;
+            }
+        }
+        return written;
+    }
+
+    private void writeOutcome(CompletableFuture<PurchaseResult> future, boolean close) {
+        PurchaseResult result;
+        try {
+            result = future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof GatewayUnavailableException) {
+                HttpResponses.unavailable(((GatewayUnavailableException) cause).getReason()).writeTo(out, close);
+            } else {
+                HttpResponses.BAD_GATEWAY.writeTo(out, close);
+            }
+            return;
+        } catch (RuntimeException e) {
+            HttpResponses.BAD_GATEWAY.writeTo(out, close);
+            return;
+        }
+        HttpResponses.writeResult(out, result, close);
+    }
+
+    private int indexOfHeaderEnd(int start, int limit) {
+        for (int i = start; i + 3 < limit; i++) {
+            if (in.get(i) == '\r' && in.get(i + 1) == '\n' && in.get(i + 2) == '\r' && in.get(i + 3) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int indexOf(byte b, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (in.get(i) == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int skipSpaces(int start, int end) {
+        while (start < end && (in.get(start) == ' ' || in.get(start) == '\t')) {
+            start++;
+        }
+        return start;
+    }
+
+    private int trimSpaces(int start, int end) {
+        while (end > start && (in.get(end - 1) == ' ' || in.get(end - 1) == '\t')) {
+            end--;
+        }
+        return end;
+    }
+
+    private long parseLength(int start, int end) {
+        if (start == end || end - start > 9) {
+            return -1;
+        }
+        long length = 0;
+        for (int i = start; i < end; i++) {
+            byte b = in.get(i);
+            if (b < '0' || b > '9') {
+                return -1;
+            }
+            length = length * 10 + (b - '0');
+        }
+        return length;
+    }
+
+    private boolean equalsBytes(int start, int end, byte[] expected) {
+        if (end - start != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (in.get(start + i) != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compares with a lower-case ASCII name, ignoring the case of the input.
+     */
+    private boolean equalsIgnoreCase(int start, int end, byte[] lowerCase) {
+        if (end - start != lowerCase.length) {
+            return false;
+        }
+        for (int i = 0; i < lowerCase.length; i++) {
+            byte b = in.get(start + i);
+            if (b >= 'A' && b <= 'Z') {
+                b += 'a' - 'A';
+            }
+            if (b != lowerCase[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * A response waiting its turn: either fixed bytes or a purchase that may still be running.
+     */
+    private static final class Pending {
+        final HttpResponses.Fixed fixed;
+        final CompletableFuture<PurchaseResult> future;
+        final boolean close;
+
+        Pending(HttpResponses.Fixed fixed, CompletableFuture<PurchaseResult> future, boolean close) {
+            this.fixed = fixed;
+            this.future = future;
+            this.close = close;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package uk.gov.dwp.uc.pairtest.http;
+
+import uk.gov.dwp.uc.pairtest.domain.PurchaseResult;
+import uk.gov.dwp.uc.pairtest.exception.GatewayUnavailableException;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes HTTP responses straight into an output buffer.
+ * Every response whose content is known up front, including each rejection and gateway failure reason,
+ * is encoded once as bytes; accepted purchases are written digit by digit, so no response builds a string.
+ */
+final class HttpResponses {
+
+    /**
+     * Room to leave in the output buffer before encoding any response.
+     */
+    static final int MAX_RESPONSE_SIZE = 256;
+
+    static final Fixed HEALTHY = new Fixed(200, "OK", "{\"status\":\"UP\"}");
+    static final Fixed BAD_REQUEST = new Fixed(400, "Bad Request", "{\"error\":\"MALFORMED_REQUEST\"}");
+    static final Fixed NOT_FOUND = new Fixed(404, "Not Found", "{\"error\":\"NOT_FOUND\"}");
+    static final Fixed METHOD_NOT_ALLOWED = new Fixed(405, "Method Not Allowed", "{\"error\":\"METHOD_NOT_ALLOWED\"}");
+    static final Fixed LENGTH_REQUIRED = new Fixed(411, "Length Required", "{\"error\":\"LENGTH_REQUIRED\"}");
+    static final Fixed TOO_LARGE = new Fixed(413, "Content Too Large", "{\"error\":\"REQUEST_TOO_LARGE\"}");
+    static final Fixed BAD_GATEWAY = new Fixed(502, "Bad Gateway", "{\"error\":\"GATEWAY_FAILURE\"}");
+    static final Fixed UNAVAILABLE = new Fixed(503, "Service Unavailable", "{\"error\":\"UNAVAILABLE\"}");
+
+    private static final Fixed[] REJECTED = rejections();
+    private static final Fixed[] GATEWAY_UNAVAILABLE = gatewayUnavailable();
+
+    private static final byte[] ACCEPTED_HEAD = ascii("HTTP/1.1 200 OK\r\nContent-Type: application/json\r\nContent-Length: ");
+    private static final byte[] CLOSE_HEADER = ascii("\r\nConnection: close");
+    private static final byte[] HEADER_END = ascii("\r\n\r\n");
+    private static final byte[] ACCEPTED_ACCOUNT = ascii("{\"accepted\":true,\"accountId\":");
+    private static final byte[] ACCEPTED_AMOUNT = ascii(",\"totalAmount\":");
+    private static final byte[] ACCEPTED_SEATS = ascii(",\"totalSeats\":");
+    private static final int ACCEPTED_FIXED_LENGTH = ACCEPTED_ACCOUNT.length + ACCEPTED_AMOUNT.length + ACCEPTED_SEATS.length + 1;
+
+    private HttpResponses() {
+    }
+
+    static Fixed rejected(InvalidPurchaseException.Reason reason) {
+        return REJECTED[reason.ordinal()];
+    }
+
+    static Fixed unavailable(GatewayUnavailableException.Reason reason) {
+        return GATEWAY_UNAVAILABLE[reason.ordinal()];
+    }
+
+    /**
+     * Writes the response for a completed purchase.
+     */
+    static void writeResult(ByteBuffer out, PurchaseResult result, boolean close) {
+        if (!result.isAccepted()) {
+            rejected(result.getRejectionReason()).writeTo(out, close);
+            return;
+        }
+        long accountId = result.getAccountId();
+        int totalAmount = result.getTotalAmount();
+        int totalSeats = result.getTotalSeats();
+        int contentLength = ACCEPTED_FIXED_LENGTH + digits(accountId) + digits(totalAmount) + digits(totalSeats);
+
+        out.put(ACCEPTED_HEAD);
+        writeNumber(out, contentLength);
+        if (close) {
+            out.put(CLOSE_HEADER);
+        }
+        out.put(HEADER_END);
+        out.put(ACCEPTED_ACCOUNT);
+        writeNumber(out, accountId);
+        out.put(ACCEPTED_AMOUNT);
+        writeNumber(out, totalAmount);
+        out.put(ACCEPTED_SEATS);
+        writeNumber(out, totalSeats);
+        out.put((byte) '}');
+    }
+
+    /**
+     * Writes the decimal digits of a number, which may be negative.
+     */
+    static void writeNumber(ByteBuffer out, long value) {
+        if (value < 0) {
+            out.put((byte) '-');
+            if (value == Long.MIN_VALUE) {
+                out.put(ascii("9223372036854775808"));
+                return;
+            }
+            value = -value;
+        }
+        int length = digits(value);
+        int start = out.position();
+        for (int i = length - 1; i >= 0; i--) {
+            out.put(start + i, (byte) ('0' + value % 10));
+            value /= 10;
+        }
+        out.position(start + length);
+    }
+
+    /**
+     * Returns the number of characters in the decimal form of the number, including any minus sign.
+     */
+    static int digits(long value) {
+        if (value < 0) {
+            return value == Long.MIN_VALUE ? 20 : 1 + digits(-value);
+        }
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+
+    private static Fixed[] rejections() {
+        InvalidPurchaseException.Reason[] reasons = InvalidPurchaseException.Reason.values();
+        Fixed[] responses = new Fixed[reasons.length];
+        for (InvalidPurchaseException.Reason reason : reasons) {
+            responses[reason.ordinal()] = new Fixed(422, "Unprocessable Content",
+                    "{\"accepted\":false,\"reason\":\"" + reason.name() + "\"}");
+        }
+        return responses;
+    }
+
+    private static Fixed[] gatewayUnavailable() {
+        GatewayUnavailableException.Reason[] reasons = GatewayUnavailableException.Reason.values();
+        Fixed[] responses = new Fixed[reasons.length];
+        for (GatewayUnavailableException.Reason reason : reasons) {
+            responses[reason.ordinal()] = new Fixed(503, "Service Unavailable",
+                    "{\"error\":\"GATEWAY_UNAVAILABLE\",\"reason\":\"" + reason.name() + "\"}");
+        }
+        return responses;
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * A complete response encoded once, with and without a {@code Connection: close} header.
+     */
+    static final class Fixed {
+        private final int status;
+        private final byte[] keepAlive;
+        private final byte[] close;
+
+        Fixed(int status, String phrase, String body) {
+            String head = "HTTP/1.1 " + status + " " + phrase + "\r\nContent-Type: application/json\r\nContent-Length: "
+                    + body.length();
+            this.status = status;
+            this.keepAlive = ascii(head + "\r\n\r\n" + body);
+            this.close = ascii(head + "\r\nConnection: close\r\n\r\n" + body);
+        }
+
+        int getStatus() {
+            return status;
+        }
+
+        void writeTo(ByteBuffer out, boolean closeConnection) {
+            out.put(closeConnection ? close : keepAlive);
+        }
+    }
+}
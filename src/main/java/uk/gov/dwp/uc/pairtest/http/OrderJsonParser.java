@@ -0,0 +1,438 @@
+package uk.gov.dwp.uc.pairtest.http;
+
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.TicketType;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads a purchase order straight from the bytes of a request body, without decoding it to a string.
+ * Orders look like {@code {"accountId":1001,"ticketTypeRequests":[{"ticketType":"ADULT","noOfTickets":2}]}}.
+ * Unknown fields are skipped. A missing account ID reads as 0, and missing requests, null elements and null
+ * ticket types as null, so the purchase rules reject them with their usual reasons; anything that is not such
+ * an order is malformed.
+ * Instances keep their scratch space between orders and are not thread safe.
+ */
+final class OrderJsonParser {
+
+    static final int MAX_REQUESTS_PER_ORDER = 32;
+    private static final int MAX_DEPTH = 16;
+    private static final int CACHED_COUNTS = 64;
+    private static final TicketTypeRequest[][] CACHED_REQUESTS = cacheRequests();
+
+    private static final byte[] ACCOUNT_ID = ascii("accountId");
+    private static final byte[] TICKET_TYPE_REQUESTS = ascii("ticketTypeRequests");
+    private static final byte[] TICKET_TYPE = ascii("ticketType");
+    private static final byte[] NO_OF_TICKETS = ascii("noOfTickets");
+    private static final byte[] NULL = ascii("null");
+    private static final byte[] TRUE = ascii("true");
+    private static final byte[] FALSE = ascii("false");
+    private static final TicketType[] TYPES = TicketType.values();
+    private static final byte[][] TYPE_NAMES = typeNames();
+
+    private final TicketTypeRequest[] scratch = new TicketTypeRequest[MAX_REQUESTS_PER_ORDER];
+    private ByteBuffer buffer;
+    private int position;
+    private int end;
+    private long number;
+    private long accountId;
+    private TicketTypeRequest[] requests;
+    private String error;
+
+    /**
+     * Parses the bytes between start and end of the buffer without moving its position.
+     * Returns false when the body is malformed; {@link #getError()} then says why.
+     */
+    boolean parse(ByteBuffer buffer, int start, int end) {
+        this.buffer = buffer;
+        this.position = start;
+        this.end = end;
+        this.accountId = 0;
+        this.requests = null;
+        this.error = null;
+        boolean parsed = parseOrder();
+        this.buffer = null;
+        return parsed;
+    }
+
+    long getAccountId() {
+        return accountId;
+    }
+
+    /**
+     * Returns the ticket requests of the last order, or null when it had none.
+     */
+    TicketTypeRequest[] getRequests() {
+        return requests;
+    }
+
+    String getError() {
+        return error;
+    }
+
+    private boolean parseOrder() {
+        skipWhitespace();
+        if (!expect('{')) {
+            return false;
+        }
+        skipWhitespace();
+        if (peek() == '}') {
+            position++;
+        } else {
+            while (true) {
+                int keyStart = position + 1;
+                if (!skipString()) {
+                    return false;
+                }
+                int keyEnd = position - 1;
+                skipWhitespace();
+                if (!expect(':')) {
+                    return false;
+                }
+                skipWhitespace();
+                boolean parsed;
+                if (matches(keyStart, keyEnd, ACCOUNT_ID)) {
+                    parsed = parseNullableLong();
+                    accountId = number;
+                } else if (matches(keyStart, keyEnd, TICKET_TYPE_REQUESTS)) {
+                    parsed = parseRequests();
+                } else {
+                    parsed = skipValue(0);
+                }
+                if (!parsed || !endMember('}')) {
+                    return false;
+                }
+                if (buffer.get(position - 1) == '}') {
+                    break;
+                }
+                skipWhitespace();
+            }
+        }
+        skipWhitespace();
+        return position == end || fail("Unexpected data after order");
+    }
+
+    private boolean parseRequests() {
+        if (literal(NULL)) {
+            requests = null;
+            return true;
+        }
+        if (!expect('[')) {
+            return false;
+        }
+        int count = 0;
+        skipWhitespace();
+        if (peek() == ']') {
+            position++;
+        } else {
+            while (true) {
+                if (count == MAX_REQUESTS_PER_ORDER) {
+                    return fail("Too many ticket requests");
+                }
+                TicketTypeRequest request = null;
+                if (!literal(NULL)) {
+                    // A null element is kept so the purchase rules reject it with their own reason
+                    request = parseRequest();
+                    if (request == null) {
+                        return false;
+                    }
+                }
+                scratch[count++] = request;
+                if (!endMember(']')) {
+                    return false;
+                }
+                if (buffer.get(position - 1) == ']') {
+                    break;
+                }
+                skipWhitespace();
+            }
+        }
+        requests = Arrays.copyOf(scratch, count);
+        return true;
+    }
+
+    private TicketTypeRequest parseRequest() {
+        if (!expect('{')) {
+            return null;
+        }
+        TicketType type = null;
+        boolean typeSeen = false;
+        long count = Long.MIN_VALUE;
+        skipWhitespace();
+        if (peek() == '}') {
+            position++;
+        } else {
+            while (true) {
+                int keyStart = position + 1;
+                if (!skipString()) {
+                    return null;
+                }
+                int keyEnd = position - 1;
+                skipWhitespace();
+                if (!expect(':')) {
+                    return null;
+                }
+                skipWhitespace();
+                if (matches(keyStart, keyEnd, TICKET_TYPE)) {
+                    typeSeen = true;
+                    if (!literal(NULL)) {
+                        type = parseType();
+                        if (type == null) {
+                            return null;
+                        }
+                    }
+                } else if (matches(keyStart, keyEnd, NO_OF_TICKETS)) {
+                    if (!parseLong()) {
+                        return null;
+                    }
+                    if (number < Integer.MIN_VALUE || number > Integer.MAX_VALUE) {
+                        fail("Ticket count out of range");
+                        return null;
+                    }
+                    count = number;
+                } else if (!skipValue(0)) {
+                    return null;
+                }
+                if (!endMember('}')) {
+                    return null;
+                }
+                if (buffer.get(position - 1) == '}') {
+                    break;
+                }
+                skipWhitespace();
+            }
+        }
+        if (!typeSeen) {
+            fail("Missing ticket type");
+            return null;
+        }
+        if (count == Long.MIN_VALUE) {
+            fail("Missing ticket count");
+            return null;
+        }
+        return type != null && count >= 0 && count < CACHED_COUNTS
+                ? CACHED_REQUESTS[type.ordinal()][(int) count]
+                : new TicketTypeRequest(type, (int) count);
+    }
+
+    private TicketType parseType() {
+        int start = position + 1;
+        if (!skipString()) {
+            return null;
+        }
+        for (TicketType type : TYPES) {
+            if (matches(start, position - 1, TYPE_NAMES[type.ordinal()])) {
+                return type;
+            }
+        }
+        fail("Unknown ticket type");
+        return null;
+    }
+
+    /**
+     * Skips whitespace and the comma or closing bracket after a member or element.
+     */
+    private boolean endMember(char close) {
+        skipWhitespace();
+        byte b = peek();
+        if (b == ',' || b == close) {
+            position++;
+            return true;
+        }
+        return fail("Expected ',' or '" + close + "'");
+    }
+
+    private boolean parseNullableLong() {
+        if (literal(NULL)) {
+            number = 0;
+            return true;
+        }
+        return parseLong();
+    }
+
+    private boolean parseLong() {
+        boolean negative = peek() == '-';
+        if (negative) {
+            position++;
+        }
+        int digitsStart = position;
+        // Accumulates negatively, as Long.parseLong does, so Long.MIN_VALUE can be read too
+        long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long value = 0;
+        while (position < end) {
+            byte b = buffer.get(position);
+            if (b < '0' || b > '9') {
+                break;
+            }
+            int digit = b - '0';
+            if (value < limit / 10 || value * 10 < limit + digit) {
+                return fail("Number too large");
+            }
+            value = value * 10 - digit;
+            position++;
+        }
+        if (position == digitsStart) {
+            return fail("Expected a number");
+        }
+        byte next = peek();
+        if (next == '.' || next == 'e' || next == 'E') {
+            return fail("Expected a whole number");
+        }
+        number = negative ? value : -value;
+        return true;
+    }
+
+    private boolean skipValue(int depth) {
+        if (depth > MAX_DEPTH) {
+            return fail("Nested too deeply");
+        }
+        byte b = peek();
+        if (b == '"') {
+            return skipString();
+        }
+        if (b == '-' || (b >= '0' && b <= '9')) {
+            return skipNumber();
+        }
+        if (b == '{' || b == '[') {
+            char close = b == '{' ? '}' : ']';
+            position++;
+            skipWhitespace();
+            if (peek() == close) {
+                position++;
+                return true;
+            }
+            while (true) {
+                if (close == '}') {
+                    if (!skipString()) {
+                        return false;
+                    }
+                    skipWhitespace();
+                    if (!expect(':')) {
+                        return false;
+                    }
+                    skipWhitespace();
+                }
+                if (!skipValue(depth + 1) || !endMember(close)) {
+                    return false;
+                }
+                if (buffer.get(position - 1) == close) {
+                    return true;
+                }
+                skipWhitespace();
+            }
+        }
+        if (literal(TRUE) || literal(FALSE) || literal(NULL)) {
+            return true;
+        }
+        return fail("Unexpected value");
+    }
+
+    private boolean skipNumber() {
+        int start = position;
+        while (position < end) {
+            byte b = buffer.get(position);
+            if ((b >= '0' && b <= '9') || b == '-' || b == '+' || b == '.' || b == 'e' || b == 'E') {
+                position++;
+            } else {
+                break;
+            }
+        }
+        return position > start || fail("Expected a number");
+    }
+
+    /**
+     * Skips a string including its quotes, leaving the position after the closing quote.
+     */
+    private boolean skipString() {
+        if (!expect('"')) {
+            return false;
+        }
+        while (position < end) {
+            byte b = buffer.get(position++);
+            if (b == '"') {
+                return true;
+            }
+            if (b == '\\') {
+                position++;
+            } else if (b >= 0 && b < 0x20) {
+                return fail("Control character in string");
+            }
+        }
+        return fail("Unterminated string");
+    }
+
+    private boolean literal(byte[] word) {
+        if (end - position < word.length || !matches(position, position + word.length, word)) {
+            return false;
+        }
+        position += word.length;
+        return true;
+    }
+
+    private boolean matches(int start, int stop, byte[] expected) {
+        if (stop - start != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (buffer.get(start + i) != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean expect(char c) {
+        if (peek() != c) {
+            return fail("Expected '" + c + "'");
+        }
+        position++;
+        return true;
+    }
+
+    private byte peek() {
+        return position < end ? buffer.get(position) : 0;
+    }
+
+    private void skipWhitespace() {
+        while (position < end) {
+            byte b = buffer.get(position);
+            if (b != ' ' && b != '\n' && b != '\r' && b != '\t') {
+                return;
+            }
+            position++;
+        }
+    }
+
+    private boolean fail(String reason) {
+        if (error == null) {
+            error = reason;
+        }
+        return false;
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[][] typeNames() {
+        TicketType[] types = TicketType.values();
+        byte[][] names = new byte[types.length][];
+        for (TicketType type : types) {
+            names[type.ordinal()] = ascii(type.name());
+        }
+        return names;
+    }
+
+    private static TicketTypeRequest[][] cacheRequests() {
+        TicketType[] types = TicketType.values();
+        TicketTypeRequest[][] requests = new TicketTypeRequest[types.length][CACHED_COUNTS];
+        for (TicketType type : types) {
+            for (int count = 0; count < CACHED_COUNTS; count++) {
+                requests[type.ordinal()][count] = new TicketTypeRequest(type, count);
+            }
+        }
+        return requests;
+    }
+}
@@ -0,0 +1,134 @@
+package uk.gov.dwp.uc.pairtest.http;
+
+import uk.gov.dwp.uc.pairtest.AsyncTicketService;
+import uk.gov.dwp.uc.pairtest.TicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.shard.ShardedPurchaseProcessor;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.function.IntFunction;
+
+/**
+ * Minimal HTTP/1.1 endpoint for ticket purchases on non-blocking sockets, with no dependencies beyond the JDK.
+ * <ul>
+ *     <li>{@code POST /purchases} with {@code {"accountId":1,"ticketTypeRequests":[{"ticketType":"ADULT","noOfTickets":2}]}}
+ *     answers 200 with the amount and seats, 422 with the rejection reason, or 503/502 when the gateways fail.</li>
+ *     <li>{@code GET /health} answers 200.</li>
+ * </ul>
+ * Connections are kept alive and may pipeline requests; every request on a connection is started as soon as it
+ * has been read, and responses are sent in request order. Each event loop thread owns its connections, and
+ * request bodies are parsed straight from the connection's buffer. Requests must carry a {@code Content-Length};
+ * chunked bodies are refused. The event loop threads keep the JVM running until the server is closed.
+ */
+public class PurchaseHttpServer implements AutoCloseable {
+
+    private static final int DEFAULT_BUFFER_SIZE = 8 * 1024;
+
+    private final ServerSocketChannel acceptChannel;
+    private final EventLoop[] loops;
+    private int nextLoop;
+
+    /**
+     * Starts a server with one event loop per available processor.
+     */
+    public PurchaseHttpServer(InetSocketAddress address, AsyncTicketService ticketService) throws IOException {
+        this(address, ticketService, Runtime.getRuntime().availableProcessors(), DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Starts a server with the given number of event loops. The buffer size bounds the size of a request,
+     * including its headers.
+     */
+    public PurchaseHttpServer(InetSocketAddress address, AsyncTicketService ticketService, int eventLoops,
+                              int bufferSize) throws IOException {
+        if (address == null) {
+            throw new IllegalArgumentException("Address cannot be null.");
+        }
+        if (ticketService == null) {
+            throw new IllegalArgumentException("Ticket service cannot be null.");
+        }
+        if (eventLoops <= 0) {
+            throw new IllegalArgumentException("Event loops must be positive.");
+        }
+        if (bufferSize < HttpResponses.MAX_RESPONSE_SIZE) {
+            throw new IllegalArgumentException("Buffer size must be at least " + HttpResponses.MAX_RESPONSE_SIZE + ".");
+        }
+        this.loops = new EventLoop[eventLoops];
+        this.acceptChannel = ServerSocketChannel.open();
+        try {
+            acceptChannel.bind(address, 1024);
+            acceptChannel.configureBlocking(false);
+            for (int i = 0; i < eventLoops; i++) {
+                loops[i] = new EventLoop(i, ticketService, bufferSize);
+            }
+            loops[0].acceptFor(acceptChannel, this);
+        } catch (IOException e) {
+            acceptChannel.close();
+            throw e;
+        }
+        for (EventLoop loop : loops) {
+            loop.start();
+        }
+    }
+
+    public int getPort() {
+        return acceptChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Stops accepting, then closes every connection. Purchases already started still run to completion in the
+     * ticket service, but their responses are not sent.
+     */
+    @Override
+    public void close() throws IOException {
+        for (EventLoop loop : loops) {
+            loop.close();
+        }
+        acceptChannel.close();
+    }
+
+    /**
+     * Hands an accepted connection to the event loops in turn; only called from the accepting loop.
+     */
+    void dispatch(SocketChannel channel) {
+        loops[nextLoop].register(channel);
+        nextLoop = (nextLoop + 1) % loops.length;
+    }
+
+    /**
+     * Serves purchases on the given port with one shard per core, each built with its gateways by shardServices.
+     * The server and its shards are closed when the JVM shuts down.
+     */
+    public static PurchaseHttpServer start(int port, IntFunction<TicketServiceImpl> shardServices) throws IOException {
+        ShardedPurchaseProcessor processor = new ShardedPurchaseProcessor(1024, shardServices);
+        PurchaseHttpServer server;
+        try {
+            server = new PurchaseHttpServer(new InetSocketAddress(port), processor);
+        } catch (IOException | RuntimeException e) {
+            processor.close();
+            throw e;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.close();
+            } catch (IOException e) {
+                // Exiting anyway
+            }
+            processor.close();
+        }));
+        return server;
+    }
+
+    /**
+     * Serves purchases against stand-in gateways that accept every call silently, so nothing is written per
+     * request; the port defaults to 8080. Real gateways are wired in through {@link #start}.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        PurchaseHttpServer server = start(port,
+                shard -> new TicketServiceImpl((accountId, amount) -> { }, (accountId, seats) -> { }));
+        System.out.println("Listening on port " + server.getPort());
+    }
+}
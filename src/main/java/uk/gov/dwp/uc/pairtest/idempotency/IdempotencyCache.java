@@ -0,0 +1,199 @@
+package uk.gov.dwp.uc.pairtest.idempotency;
+
+import uk.gov.dwp.uc.pairtest.exception.IdempotencyConflictException;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Bounded, concurrent record of operation outcomes by account and idempotency key.
+ * The first caller for a key runs the operation; concurrent and later callers with the same key wait for
+ * and share that single outcome, whether a value or an exception, until it expires.
+ * Keys are scoped to the account, so two accounts using the same key never see each other's outcome,
+ * and a caller reusing a key for a different request gets a conflict instead of the original outcome.
+ * Entries expire a fixed time after their operation completed, and the oldest completed entries are evicted
+ * first when the cache is full, so memory stays flat under sustained load. An operation still in flight is never
+ * expired or evicted, so the cache may briefly hold more than its maximum, by at most the number of callers.
+ */
+public class IdempotencyCache<V> {
+
+    private final int maxEntries;
+    private final long timeToLiveNanos;
+    private final LongSupplier clockNanos;
+    private final ConcurrentHashMap<Key, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Entry<V>> completionOrder = new ConcurrentLinkedQueue<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public IdempotencyCache(int maxEntries, long timeToLive, TimeUnit unit) {
+        this(maxEntries, timeToLive, unit, System::nanoTime);
+    }
+
+    public IdempotencyCache(int maxEntries, long timeToLive, TimeUnit unit, LongSupplier clockNanos) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Max entries must be positive.");
+        }
+        if (timeToLive <= 0) {
+            throw new IllegalArgumentException("Time to live must be positive.");
+        }
+        if (clockNanos == null) {
+            throw new IllegalArgumentException("Clock cannot be null.");
+        }
+        this.maxEntries = maxEntries;
+        this.timeToLiveNanos = unit.toNanos(timeToLive);
+        this.clockNanos = clockNanos;
+    }
+
+    /**
+     * Returns the outcome recorded for the account's key, running the operation only if there is none.
+     * A recorded runtime exception is rethrown to every caller with that key.
+     * The request describes what the operation does and is compared by equals with the one the key was first used for.
+     *
+     * @throws IdempotencyConflictException when the key was first used for a different request
+     */
+    public V execute(long accountId, String idempotencyKey, Object request, Supplier<V> operation) {
+        if (idempotencyKey == null) {
+            throw new IllegalArgumentException("Idempotency key cannot be null.");
+        }
+        long now = clockNanos.getAsLong();
+        Key key = new Key(accountId, idempotencyKey);
+        Entry<V> fresh = new Entry<>(key, request);
+        while (true) {
+            Entry<V> existing = entries.putIfAbsent(key, fresh);
+            if (existing == null) {
+                break;
+            }
+            if (!existing.isExpired(now)) {
+                if (!Objects.equals(existing.request, request)) {
+                    throw new IdempotencyConflictException("Idempotency key was already used for a different request.");
+                }
+                hits.increment();
+                return existing.await();
+            }
+            if (entries.replace(key, existing, fresh)) {
+                break;
+            }
+        }
+        misses.increment();
+        evict(now);
+        return run(fresh, operation);
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private V run(Entry<V> entry, Supplier<V> operation) {
+        V value;
+        try {
+            value = operation.get();
+        } catch (RuntimeException | Error e) {
+            complete(entry, null, e);
+            throw e;
+        }
+        complete(entry, value, null);
+        return value;
+    }
+
+    /**
+     * Records the outcome and starts the entry's time to live, which only then makes it eligible for eviction.
+     */
+    private void complete(Entry<V> entry, V value, Throwable failure) {
+        long now = clockNanos.getAsLong();
+        entry.expiresAt = now + timeToLiveNanos;
+        if (failure != null) {
+            entry.outcome.completeExceptionally(failure);
+        } else {
+            entry.outcome.complete(value);
+        }
+        completionOrder.add(entry);
+        evict(now);
+    }
+
+    /**
+     * Removes entries from the head of the completion queue while they have expired or the cache is over capacity.
+     * Every entry shares the same time to live, so completion order is also expiry order.
+     */
+    private void evict(long now) {
+        Entry<V> oldest;
+        while ((oldest = completionOrder.peek()) != null && (oldest.isExpired(now) || entries.size() > maxEntries)) {
+            if (completionOrder.remove(oldest) && entries.remove(oldest.key, oldest)) {
+                evictions.increment();
+            }
+        }
+    }
+
+    private static final class Key {
+        final long accountId;
+        final String idempotencyKey;
+
+        Key(long accountId, String idempotencyKey) {
+            this.accountId = accountId;
+            this.idempotencyKey = idempotencyKey;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return accountId == key.accountId && idempotencyKey.equals(key.idempotencyKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Long.hashCode(accountId) + idempotencyKey.hashCode();
+        }
+    }
+
+    private static final class Entry<V> {
+        final Key key;
+        final Object request;
+        final CompletableFuture<V> outcome = new CompletableFuture<>();
+        volatile long expiresAt;
+
+        Entry(Key key, Object request) {
+            this.key = key;
+            this.request = request;
+        }
+
+        /**
+         * An entry whose operation is still running never expires; expiresAt is set before the outcome completes.
+         */
+        boolean isExpired(long now) {
+            return outcome.isDone() && now - expiresAt >= 0;
+        }
+
+        V await() {
+            try {
+                return outcome.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package uk.gov.dwp.uc.pairtest.idempotency;
+
+import uk.gov.dwp.uc.pairtest.TicketService;
+import uk.gov.dwp.uc.pairtest.TicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.domain.PurchaseResult;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.exception.IdempotencyConflictException;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+
+/**
+ * Ticket service that makes client retries safe.
+ * A purchase sent again by the same account with the same idempotency key and the same requests returns the outcome
+ * of the first attempt without charging the account or reserving seats a second time.
+ */
+public class IdempotentTicketService implements TicketService {
+    private final TicketServiceImpl ticketService;
+    private final IdempotencyCache<PurchaseResult> outcomes;
+
+    public IdempotentTicketService(TicketServiceImpl ticketService, IdempotencyCache<PurchaseResult> outcomes) {
+        if (ticketService == null) {
+            throw new IllegalArgumentException("Ticket service cannot be null.");
+        }
+        if (outcomes == null) {
+            throw new IllegalArgumentException("Idempotency cache cannot be null.");
+        }
+        this.ticketService = ticketService;
+        this.outcomes = outcomes;
+    }
+
+    /**
+     * Purchases without an idempotency key, exactly as {@link TicketServiceImpl} does.
+     */
+    @Override
+    public void purchaseTickets(Long accountId, TicketTypeRequest... ticketTypeRequests) throws InvalidPurchaseException {
+        ticketService.purchaseTickets(accountId, ticketTypeRequests);
+    }
+
+    /**
+     * Purchases tickets once per idempotency key.
+     * Rejections are returned as results; a gateway failure is recorded as well and rethrown to every retry,
+     * because the payment may already have gone through.
+     *
+     * @throws IdempotencyConflictException when the account used the key for different requests
+     */
+    public PurchaseResult purchaseTickets(String idempotencyKey, long accountId, TicketTypeRequest... ticketTypeRequests) {
+        return outcomes.execute(accountId, idempotencyKey, describe(ticketTypeRequests),
+                () -> ticketService.tryPurchaseTickets(accountId, ticketTypeRequests));
+    }
+
+    public IdempotencyCache<PurchaseResult> getOutcomes() {
+        return outcomes;
+    }
+
+    /**
+     * Describes the requests in order, so that a retry can be compared with the original purchase.
+     */
+    private static String describe(TicketTypeRequest[] ticketTypeRequests) {
+        if (ticketTypeRequests == null) {
+            return "null";
+        }
+        StringBuilder description = new StringBuilder();
+        for (TicketTypeRequest request : ticketTypeRequests) {
+            if (request == null) {
+                description.append("null,");
+            } else {
+                description.append(request.getTicketType()).append('x').append(request.getNoOfTickets()).append(',');
+            }
+        }
+        return description.toString();
+    }
+}
@@ -0,0 +1,291 @@
+package uk.gov.dwp.uc.pairtest.ingest;
+
+import uk.gov.dwp.uc.pairtest.TicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.domain.OrderSummary;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException.Reason;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Streams a file of orders through the purchase rules and gateways, writing one result line per order.
+ *
+ * <p>The calling thread reads the input through a channel and parses it into chunks of orders. Each chunk is
+ * validated on the validation executor with the rules of {@link TicketServiceImpl}, so chunks are validated in
+ * parallel. A writer thread takes chunks back in file order, counts each valid order against the account limit,
+ * pays for and reserves the admitted ones, and writes the results; admission therefore follows the file order.
+ * Chunks come from a fixed pool, so when the gateways fall behind the reader waits for a free chunk: memory stays
+ * constant however large the input is.
+ *
+ * <p>Result lines are the input line number followed by {@code ACCEPTED,<amount>,<seats>},
+ * {@code REJECTED,<reason>}, {@code MALFORMED,<description>} or {@code FAILED,<exception>}.
+ */
+public class BulkPurchaseIngestor {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final CompletableFuture<OrderChunk> END_OF_INPUT = CompletableFuture.completedFuture(null);
+
+    private final TicketServiceImpl ticketService;
+    private final Executor validationExecutor;
+    private final int chunkSize;
+    private final int maxChunksInFlight;
+
+    /**
+     * Creates an ingestor that validates on the common fork-join pool.
+     */
+    public BulkPurchaseIngestor(TicketServiceImpl ticketService) {
+        this(ticketService, ForkJoinPool.commonPool(), 1024, 2 * ForkJoinPool.getCommonPoolParallelism() + 2);
+    }
+
+    public BulkPurchaseIngestor(TicketServiceImpl ticketService, Executor validationExecutor, int chunkSize,
+                                int maxChunksInFlight) {
+        if (ticketService == null) {
+            throw new IllegalArgumentException("Ticket service cannot be null.");
+        }
+        if (validationExecutor == null) {
+            throw new IllegalArgumentException("Validation executor cannot be null.");
+        }
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive.");
+        }
+        if (maxChunksInFlight <= 0) {
+            throw new IllegalArgumentException("Max chunks in flight must be positive.");
+        }
+        this.ticketService = ticketService;
+        this.validationExecutor = validationExecutor;
+        this.chunkSize = chunkSize;
+        this.maxChunksInFlight = maxChunksInFlight;
+    }
+
+    public IngestionSummary ingest(Path input, Path output) throws IOException {
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            return ingest(in, out);
+        }
+    }
+
+    /**
+     * Processes every order in the input and returns once all results have been written.
+     */
+    public IngestionSummary ingest(ReadableByteChannel in, WritableByteChannel out) throws IOException {
+        BlockingQueue<OrderChunk> freeChunks = new ArrayBlockingQueue<>(maxChunksInFlight);
+        for (int i = 0; i < maxChunksInFlight; i++) {
+            freeChunks.add(new OrderChunk(chunkSize));
+        }
+        BlockingQueue<CompletableFuture<OrderChunk>> validated = new ArrayBlockingQueue<>(maxChunksInFlight + 1);
+        ResultWriter writer = new ResultWriter(out, freeChunks, validated);
+        Thread writerThread = new Thread(writer, "ingestion-writer");
+        writerThread.start();
+
+        boolean finished = false;
+        try {
+            OrderParser parser = new OrderParser();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            OrderChunk chunk = freeChunks.take();
+            while (writer.failure == null && in.read(buffer) >= 0) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    if (parser.accept(buffer.get(), chunk) && chunk.isFull()) {
+                        validated.put(validate(chunk));
+                        chunk = freeChunks.take();
+                    }
+                }
+                buffer.clear();
+            }
+            parser.finish(chunk);
+            validated.put(validate(chunk));
+            validated.put(END_OF_INPUT);
+            writerThread.join();
+            finished = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while ingesting orders.");
+        } finally {
+            if (!finished) {
+                writerThread.interrupt();
+            }
+        }
+        if (writer.failure != null) {
+            throw writer.failure;
+        }
+        return new IngestionSummary(writer.accepted, writer.rejected, writer.malformed, writer.failed);
+    }
+
+    private CompletableFuture<OrderChunk> validate(OrderChunk chunk) {
+        return CompletableFuture.runAsync(() -> {
+            for (int i = 0; i < chunk.count; i++) {
+                if (chunk.errors[i] != null) {
+                    continue;
+                }
+                try {
+                    chunk.reasons[i] = ticketService.validateOrder(chunk.accountIds[i], chunk.requests[i], chunk.summaries[i]);
+                } catch (RuntimeException e) {
+                    chunk.failures[i] = e.getClass().getSimpleName();
+                }
+            }
+        }, validationExecutor).handle((validated, e) -> {
+            // Always hand the chunk back, so the writer can recycle it and the reader never waits for it in vain
+            chunk.validationFailure = e;
+            return chunk;
+        });
+    }
+
+    /**
+     * Admits and completes validated chunks in file order and writes their results.
+     * After a failure it keeps recycling chunks, without calling the gateways, so the reader never blocks.
+     */
+    private final class ResultWriter implements Runnable {
+        private final WritableByteChannel out;
+        private final BlockingQueue<OrderChunk> freeChunks;
+        private final BlockingQueue<CompletableFuture<OrderChunk>> validated;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private final byte[] digits = new byte[20];
+        volatile IOException failure;
+        long accepted;
+        long rejected;
+        long malformed;
+        long failed;
+
+        ResultWriter(WritableByteChannel out, BlockingQueue<OrderChunk> freeChunks,
+                     BlockingQueue<CompletableFuture<OrderChunk>> validated) {
+            this.out = out;
+            this.freeChunks = freeChunks;
+            this.validated = validated;
+        }
+
+        @Override
+        public void run() {
+            try {
+                CompletableFuture<OrderChunk> next;
+                while ((next = validated.take()) != END_OF_INPUT) {
+                    OrderChunk chunk = next.join();
+                    if (failure == null) {
+                        complete(chunk);
+                    }
+                    chunk.clear();
+                    freeChunks.put(chunk);
+                }
+                if (failure == null) {
+                    flush();
+                }
+            } catch (IOException e) {
+                failure = e;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void complete(OrderChunk chunk) {
+            if (chunk.validationFailure != null) {
+                failure = new IOException("Order validation failed.", chunk.validationFailure);
+                return;
+            }
+            try {
+                for (int i = 0; i < chunk.count; i++) {
+                    if (buffer.remaining() < 256) {
+                        flush();
+                    }
+                    putNumber(chunk.lineNumbers[i]);
+                    if (chunk.errors[i] != null) {
+                        malformed++;
+                        putText(",MALFORMED,", chunk.errors[i]);
+                    } else if (chunk.failures[i] != null) {
+                        failed++;
+                        putText(",FAILED,", chunk.failures[i]);
+                    } else if (chunk.reasons[i] != null) {
+                        rejected++;
+                        putText(",REJECTED,", chunk.reasons[i].name());
+                    } else {
+                        completeOrder(chunk, i);
+                    }
+                    buffer.put((byte) '\n');
+                }
+            } catch (IOException e) {
+                failure = e;
+            } catch (RuntimeException e) {
+                failure = new IOException("Writing results failed.", e);
+            }
+        }
+
+        private void completeOrder(OrderChunk chunk, int i) {
+            long accountId = chunk.accountIds[i];
+            OrderSummary summary = chunk.summaries[i];
+            Reason reason;
+            try {
+                reason = ticketService.admitValidatedOrder(accountId, summary);
+            } catch (RuntimeException e) {
+                failed++;
+                putText(",FAILED,", e.getClass().getSimpleName());
+                return;
+            }
+            if (reason != null) {
+                rejected++;
+                putText(",REJECTED,", reason.name());
+                return;
+            }
+            try {
+                ticketService.processPayment(accountId, summary.getTotalAmount());
+                ticketService.reserveSeats(accountId, summary.getTotalSeats());
+            } catch (RuntimeException e) {
+                ticketService.releaseOrder(accountId, summary.getTotalTickets());
+                failed++;
+                putText(",FAILED,", e.getClass().getSimpleName());
+                return;
+            }
+            accepted++;
+            putText(",ACCEPTED,", null);
+            putNumber(summary.getTotalAmount());
+            buffer.put((byte) ',');
+            putNumber(summary.getTotalSeats());
+        }
+
+        private void putText(String prefix, String text) {
+            putAscii(prefix);
+            if (text != null) {
+                putAscii(text.length() > 128 ? text.substring(0, 128) : text);
+            }
+        }
+
+        private void putAscii(String text) {
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                buffer.put(c < 128 && c != '\n' ? (byte) c : (byte) '?');
+            }
+        }
+
+        private void putNumber(long value) {
+            if (value < 0) {
+                buffer.put((byte) '-');
+                value = -value;
+            }
+            int length = 0;
+            do {
+                digits[length++] = (byte) ('0' + value % 10);
+                value /= 10;
+            } while (value > 0);
+            while (length > 0) {
+                buffer.put(digits[--length]);
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package uk.gov.dwp.uc.pairtest.ingest;
+
+/**
+ * Counts of the outcomes of one ingested file.
+ */
+public final class IngestionSummary {
+    private final long accepted;
+    private final long rejected;
+    private final long malformed;
+    private final long failed;
+
+    IngestionSummary(long accepted, long rejected, long malformed, long failed) {
+        this.accepted = accepted;
+        this.rejected = rejected;
+        this.malformed = malformed;
+        this.failed = failed;
+    }
+
+    public long getAccepted() {
+        return accepted;
+    }
+
+    /**
+     * Returns the number of well-formed orders that broke a purchase rule.
+     */
+    public long getRejected() {
+        return rejected;
+    }
+
+    /**
+     * Returns the number of lines that could not be read as an order.
+     */
+    public long getMalformed() {
+        return malformed;
+    }
+
+    /**
+     * Returns the number of orders whose payment or reservation failed.
+     */
+    public long getFailed() {
+        return failed;
+    }
+
+    public long getTotal() {
+        return accepted + rejected + malformed + failed;
+    }
+
+    @Override
+    public String toString() {
+        return "IngestionSummary[accepted=" + accepted + ", rejected=" + rejected + ", malformed=" + malformed
+                + ", failed=" + failed + "]";
+    }
+}
@@ -0,0 +1,62 @@
+package uk.gov.dwp.uc.pairtest.ingest;
+
+import uk.gov.dwp.uc.pairtest.domain.OrderSummary;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException.Reason;
+
+import java.util.Arrays;
+
+/**
+ * A reusable block of parsed orders and their validation outcomes.
+ * A fixed pool of chunks is recycled through the pipeline, which bounds the memory used by ingestion.
+ */
+final class OrderChunk {
+    final long[] lineNumbers;
+    final long[] accountIds;
+    final TicketTypeRequest[][] requests;
+    final String[] errors;
+    final String[] failures;
+    final Reason[] reasons;
+    final OrderSummary[] summaries;
+    int count;
+    Throwable validationFailure;
+
+    OrderChunk(int capacity) {
+        lineNumbers = new long[capacity];
+        accountIds = new long[capacity];
+        requests = new TicketTypeRequest[capacity][];
+        errors = new String[capacity];
+        failures = new String[capacity];
+        reasons = new Reason[capacity];
+        summaries = new OrderSummary[capacity];
+        for (int i = 0; i < capacity; i++) {
+            summaries[i] = new OrderSummary();
+        }
+    }
+
+    boolean isFull() {
+        return count == accountIds.length;
+    }
+
+    void addOrder(long lineNumber, long accountId, TicketTypeRequest[] orderRequests) {
+        lineNumbers[count] = lineNumber;
+        accountIds[count] = accountId;
+        requests[count] = orderRequests;
+        count++;
+    }
+
+    void addMalformed(long lineNumber, String error) {
+        lineNumbers[count] = lineNumber;
+        errors[count] = error;
+        count++;
+    }
+
+    void clear() {
+        Arrays.fill(requests, 0, count, null);
+        Arrays.fill(errors, 0, count, null);
+        Arrays.fill(failures, 0, count, null);
+        Arrays.fill(reasons, 0, count, null);
+        count = 0;
+        validationFailure = null;
+    }
+}
@@ -0,0 +1,167 @@
+package uk.gov.dwp.uc.pairtest.ingest;
+
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.TicketType;
+
+import java.util.Arrays;
+
+/**
+ * Streaming parser for the compact order format, fed one byte at a time so lines may span read buffers.
+ * Each line is an account ID followed by comma-separated ticket requests, each a type letter
+ * (A, C or I) and a count, for example {@code 1001,A2,C1,I1}. Blank lines are skipped.
+ * Lines that cannot be read are recorded as malformed with the reason.
+ */
+final class OrderParser {
+
+    static final int MAX_REQUESTS_PER_ORDER = 32;
+    private static final int CACHED_COUNTS = 64;
+    private static final TicketTypeRequest[][] CACHED_REQUESTS = cacheRequests();
+
+    private static final int ACCOUNT = 0;
+    private static final int TYPE = 1;
+    private static final int COUNT = 2;
+    private static final int MALFORMED = 3;
+
+    private final TicketTypeRequest[] scratch = new TicketTypeRequest[MAX_REQUESTS_PER_ORDER];
+    private long lineNumber = 1;
+    private int state = ACCOUNT;
+    private boolean lineStarted;
+    private int digits;
+    private long accountId;
+    private TicketType type;
+    private long count;
+    private int requestCount;
+    private String error;
+
+    /**
+     * Consumes one byte, adding an order to the chunk when it completes a line.
+     * Returns true when an order was added.
+     */
+    boolean accept(byte b, OrderChunk chunk) {
+        if (b == '\n') {
+            return endLine(chunk);
+        }
+        if (b == '\r') {
+            return false;
+        }
+        lineStarted = true;
+        switch (state) {
+            case ACCOUNT:
+                if (b >= '0' && b <= '9') {
+                    if (accountId > (Long.MAX_VALUE - (b - '0')) / 10) {
+                        malformed("Account ID too large");
+                    } else {
+                        accountId = accountId * 10 + (b - '0');
+                        digits++;
+                    }
+                } else if (b == ',' && digits > 0) {
+                    state = TYPE;
+                } else {
+                    malformed(digits == 0 ? "Missing account ID" : "Unexpected character in account ID");
+                }
+                break;
+            case TYPE:
+                type = typeOf(b);
+                if (type == null) {
+                    malformed("Unknown ticket type");
+                } else {
+                    state = COUNT;
+                    count = 0;
+                    digits = 0;
+                }
+                break;
+            case COUNT:
+                if (b >= '0' && b <= '9') {
+                    count = count * 10 + (b - '0');
+                    digits++;
+                    if (count > Integer.MAX_VALUE) {
+                        malformed("Ticket count too large");
+                    }
+                } else if (b != ',') {
+                    malformed("Unexpected character in ticket count");
+                } else if (endRequest()) {
+                    state = TYPE;
+                }
+                break;
+            default:
+                break;
+        }
+        return false;
+    }
+
+    /**
+     * Completes a final line that has no trailing newline.
+     */
+    boolean finish(OrderChunk chunk) {
+        return lineStarted && endLine(chunk);
+    }
+
+    private boolean endLine(OrderChunk chunk) {
+        boolean added = false;
+        if (lineStarted) {
+            if (state == COUNT) {
+                endRequest();
+            } else if (state == TYPE) {
+                malformed("Missing ticket request");
+            }
+            if (state == MALFORMED) {
+                chunk.addMalformed(lineNumber, error);
+            } else {
+                chunk.addOrder(lineNumber, accountId, Arrays.copyOf(scratch, requestCount));
+            }
+            added = true;
+        }
+        lineNumber++;
+        state = ACCOUNT;
+        lineStarted = false;
+        digits = 0;
+        accountId = 0;
+        requestCount = 0;
+        error = null;
+        return added;
+    }
+
+    private boolean endRequest() {
+        if (digits == 0) {
+            malformed("Missing ticket count");
+            return false;
+        }
+        if (requestCount == MAX_REQUESTS_PER_ORDER) {
+            malformed("Too many ticket requests");
+            return false;
+        }
+        scratch[requestCount++] = count < CACHED_COUNTS
+                ? CACHED_REQUESTS[type.ordinal()][(int) count]
+                : new TicketTypeRequest(type, (int) count);
+        return true;
+    }
+
+    private void malformed(String reason) {
+        state = MALFORMED;
+        error = reason;
+    }
+
+    private static TicketType typeOf(byte b) {
+        switch (b) {
+            case 'A':
+                return TicketType.ADULT;
+            case 'C':
+                return TicketType.CHILD;
+            case 'I':
+                return TicketType.INFANT;
+            default:
+                return null;
+        }
+    }
+
+    private static TicketTypeRequest[][] cacheRequests() {
+        TicketType[] types = TicketType.values();
+        TicketTypeRequest[][] requests = new TicketTypeRequest[types.length][CACHED_COUNTS];
+        for (TicketType type : types) {
+            for (int count = 0; count < CACHED_COUNTS; count++) {
+                requests[type.ordinal()][count] = new TicketTypeRequest(type, count);
+            }
+        }
+        return requests;
+    }
+}
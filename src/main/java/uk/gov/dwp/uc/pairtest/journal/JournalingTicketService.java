@@ -0,0 +1,115 @@
+package uk.gov.dwp.uc.pairtest.journal;
+
+import uk.gov.dwp.uc.pairtest.TicketService;
+import uk.gov.dwp.uc.pairtest.TicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.domain.OrderSummary;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException.Reason;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ticket service that writes every admitted order to a {@link PurchaseJournal}.
+ * The intent is journaled before payment and each gateway step afterwards, so an order interrupted by a crash
+ * can be reconciled with {@link #recover()} when the service starts again.
+ * Gateway calls carry the journal's order ID as their reference, so replaying a step does nothing if it had
+ * already happened, and a payment the journal failed to record can be refunded.
+ */
+public class JournalingTicketService implements TicketService {
+    private final TicketServiceImpl ticketService;
+    private final PurchaseJournal journal;
+    private final ThreadLocal<OrderSummary> orderSummaries = ThreadLocal.withInitial(OrderSummary::new);
+
+    public JournalingTicketService(TicketServiceImpl ticketService, PurchaseJournal journal) {
+        if (ticketService == null) {
+            throw new IllegalArgumentException("Ticket service cannot be null.");
+        }
+        if (journal == null) {
+            throw new IllegalArgumentException("Journal cannot be null.");
+        }
+        if (!ticketService.supportsOrderReferences()) {
+            throw new IllegalArgumentException("Ticket service gateways must take order references so orders can be replayed.");
+        }
+        this.ticketService = ticketService;
+        this.journal = journal;
+    }
+
+    @Override
+    public void purchaseTickets(Long accountId, TicketTypeRequest... ticketTypeRequests) throws InvalidPurchaseException {
+        if (accountId == null) {
+            throw InvalidPurchaseException.of(Reason.INVALID_ACCOUNT_ID);
+        }
+        OrderSummary summary = orderSummaries.get();
+        Reason reason = ticketService.admitOrder(accountId, ticketTypeRequests, summary);
+        if (reason != null) {
+            throw InvalidPurchaseException.of(reason);
+        }
+
+        long orderId;
+        try {
+            orderId = journal.logIntent(accountId, summary.getTotalAmount(), summary.getTotalSeats(), summary.getTotalTickets());
+        } catch (RuntimeException e) {
+            ticketService.releaseOrder(accountId, summary.getTotalTickets());
+            throw e;
+        }
+        try {
+            ticketService.processPayment(accountId, summary.getTotalAmount(), orderId);
+        } catch (RuntimeException e) {
+            journal.logFailed(orderId);
+            ticketService.releaseOrder(accountId, summary.getTotalTickets());
+            throw e;
+        }
+        try {
+            journal.logPaid(orderId);
+        } catch (RuntimeException e) {
+            // Recovery could not tell this payment was taken, so it is refunded now
+            try {
+                ticketService.refundPayment(accountId, summary.getTotalAmount(), orderId);
+            } catch (RuntimeException refundFailure) {
+                e.addSuppressed(refundFailure);
+            } finally {
+                ticketService.releaseOrder(accountId, summary.getTotalTickets());
+            }
+            throw e;
+        }
+        ticketService.reserveSeats(accountId, summary.getTotalSeats(), orderId);
+        try {
+            journal.logCompleted(orderId);
+        } catch (RuntimeException e) {
+            // The order is paid and seated, so it stands; the journal still has it as paid, and recovery
+            // replays the reservation under the same reference, which does nothing, before recording completion
+        }
+    }
+
+    /**
+     * Reconciles the orders left unfinished in the journal.
+     * Paid orders are rolled forward by reserving their seats under the order ID, which does nothing if the seats
+     * were reserved before the crash. Orders with only an intent are returned:
+     * the payment may or may not have been taken, and the payment service offers no way to find out,
+     * so they are left pending for manual reconciliation.
+     * Orders whose reservation fails again stay pending for the next recovery.
+     */
+    public List<PendingOrder> recover() {
+        List<PendingOrder> unresolved = new ArrayList<>();
+        for (PendingOrder order : journal.pendingOrders()) {
+            if (!order.isPaid()) {
+                unresolved.add(order);
+                continue;
+            }
+            try {
+                ticketService.reserveSeats(order.getAccountId(), order.getTotalSeats(), order.getOrderId());
+            } catch (RuntimeException e) {
+                unresolved.add(order);
+                continue;
+            }
+            journal.logCompleted(order.getOrderId());
+        }
+        return unresolved;
+    }
+
+    public PurchaseJournal getJournal() {
+        return journal;
+    }
+}
@@ -0,0 +1,59 @@
+package uk.gov.dwp.uc.pairtest.journal;
+
+/**
+ * An order found in the journal that was started but never completed or failed.
+ */
+public final class PendingOrder {
+    private final long orderId;
+    private final long accountId;
+    private final int totalAmount;
+    private final int totalSeats;
+    private final int totalTickets;
+    private final boolean paid;
+
+    PendingOrder(long orderId, long accountId, int totalAmount, int totalSeats, int totalTickets, boolean paid) {
+        this.orderId = orderId;
+        this.accountId = accountId;
+        this.totalAmount = totalAmount;
+        this.totalSeats = totalSeats;
+        this.totalTickets = totalTickets;
+        this.paid = paid;
+    }
+
+    PendingOrder markPaid() {
+        return new PendingOrder(orderId, accountId, totalAmount, totalSeats, totalTickets, true);
+    }
+
+    public long getOrderId() {
+        return orderId;
+    }
+
+    public long getAccountId() {
+        return accountId;
+    }
+
+    public int getTotalAmount() {
+        return totalAmount;
+    }
+
+    public int getTotalSeats() {
+        return totalSeats;
+    }
+
+    public int getTotalTickets() {
+        return totalTickets;
+    }
+
+    /**
+     * Returns true when the payment is known to have been taken.
+     */
+    public boolean isPaid() {
+        return paid;
+    }
+
+    @Override
+    public String toString() {
+        return "PendingOrder[orderId=" + orderId + ", accountId=" + accountId + ", amount=" + totalAmount
+                + ", seats=" + totalSeats + ", paid=" + paid + "]";
+    }
+}
@@ -0,0 +1,371 @@
+package uk.gov.dwp.uc.pairtest.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Append-only write-ahead journal of purchases in a memory-mapped file.
+ * Every order writes an intent record before payment, then a paid record, then a completed or failed record.
+ * Records are fixed-size, so a record's position follows from its slot number, and appending is a lock-free
+ * slot claim followed by a write to the mapping, so appends never wait for the disk. A background thread forces
+ * the mapping to disk at a fixed interval (group commit); {@link #sync()} forces it immediately.
+ *
+ * <p>When the file is full, the records of orders still pending are copied to a new file, which is forced to disk
+ * and then renamed over the journal. Completed and failed orders are dropped, so the journal only fills up when
+ * every slot belongs to a pending order. Appends wait while this compaction runs. A crash before the rename
+ * leaves the old file in place.
+ *
+ * <p>Record layout, 32 bytes: order ID (long), account ID (long), amount (int), seats (int),
+ * type (byte), tickets (byte), two reserved bytes and a checksum (int) written last.
+ * Slot 0 holds the file header, which also keeps the last order ID issued before a compaction so IDs are
+ * never reused. A record with a bad checksum, such as one torn by a crash, is ignored.
+ */
+public class PurchaseJournal implements Closeable {
+
+    static final int RECORD_SIZE = 32;
+    private static final long MAGIC = 0x50555243484A4E4CL; // "PURCHJNL"
+    private static final int VERSION = 1;
+    private static final int HEADER_LAST_ORDER_ID = 16;
+
+    private static final byte INTENT = 1;
+    private static final byte PAID = 2;
+    private static final byte COMPLETED = 3;
+    private static final byte FAILED = 4;
+
+    private static final int ORDER_ID = 0;
+    private static final int ACCOUNT_ID = 8;
+    private static final int AMOUNT = 16;
+    private static final int SEATS = 20;
+    private static final int TYPE = 24;
+    private static final int TICKETS = 25;
+    private static final int CHECKSUM = 28;
+
+    private final Path file;
+    private final long capacity;
+    private final Object compactionLock = new Object();
+    private final AtomicInteger writers = new AtomicInteger();
+    private final AtomicLong nextSlot;
+    private final AtomicLong nextOrderId;
+    private final LongAdder appended = new LongAdder();
+    private final long flushIntervalNanos;
+    private final Thread flusher;
+    private volatile FileChannel channel;
+    private volatile MappedByteBuffer buffer;
+    private volatile long compactions;
+    private volatile long forced;
+    private volatile boolean closed;
+
+    private PurchaseJournal(Path file, FileChannel channel, MappedByteBuffer buffer, long flushIntervalNanos) {
+        this.file = file;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.capacity = buffer.capacity() / RECORD_SIZE;
+        this.flushIntervalNanos = flushIntervalNanos;
+        long lastSlot = 0;
+        long lastOrderId = buffer.getLong(HEADER_LAST_ORDER_ID);
+        for (long slot = 1; slot < capacity; slot++) {
+            if (isValid(buffer, slot)) {
+                lastSlot = slot;
+                lastOrderId = Math.max(lastOrderId, buffer.getLong(offset(slot) + ORDER_ID));
+            }
+        }
+        this.nextSlot = new AtomicLong(lastSlot + 1);
+        this.nextOrderId = new AtomicLong(lastOrderId + 1);
+        this.flusher = new Thread(this::flushLoop, "purchase-journal-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Opens the journal file, creating it with room for maxRecords records if it does not exist.
+     * An existing journal keeps its own size and is scanned so appends continue after its last record.
+     * A compacted copy left behind by a crash is discarded, as the journal itself is still complete.
+     */
+    public static PurchaseJournal open(Path file, int maxRecords, long flushInterval, TimeUnit unit) throws IOException {
+        if (file == null) {
+            throw new IllegalArgumentException("Journal file cannot be null.");
+        }
+        if (maxRecords <= 0) {
+            throw new IllegalArgumentException("Max records must be positive.");
+        }
+        if (flushInterval <= 0) {
+            throw new IllegalArgumentException("Flush interval must be positive.");
+        }
+        Files.deleteIfExists(compactionFile(file));
+        FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long existingSize = channel.size();
+            boolean created = existingSize == 0;
+            long size = created ? (maxRecords + 1L) * RECORD_SIZE : existingSize;
+            if (size % RECORD_SIZE != 0 || size > Integer.MAX_VALUE) {
+                throw new IOException("Not a purchase journal: " + file);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            if (created) {
+                writeHeader(buffer);
+                buffer.force();
+            } else if (buffer.getLong(0) != MAGIC || buffer.getInt(8) != RECORD_SIZE || buffer.getInt(12) != VERSION) {
+                throw new IOException("Not a purchase journal: " + file);
+            }
+            return new PurchaseJournal(file, channel, buffer, unit.toNanos(flushInterval));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Records that an admitted order is about to be paid for and returns its new order ID.
+     */
+    public long logIntent(long accountId, int totalAmount, int totalSeats, int totalTickets) {
+        long orderId = nextOrderId.getAndIncrement();
+        append(INTENT, orderId, accountId, totalAmount, totalSeats, totalTickets);
+        return orderId;
+    }
+
+    public void logPaid(long orderId) {
+        append(PAID, orderId, 0, 0, 0, 0);
+    }
+
+    public void logCompleted(long orderId) {
+        append(COMPLETED, orderId, 0, 0, 0, 0);
+    }
+
+    /**
+     * Records that an order will not go ahead, for example because its payment was declined.
+     */
+    public void logFailed(long orderId) {
+        append(FAILED, orderId, 0, 0, 0, 0);
+    }
+
+    /**
+     * Replays the journal and returns the orders that were started but never completed or failed,
+     * in order ID order.
+     */
+    public List<PendingOrder> pendingOrders() {
+        synchronized (compactionLock) {
+            MappedByteBuffer records = buffer;
+            Map<Long, PendingOrder> pending = new HashMap<>();
+            long end = Math.min(nextSlot.get(), capacity);
+            for (long slot = 1; slot < end; slot++) {
+                if (!isValid(records, slot)) {
+                    continue;
+                }
+                int offset = offset(slot);
+                long orderId = records.getLong(offset + ORDER_ID);
+                switch (records.get(offset + TYPE)) {
+                    case INTENT:
+                        pending.put(orderId, new PendingOrder(orderId, records.getLong(offset + ACCOUNT_ID),
+                                records.getInt(offset + AMOUNT), records.getInt(offset + SEATS), records.get(offset + TICKETS), false));
+                        break;
+                    case PAID:
+                        pending.computeIfPresent(orderId, (id, order) -> order.markPaid());
+                        break;
+                    default:
+                        pending.remove(orderId);
+                        break;
+                }
+            }
+            List<PendingOrder> orders = new ArrayList<>(pending.values());
+            orders.sort((a, b) -> Long.compare(a.getOrderId(), b.getOrderId()));
+            return orders;
+        }
+    }
+
+    /**
+     * Forces every record appended so far to disk.
+     */
+    public void sync() {
+        long written = appended.sum();
+        buffer.force();
+        forced = written;
+    }
+
+    public long getRecordCount() {
+        return Math.min(nextSlot.get(), capacity) - 1;
+    }
+
+    public long getCapacity() {
+        return capacity - 1;
+    }
+
+    /**
+     * Returns how many times the journal has been compacted to make room for new records.
+     */
+    public long getCompactions() {
+        return compactions;
+    }
+
+    /**
+     * Stops the flusher, forces outstanding records to disk and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        LockSupport.unpark(flusher);
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (compactionLock) {
+            sync();
+            channel.close();
+        }
+    }
+
+    /**
+     * Claims a slot and writes the record; a writer that finds the file full compacts it and tries again.
+     * The writers count lets compaction wait for appends still writing to the slots they claimed.
+     */
+    private void append(byte type, long orderId, long accountId, int totalAmount, int totalSeats, int totalTickets) {
+        while (true) {
+            writers.incrementAndGet();
+            try {
+                if (closed) {
+                    throw new IllegalStateException("Journal has been closed.");
+                }
+                long slot = nextSlot.getAndIncrement();
+                if (slot < capacity) {
+                    write(buffer, slot, type, orderId, accountId, totalAmount, totalSeats, totalTickets);
+                    appended.increment();
+                    return;
+                }
+            } finally {
+                writers.decrementAndGet();
+            }
+            compact();
+        }
+    }
+
+    /**
+     * Copies the records of pending orders to a new file, forces it, and renames it over the journal.
+     * Writers arriving meanwhile find no free slot and wait on the lock, so none writes to the old mapping.
+     */
+    private void compact() {
+        synchronized (compactionLock) {
+            if (closed || nextSlot.get() < capacity) {
+                // Closed, or another writer has already made room; the caller's next attempt sorts it out
+                return;
+            }
+            while (writers.get() != 0) {
+                Thread.onSpinWait();
+            }
+            List<PendingOrder> pending = pendingOrders();
+            long liveRecords = 0;
+            for (PendingOrder order : pending) {
+                liveRecords += order.isPaid() ? 2 : 1;
+            }
+            if (liveRecords + 1 >= capacity) {
+                throw new IllegalStateException("Journal is full.");
+            }
+            Path compacted = compactionFile(file);
+            FileChannel compactedChannel = null;
+            try {
+                compactedChannel = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                MappedByteBuffer records = compactedChannel.map(FileChannel.MapMode.READ_WRITE, 0, capacity * RECORD_SIZE);
+                long slot = 1;
+                for (PendingOrder order : pending) {
+                    write(records, slot++, INTENT, order.getOrderId(), order.getAccountId(), order.getTotalAmount(),
+                            order.getTotalSeats(), order.getTotalTickets());
+                    if (order.isPaid()) {
+                        write(records, slot++, PAID, order.getOrderId(), 0, 0, 0, 0);
+                    }
+                }
+                writeHeader(records);
+                records.putLong(HEADER_LAST_ORDER_ID, nextOrderId.get() - 1);
+                records.force();
+                Files.move(compacted, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                FileChannel previous = channel;
+                channel = compactedChannel;
+                buffer = records;
+                forced = appended.sum();
+                compactions++;
+                nextSlot.set(slot);
+                previous.close();
+            } catch (IOException e) {
+                if (compactedChannel != null && compactedChannel != channel) {
+                    try {
+                        compactedChannel.close();
+                    } catch (IOException ignored) {
+                        // Already failed
+                    }
+                }
+                throw new UncheckedIOException("Could not compact the journal.", e);
+            }
+        }
+    }
+
+    private static void write(MappedByteBuffer records, long slot, byte type, long orderId, long accountId,
+                              int totalAmount, int totalSeats, int totalTickets) {
+        int offset = offset(slot);
+        records.putLong(offset + ORDER_ID, orderId);
+        records.putLong(offset + ACCOUNT_ID, accountId);
+        records.putInt(offset + AMOUNT, totalAmount);
+        records.putInt(offset + SEATS, totalSeats);
+        records.put(offset + TYPE, type);
+        records.put(offset + TICKETS, (byte) totalTickets);
+        records.putInt(offset + CHECKSUM, checksum(orderId, accountId, totalAmount, totalSeats, type, totalTickets));
+    }
+
+    private static void writeHeader(MappedByteBuffer records) {
+        records.putLong(0, MAGIC);
+        records.putInt(8, RECORD_SIZE);
+        records.putInt(12, VERSION);
+    }
+
+    private static Path compactionFile(Path file) {
+        return file.resolveSibling(file.getFileName() + ".compacting");
+    }
+
+    private static boolean isValid(MappedByteBuffer buffer, long slot) {
+        int offset = offset(slot);
+        byte type = buffer.get(offset + TYPE);
+        return type >= INTENT && type <= FAILED
+                && buffer.getInt(offset + CHECKSUM) == checksum(buffer.getLong(offset + ORDER_ID),
+                buffer.getLong(offset + ACCOUNT_ID), buffer.getInt(offset + AMOUNT), buffer.getInt(offset + SEATS),
+                type, buffer.get(offset + TICKETS));
+    }
+
+    private static int offset(long slot) {
+        return (int) (slot * RECORD_SIZE);
+    }
+
+    private static int checksum(long orderId, long accountId, int totalAmount, int totalSeats, byte type, int totalTickets) {
+        long hash = orderId * 0x9E3779B97F4A7C15L;
+        hash = (hash ^ accountId) * 0xBF58476D1CE4E5B9L;
+        hash = (hash ^ ((long) totalAmount << 32 | (totalSeats & 0xFFFFFFFFL))) * 0x94D049BB133111EBL;
+        hash = (hash ^ (type << 8 | (totalTickets & 0xFF))) * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) | 1;
+    }
+
+    private void flushLoop() {
+        while (!closed) {
+            LockSupport.parkNanos(this, flushIntervalNanos);
+            if (appended.sum() != forced) {
+                sync();
+            }
+        }
+    }
+}
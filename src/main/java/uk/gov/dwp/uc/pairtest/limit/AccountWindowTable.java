@@ -0,0 +1,136 @@
+package uk.gov.dwp.uc.pairtest.limit;
+
+/**
+ * Linear-probing table of per-account ticket counts for fixed time windows. Each slot keeps its account ID,
+ * window and count next to each other in one array so a lookup touches a single cache line. Slots are never
+ * emptied, only reused, so a probe can stop at the first empty slot.
+ * Not thread safe; callers either confine a table to one thread or guard it.
+ */
+final class AccountWindowTable {
+    private static final long EMPTY = 0L;
+    private static final int ACCOUNT_ID = 0;
+    private static final int WINDOW = 1;
+    private static final int COUNT = 2;
+    private static final int SLOT_SIZE = 4;
+
+    private final long[] slots;
+    private final int mask;
+
+    /**
+     * Creates a table with the given number of slots, which must be a power of two.
+     */
+    AccountWindowTable(int slotCount) {
+        slots = new long[slotCount * SLOT_SIZE];
+        mask = slotCount - 1;
+    }
+
+    /**
+     * Counts the tickets against the account in the window, or returns false without counting them when
+     * that would take it over the maximum or the table has no free or idle slot left.
+     */
+    boolean tryAcquire(long accountId, int hash, long window, int tickets, int maxTicketsPerWindow) {
+        int slot = findOrClaim(accountId, hash, window);
+        if (slot < 0) {
+            return false;
+        }
+        int count = countAt(slot);
+        if (tickets > maxTicketsPerWindow - count) {
+            return false;
+        }
+        setCountAt(slot, count + tickets);
+        return true;
+    }
+
+    void release(long accountId, int hash, long window, int tickets) {
+        int slot = find(accountId, hash);
+        // Tickets acquired in an earlier window have already expired
+        if (slot >= 0 && windowAt(slot) == window) {
+            setCountAt(slot, Math.max(0, countAt(slot) - tickets));
+        }
+    }
+
+    int ticketsInWindow(long accountId, int hash, long window) {
+        int slot = find(accountId, hash);
+        return slot >= 0 && windowAt(slot) == window ? countAt(slot) : 0;
+    }
+
+    static long mix(long accountId) {
+        long hash = accountId * 0x9E3779B97F4A7C15L;
+        return hash ^ (hash >>> 29);
+    }
+
+    static void checkAccountId(long accountId) {
+        if (accountId <= 0) {
+            throw new IllegalArgumentException("Account ID must be positive.");
+        }
+    }
+
+    static int nextPowerOfTwo(int value) {
+        return value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+    }
+
+    /**
+     * Returns the array offset of the account's slot, or -1 when the account has none.
+     */
+    private int find(long accountId, int hash) {
+        for (int i = 0; i <= mask; i++) {
+            int offset = ((hash + i) & mask) * SLOT_SIZE;
+            long key = slots[offset + ACCOUNT_ID];
+            if (key == accountId) {
+                return offset;
+            }
+            if (key == EMPTY) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the array offset of the account's slot for the given window, resetting its count when
+     * it last bought in an earlier window, or claims an empty or idle slot. Returns -1 when the table is full.
+     */
+    private int findOrClaim(long accountId, int hash, long window) {
+        int idle = -1;
+        int claim = -1;
+        for (int i = 0; i <= mask; i++) {
+            int offset = ((hash + i) & mask) * SLOT_SIZE;
+            long key = slots[offset + ACCOUNT_ID];
+            if (key == accountId) {
+                if (slots[offset + WINDOW] != window) {
+                    slots[offset + WINDOW] = window;
+                    slots[offset + COUNT] = 0;
+                }
+                return offset;
+            }
+            if (key == EMPTY) {
+                claim = idle >= 0 ? idle : offset;
+                break;
+            }
+            if (idle < 0 && slots[offset + WINDOW] < window) {
+                idle = offset;
+            }
+        }
+        if (claim < 0) {
+            claim = idle;
+        }
+        if (claim >= 0) {
+            slots[claim + ACCOUNT_ID] = accountId;
+            slots[claim + WINDOW] = window;
+            slots[claim + COUNT] = 0;
+        }
+        return claim;
+    }
+
+    private long windowAt(int offset) {
+        return slots[offset + WINDOW];
+    }
+
+    private int countAt(int offset) {
+        return (int) slots[offset + COUNT];
+    }
+
+    private void setCountAt(int offset, int count) {
+        slots[offset + COUNT] = count;
+    }
+}
@@ -0,0 +1,81 @@
+package uk.gov.dwp.uc.pairtest.limit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-account ticket limit over fixed time windows for use by a single thread, such as one shard of a
+ * {@code ShardedPurchaseProcessor} that owns every account routed to it.
+ * Uses the same table as {@link StripedPurchaseLimiter} without any locking; it is not thread safe.
+ */
+public class ConfinedPurchaseLimiter implements PurchaseLimiter {
+
+    private final int maxTicketsPerWindow;
+    private final long windowMillis;
+    private final LongSupplier clockMillis;
+    private final AccountWindowTable table;
+
+    /**
+     * Creates a limiter sized to keep its table at most half full with the given number of
+     * accounts buying within one window.
+     */
+    public ConfinedPurchaseLimiter(int maxTicketsPerWindow, long window, TimeUnit unit, int maxActiveAccounts) {
+        this(maxTicketsPerWindow, window, unit, Math.max(16, 2 * maxActiveAccounts), System::currentTimeMillis);
+    }
+
+    /**
+     * Creates a limiter with an explicit slot count, rounded up to a power of two, which bounds how many
+     * accounts can be active within one window.
+     */
+    public ConfinedPurchaseLimiter(int maxTicketsPerWindow, long window, TimeUnit unit, int slots, LongSupplier clockMillis) {
+        if (maxTicketsPerWindow <= 0) {
+            throw new IllegalArgumentException("Max tickets per window must be positive.");
+        }
+        if (window <= 0 || unit.toMillis(window) <= 0) {
+            throw new IllegalArgumentException("Window must be at least one millisecond.");
+        }
+        if (slots <= 0) {
+            throw new IllegalArgumentException("Slot count must be positive.");
+        }
+        if (clockMillis == null) {
+            throw new IllegalArgumentException("Clock cannot be null.");
+        }
+        this.maxTicketsPerWindow = maxTicketsPerWindow;
+        this.windowMillis = unit.toMillis(window);
+        this.clockMillis = clockMillis;
+        this.table = new AccountWindowTable(AccountWindowTable.nextPowerOfTwo(slots));
+    }
+
+    /**
+     * Also returns false when the table has no free or idle slot left, so a full table
+     * fails closed rather than letting accounts through uncounted.
+     */
+    @Override
+    public boolean tryAcquire(long accountId, int tickets) {
+        AccountWindowTable.checkAccountId(accountId);
+        return table.tryAcquire(accountId, hash(accountId), currentWindow(), tickets, maxTicketsPerWindow);
+    }
+
+    @Override
+    public void release(long accountId, int tickets) {
+        AccountWindowTable.checkAccountId(accountId);
+        table.release(accountId, hash(accountId), currentWindow(), tickets);
+    }
+
+    /**
+     * Returns the tickets counted against the account in the current window.
+     */
+    public int getTicketsInWindow(long accountId) {
+        AccountWindowTable.checkAccountId(accountId);
+        return table.ticketsInWindow(accountId, hash(accountId), currentWindow());
+    }
+
+    private long currentWindow() {
+        // Window numbers start at 1 so that an unused slot (window 0) is always idle
+        return clockMillis.getAsLong() / windowMillis + 1;
+    }
+
+    private static int hash(long accountId) {
+        return (int) (AccountWindowTable.mix(accountId) >>> 32);
+    }
+}
@@ -0,0 +1,32 @@
+package uk.gov.dwp.uc.pairtest.limit;
+
+/**
+ * Limits how many tickets a single account may buy across orders.
+ */
+public interface PurchaseLimiter {
+
+    /**
+     * A limiter that admits every order.
+     */
+    PurchaseLimiter UNLIMITED = new PurchaseLimiter() {
+        @Override
+        public boolean tryAcquire(long accountId, int tickets) {
+            return true;
+        }
+
+        @Override
+        public void release(long accountId, int tickets) {
+        }
+    };
+
+    /**
+     * Counts the tickets against the account, or returns false without counting them
+     * when that would take the account over its limit.
+     */
+    boolean tryAcquire(long accountId, int tickets);
+
+    /**
+     * Gives back tickets acquired for an order that did not complete.
+     */
+    void release(long accountId, int tickets);
+}
@@ -0,0 +1,113 @@
+package uk.gov.dwp.uc.pairtest.limit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-account ticket limit over fixed time windows.
+ * Accounts are spread over independent stripes, each a small open-addressing table of primitive
+ * account IDs and counters guarded by its own monitor, so there is no global lock and no boxing.
+ * Slots of accounts that were idle for a whole window are reused in place when a new account needs room.
+ */
+public class StripedPurchaseLimiter implements PurchaseLimiter {
+
+    private static final int DEFAULT_MAX_ACTIVE_ACCOUNTS = 100_000;
+
+    private final int maxTicketsPerWindow;
+    private final long windowMillis;
+    private final LongSupplier clockMillis;
+    private final AccountWindowTable[] stripes;
+    private final int stripeMask;
+
+    public StripedPurchaseLimiter(int maxTicketsPerWindow, long window, TimeUnit unit) {
+        this(maxTicketsPerWindow, window, unit, DEFAULT_MAX_ACTIVE_ACCOUNTS);
+    }
+
+    /**
+     * Creates a limiter sized to keep its tables at most half full with the given number of
+     * accounts buying within one window.
+     */
+    public StripedPurchaseLimiter(int maxTicketsPerWindow, long window, TimeUnit unit, int maxActiveAccounts) {
+        this(maxTicketsPerWindow, window, unit, defaultStripeCount(),
+                Math.max(16, 2 * maxActiveAccounts / defaultStripeCount()), System::currentTimeMillis);
+    }
+
+    /**
+     * Creates a limiter with explicit sizing. Stripe and slot counts are rounded up to powers of two;
+     * together they bound how many accounts can be active within one window.
+     */
+    public StripedPurchaseLimiter(int maxTicketsPerWindow, long window, TimeUnit unit,
+                                  int stripeCount, int slotsPerStripe, LongSupplier clockMillis) {
+        if (maxTicketsPerWindow <= 0) {
+            throw new IllegalArgumentException("Max tickets per window must be positive.");
+        }
+        if (window <= 0 || unit.toMillis(window) <= 0) {
+            throw new IllegalArgumentException("Window must be at least one millisecond.");
+        }
+        if (stripeCount <= 0 || slotsPerStripe <= 0) {
+            throw new IllegalArgumentException("Stripe and slot counts must be positive.");
+        }
+        if (clockMillis == null) {
+            throw new IllegalArgumentException("Clock cannot be null.");
+        }
+        this.maxTicketsPerWindow = maxTicketsPerWindow;
+        this.windowMillis = unit.toMillis(window);
+        this.clockMillis = clockMillis;
+
+        int stripeTotal = AccountWindowTable.nextPowerOfTwo(stripeCount);
+        int slots = AccountWindowTable.nextPowerOfTwo(slotsPerStripe);
+        this.stripes = new AccountWindowTable[stripeTotal];
+        for (int i = 0; i < stripeTotal; i++) {
+            stripes[i] = new AccountWindowTable(slots);
+        }
+        this.stripeMask = stripeTotal - 1;
+    }
+
+    /**
+     * Also returns false when the account's stripe has no free or idle slot left, so a full table
+     * fails closed rather than letting accounts through uncounted.
+     */
+    @Override
+    public boolean tryAcquire(long accountId, int tickets) {
+        AccountWindowTable.checkAccountId(accountId);
+        long window = currentWindow();
+        long hash = AccountWindowTable.mix(accountId);
+        AccountWindowTable stripe = stripes[(int) hash & stripeMask];
+        synchronized (stripe) {
+            return stripe.tryAcquire(accountId, (int) (hash >>> 32), window, tickets, maxTicketsPerWindow);
+        }
+    }
+
+    @Override
+    public void release(long accountId, int tickets) {
+        AccountWindowTable.checkAccountId(accountId);
+        long window = currentWindow();
+        long hash = AccountWindowTable.mix(accountId);
+        AccountWindowTable stripe = stripes[(int) hash & stripeMask];
+        synchronized (stripe) {
+            stripe.release(accountId, (int) (hash >>> 32), window, tickets);
+        }
+    }
+
+    /**
+     * Returns the tickets counted against the account in the current window.
+     */
+    public int getTicketsInWindow(long accountId) {
+        AccountWindowTable.checkAccountId(accountId);
+        long window = currentWindow();
+        long hash = AccountWindowTable.mix(accountId);
+        AccountWindowTable stripe = stripes[(int) hash & stripeMask];
+        synchronized (stripe) {
+            return stripe.ticketsInWindow(accountId, (int) (hash >>> 32), window);
+        }
+    }
+
+    private long currentWindow() {
+        // Window numbers start at 1 so that an unused slot (window 0) is always idle
+        return clockMillis.getAsLong() / windowMillis + 1;
+    }
+
+    private static int defaultStripeCount() {
+        return AccountWindowTable.nextPowerOfTwo(Math.max(16, Runtime.getRuntime().availableProcessors() * 4));
+    }
+}
@@ -0,0 +1,20 @@
+package uk.gov.dwp.uc.pairtest.metrics;
+
+/**
+ * Keeps the most recently exported snapshot, for tests and for polling from within the process.
+ */
+public class InMemoryMetricsExporter implements MetricsExporter {
+    private volatile MetricsSnapshot latest;
+
+    @Override
+    public void export(MetricsSnapshot snapshot) {
+        latest = snapshot;
+    }
+
+    /**
+     * Returns the last exported snapshot, or null if nothing has been exported yet.
+     */
+    public MetricsSnapshot getLatest() {
+        return latest;
+    }
+}
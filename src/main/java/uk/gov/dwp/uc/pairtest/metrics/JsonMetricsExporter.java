@@ -0,0 +1,69 @@
+package uk.gov.dwp.uc.pairtest.metrics;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Map;
+
+/**
+ * Writes each snapshot as one line of JSON, with latencies in nanoseconds.
+ */
+public class JsonMetricsExporter implements MetricsExporter {
+    private final Writer writer;
+
+    public JsonMetricsExporter(Writer writer) {
+        if (writer == null) {
+            throw new IllegalArgumentException("Writer cannot be null.");
+        }
+        this.writer = writer;
+    }
+
+    @Override
+    public void export(MetricsSnapshot snapshot) {
+        try {
+            writer.write(toJson(snapshot));
+            writer.write('\n');
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static String toJson(MetricsSnapshot snapshot) {
+        StringBuilder json = new StringBuilder(512);
+        json.append("{\"timestampMillis\":").append(snapshot.getTimestampMillis());
+        json.append(",\"admittedOrders\":").append(snapshot.getAdmittedOrders());
+        json.append(",\"rejections\":");
+        appendCounts(json, snapshot.getRejections());
+        json.append(",\"tickets\":");
+        appendCounts(json, snapshot.getTickets());
+        json.append(",\"latencyNanos\":{\"validation\":");
+        appendHistogram(json, snapshot.getValidation());
+        json.append(",\"payment\":");
+        appendHistogram(json, snapshot.getPayment());
+        json.append(",\"reservation\":");
+        appendHistogram(json, snapshot.getReservation());
+        return json.append("}}").toString();
+    }
+
+    private static void appendCounts(StringBuilder json, Map<? extends Enum<?>, Long> counts) {
+        json.append('{');
+        String separator = "";
+        for (Map.Entry<? extends Enum<?>, Long> count : counts.entrySet()) {
+            json.append(separator).append('"').append(count.getKey().name()).append("\":").append(count.getValue());
+            separator = ",";
+        }
+        json.append('}');
+    }
+
+    private static void appendHistogram(StringBuilder json, LatencyHistogram.Snapshot histogram) {
+        json.append("{\"count\":").append(histogram.getCount())
+                .append(",\"mean\":").append(Math.round(histogram.getMeanNanos()))
+                .append(",\"p50\":").append(histogram.getPercentileNanos(0.50))
+                .append(",\"p90\":").append(histogram.getPercentileNanos(0.90))
+                .append(",\"p99\":").append(histogram.getPercentileNanos(0.99))
+                .append(",\"p999\":").append(histogram.getPercentileNanos(0.999))
+                .append(",\"max\":").append(histogram.getMaxNanos())
+                .append('}');
+    }
+}
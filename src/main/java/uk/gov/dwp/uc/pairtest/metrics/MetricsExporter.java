@@ -0,0 +1,9 @@
+package uk.gov.dwp.uc.pairtest.metrics;
+
+/**
+ * Publishes metrics snapshots somewhere outside the service.
+ */
+public interface MetricsExporter {
+
+    void export(MetricsSnapshot snapshot);
+}
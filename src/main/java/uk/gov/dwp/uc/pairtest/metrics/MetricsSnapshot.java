@@ -0,0 +1,68 @@
+package uk.gov.dwp.uc.pairtest.metrics;
+
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.TicketType;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException.Reason;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Point-in-time copy of the purchase metrics.
+ */
+public final class MetricsSnapshot {
+    private final long timestampMillis;
+    private final long admittedOrders;
+    private final Map<Reason, Long> rejections;
+    private final Map<TicketType, Long> tickets;
+    private final LatencyHistogram.Snapshot validation;
+    private final LatencyHistogram.Snapshot payment;
+    private final LatencyHistogram.Snapshot reservation;
+
+    MetricsSnapshot(long timestampMillis, long admittedOrders, Map<Reason, Long> rejections, Map<TicketType, Long> tickets,
+                    LatencyHistogram.Snapshot validation, LatencyHistogram.Snapshot payment,
+                    LatencyHistogram.Snapshot reservation) {
+        this.timestampMillis = timestampMillis;
+        this.admittedOrders = admittedOrders;
+        this.rejections = Collections.unmodifiableMap(rejections);
+        this.tickets = Collections.unmodifiableMap(tickets);
+        this.validation = validation;
+        this.payment = payment;
+        this.reservation = reservation;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public long getAdmittedOrders() {
+        return admittedOrders;
+    }
+
+    public long getRejections(Reason reason) {
+        return rejections.get(reason);
+    }
+
+    public long getTickets(TicketType type) {
+        return tickets.get(type);
+    }
+
+    public Map<Reason, Long> getRejections() {
+        return rejections;
+    }
+
+    public Map<TicketType, Long> getTickets() {
+        return tickets;
+    }
+
+    public LatencyHistogram.Snapshot getValidation() {
+        return validation;
+    }
+
+    public LatencyHistogram.Snapshot getPayment() {
+        return payment;
+    }
+
+    public LatencyHistogram.Snapshot getReservation() {
+        return reservation;
+    }
+}
@@ -0,0 +1,68 @@
+package uk.gov.dwp.uc.pairtest.metrics;
+
+import uk.gov.dwp.uc.pairtest.domain.OrderSummary;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException.Reason;
+
+/**
+ * Receives measurements from the purchase flow.
+ * Timings are taken with {@link #startTimer()} and passed back as the start time, so implementations
+ * that do not time a call return {@link #NOT_TIMED} and never read the clock.
+ */
+public interface PurchaseMetrics {
+
+    /**
+     * Start time for a call that is not being timed.
+     */
+    long NOT_TIMED = Long.MIN_VALUE;
+
+    /**
+     * Metrics that record nothing; the default for services created without metrics.
+     */
+    PurchaseMetrics NOOP = new PurchaseMetrics() {
+        @Override
+        public long startTimer() {
+            return NOT_TIMED;
+        }
+
+        @Override
+        public void recordValidation(long startNanos) {
+        }
+
+        @Override
+        public void recordPayment(long startNanos) {
+        }
+
+        @Override
+        public void recordReservation(long startNanos) {
+        }
+
+        @Override
+        public void recordRejection(Reason reason) {
+        }
+
+        @Override
+        public void recordAdmitted(OrderSummary summary) {
+        }
+    };
+
+    long startTimer();
+
+    void recordValidation(long startNanos);
+
+    /**
+     * Records a payment call, whether or not it succeeded.
+     */
+    void recordPayment(long startNanos);
+
+    /**
+     * Records a reservation call, whether or not it succeeded.
+     */
+    void recordReservation(long startNanos);
+
+    void recordRejection(Reason reason);
+
+    /**
+     * Counts the tickets of an order that passed validation and the account limit.
+     */
+    void recordAdmitted(OrderSummary summary);
+}
@@ -0,0 +1,124 @@
+package uk.gov.dwp.uc.pairtest.metrics;
+
+import uk.gov.dwp.uc.pairtest.domain.OrderSummary;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.TicketType;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException.Reason;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free, in-process purchase metrics.
+ * Counters are striped {@link LongAdder}s indexed by enum ordinal, and latencies go into
+ * {@link LatencyHistogram}s, so recording never blocks and never allocates.
+ * Counters are exact. Reading the clock is the most expensive part of recording, so latencies can be
+ * sampled: with a sample interval of N, about one call in N is timed.
+ */
+public class PurchaseMetricsRecorder implements PurchaseMetrics {
+
+    private static final Reason[] REASONS = Reason.values();
+    private static final TicketType[] TICKET_TYPES = TicketType.values();
+
+    private final LongAdder[] rejections = newCounters(REASONS.length);
+    private final LongAdder[] tickets = newCounters(TICKET_TYPES.length);
+    private final LongAdder admittedOrders = new LongAdder();
+    private final LatencyHistogram validation = new LatencyHistogram();
+    private final LatencyHistogram payment = new LatencyHistogram();
+    private final LatencyHistogram reservation = new LatencyHistogram();
+    private final int timingSampleInterval;
+
+    /**
+     * Creates metrics that time every call.
+     */
+    public PurchaseMetricsRecorder() {
+        this(1);
+    }
+
+    /**
+     * Creates metrics that time about one call in every timingSampleInterval.
+     */
+    public PurchaseMetricsRecorder(int timingSampleInterval) {
+        if (timingSampleInterval <= 0) {
+            throw new IllegalArgumentException("Timing sample interval must be positive.");
+        }
+        this.timingSampleInterval = timingSampleInterval;
+    }
+
+    @Override
+    public long startTimer() {
+        if (timingSampleInterval > 1 && ThreadLocalRandom.current().nextInt(timingSampleInterval) != 0) {
+            return NOT_TIMED;
+        }
+        return System.nanoTime();
+    }
+
+    @Override
+    public void recordValidation(long startNanos) {
+        record(validation, startNanos);
+    }
+
+    @Override
+    public void recordPayment(long startNanos) {
+        record(payment, startNanos);
+    }
+
+    @Override
+    public void recordReservation(long startNanos) {
+        record(reservation, startNanos);
+    }
+
+    @Override
+    public void recordRejection(Reason reason) {
+        rejections[reason.ordinal()].increment();
+    }
+
+    @Override
+    public void recordAdmitted(OrderSummary summary) {
+        admittedOrders.increment();
+        for (TicketType type : TICKET_TYPES) {
+            int count = summary.getTickets(type);
+            if (count != 0) {
+                tickets[type.ordinal()].add(count);
+            }
+        }
+    }
+
+    /**
+     * Copies the current values for export.
+     */
+    public MetricsSnapshot snapshot() {
+        Map<Reason, Long> rejectionCounts = new EnumMap<>(Reason.class);
+        for (Reason reason : REASONS) {
+            rejectionCounts.put(reason, rejections[reason.ordinal()].sum());
+        }
+        Map<TicketType, Long> ticketCounts = new EnumMap<>(TicketType.class);
+        for (TicketType type : TICKET_TYPES) {
+            ticketCounts.put(type, tickets[type.ordinal()].sum());
+        }
+        return new MetricsSnapshot(System.currentTimeMillis(), admittedOrders.sum(), rejectionCounts, ticketCounts,
+                validation.snapshot(), payment.snapshot(), reservation.snapshot());
+    }
+
+    /**
+     * Takes a snapshot and hands it to the exporter.
+     */
+    public void exportTo(MetricsExporter exporter) {
+        exporter.export(snapshot());
+    }
+
+    private static void record(LatencyHistogram histogram, long startNanos) {
+        if (startNanos != NOT_TIMED) {
+            histogram.record(System.nanoTime() - startNanos);
+        }
+    }
+
+    private static LongAdder[] newCounters(int count) {
+        LongAdder[] counters = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            counters[i] = new LongAdder();
+        }
+        return counters;
+    }
+}
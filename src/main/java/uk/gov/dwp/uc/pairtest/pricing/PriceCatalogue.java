@@ -0,0 +1,59 @@
+package uk.gov.dwp.uc.pairtest.pricing;
+
+/**
+ * Immutable set of compiled price tables, one per performance with its own prices and a default for the rest.
+ * Performances are found in an open-addressed table of primitive IDs, so lookups do not box or allocate.
+ */
+public final class PriceCatalogue {
+
+    private final long[] performanceIds;
+    private final PriceTable[] tables;
+    private final PriceTable defaultTable;
+    private final int mask;
+    private final long version;
+
+    PriceCatalogue(long[] performanceIds, PriceTable[] tables, PriceTable defaultTable, long version) {
+        int capacity = Integer.highestOneBit(Math.max(1, performanceIds.length) * 2 - 1) << 1;
+        this.performanceIds = new long[capacity];
+        this.tables = new PriceTable[capacity];
+        this.mask = capacity - 1;
+        for (int i = 0; i < performanceIds.length; i++) {
+            int slot = slot(performanceIds[i]);
+            while (this.tables[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            this.performanceIds[slot] = performanceIds[i];
+            this.tables[slot] = tables[i];
+        }
+        this.defaultTable = defaultTable;
+        this.version = version;
+    }
+
+    /**
+     * Returns the prices for the performance, or the default prices if it has none of its own.
+     */
+    public PriceTable forPerformance(long performanceId) {
+        for (int slot = slot(performanceId); tables[slot] != null; slot = (slot + 1) & mask) {
+            if (performanceIds[slot] == performanceId) {
+                return tables[slot];
+            }
+        }
+        return defaultTable;
+    }
+
+    public PriceTable getDefaultTable() {
+        return defaultTable;
+    }
+
+    /**
+     * Returns the number of the rule set this catalogue was compiled from, counting from 1.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    private int slot(long performanceId) {
+        long hash = performanceId * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
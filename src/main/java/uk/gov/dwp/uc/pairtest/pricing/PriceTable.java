@@ -0,0 +1,38 @@
+package uk.gov.dwp.uc.pairtest.pricing;
+
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.TicketType;
+import uk.gov.dwp.uc.pairtest.pricing.PricingRules.TimeBand;
+
+/**
+ * Immutable prices for one performance, in minor units (pence).
+ * Prices are held in a flat array indexed by time band and {@link TicketType#ordinal()},
+ * so a lookup is a single array read.
+ */
+public final class PriceTable {
+
+    private static final int TICKET_TYPES = TicketType.values().length;
+
+    private final long[] prices;
+
+    PriceTable(long[] prices) {
+        this.prices = prices;
+    }
+
+    public long getPrice(TimeBand timeBand, TicketType type) {
+        return prices[timeBand.ordinal() * TICKET_TYPES + type.ordinal()];
+    }
+
+    /**
+     * Prices a whole order; throws ArithmeticException if the total does not fit in a long.
+     */
+    public long totalAmount(TimeBand timeBand, TicketTypeRequest... ticketTypeRequests) {
+        int base = timeBand.ordinal() * TICKET_TYPES;
+        long total = 0;
+        for (TicketTypeRequest request : ticketTypeRequests) {
+            long price = prices[base + request.getTicketType().ordinal()];
+            total = Math.addExact(total, Math.multiplyExact(price, request.getNoOfTickets()));
+        }
+        return total;
+    }
+}
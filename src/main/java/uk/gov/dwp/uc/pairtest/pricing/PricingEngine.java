@@ -0,0 +1,62 @@
+package uk.gov.dwp.uc.pairtest.pricing;
+
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.TicketType;
+import uk.gov.dwp.uc.pairtest.pricing.PricingRules.TimeBand;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Prices orders from the current {@link PriceCatalogue}.
+ * New rules are compiled off to the side and published with a single atomic swap (copy-on-write),
+ * so lookups never lock and always see one complete catalogue, even while prices are being reloaded.
+ */
+public class PricingEngine {
+    private final AtomicReference<PriceCatalogue> catalogue;
+
+    /**
+     * Creates an engine priced from the {@link TicketType} prices.
+     */
+    public PricingEngine() {
+        this(PricingRules.fromTicketTypes());
+    }
+
+    public PricingEngine(PricingRules rules) {
+        if (rules == null) {
+            throw new IllegalArgumentException("Pricing rules cannot be null.");
+        }
+        this.catalogue = new AtomicReference<>(rules.compile(1));
+    }
+
+    /**
+     * Compiles the rules and makes them the current prices.
+     * Concurrent publishers are ordered by the swap; the catalogue version increases by one each time.
+     */
+    public PriceCatalogue publish(PricingRules rules) {
+        if (rules == null) {
+            throw new IllegalArgumentException("Pricing rules cannot be null.");
+        }
+        while (true) {
+            PriceCatalogue current = catalogue.get();
+            PriceCatalogue next = rules.compile(current.getVersion() + 1);
+            if (catalogue.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    public PriceCatalogue getCatalogue() {
+        return catalogue.get();
+    }
+
+    public long getPrice(long performanceId, TimeBand timeBand, TicketType type) {
+        return catalogue.get().forPerformance(performanceId).getPrice(timeBand, type);
+    }
+
+    /**
+     * Prices an order in minor units against a single catalogue.
+     */
+    public long totalAmount(long performanceId, TimeBand timeBand, TicketTypeRequest... ticketTypeRequests) {
+        return catalogue.get().forPerformance(performanceId).totalAmount(timeBand, ticketTypeRequests);
+    }
+}
@@ -0,0 +1,187 @@
+package uk.gov.dwp.uc.pairtest.pricing;
+
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.TicketType;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Editable pricing rules: base prices per ticket type, prices for particular performances,
+ * percentage adjustments per time band and percentage-off promotions.
+ * Rules are compiled into a {@link PriceCatalogue} before use, so none of them are evaluated per order.
+ * Instances are not thread safe.
+ */
+public class PricingRules {
+
+    /**
+     * When a performance takes place.
+     */
+    public enum TimeBand {
+        MATINEE, EVENING, LATE
+    }
+
+    private static final TicketType[] TICKET_TYPES = TicketType.values();
+    private static final TimeBand[] TIME_BANDS = TimeBand.values();
+    private static final long ALL_PERFORMANCES = Long.MIN_VALUE;
+
+    private final Map<TicketType, Long> basePrices = new EnumMap<>(TicketType.class);
+    private final Map<Long, Map<TicketType, Long>> performancePrices = new LinkedHashMap<>();
+    private final Map<TimeBand, Integer> timeBandAdjustments = new EnumMap<>(TimeBand.class);
+    private final List<Promotion> promotions = new ArrayList<>();
+
+    /**
+     * Returns rules with the prices built into {@link TicketType}, converted to pence.
+     */
+    public static PricingRules fromTicketTypes() {
+        PricingRules rules = new PricingRules();
+        for (TicketType type : TICKET_TYPES) {
+            rules.basePrice(type, type.getPrice() * 100L);
+        }
+        return rules;
+    }
+
+    public PricingRules basePrice(TicketType type, long minorUnits) {
+        basePrices.put(checkType(type), checkPrice(minorUnits));
+        return this;
+    }
+
+    /**
+     * Sets a price for one performance that replaces the base price.
+     */
+    public PricingRules performancePrice(long performanceId, TicketType type, long minorUnits) {
+        if (performanceId == ALL_PERFORMANCES) {
+            throw new IllegalArgumentException("Invalid performance ID.");
+        }
+        performancePrices.computeIfAbsent(performanceId, id -> new EnumMap<>(TicketType.class))
+                .put(checkType(type), checkPrice(minorUnits));
+        return this;
+    }
+
+    /**
+     * Raises (positive) or lowers (negative) every price in the time band by a percentage.
+     */
+    public PricingRules timeBandAdjustment(TimeBand timeBand, int percent) {
+        if (timeBand == null) {
+            throw new IllegalArgumentException("Time band cannot be null.");
+        }
+        if (percent < -100) {
+            throw new IllegalArgumentException("Adjustment cannot take prices below zero.");
+        }
+        timeBandAdjustments.put(timeBand, percent);
+        return this;
+    }
+
+    /**
+     * Takes a percentage off the given ticket types for every performance.
+     */
+    public PricingRules promotion(int percentOff, TicketType... types) {
+        return addPromotion(ALL_PERFORMANCES, percentOff, types);
+    }
+
+    /**
+     * Takes a percentage off the given ticket types for one performance.
+     */
+    public PricingRules promotion(long performanceId, int percentOff, TicketType... types) {
+        if (performanceId == ALL_PERFORMANCES) {
+            throw new IllegalArgumentException("Invalid performance ID.");
+        }
+        performancePrices.computeIfAbsent(performanceId, id -> new EnumMap<>(TicketType.class));
+        return addPromotion(performanceId, percentOff, types);
+    }
+
+    /**
+     * Compiles the rules into immutable price tables.
+     * Each price is the performance or base price, adjusted for the time band and then for each matching
+     * promotion in turn, rounded to the nearest minor unit.
+     */
+    public PriceCatalogue compile(long version) {
+        for (TicketType type : TICKET_TYPES) {
+            if (!basePrices.containsKey(type)) {
+                throw new IllegalStateException("No base price for " + type + ".");
+            }
+        }
+        long[] performanceIds = new long[performancePrices.size()];
+        PriceTable[] tables = new PriceTable[performancePrices.size()];
+        int i = 0;
+        for (Map.Entry<Long, Map<TicketType, Long>> performance : performancePrices.entrySet()) {
+            performanceIds[i] = performance.getKey();
+            tables[i] = compileTable(performance.getKey(), performance.getValue());
+            i++;
+        }
+        return new PriceCatalogue(performanceIds, tables, compileTable(ALL_PERFORMANCES, Map.of()), version);
+    }
+
+    private PriceTable compileTable(long performanceId, Map<TicketType, Long> overrides) {
+        long[] prices = new long[TIME_BANDS.length * TICKET_TYPES.length];
+        for (TimeBand timeBand : TIME_BANDS) {
+            for (TicketType type : TICKET_TYPES) {
+                long price = overrides.getOrDefault(type, basePrices.get(type));
+                price = adjust(price, timeBandAdjustments.getOrDefault(timeBand, 0));
+                for (Promotion promotion : promotions) {
+                    if (promotion.appliesTo(performanceId, type)) {
+                        price = adjust(price, -promotion.percentOff);
+                    }
+                }
+                prices[timeBand.ordinal() * TICKET_TYPES.length + type.ordinal()] = price;
+            }
+        }
+        return new PriceTable(prices);
+    }
+
+    private PricingRules addPromotion(long performanceId, int percentOff, TicketType... types) {
+        if (percentOff < 0 || percentOff > 100) {
+            throw new IllegalArgumentException("Percentage off must be between 0 and 100.");
+        }
+        if (types == null || types.length == 0) {
+            throw new IllegalArgumentException("Promotion must apply to at least one ticket type.");
+        }
+        boolean[] appliesTo = new boolean[TICKET_TYPES.length];
+        for (TicketType type : types) {
+            appliesTo[checkType(type).ordinal()] = true;
+        }
+        promotions.add(new Promotion(performanceId, percentOff, appliesTo));
+        return this;
+    }
+
+    private static long adjust(long price, int percent) {
+        if (percent == 0) {
+            return price;
+        }
+        long scaled = Math.multiplyExact(price, 100L + percent);
+        return (scaled + 50) / 100;
+    }
+
+    private static TicketType checkType(TicketType type) {
+        if (type == null) {
+            throw new IllegalArgumentException("Ticket type cannot be null.");
+        }
+        return type;
+    }
+
+    private static long checkPrice(long minorUnits) {
+        if (minorUnits < 0) {
+            throw new IllegalArgumentException("Price cannot be negative.");
+        }
+        return minorUnits;
+    }
+
+    private static final class Promotion {
+        final long performanceId;
+        final int percentOff;
+        final boolean[] appliesTo;
+
+        Promotion(long performanceId, int percentOff, boolean[] appliesTo) {
+            this.performanceId = performanceId;
+            this.percentOff = percentOff;
+            this.appliesTo = appliesTo;
+        }
+
+        boolean appliesTo(long performanceId, TicketType type) {
+            return (this.performanceId == ALL_PERFORMANCES || this.performanceId == performanceId)
+                    && appliesTo[type.ordinal()];
+        }
+    }
+}
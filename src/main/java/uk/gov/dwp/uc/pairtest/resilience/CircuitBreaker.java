@@ -0,0 +1,86 @@
+package uk.gov.dwp.uc.pairtest.resilience;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Lock-free circuit breaker.
+ * It opens after a run of consecutive failures and refuses calls for the open duration. After that one trial call is
+ * let through (half open): success closes the breaker, failure opens it again. All transitions are compare-and-set,
+ * and a closed breaker costs a single volatile read per call.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private static final State[] STATES = State.values();
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final LongSupplier clockNanos;
+    private final AtomicInteger state = new AtomicInteger(State.CLOSED.ordinal());
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile long openedAt;
+
+    public CircuitBreaker(int failureThreshold, long openDuration, TimeUnit unit) {
+        this(failureThreshold, openDuration, unit, System::nanoTime);
+    }
+
+    public CircuitBreaker(int failureThreshold, long openDuration, TimeUnit unit, LongSupplier clockNanos) {
+        if (failureThreshold <= 0) {
+            throw new IllegalArgumentException("Failure threshold must be positive.");
+        }
+        if (openDuration <= 0) {
+            throw new IllegalArgumentException("Open duration must be positive.");
+        }
+        if (clockNanos == null) {
+            throw new IllegalArgumentException("Clock cannot be null.");
+        }
+        this.failureThreshold = failureThreshold;
+        this.openNanos = unit.toNanos(openDuration);
+        this.clockNanos = clockNanos;
+    }
+
+    /**
+     * Returns true when a call may go ahead; the caller must then report its outcome.
+     */
+    public boolean tryAcquirePermission() {
+        int current = state.get();
+        if (current == State.CLOSED.ordinal()) {
+            return true;
+        }
+        return current == State.OPEN.ordinal()
+                && clockNanos.getAsLong() - openedAt >= openNanos
+                && state.compareAndSet(State.OPEN.ordinal(), State.HALF_OPEN.ordinal());
+    }
+
+    public void onSuccess() {
+        if (consecutiveFailures.get() != 0) {
+            consecutiveFailures.set(0);
+        }
+        state.compareAndSet(State.HALF_OPEN.ordinal(), State.CLOSED.ordinal());
+    }
+
+    public void onFailure() {
+        int current = state.get();
+        if (current == State.HALF_OPEN.ordinal()) {
+            open(State.HALF_OPEN);
+        } else if (current == State.CLOSED.ordinal() && consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            open(State.CLOSED);
+        }
+    }
+
+    public State getState() {
+        return STATES[state.get()];
+    }
+
+    private void open(State from) {
+        openedAt = clockNanos.getAsLong();
+        if (state.compareAndSet(from.ordinal(), State.OPEN.ordinal())) {
+            consecutiveFailures.set(0);
+        }
+    }
+}
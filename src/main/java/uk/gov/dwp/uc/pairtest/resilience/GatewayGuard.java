@@ -0,0 +1,192 @@
+package uk.gov.dwp.uc.pairtest.resilience;
+
+import uk.gov.dwp.uc.pairtest.GatewayExecutors;
+import uk.gov.dwp.uc.pairtest.exception.GatewayUnavailableException;
+import uk.gov.dwp.uc.pairtest.exception.GatewayUnavailableException.Reason;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+/**
+ * Runs blocking calls to one gateway with a deadline, a bulkhead, a circuit breaker, and optional retries and hedging.
+ *
+ * <p>Each attempt takes a bulkhead permit, asks the circuit breaker for permission and runs on the gateway executor
+ * while the caller waits no longer than the deadline. A call that misses its deadline is abandoned, not interrupted:
+ * its outcome is unknown, so it keeps its bulkhead permit until it returns. This means a stalled gateway fills the
+ * bulkhead and later calls fail fast instead of piling up threads. Timeouts and gateway failures count towards
+ * opening the circuit.
+ */
+public class GatewayGuard {
+
+    private final GatewayPolicy policy;
+    private final Executor executor;
+    private final Semaphore bulkhead;
+    private final CircuitBreaker circuitBreaker;
+
+    /**
+     * Creates a guard that runs calls on a new gateway executor.
+     */
+    public GatewayGuard(GatewayPolicy policy) {
+        this(policy, GatewayExecutors.newGatewayExecutor(), System::nanoTime);
+    }
+
+    public GatewayGuard(GatewayPolicy policy, Executor executor, LongSupplier clockNanos) {
+        if (policy == null) {
+            throw new IllegalArgumentException("Gateway policy cannot be null.");
+        }
+        if (executor == null) {
+            throw new IllegalArgumentException("Executor cannot be null.");
+        }
+        if (policy.getHedgeDelayNanos() > 0 && !policy.isIdempotent()) {
+            throw new IllegalArgumentException("Hedging needs idempotent calls.");
+        }
+        if (policy.getHedgeDelayNanos() >= policy.getTimeoutNanos()) {
+            throw new IllegalArgumentException("Hedge delay must be shorter than the timeout.");
+        }
+        this.policy = policy;
+        this.executor = executor;
+        this.bulkhead = new Semaphore(policy.getMaxConcurrentCalls());
+        this.circuitBreaker = new CircuitBreaker(policy.getFailureThreshold(), policy.getOpenNanos(),
+                TimeUnit.NANOSECONDS, clockNanos);
+    }
+
+    /**
+     * Runs the call, retrying as the policy allows.
+     * Throws the gateway's own exception when the call fails, or a {@link GatewayUnavailableException}.
+     */
+    public void run(Runnable call) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                attempt(call);
+                return;
+            } catch (RuntimeException e) {
+                if (attempt >= policy.getMaxAttempts() || !isRetryable(e)) {
+                    throw e;
+                }
+            }
+            backOff(attempt);
+        }
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * Returns the number of calls that could start now before the bulkhead is full.
+     */
+    public int getAvailableCalls() {
+        return bulkhead.availablePermits();
+    }
+
+    private void attempt(Runnable call) {
+        if (!bulkhead.tryAcquire()) {
+            throw GatewayUnavailableException.of(Reason.BULKHEAD_FULL);
+        }
+        if (!circuitBreaker.tryAcquirePermission()) {
+            bulkhead.release();
+            throw GatewayUnavailableException.of(Reason.CIRCUIT_OPEN);
+        }
+        CompletableFuture<Void> outcome = new CompletableFuture<>();
+        AtomicInteger running = new AtomicInteger(1);
+        start(call, outcome, running);
+        try {
+            long hedgeDelay = policy.getHedgeDelayNanos();
+            if (hedgeDelay > 0) {
+                try {
+                    outcome.get(hedgeDelay, TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    if (bulkhead.tryAcquire()) {
+                        running.incrementAndGet();
+                        start(call, outcome, running);
+                    }
+                    outcome.get(policy.getTimeoutNanos() - hedgeDelay, TimeUnit.NANOSECONDS);
+                }
+            } else {
+                outcome.get(policy.getTimeoutNanos(), TimeUnit.NANOSECONDS);
+            }
+        } catch (TimeoutException e) {
+            outcome.completeExceptionally(e); // Abandons copies that have not started yet
+            circuitBreaker.onFailure();
+            throw GatewayUnavailableException.of(Reason.TIMEOUT);
+        } catch (ExecutionException e) {
+            circuitBreaker.onFailure();
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            outcome.completeExceptionally(e);
+            circuitBreaker.onFailure();
+            Thread.currentThread().interrupt();
+            throw GatewayUnavailableException.of(Reason.INTERRUPTED);
+        }
+        circuitBreaker.onSuccess();
+    }
+
+    /**
+     * Starts one copy of the call holding a bulkhead permit. The outcome fails only once every copy has failed.
+     * A copy still queued when the caller gives up is skipped, so a timed out call is not sent to the gateway late.
+     */
+    private void start(Runnable call, CompletableFuture<Void> outcome, AtomicInteger running) {
+        try {
+            executor.execute(() -> {
+                try {
+                    if (outcome.isDone()) {
+                        return;
+                    }
+                    call.run();
+                    outcome.complete(null);
+                } catch (RuntimeException | Error e) {
+                    if (running.decrementAndGet() == 0) {
+                        outcome.completeExceptionally(e);
+                    }
+                } finally {
+                    bulkhead.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            bulkhead.release();
+            if (running.decrementAndGet() == 0) {
+                outcome.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Calls refused before reaching the gateway are always safe to retry; anything else only when calls are idempotent.
+     */
+    private boolean isRetryable(RuntimeException e) {
+        if (e instanceof GatewayUnavailableException) {
+            Reason reason = ((GatewayUnavailableException) e).getReason();
+            if (reason == Reason.BULKHEAD_FULL || reason == Reason.CIRCUIT_OPEN) {
+                return true;
+            }
+            if (reason == Reason.INTERRUPTED) {
+                return false;
+            }
+        }
+        return policy.isIdempotent();
+    }
+
+    private void backOff(int attempt) {
+        long ceiling = Math.min(policy.getMaxBackoffNanos(), policy.getBackoffNanos() << Math.min(attempt - 1, 30));
+        LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        if (Thread.interrupted()) {
+            Thread.currentThread().interrupt();
+            throw GatewayUnavailableException.of(Reason.INTERRUPTED);
+        }
+    }
+}
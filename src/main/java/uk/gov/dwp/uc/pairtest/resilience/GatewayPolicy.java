@@ -0,0 +1,141 @@
+package uk.gov.dwp.uc.pairtest.resilience;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Immutable settings for a {@link GatewayGuard}. Each {@code with} method returns a changed copy.
+ * By default calls have a two second deadline, at most 64 run at once, five consecutive failures open the
+ * circuit for ten seconds, and nothing is retried or hedged.
+ */
+public final class GatewayPolicy {
+
+    private final long timeoutNanos;
+    private final int maxConcurrentCalls;
+    private final int failureThreshold;
+    private final long openNanos;
+    private final int maxAttempts;
+    private final long backoffNanos;
+    private final long maxBackoffNanos;
+    private final long hedgeDelayNanos;
+    private final boolean idempotent;
+
+    private GatewayPolicy(long timeoutNanos, int maxConcurrentCalls, int failureThreshold, long openNanos, int maxAttempts,
+                          long backoffNanos, long maxBackoffNanos, long hedgeDelayNanos, boolean idempotent) {
+        this.timeoutNanos = timeoutNanos;
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openNanos;
+        this.maxAttempts = maxAttempts;
+        this.backoffNanos = backoffNanos;
+        this.maxBackoffNanos = maxBackoffNanos;
+        this.hedgeDelayNanos = hedgeDelayNanos;
+        this.idempotent = idempotent;
+    }
+
+    public static GatewayPolicy defaults() {
+        return new GatewayPolicy(TimeUnit.SECONDS.toNanos(2), 64, 5, TimeUnit.SECONDS.toNanos(10), 1,
+                TimeUnit.MILLISECONDS.toNanos(10), TimeUnit.MILLISECONDS.toNanos(200), 0, false);
+    }
+
+    /**
+     * Sets the deadline for each attempt.
+     */
+    public GatewayPolicy withTimeout(long timeout, TimeUnit unit) {
+        if (timeout <= 0) {
+            throw new IllegalArgumentException("Timeout must be positive.");
+        }
+        return new GatewayPolicy(unit.toNanos(timeout), maxConcurrentCalls, failureThreshold, openNanos, maxAttempts,
+                backoffNanos, maxBackoffNanos, hedgeDelayNanos, idempotent);
+    }
+
+    public GatewayPolicy withMaxConcurrentCalls(int maxConcurrentCalls) {
+        if (maxConcurrentCalls <= 0) {
+            throw new IllegalArgumentException("Max concurrent calls must be positive.");
+        }
+        return new GatewayPolicy(timeoutNanos, maxConcurrentCalls, failureThreshold, openNanos, maxAttempts,
+                backoffNanos, maxBackoffNanos, hedgeDelayNanos, idempotent);
+    }
+
+    public GatewayPolicy withCircuitBreaker(int failureThreshold, long openDuration, TimeUnit unit) {
+        if (failureThreshold <= 0) {
+            throw new IllegalArgumentException("Failure threshold must be positive.");
+        }
+        if (openDuration <= 0) {
+            throw new IllegalArgumentException("Open duration must be positive.");
+        }
+        return new GatewayPolicy(timeoutNanos, maxConcurrentCalls, failureThreshold, unit.toNanos(openDuration), maxAttempts,
+                backoffNanos, maxBackoffNanos, hedgeDelayNanos, idempotent);
+    }
+
+    /**
+     * Allows up to maxAttempts attempts per call, waiting a random time up to an exponentially growing
+     * backoff (full jitter) between them.
+     */
+    public GatewayPolicy withRetries(int maxAttempts, long backoff, long maxBackoff, TimeUnit unit) {
+        if (maxAttempts <= 0) {
+            throw new IllegalArgumentException("Max attempts must be positive.");
+        }
+        if (backoff <= 0 || maxBackoff < backoff) {
+            throw new IllegalArgumentException("Backoff must be positive and no more than the maximum backoff.");
+        }
+        return new GatewayPolicy(timeoutNanos, maxConcurrentCalls, failureThreshold, openNanos, maxAttempts,
+                unit.toNanos(backoff), unit.toNanos(maxBackoff), hedgeDelayNanos, idempotent);
+    }
+
+    /**
+     * Starts a second, identical call when the first has not answered within the delay; the first success wins.
+     * Only allowed for idempotent gateways.
+     */
+    public GatewayPolicy withHedging(long delay, TimeUnit unit) {
+        if (delay <= 0) {
+            throw new IllegalArgumentException("Hedge delay must be positive.");
+        }
+        return new GatewayPolicy(timeoutNanos, maxConcurrentCalls, failureThreshold, openNanos, maxAttempts,
+                backoffNanos, maxBackoffNanos, unit.toNanos(delay), idempotent);
+    }
+
+    /**
+     * Declares that repeating a call has no further effect, which allows failed and timed-out calls to be retried
+     * and slow calls to be hedged. Without it, only calls refused before reaching the gateway are retried.
+     */
+    public GatewayPolicy withIdempotentCalls() {
+        return new GatewayPolicy(timeoutNanos, maxConcurrentCalls, failureThreshold, openNanos, maxAttempts,
+                backoffNanos, maxBackoffNanos, hedgeDelayNanos, true);
+    }
+
+    public long getTimeoutNanos() {
+        return timeoutNanos;
+    }
+
+    public int getMaxConcurrentCalls() {
+        return maxConcurrentCalls;
+    }
+
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    public long getOpenNanos() {
+        return openNanos;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public long getBackoffNanos() {
+        return backoffNanos;
+    }
+
+    public long getMaxBackoffNanos() {
+        return maxBackoffNanos;
+    }
+
+    public long getHedgeDelayNanos() {
+        return hedgeDelayNanos;
+    }
+
+    public boolean isIdempotent() {
+        return idempotent;
+    }
+}
@@ -0,0 +1,41 @@
+package uk.gov.dwp.uc.pairtest.resilience;
+
+import thirdparty.seatbooking.ReleasableSeatReservationService;
+
+/**
+ * Seat reservation decorator that runs every reservation through a {@link GatewayGuard}.
+ */
+public class ResilientSeatReservationService implements ReleasableSeatReservationService {
+    private final ReleasableSeatReservationService reservationService;
+    private final GatewayGuard guard;
+
+    public ResilientSeatReservationService(ReleasableSeatReservationService reservationService, GatewayGuard guard) {
+        if (reservationService == null) {
+            throw new IllegalArgumentException("Reservation service cannot be null.");
+        }
+        if (guard == null) {
+            throw new IllegalArgumentException("Gateway guard cannot be null.");
+        }
+        this.reservationService = reservationService;
+        this.guard = guard;
+    }
+
+    @Override
+    public void reserveSeat(long accountId, int totalSeatsToAllocate) {
+        guard.run(() -> reservationService.reserveSeat(accountId, totalSeatsToAllocate));
+    }
+
+    @Override
+    public void reserveSeat(long accountId, int totalSeatsToAllocate, long orderReference) {
+        guard.run(() -> reservationService.reserveSeat(accountId, totalSeatsToAllocate, orderReference));
+    }
+
+    @Override
+    public void releaseSeat(long accountId, int totalSeatsToRelease, long orderReference) {
+        guard.run(() -> reservationService.releaseSeat(accountId, totalSeatsToRelease, orderReference));
+    }
+
+    public GatewayGuard getGuard() {
+        return guard;
+    }
+}
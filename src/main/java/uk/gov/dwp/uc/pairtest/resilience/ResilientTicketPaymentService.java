@@ -0,0 +1,41 @@
+package uk.gov.dwp.uc.pairtest.resilience;
+
+import thirdparty.paymentgateway.RefundableTicketPaymentService;
+
+/**
+ * Payment service decorator that runs every payment through a {@link GatewayGuard}.
+ */
+public class ResilientTicketPaymentService implements RefundableTicketPaymentService {
+    private final RefundableTicketPaymentService paymentService;
+    private final GatewayGuard guard;
+
+    public ResilientTicketPaymentService(RefundableTicketPaymentService paymentService, GatewayGuard guard) {
+        if (paymentService == null) {
+            throw new IllegalArgumentException("Payment service cannot be null.");
+        }
+        if (guard == null) {
+            throw new IllegalArgumentException("Gateway guard cannot be null.");
+        }
+        this.paymentService = paymentService;
+        this.guard = guard;
+    }
+
+    @Override
+    public void makePayment(long accountId, int totalAmountToPay) {
+        guard.run(() -> paymentService.makePayment(accountId, totalAmountToPay));
+    }
+
+    @Override
+    public void makePayment(long accountId, int totalAmountToPay, long orderReference) {
+        guard.run(() -> paymentService.makePayment(accountId, totalAmountToPay, orderReference));
+    }
+
+    @Override
+    public void refundPayment(long accountId, int totalAmountToRefund, long orderReference) {
+        guard.run(() -> paymentService.refundPayment(accountId, totalAmountToRefund, orderReference));
+    }
+
+    public GatewayGuard getGuard() {
+        return guard;
+    }
+}
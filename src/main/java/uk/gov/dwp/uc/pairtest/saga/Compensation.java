@@ -0,0 +1,76 @@
+package uk.gov.dwp.uc.pairtest.saga;
+
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An action that undoes a completed step of a failed purchase, such as refunding a payment.
+ * Compensations may run more than once, so the action must be safe to repeat.
+ */
+public final class Compensation implements Delayed {
+    private final String description;
+    private final Runnable action;
+    private int attempts;
+    private long dueAt;
+    private Throwable lastFailure;
+
+    public Compensation(String description, Runnable action) {
+        if (description == null) {
+            throw new IllegalArgumentException("Description cannot be null.");
+        }
+        if (action == null) {
+            throw new IllegalArgumentException("Action cannot be null.");
+        }
+        this.description = description;
+        this.action = action;
+    }
+
+    /**
+     * Runs the action once; returns false and keeps the failure if it throws.
+     */
+    boolean attempt() {
+        attempts++;
+        try {
+            action.run();
+            return true;
+        } catch (Throwable e) {
+            // Even an Error only fails this attempt; the worker must live on or the queue never becomes idle
+            lastFailure = e;
+            return false;
+        }
+    }
+
+    void dueIn(long delayNanos) {
+        dueAt = System.nanoTime() + delayNanos;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * Returns the failure from the most recent attempt, or null if it has not failed.
+     */
+    public Throwable getLastFailure() {
+        return lastFailure;
+    }
+
+    @Override
+    public long getDelay(TimeUnit unit) {
+        return unit.convert(dueAt - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public int compareTo(Delayed other) {
+        return Long.compare(dueAt, ((Compensation) other).dueAt);
+    }
+
+    @Override
+    public String toString() {
+        return "Compensation[" + description + ", attempts=" + attempts + "]";
+    }
+}
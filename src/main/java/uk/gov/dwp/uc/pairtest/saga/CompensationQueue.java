@@ -0,0 +1,167 @@
+package uk.gov.dwp.uc.pairtest.saga;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs compensations in the background, retrying failures with exponential backoff and full jitter.
+ *
+ * <p>At most capacity compensations are outstanding at once, counting those waiting to be retried. When the queue is
+ * full the compensation is attempted once on the submitting thread instead of being dropped (caller runs).
+ * Compensations that run out of attempts, or are still outstanding when the queue is closed, become dead letters
+ * for manual follow-up; none are lost silently.
+ * When compensations call a gateway behind a circuit breaker, size the attempts and backoff so that retrying
+ * outlasts the circuit's open time, or every attempt is rejected while it is open.
+ */
+public class CompensationQueue implements AutoCloseable {
+
+    private final int capacity;
+    private final int maxAttempts;
+    private final long backoffNanos;
+    private final long maxBackoffNanos;
+    private final DelayQueue<Compensation> due = new DelayQueue<>();
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final ConcurrentLinkedQueue<Compensation> deadLetters = new ConcurrentLinkedQueue<>();
+    private final Thread[] workers;
+    private volatile boolean closed;
+
+    public CompensationQueue(int capacity, int workerCount, int maxAttempts, long backoff, long maxBackoff, TimeUnit unit) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive.");
+        }
+        if (workerCount <= 0) {
+            throw new IllegalArgumentException("Worker count must be positive.");
+        }
+        if (maxAttempts <= 0) {
+            throw new IllegalArgumentException("Max attempts must be positive.");
+        }
+        if (backoff <= 0 || maxBackoff < backoff) {
+            throw new IllegalArgumentException("Backoff must be positive and no more than the maximum backoff.");
+        }
+        this.capacity = capacity;
+        this.maxAttempts = maxAttempts;
+        this.backoffNanos = unit.toNanos(backoff);
+        this.maxBackoffNanos = unit.toNanos(maxBackoff);
+        this.workers = new Thread[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            workers[i] = new Thread(this::work, "compensation-worker-" + (i + 1));
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    /**
+     * Queues a compensation to run as soon as a worker is free. Never blocks for longer than one attempt.
+     */
+    public void submit(Compensation compensation) {
+        if (compensation == null) {
+            throw new IllegalArgumentException("Compensation cannot be null.");
+        }
+        if (closed) {
+            throw new IllegalStateException("Compensation queue has been closed.");
+        }
+        int current;
+        do {
+            current = outstanding.get();
+            if (current >= capacity) {
+                if (!compensation.attempt()) {
+                    deadLetters.add(compensation);
+                }
+                return;
+            }
+        } while (!outstanding.compareAndSet(current, current + 1));
+        due.add(compensation);
+        if (closed) {
+            drainToDeadLetters();
+        }
+    }
+
+    /**
+     * Waits until every outstanding compensation has succeeded or become a dead letter.
+     * Returns false if the timeout passed first.
+     */
+    public boolean awaitIdle(long timeout, TimeUnit unit) {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (outstanding.get() > 0) {
+            if (System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        return true;
+    }
+
+    public int getOutstanding() {
+        return outstanding.get();
+    }
+
+    /**
+     * Returns the compensations that could not be completed.
+     */
+    public List<Compensation> getDeadLetters() {
+        return new ArrayList<>(deadLetters);
+    }
+
+    /**
+     * Stops the workers; compensations still waiting are moved to the dead letters.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        drainToDeadLetters();
+    }
+
+    private void drainToDeadLetters() {
+        for (Compensation waiting : due.toArray(new Compensation[0])) {
+            if (due.remove(waiting)) {
+                deadLetters.add(waiting);
+                outstanding.decrementAndGet();
+            }
+        }
+    }
+
+    private void work() {
+        while (!closed) {
+            Compensation compensation;
+            try {
+                compensation = due.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (compensation.attempt()) {
+                outstanding.decrementAndGet();
+            } else if (compensation.getAttempts() >= maxAttempts) {
+                deadLetters.add(compensation);
+                outstanding.decrementAndGet();
+            } else {
+                compensation.dueIn(ThreadLocalRandom.current().nextLong(backoffCeiling(compensation.getAttempts()) + 1));
+                due.add(compensation);
+            }
+        }
+    }
+
+    /**
+     * Returns the backoff doubled for each attempt after the first, capped at the maximum without overflowing.
+     */
+    private long backoffCeiling(int attempts) {
+        int doublings = Math.min(attempts - 1, 62);
+        return backoffNanos > maxBackoffNanos >> doublings ? maxBackoffNanos : backoffNanos << doublings;
+    }
+}
@@ -0,0 +1,120 @@
+package uk.gov.dwp.uc.pairtest.saga;
+
+import uk.gov.dwp.uc.pairtest.TicketService;
+import uk.gov.dwp.uc.pairtest.TicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.domain.OrderSummary;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.exception.GatewayUnavailableException;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException.Reason;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Ticket service that runs each purchase as a saga: pay, then reserve seats.
+ * When a step fails, the steps already done are undone by compensations queued on a {@link CompensationQueue},
+ * so the caller gets the failure straight away and never waits for a refund.
+ * A step that timed out may or may not have happened, so it is compensated as well.
+ *
+ * <p>Each order is sent to the gateways under a random 64-bit reference, and its compensations name that reference.
+ * A refund or release therefore undoes only its own order, however many orders the account has. It is safe to
+ * repeat, and it still cancels a timed out call that reaches the gateway after it.
+ */
+public class SagaTicketService implements TicketService {
+    private final TicketServiceImpl ticketService;
+    private final CompensationQueue compensations;
+    private final ThreadLocal<OrderSummary> orderSummaries = ThreadLocal.withInitial(OrderSummary::new);
+
+    public SagaTicketService(TicketServiceImpl ticketService, CompensationQueue compensations) {
+        if (ticketService == null) {
+            throw new IllegalArgumentException("Ticket service cannot be null.");
+        }
+        if (compensations == null) {
+            throw new IllegalArgumentException("Compensation queue cannot be null.");
+        }
+        if (!ticketService.supportsOrderReferences()) {
+            throw new IllegalArgumentException("Ticket service gateways must take order references so orders can be compensated.");
+        }
+        this.ticketService = ticketService;
+        this.compensations = compensations;
+    }
+
+    @Override
+    public void purchaseTickets(Long accountId, TicketTypeRequest... ticketTypeRequests) throws InvalidPurchaseException {
+        if (accountId == null) {
+            throw InvalidPurchaseException.of(Reason.INVALID_ACCOUNT_ID);
+        }
+        OrderSummary summary = orderSummaries.get();
+        Reason reason = ticketService.admitOrder(accountId, ticketTypeRequests, summary);
+        if (reason != null) {
+            throw InvalidPurchaseException.of(reason);
+        }
+        long account = accountId;
+        int totalAmount = summary.getTotalAmount();
+        int totalSeats = summary.getTotalSeats();
+        long orderReference = ThreadLocalRandom.current().nextLong();
+
+        try {
+            ticketService.processPayment(account, totalAmount, orderReference);
+        } catch (RuntimeException e) {
+            try {
+                if (isOutcomeUnknown(e)) {
+                    submit(refund(account, totalAmount, orderReference), e);
+                }
+            } finally {
+                ticketService.releaseOrder(account, summary.getTotalTickets());
+            }
+            throw e;
+        }
+        try {
+            ticketService.reserveSeats(account, totalSeats, orderReference);
+        } catch (RuntimeException e) {
+            try {
+                if (isOutcomeUnknown(e)) {
+                    submit(release(account, totalSeats, orderReference), e);
+                }
+                submit(refund(account, totalAmount, orderReference), e);
+            } finally {
+                ticketService.releaseOrder(account, summary.getTotalTickets());
+            }
+            throw e;
+        }
+    }
+
+    public CompensationQueue getCompensations() {
+        return compensations;
+    }
+
+    /**
+     * Queues a compensation for a failed step. If it cannot be queued the step's failure is still the one reported,
+     * carrying the queue's refusal as a suppressed exception.
+     */
+    private void submit(Compensation compensation, RuntimeException stepFailure) {
+        try {
+            compensations.submit(compensation);
+        } catch (RuntimeException e) {
+            stepFailure.addSuppressed(e);
+        }
+    }
+
+    private Compensation refund(long accountId, int totalAmount, long orderReference) {
+        return new Compensation("Refund " + totalAmount + " to account " + accountId + " for order " + orderReference,
+                () -> ticketService.refundPayment(accountId, totalAmount, orderReference));
+    }
+
+    private Compensation release(long accountId, int totalSeats, long orderReference) {
+        return new Compensation("Release " + totalSeats + " seat(s) for account " + accountId + " for order " + orderReference,
+                () -> ticketService.releaseSeats(accountId, totalSeats, orderReference));
+    }
+
+    /**
+     * A call abandoned by the resilience layer may still have reached the gateway.
+     */
+    private static boolean isOutcomeUnknown(RuntimeException e) {
+        if (!(e instanceof GatewayUnavailableException)) {
+            return false;
+        }
+        GatewayUnavailableException.Reason reason = ((GatewayUnavailableException) e).getReason();
+        return reason == GatewayUnavailableException.Reason.TIMEOUT || reason == GatewayUnavailableException.Reason.INTERRUPTED;
+    }
+}
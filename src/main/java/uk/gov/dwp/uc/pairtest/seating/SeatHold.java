@@ -0,0 +1,66 @@
+package uk.gov.dwp.uc.pairtest.seating;
+
+/**
+ * Seats held for one account on one performance, as a bit mask per row.
+ * Infants do not take seats; they are recorded against the adults whose laps they sit on.
+ */
+public final class SeatHold {
+    private final long performanceId;
+    private final long accountId;
+    private final int[] rows;
+    private final long[] seatMasks;
+    private final int lapInfants;
+
+    SeatHold(long performanceId, long accountId, int[] rows, long[] seatMasks, int lapInfants) {
+        this.performanceId = performanceId;
+        this.accountId = accountId;
+        this.rows = rows;
+        this.seatMasks = seatMasks;
+        this.lapInfants = lapInfants;
+    }
+
+    public long getPerformanceId() {
+        return performanceId;
+    }
+
+    public long getAccountId() {
+        return accountId;
+    }
+
+    public int getSeatCount() {
+        int seats = 0;
+        for (long mask : seatMasks) {
+            seats += Long.bitCount(mask);
+        }
+        return seats;
+    }
+
+    public int getLapInfants() {
+        return lapInfants;
+    }
+
+    /**
+     * Returns true when all held seats are next to each other in a single row.
+     */
+    public boolean isContiguous() {
+        return rows.length == 1;
+    }
+
+    /**
+     * Returns the number of row blocks the hold is made of.
+     */
+    public int getBlockCount() {
+        return rows.length;
+    }
+
+    public int getRow(int block) {
+        return rows[block];
+    }
+
+    /**
+     * Returns the seats held in a block's row; bit i set means seat i (from 0) is held.
+     */
+    public long getSeatMask(int block) {
+        return seatMasks[block];
+    }
+}
@@ -0,0 +1,209 @@
+package uk.gov.dwp.uc.pairtest.seating;
+
+import uk.gov.dwp.uc.pairtest.exception.SeatsUnavailableException;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Seat inventory for a single performance.
+ * Each row is one long word in an {@link AtomicLongArray}, with bit i set when seat i is taken, so
+ * seats are held and released with a single compare-and-set per row and no locks.
+ * Buyers start their search at a row derived from their account ID, which spreads a rush of
+ * concurrent buyers across the auditorium instead of having them all compete for the first row.
+ */
+public class SeatMap {
+
+    private static final int MAX_ROW_WIDTH = Long.SIZE;
+
+    private final long performanceId;
+    private final int rowWidth;
+    private final long fullRow;
+    private final AtomicLongArray rows;
+
+    public SeatMap(long performanceId, int rowCount, int rowWidth) {
+        if (rowCount <= 0) {
+            throw new IllegalArgumentException("Row count must be positive.");
+        }
+        if (rowWidth <= 0 || rowWidth > MAX_ROW_WIDTH) {
+            throw new IllegalArgumentException("Row width must be between 1 and " + MAX_ROW_WIDTH + ".");
+        }
+        this.performanceId = performanceId;
+        this.rowWidth = rowWidth;
+        this.fullRow = rowWidth == MAX_ROW_WIDTH ? -1L : (1L << rowWidth) - 1;
+        this.rows = new AtomicLongArray(rowCount);
+    }
+
+    /**
+     * Holds seats for adults and children; infants sit on adults' laps, so there can be no more
+     * infants than adults.
+     */
+    public SeatHold hold(long accountId, int adults, int children, int infants) {
+        if (adults < 0 || children < 0 || infants < 0) {
+            throw new IllegalArgumentException("Ticket counts cannot be negative.");
+        }
+        if (infants > adults) {
+            throw new IllegalArgumentException("Each infant must sit on an adult's lap.");
+        }
+        return hold(accountId, adults + children, infants);
+    }
+
+    /**
+     * Holds the given number of seats, side by side in one row when any row has room,
+     * otherwise spread over several rows.
+     *
+     * @throws SeatsUnavailableException when there are not enough free seats left
+     */
+    public SeatHold hold(long accountId, int seats) {
+        return hold(accountId, seats, 0);
+    }
+
+    private SeatHold hold(long accountId, int seats, int lapInfants) {
+        if (seats <= 0) {
+            throw new IllegalArgumentException("At least one seat must be held.");
+        }
+        int startRow = startRow(accountId);
+        if (seats <= rowWidth) {
+            for (int i = 0; i < rows.length(); i++) {
+                int row = (startRow + i) % rows.length();
+                long mask = holdContiguous(row, seats);
+                if (mask != 0) {
+                    return new SeatHold(performanceId, accountId, new int[] {row}, new long[] {mask}, lapInfants);
+                }
+            }
+        }
+        return holdSplit(accountId, seats, lapInfants, startRow);
+    }
+
+    /**
+     * Frees all seats of a hold at once.
+     */
+    public void release(SeatHold hold) {
+        if (hold.getPerformanceId() != performanceId) {
+            throw new IllegalArgumentException("Hold belongs to another performance.");
+        }
+        for (int block = 0; block < hold.getBlockCount(); block++) {
+            clear(hold.getRow(block), hold.getSeatMask(block));
+        }
+    }
+
+    public int getAvailableSeats() {
+        int taken = 0;
+        for (int row = 0; row < rows.length(); row++) {
+            taken += Long.bitCount(rows.get(row));
+        }
+        return getCapacity() - taken;
+    }
+
+    public int getCapacity() {
+        return rows.length() * rowWidth;
+    }
+
+    public long getPerformanceId() {
+        return performanceId;
+    }
+
+    /**
+     * Takes a run of free seats in one row, returning its mask, or 0 when the row has no such run.
+     */
+    private long holdContiguous(int row, int seats) {
+        while (true) {
+            long taken = rows.get(row);
+            long runStarts = freeRunStarts(~taken & fullRow, seats);
+            if (runStarts == 0) {
+                return 0;
+            }
+            long mask = runMask(seats) << Long.numberOfTrailingZeros(runStarts);
+            if (rows.compareAndSet(row, taken, taken | mask)) {
+                return mask;
+            }
+        }
+    }
+
+    /**
+     * Takes free seats wherever they are, row by row, giving them all back if the performance
+     * runs out before the group is seated.
+     */
+    private SeatHold holdSplit(long accountId, int seats, int lapInfants, int startRow) {
+        int[] heldRows = new int[rows.length()];
+        long[] heldMasks = new long[rows.length()];
+        int blocks = 0;
+        int remaining = seats;
+        for (int i = 0; i < rows.length() && remaining > 0; i++) {
+            int row = (startRow + i) % rows.length();
+            long mask = holdAny(row, remaining);
+            if (mask != 0) {
+                heldRows[blocks] = row;
+                heldMasks[blocks] = mask;
+                blocks++;
+                remaining -= Long.bitCount(mask);
+            }
+        }
+        if (remaining > 0) {
+            for (int block = 0; block < blocks; block++) {
+                clear(heldRows[block], heldMasks[block]);
+            }
+            throw new SeatsUnavailableException("Only " + (seats - remaining) + " of " + seats
+                    + " seats are available for performance " + performanceId + ".");
+        }
+        return new SeatHold(performanceId, accountId, Arrays.copyOf(heldRows, blocks),
+                Arrays.copyOf(heldMasks, blocks), lapInfants);
+    }
+
+    /**
+     * Takes up to the given number of free seats in one row, lowest seat numbers first.
+     */
+    private long holdAny(int row, int seats) {
+        while (true) {
+            long taken = rows.get(row);
+            long free = ~taken & fullRow;
+            long mask = 0;
+            for (int i = 0; i < seats && free != 0; i++) {
+                long seat = Long.lowestOneBit(free);
+                mask |= seat;
+                free &= ~seat;
+            }
+            if (mask == 0 || rows.compareAndSet(row, taken, taken | mask)) {
+                return mask;
+            }
+        }
+    }
+
+    private void clear(int row, long mask) {
+        while (true) {
+            long taken = rows.get(row);
+            if ((taken & mask) != mask) {
+                throw new IllegalStateException("Seats in row " + row + " were not held.");
+            }
+            if (rows.compareAndSet(row, taken, taken & ~mask)) {
+                return;
+            }
+        }
+    }
+
+    private int startRow(long accountId) {
+        long hash = accountId * 0x9E3779B97F4A7C15L;
+        return (int) ((hash >>> 32) % rows.length());
+    }
+
+    /**
+     * Returns a mask with bit i set when seats i to i + seats - 1 are all free.
+     */
+    private static long freeRunStarts(long free, int seats) {
+        long runStarts = free;
+        int covered = 1;
+        // Doubling: after each step, bit i means the next 'covered' seats from i are free
+        while (covered * 2 <= seats && runStarts != 0) {
+            runStarts &= runStarts >>> covered;
+            covered *= 2;
+        }
+        if (covered < seats && runStarts != 0) {
+            runStarts &= runStarts >>> (seats - covered);
+        }
+        return runStarts;
+    }
+
+    private static long runMask(int seats) {
+        return seats == MAX_ROW_WIDTH ? -1L : (1L << seats) - 1;
+    }
+}
@@ -0,0 +1,136 @@
+package uk.gov.dwp.uc.pairtest.seating;
+
+import thirdparty.seatbooking.ReleasableSeatReservationService;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Reservation service backed by the in-process seat map of one performance.
+ * Keeps each account's holds so they can be looked up or released later; an account with no holds left
+ * is forgotten, so the map only grows with the seats actually held.
+ *
+ * <p>Holds made under an order reference are released by that reference. Released references are remembered
+ * for the life of the performance, so a repeated release does nothing and a late reservation under the
+ * reference is refused.
+ */
+public class SeatMapReservationService implements ReleasableSeatReservationService {
+
+    private final SeatMap seatMap;
+    private final ConcurrentMap<Long, List<SeatHold>> holdsByAccount = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, SeatHold> holdsByReference = new ConcurrentHashMap<>();
+    private final Set<Long> releasedReferences = ConcurrentHashMap.newKeySet();
+
+    public SeatMapReservationService(SeatMap seatMap) {
+        if (seatMap == null) {
+            throw new IllegalArgumentException("Seat map cannot be null.");
+        }
+        this.seatMap = seatMap;
+    }
+
+    /**
+     * @throws uk.gov.dwp.uc.pairtest.exception.SeatsUnavailableException when the performance cannot seat the group
+     */
+    @Override
+    public void reserveSeat(long accountId, int totalSeatsToAllocate) {
+        addHold(accountId, seatMap.hold(accountId, totalSeatsToAllocate));
+    }
+
+    /**
+     * Repeating a reservation under a reference that still holds seats has no further effect.
+     *
+     * @throws uk.gov.dwp.uc.pairtest.exception.SeatsUnavailableException when the performance cannot seat the group
+     * @throws IllegalStateException when the reference has already been released
+     */
+    @Override
+    public void reserveSeat(long accountId, int totalSeatsToAllocate, long orderReference) {
+        if (holdsByReference.containsKey(orderReference)) {
+            return;
+        }
+        if (releasedReferences.contains(orderReference)) {
+            throw new IllegalStateException("Order " + orderReference + " was released before its seats were reserved.");
+        }
+        SeatHold hold = seatMap.hold(accountId, totalSeatsToAllocate);
+        SeatHold[] kept = new SeatHold[1];
+        // Checked again inside compute, as a release or a repeat for the reference may have arrived meanwhile
+        holdsByReference.compute(orderReference, (reference, existing) -> {
+            if (existing != null || releasedReferences.contains(reference)) {
+                return existing;
+            }
+            addHold(accountId, hold);
+            kept[0] = hold;
+            return hold;
+        });
+        if (kept[0] == null) {
+            seatMap.release(hold);
+            if (releasedReferences.contains(orderReference)) {
+                throw new IllegalStateException("Order " + orderReference + " was released before its seats were reserved.");
+            }
+        }
+    }
+
+    /**
+     * Releases the hold made under the reference. Only the first release of a reference has an effect.
+     */
+    @Override
+    public void releaseSeat(long accountId, int totalSeatsToRelease, long orderReference) {
+        SeatHold[] released = new SeatHold[1];
+        holdsByReference.compute(orderReference, (reference, hold) -> {
+            releasedReferences.add(reference);
+            if (hold != null) {
+                removeHold(hold.getAccountId(), hold);
+                released[0] = hold;
+            }
+            return null;
+        });
+        if (released[0] != null) {
+            seatMap.release(released[0]);
+        }
+    }
+
+    /**
+     * Returns a snapshot of the seats held for the account.
+     */
+    public List<SeatHold> getHolds(long accountId) {
+        List<SeatHold> holds = holdsByAccount.get(accountId);
+        if (holds == null) {
+            return Collections.emptyList();
+        }
+        synchronized (holds) {
+            return new ArrayList<>(holds);
+        }
+    }
+
+    /**
+     * Returns the number of accounts currently holding seats.
+     */
+    public int getAccountsWithHolds() {
+        return holdsByAccount.size();
+    }
+
+    public SeatMap getSeatMap() {
+        return seatMap;
+    }
+
+    private void addHold(long accountId, SeatHold hold) {
+        // Added inside compute so a concurrent release cannot drop the list just before the hold goes into it
+        holdsByAccount.compute(accountId, (id, holds) -> {
+            List<SeatHold> accountHolds = holds != null ? holds : Collections.synchronizedList(new ArrayList<>());
+            accountHolds.add(hold);
+            return accountHolds;
+        });
+    }
+
+    private void removeHold(long accountId, SeatHold hold) {
+        holdsByAccount.computeIfPresent(accountId, (id, holds) -> {
+            synchronized (holds) {
+                holds.remove(hold);
+                return holds.isEmpty() ? null : holds;
+            }
+        });
+    }
+}
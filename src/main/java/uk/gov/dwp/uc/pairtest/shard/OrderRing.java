@@ -0,0 +1,132 @@
+package uk.gov.dwp.uc.pairtest.shard;
+
+import uk.gov.dwp.uc.pairtest.domain.PurchaseResult;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free ring of orders with many producers and a single consumer, after Dmitry Vyukov's bounded queue.
+ * Order fields live in preallocated parallel arrays, so offering an order allocates nothing. Each slot has a
+ * sequence number that says whether it is free for position p (p), holds the order for position p (p + 1),
+ * or is free again for the next lap (p + capacity). Producers claim positions with one CAS on the tail.
+ */
+final class OrderRing {
+
+    /**
+     * Handles one order taken off the ring.
+     */
+    interface OrderHandler {
+        void handle(long accountId, TicketTypeRequest[] requests, CompletableFuture<PurchaseResult> future);
+    }
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicLongArray sequences;
+    private final long[] accountIds;
+    private final TicketTypeRequest[][] requests;
+    private final CompletableFuture<PurchaseResult>[] futures;
+    private final PaddedSequence tail = new PaddedSequence();
+    private final PaddedSequence head = new PaddedSequence();
+
+    /**
+     * Creates a ring holding the given number of orders, rounded up to a power of two.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    OrderRing(int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30.");
+        }
+        this.capacity = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = this.capacity - 1;
+        this.sequences = new AtomicLongArray(this.capacity);
+        for (int i = 0; i < this.capacity; i++) {
+            sequences.set(i, i);
+        }
+        this.accountIds = new long[this.capacity];
+        this.requests = new TicketTypeRequest[this.capacity][];
+        this.futures = new CompletableFuture[this.capacity];
+    }
+
+    /**
+     * Adds an order, or returns false when the ring is full. Safe to call from any thread.
+     * Publishing is a volatile write so a consumer about to park either sees the order or is seen parking.
+     */
+    boolean offer(long accountId, TicketTypeRequest[] orderRequests, CompletableFuture<PurchaseResult> future) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    accountIds[index] = accountId;
+                    requests[index] = orderRequests;
+                    futures[index] = future;
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Takes up to max orders in the order they were claimed and hands each to the handler, freeing its slot
+     * first so producers are not held up by slow handling. Only the consumer thread may call this.
+     */
+    int drain(OrderHandler handler, int max) {
+        long position = head.get();
+        int drained = 0;
+        while (drained < max) {
+            int index = (int) position & mask;
+            if (sequences.get(index) != position + 1) {
+                break;
+            }
+            long accountId = accountIds[index];
+            TicketTypeRequest[] orderRequests = requests[index];
+            CompletableFuture<PurchaseResult> future = futures[index];
+            requests[index] = null;
+            futures[index] = null;
+            sequences.lazySet(index, position + capacity);
+            position++;
+            head.lazySet(position);
+            drained++;
+            handler.handle(accountId, orderRequests, future);
+        }
+        return drained;
+    }
+
+    /**
+     * Returns whether the next order is ready for the consumer. Only the consumer thread may call this.
+     */
+    boolean hasNext() {
+        long position = head.get();
+        return sequences.get((int) position & mask) == position + 1;
+    }
+
+    /**
+     * Returns the number of claimed orders not yet taken by the consumer; approximate while producers are active.
+     */
+    int size() {
+        long size = tail.get() - head.get();
+        return (int) Math.max(0, Math.min(capacity, size));
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Counter padded to its own cache line so producers updating the tail do not slow the consumer's head.
+     */
+    @SuppressWarnings("unused")
+    private static final class PaddedSequence extends AtomicLong {
+        long p1, p2, p3, p4, p5, p6, p7;
+    }
+}
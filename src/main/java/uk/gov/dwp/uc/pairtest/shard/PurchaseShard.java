@@ -0,0 +1,137 @@
+package uk.gov.dwp.uc.pairtest.shard;
+
+import uk.gov.dwp.uc.pairtest.TicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.domain.PurchaseResult;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * One single-writer shard: a ring of pending orders and the only thread that processes them.
+ * Everything the shard's ticket service touches for an account is therefore only ever used by this thread.
+ * When idle the thread spins briefly, then yields, then parks until a producer wakes it.
+ */
+final class PurchaseShard implements OrderRing.OrderHandler {
+
+    private static final int DRAIN_BATCH = 256;
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 10;
+
+    private final int index;
+    private final OrderRing ring;
+    private final TicketServiceImpl ticketService;
+    private final Thread thread;
+    private final long startNanos = System.nanoTime();
+    private final AtomicInteger producers = new AtomicInteger();
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private long processedCount;
+    private long failedCount;
+    private volatile boolean closing;
+    private volatile boolean stopping;
+    private volatile boolean parked;
+
+    PurchaseShard(int index, int queueCapacity, TicketServiceImpl ticketService) {
+        this.index = index;
+        this.ring = new OrderRing(queueCapacity);
+        this.ticketService = ticketService;
+        this.thread = new Thread(this::processLoop, "purchase-shard-" + index);
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * Queues an order, waiting while the ring is full so producers are held back to the shard's pace.
+     */
+    void submit(long accountId, TicketTypeRequest[] requests, CompletableFuture<PurchaseResult> future) {
+        producers.incrementAndGet();
+        try {
+            if (closing) {
+                throw new IllegalStateException("Processor has been closed.");
+            }
+            for (int attempt = 0; !ring.offer(accountId, requests, future); attempt++) {
+                if (attempt < SPIN_TRIES) {
+                    Thread.onSpinWait();
+                } else {
+                    LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(10));
+                }
+            }
+            if (parked) {
+                LockSupport.unpark(thread);
+            }
+        } finally {
+            producers.decrementAndGet();
+        }
+    }
+
+    /**
+     * Stops accepting orders, waits for submissions in progress, then lets the thread drain the ring and exit.
+     */
+    void close() {
+        closing = true;
+        while (producers.get() != 0) {
+            Thread.onSpinWait();
+        }
+        stopping = true;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void handle(long accountId, TicketTypeRequest[] requests, CompletableFuture<PurchaseResult> future) {
+        PurchaseResult result;
+        try {
+            result = ticketService.tryPurchaseTickets(accountId, requests);
+        } catch (Throwable e) {
+            // Errors too: the shard thread must outlive any one order, or its ring stops draining for good
+            failed.lazySet(++failedCount);
+            processed.lazySet(++processedCount);
+            future.completeExceptionally(e);
+            return;
+        }
+        processed.lazySet(++processedCount);
+        future.complete(result);
+    }
+
+    ShardStats getStats() {
+        return new ShardStats(index, processed.get(), failed.get(), ring.size(), ring.capacity(),
+                System.nanoTime() - startNanos);
+    }
+
+    private void processLoop() {
+        int idle = 0;
+        while (true) {
+            if (ring.drain(this, DRAIN_BATCH) > 0) {
+                idle = 0;
+            } else if (stopping) {
+                // No producer is left, so an empty ring stays empty
+                if (!ring.hasNext()) {
+                    return;
+                }
+            } else if (idle < SPIN_TRIES) {
+                idle++;
+                Thread.onSpinWait();
+            } else if (idle < SPIN_TRIES + YIELD_TRIES) {
+                idle++;
+                Thread.yield();
+            } else {
+                parked = true;
+                if (!ring.hasNext() && !stopping) {
+                    LockSupport.park(this);
+                }
+                parked = false;
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package uk.gov.dwp.uc.pairtest.shard;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Point-in-time counters for one shard of a {@link ShardedPurchaseProcessor}.
+ */
+public final class ShardStats {
+    private final int shard;
+    private final long processed;
+    private final long failed;
+    private final int queueDepth;
+    private final int queueCapacity;
+    private final long uptimeNanos;
+
+    ShardStats(int shard, long processed, long failed, int queueDepth, int queueCapacity, long uptimeNanos) {
+        this.shard = shard;
+        this.processed = processed;
+        this.failed = failed;
+        this.queueDepth = queueDepth;
+        this.queueCapacity = queueCapacity;
+        this.uptimeNanos = uptimeNanos;
+    }
+
+    public int getShard() {
+        return shard;
+    }
+
+    /**
+     * Returns the orders completed so far, accepted, rejected or failed.
+     */
+    public long getProcessed() {
+        return processed;
+    }
+
+    /**
+     * Returns the orders whose gateway calls failed.
+     */
+    public long getFailed() {
+        return failed;
+    }
+
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * Returns the average orders processed per second since the shard started.
+     */
+    public double getThroughputPerSecond() {
+        return uptimeNanos <= 0 ? 0 : processed * (double) TimeUnit.SECONDS.toNanos(1) / uptimeNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "ShardStats[shard=" + shard + ", processed=" + processed + ", failed=" + failed
+                + ", queueDepth=" + queueDepth + "/" + queueCapacity + "]";
+    }
+}
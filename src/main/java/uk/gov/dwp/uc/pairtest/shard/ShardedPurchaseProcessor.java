@@ -0,0 +1,104 @@
+package uk.gov.dwp.uc.pairtest.shard;
+
+import uk.gov.dwp.uc.pairtest.AsyncTicketService;
+import uk.gov.dwp.uc.pairtest.TicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.domain.PurchaseResult;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.IntFunction;
+
+/**
+ * Processes orders on a fixed set of single-writer shards, normally one per core.
+ * Each order goes to the shard chosen by a hash of its account ID, through that shard's lock-free ring,
+ * so all orders for an account are processed by the same thread in the order they were submitted.
+ * Every shard has its own ticket service, so per-account state such as a
+ * {@link uk.gov.dwp.uc.pairtest.limit.ConfinedPurchaseLimiter} needs no locks, and per-shard metrics come from
+ * giving each service its own recorder.
+ *
+ * <p>Gateway calls run on the shard thread, so a slow gateway holds up every account on that shard.
+ * Futures are completed on the shard thread; use the async variants for any heavy continuation.
+ */
+public class ShardedPurchaseProcessor implements AsyncTicketService, AutoCloseable {
+
+    private final PurchaseShard[] shards;
+
+    /**
+     * Creates one shard per available processor.
+     */
+    public ShardedPurchaseProcessor(int queueCapacity, IntFunction<TicketServiceImpl> shardServices) {
+        this(Runtime.getRuntime().availableProcessors(), queueCapacity, shardServices);
+    }
+
+    /**
+     * Creates the given number of shards, each with a ring of the given capacity, rounded up to a power of two,
+     * and the ticket service returned for its index. Services must not share unsynchronized state.
+     */
+    public ShardedPurchaseProcessor(int shardCount, int queueCapacity, IntFunction<TicketServiceImpl> shardServices) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("Shard count must be positive.");
+        }
+        if (shardServices == null) {
+            throw new IllegalArgumentException("Shard services cannot be null.");
+        }
+        this.shards = new PurchaseShard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            TicketServiceImpl ticketService = shardServices.apply(i);
+            if (ticketService == null) {
+                throw new IllegalArgumentException("Ticket service cannot be null.");
+            }
+            shards[i] = new PurchaseShard(i, queueCapacity, ticketService);
+        }
+        for (PurchaseShard shard : shards) {
+            shard.start();
+        }
+    }
+
+    /**
+     * Queues the order on its account's shard, waiting while that shard's ring is full.
+     * Invalid orders complete with a rejected result; gateway failures complete the future exceptionally.
+     */
+    @Override
+    public CompletableFuture<PurchaseResult> purchaseTickets(long accountId, TicketTypeRequest... ticketTypeRequests) {
+        CompletableFuture<PurchaseResult> future = new CompletableFuture<>();
+        shards[shardOf(accountId)].submit(accountId, ticketTypeRequests, future);
+        return future;
+    }
+
+    /**
+     * Returns the index of the shard that owns the account.
+     */
+    public int shardOf(long accountId) {
+        long hash = accountId * 0xBF58476D1CE4E5B9L;
+        hash ^= hash >>> 31;
+        // Maps the top 32 bits onto [0, shards) without a division
+        return (int) (((hash >>> 32) * shards.length) >>> 32);
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * Returns the counters of every shard, in shard order.
+     */
+    public List<ShardStats> getStats() {
+        List<ShardStats> stats = new ArrayList<>(shards.length);
+        for (PurchaseShard shard : shards) {
+            stats.add(shard.getStats());
+        }
+        return stats;
+    }
+
+    /**
+     * Stops accepting orders, processes everything already queued and stops the shard threads.
+     */
+    @Override
+    public void close() {
+        for (PurchaseShard shard : shards) {
+            shard.close();
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package uk.gov.dwp.uc.pairtest;
+
+import org.junit.jupiter.api.Test;
+import thirdparty.paymentgateway.TicketPaymentServiceImpl;
+import thirdparty.seatbooking.SeatReservationServiceImpl;
+import uk.gov.dwp.uc.pairtest.domain.PurchaseResult;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+import uk.gov.dwp.uc.pairtest.limit.StripedPurchaseLimiter;
+import uk.gov.dwp.uc.pairtest.seating.SeatMap;
+import uk.gov.dwp.uc.pairtest.seating.SeatMapReservationService;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AsyncTicketServiceImplTest {
+
+    private static final int PURCHASES = 10_000;
+
+    @Test
+    public void testValidPurchaseCompletesWithTotals() {
+        try (AsyncTicketServiceImpl ticketService = new AsyncTicketServiceImpl(new TicketPaymentServiceImpl(), new SeatReservationServiceImpl())) {
+            PurchaseResult result = ticketService.purchaseTickets(1L,
+                    new TicketTypeRequest(TicketTypeRequest.TicketType.ADULT, 2),
+                    new TicketTypeRequest(TicketTypeRequest.TicketType.INFANT, 1)).join();
+
+            assertTrue(result.isAccepted());
+            assertEquals(50, result.getTotalAmount());
+            assertEquals(2, result.getTotalSeats());
+        }
+    }
+
+    @Test
+    public void testInvalidPurchaseIsRejectedWithoutGatewayCalls() {
+        try (AsyncTicketServiceImpl ticketService = new AsyncTicketServiceImpl((accountId, amount) -> fail("No payment expected"),
+                (accountId, seats) -> fail("No reservation expected"))) {
+            CompletableFuture<PurchaseResult> result = ticketService.purchaseTickets(1L,
+                    new TicketTypeRequest(TicketTypeRequest.TicketType.CHILD, 3));
+
+            assertTrue(result.isDone());
+            assertEquals(InvalidPurchaseException.Reason.NO_ADULT_TICKET, result.join().getRejectionReason());
+        }
+    }
+
+    @Test
+    public void testReservationWaitsForPaymentByDefault() {
+        AtomicBoolean reserved = new AtomicBoolean();
+        IllegalStateException failure = new IllegalStateException("Payment declined");
+        try (AsyncTicketServiceImpl ticketService = new AsyncTicketServiceImpl((accountId, amount) -> { throw failure; },
+                (accountId, seats) -> reserved.set(true))) {
+            CompletionException thrown = assertThrows(CompletionException.class, () -> ticketService.purchaseTickets(1L,
+                    new TicketTypeRequest(TicketTypeRequest.TicketType.ADULT, 1)).join());
+
+            assertSame(failure, thrown.getCause());
+            assertFalse(reserved.get());
+        }
+    }
+
+    @Test
+    public void testRejectedByFullExecutorReleasesTheOrder() {
+        StripedPurchaseLimiter limiter = new StripedPurchaseLimiter(25, 1, TimeUnit.MINUTES);
+        TicketServiceImpl rules = new TicketServiceImpl((accountId, amount) -> fail("No payment expected"),
+                (accountId, seats) -> fail("No reservation expected"), limiter);
+        ExecutorService executor = GatewayExecutors.newBoundedExecutor(1, 1);
+        executor.shutdown();
+        try (AsyncTicketServiceImpl ticketService = new AsyncTicketServiceImpl(rules, executor, false)) {
+            CompletableFuture<PurchaseResult> result = ticketService.purchaseTickets(1L,
+                    new TicketTypeRequest(TicketTypeRequest.TicketType.ADULT, 5));
+
+            CompletionException thrown = assertThrows(CompletionException.class, result::join);
+            assertInstanceOf(RejectedExecutionException.class, thrown.getCause());
+            assertEquals(0, limiter.getTicketsInWindow(1L));
+        }
+    }
+
+    @Test
+    public void testConcurrentReservationIsReleasedWhenPaymentFails() {
+        IllegalStateException failure = new IllegalStateException("Payment declined");
+        StripedPurchaseLimiter limiter = new StripedPurchaseLimiter(25, 1, TimeUnit.MINUTES);
+        SeatMap seatMap = new SeatMap(1L, 5, 10);
+        SeatMapReservationService seats = new SeatMapReservationService(seatMap);
+        TicketServiceImpl rules = new TicketServiceImpl(new ReferencedGateway((accountId, amount) -> { throw failure; },
+                (accountId, reserved) -> fail("No reservation expected")), seats, limiter);
+        try (AsyncTicketServiceImpl ticketService = new AsyncTicketServiceImpl(rules, Executors.newFixedThreadPool(2), true)) {
+            CompletionException thrown = assertThrows(CompletionException.class, () -> ticketService.purchaseTickets(1L,
+                    new TicketTypeRequest(TicketTypeRequest.TicketType.ADULT, 3)).join());
+
+            assertSame(failure, thrown.getCause());
+            assertEquals(50, seatMap.getAvailableSeats());
+            assertEquals(0, seats.getAccountsWithHolds());
+            assertEquals(0, limiter.getTicketsInWindow(1L));
+        }
+    }
+
+    @Test
+    public void testConcurrentPaymentIsRefundedWhenReservationFails() {
+        IllegalStateException failure = new IllegalStateException("No seats");
+        ReferencedGateway gateway = new ReferencedGateway((accountId, amount) -> { }, (accountId, seats) -> { throw failure; });
+        try (AsyncTicketServiceImpl ticketService = new AsyncTicketServiceImpl(gateway, gateway, Executors.newFixedThreadPool(2), true)) {
+            CompletionException thrown = assertThrows(CompletionException.class, () -> ticketService.purchaseTickets(1L,
+                    new TicketTypeRequest(TicketTypeRequest.TicketType.ADULT, 3)).join());
+
+            assertSame(failure, thrown.getCause());
+            assertEquals(75, gateway.getAmountRefunded());
+            assertEquals(0, gateway.getSeatsReleased());
+        }
+    }
+
+    @Test
+    public void testConcurrentCallsNeedReferencedGateways() {
+        assertThrows(IllegalArgumentException.class, () -> new AsyncTicketServiceImpl((accountId, amount) -> { },
+                (accountId, seats) -> { }, Executors.newSingleThreadExecutor(), true));
+    }
+
+    @Test
+    public void testLatencyUnderSlowGatewaySequential() {
+        runLoadTest(false);
+    }
+
+    @Test
+    public void testLatencyUnderSlowGatewayConcurrent() {
+        runLoadTest(true);
+    }
+
+    /**
+     * Issues many purchases at once against a 5 ms gateway and reports latency percentiles.
+     */
+    private static void runLoadTest(boolean concurrentGatewayCalls) {
+        LatencyGateway gateway = new LatencyGateway(5, TimeUnit.MILLISECONDS, false);
+        long[] latencies = new long[PURCHASES];
+        CompletableFuture<?>[] results = new CompletableFuture<?>[PURCHASES];
+
+        try (AsyncTicketServiceImpl ticketService = new AsyncTicketServiceImpl(gateway, gateway,
+                GatewayExecutors.newGatewayExecutor(), concurrentGatewayCalls)) {
+            TicketTypeRequest adultTicket = new TicketTypeRequest(TicketTypeRequest.TicketType.ADULT, 2);
+            long start = System.nanoTime();
+            for (int i = 0; i < PURCHASES; i++) {
+                int index = i;
+                long submitted = System.nanoTime();
+                results[i] = ticketService.purchaseTickets(i + 1, adultTicket)
+                        .thenRun(() -> latencies[index] = System.nanoTime() - submitted);
+            }
+            CompletableFuture.allOf(results).join();
+            long elapsed = System.nanoTime() - start;
+
+            Arrays.sort(latencies);
+            System.out.printf("concurrentGatewayCalls=%s: %.0f purchases/s, p50=%.1f ms, p99=%.1f ms, max=%.1f ms%n",
+                    concurrentGatewayCalls, PURCHASES * 1e9 / elapsed,
+                    percentileMillis(latencies, 0.50), percentileMillis(latencies, 0.99), percentileMillis(latencies, 1.0));
+        }
+
+        assertEquals(PURCHASES, gateway.getOrdersPaid());
+        assertEquals(PURCHASES * 2L, gateway.getSeatsReserved());
+        assertTrue(percentileMillis(latencies, 0.99) < 5_000, "p99 latency should stay bounded");
+    }
+
+    private static double percentileMillis(long[] sortedLatencies, double percentile) {
+        int index = (int) Math.ceil(percentile * sortedLatencies.length) - 1;
+        return sortedLatencies[Math.max(0, index)] / 1e6;
+    }
+}
@@ -0,0 +1,582 @@
+package uk.gov.dwp.uc.pairtest;
+
+import org.junit.jupiter.api.Test;
+import thirdparty.paymentgateway.RefundableTicketPaymentService;
+import thirdparty.seatbooking.ReleasableSeatReservationService;
+import uk.gov.dwp.uc.pairtest.domain.PurchaseResult;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+import uk.gov.dwp.uc.pairtest.http.PurchaseHttpServer;
+import uk.gov.dwp.uc.pairtest.idempotency.IdempotencyCache;
+import uk.gov.dwp.uc.pairtest.idempotency.IdempotentTicketService;
+import uk.gov.dwp.uc.pairtest.limit.ConfinedPurchaseLimiter;
+import uk.gov.dwp.uc.pairtest.limit.PurchaseLimiter;
+import uk.gov.dwp.uc.pairtest.limit.StripedPurchaseLimiter;
+import uk.gov.dwp.uc.pairtest.saga.CompensationQueue;
+import uk.gov.dwp.uc.pairtest.saga.SagaTicketService;
+import uk.gov.dwp.uc.pairtest.shard.ShardedPurchaseProcessor;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks every faster purchase path against the reference rules of {@link TicketServiceImpl#purchaseTickets(Long, TicketTypeRequest...)}.
+ * Each path gets the same random orders as the reference, from one thread and then from several, and must give
+ * the same outcome for every order and take the same money and seats through its gateways. Account limits
+ * depend on timing, so they are checked separately by racing two purchases for the same account, in the style of
+ * jcstress, and allowing only the outcomes the limit permits. Throughput is printed for each path.
+ * Set {@code -Pdifferential.orders=<n>} to change the number of orders.
+ */
+public class DifferentialTicketServiceTest {
+
+    private static final int ORDERS = Integer.getInteger("differential.orders", 1_000_000);
+    private static final int RACES = Math.max(1, ORDERS / 100);
+    private static final int THREADS = 4;
+    private static final int BATCH = 256;
+    private static final long SEED = 20241105L;
+
+    @Test
+    public void testFasterPathsMatchReference() throws Exception {
+        for (Candidate candidate : candidates(false)) {
+            try (candidate) {
+                compareWithReference(candidate, 1);
+            }
+        }
+    }
+
+    @Test
+    public void testFasterPathsMatchReferenceConcurrently() throws Exception {
+        for (Candidate candidate : candidates(false)) {
+            try (candidate) {
+                compareWithReference(candidate, THREADS);
+            }
+        }
+    }
+
+    @Test
+    public void testAccountLimitRacesHaveOnlyAcceptableOutcomes() throws Exception {
+        for (Candidate candidate : candidates(true)) {
+            try (candidate) {
+                race(candidate);
+            }
+        }
+    }
+
+    @Test
+    public void testGeneratorCoversEdgeCases() {
+        RandomOrders orders = new RandomOrders(SEED);
+        RecordingGateway gateway = new RecordingGateway();
+        TicketService reference = new TicketServiceImpl(gateway, gateway);
+        Map<String, Integer> kinds = new TreeMap<>();
+        for (int i = 0; i < 100_000; i++) {
+            long accountId = orders.nextAccountId();
+            TicketTypeRequest[] requests = orders.nextRequests();
+            kinds.merge(gateway.record(() -> reference.purchaseTickets(accountId, requests)).kind, 1, Integer::sum);
+        }
+
+        for (InvalidPurchaseException.Reason reason : InvalidPurchaseException.Reason.values()) {
+            if (reason != InvalidPurchaseException.Reason.ACCOUNT_LIMIT_EXCEEDED) {
+                assertTrue(kinds.getOrDefault(reason.name(), 0) > 100, "Too few orders rejected for " + reason + ": " + kinds);
+            }
+        }
+        assertTrue(kinds.get(Outcome.ACCEPTED) > 10_000, kinds.toString());
+        assertEquals(InvalidPurchaseException.Reason.values().length, kinds.size(), "Only accepted or rejected: " + kinds);
+    }
+
+    private static void compareWithReference(Candidate candidate, int threads) throws Exception {
+        RecordingGateway referenceGateway = new RecordingGateway();
+        TicketService reference = new TicketServiceImpl(referenceGateway, referenceGateway);
+        int ordersPerThread = ORDERS / candidate.scale / threads;
+        LongAdder referenceNanos = new LongAdder();
+        LongAdder candidateNanos = new LongAdder();
+        List<String> mismatches = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                RandomOrders orders = new RandomOrders(SEED + t);
+                results.add(executor.submit(() -> {
+                    long[] accountIds = new long[BATCH];
+                    TicketTypeRequest[][] requests = new TicketTypeRequest[BATCH][];
+                    Outcome[] expected = new Outcome[BATCH];
+                    Outcome[] actual = new Outcome[BATCH];
+                    for (int done = 0; done < ordersPerThread; done += BATCH) {
+                        int count = Math.min(BATCH, ordersPerThread - done);
+                        for (int i = 0; i < count; i++) {
+                            accountIds[i] = orders.nextAccountId();
+                            requests[i] = orders.nextRequests();
+                        }
+                        long start = System.nanoTime();
+                        for (int i = 0; i < count; i++) {
+                            long accountId = accountIds[i];
+                            TicketTypeRequest[] order = requests[i];
+                            expected[i] = referenceGateway.record(() -> reference.purchaseTickets(accountId, order));
+                        }
+                        long referenceDone = System.nanoTime();
+                        candidate.purchase(accountIds, requests, count, actual);
+                        candidateNanos.add(System.nanoTime() - referenceDone);
+                        referenceNanos.add(referenceDone - start);
+                        for (int i = 0; i < count; i++) {
+                            if (!expected[i].equals(actual[i]) && mismatches.size() < 10) {
+                                mismatches.add(RandomOrders.describe(accountIds[i], requests[i])
+                                        + " expected " + expected[i] + " but was " + actual[i]);
+                            }
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertTrue(mismatches.isEmpty(), candidate.name + " differs from the reference:\n" + String.join("\n", mismatches));
+        assertEquals(referenceGateway.amountPaid.sum(), candidate.gateway.amountPaid.sum(), candidate.name + " amount paid");
+        assertEquals(referenceGateway.seatsReserved.sum(), candidate.gateway.seatsReserved.sum(), candidate.name + " seats reserved");
+        long orders = (long) ordersPerThread * threads;
+        System.out.printf("%-42s threads=%d orders=%,d reference=%,.0f/s candidate=%,.0f/s%n", candidate.name, threads, orders,
+                orders * threads * 1e9 / referenceNanos.sum(), orders * threads * 1e9 / candidateNanos.sum());
+    }
+
+    /**
+     * Two actors buy 3 tickets each for the same account, which may only buy 5 within the window, so exactly one
+     * of them must be accepted. Every round uses a fresh account.
+     */
+    private static void race(Candidate candidate) throws Exception {
+        int races = RACES / candidate.scale;
+        Outcome[][] outcomes = new Outcome[2][races];
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<?>> actors = new ArrayList<>();
+            for (int a = 0; a < 2; a++) {
+                Outcome[] actorOutcomes = outcomes[a];
+                actors.add(executor.submit(() -> {
+                    long[] accountIds = new long[1];
+                    TicketTypeRequest[][] requests = {{new TicketTypeRequest(TicketTypeRequest.TicketType.ADULT, 3)}};
+                    Outcome[] outcome = new Outcome[1];
+                    for (int i = 0; i < races; i++) {
+                        accountIds[0] = i + 1;
+                        barrier.await();
+                        candidate.purchase(accountIds, requests, 1, outcome);
+                        actorOutcomes[i] = outcome[0];
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> actor : actors) {
+                actor.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        Map<String, Integer> observed = new TreeMap<>();
+        for (int i = 0; i < races; i++) {
+            observed.merge(outcomes[0][i].kind + ", " + outcomes[1][i].kind, 1, Integer::sum);
+        }
+        String first = Outcome.ACCEPTED + ", " + InvalidPurchaseException.Reason.ACCOUNT_LIMIT_EXCEEDED;
+        String second = InvalidPurchaseException.Reason.ACCOUNT_LIMIT_EXCEEDED + ", " + Outcome.ACCEPTED;
+        System.out.println(candidate.name + " account limit race:");
+        for (Map.Entry<String, Integer> entry : observed.entrySet()) {
+            boolean acceptable = entry.getKey().equals(first) || entry.getKey().equals(second);
+            System.out.printf("  %-50s %-10s %,d%n", entry.getKey(), acceptable ? "ACCEPTABLE" : "FORBIDDEN", entry.getValue());
+            assertTrue(acceptable, candidate.name + " allowed " + entry.getKey() + " " + entry.getValue() + " times");
+        }
+        assertEquals(75L * races, candidate.gateway.amountPaid.sum(), candidate.name + " amount paid");
+    }
+
+    /**
+     * Every faster path, each with its own gateway, and with a limit of 5 tickets per account when limited is set.
+     */
+    private static List<Candidate> candidates(boolean limited) throws IOException {
+        List<Candidate> candidates = new ArrayList<>();
+        candidates.add(new Candidate("TicketServiceImpl.tryPurchaseTickets", 1) {
+            final TicketServiceImpl ticketService = new TicketServiceImpl(gateway, gateway, sharedLimiter(limited));
+
+            @Override
+            Outcome purchase(long accountId, TicketTypeRequest[] requests) {
+                return Outcome.of(ticketService.tryPurchaseTickets(accountId, requests));
+            }
+        });
+        candidates.add(new Candidate("TicketServiceImpl.purchaseTickets(long)", 1) {
+            final TicketServiceImpl ticketService = new TicketServiceImpl(gateway, gateway, sharedLimiter(limited));
+
+            @Override
+            Outcome purchase(long accountId, TicketTypeRequest[] requests) {
+                return gateway.record(() -> ticketService.purchaseTickets(accountId, requests));
+            }
+        });
+        candidates.add(new Candidate("SagaTicketService", 1) {
+            final CompensationQueue compensations = new CompensationQueue(1024, 1, 3, 1, 10, TimeUnit.MILLISECONDS);
+            final TicketService ticketService = new SagaTicketService(
+                    new TicketServiceImpl(gateway, gateway, sharedLimiter(limited)), compensations);
+
+            @Override
+            Outcome purchase(long accountId, TicketTypeRequest[] requests) {
+                return gateway.record(() -> ticketService.purchaseTickets(accountId, requests));
+            }
+
+            @Override
+            public void close() {
+                compensations.close();
+            }
+        });
+        candidates.add(new Candidate("IdempotentTicketService", 1) {
+            final AtomicLong keys = new AtomicLong();
+            final IdempotentTicketService ticketService = new IdempotentTicketService(
+                    new TicketServiceImpl(gateway, gateway, sharedLimiter(limited)),
+                    new IdempotencyCache<>(1024, 1, TimeUnit.MINUTES));
+
+            @Override
+            Outcome purchase(long accountId, TicketTypeRequest[] requests) {
+                return Outcome.of(ticketService.purchaseTickets("order-" + keys.incrementAndGet(), accountId, requests));
+            }
+        });
+        candidates.add(new AsyncCandidate("AsyncTicketServiceImpl", 4) {
+            final AsyncTicketServiceImpl ticketService = new AsyncTicketServiceImpl(
+                    new TicketServiceImpl(gateway, gateway, sharedLimiter(limited)), Executors.newFixedThreadPool(4), false);
+
+            @Override
+            CompletableFuture<PurchaseResult> submit(long accountId, TicketTypeRequest[] requests) {
+                return ticketService.purchaseTickets(accountId, requests);
+            }
+
+            @Override
+            public void close() {
+                ticketService.close();
+            }
+        });
+        candidates.add(new AsyncCandidate("ShardedPurchaseProcessor", 1) {
+            final ShardedPurchaseProcessor processor = new ShardedPurchaseProcessor(THREADS, 1024,
+                    shard -> new TicketServiceImpl(gateway, gateway, confinedLimiter(limited)));
+
+            @Override
+            CompletableFuture<PurchaseResult> submit(long accountId, TicketTypeRequest[] requests) {
+                return processor.purchaseTickets(accountId, requests);
+            }
+
+            @Override
+            public void close() {
+                processor.close();
+            }
+        });
+        candidates.add(new HttpCandidate(limited));
+        return candidates;
+    }
+
+    private static PurchaseLimiter sharedLimiter(boolean limited) {
+        return limited ? new StripedPurchaseLimiter(5, 1, TimeUnit.HOURS, RACES) : PurchaseLimiter.UNLIMITED;
+    }
+
+    private static PurchaseLimiter confinedLimiter(boolean limited) {
+        return limited ? new ConfinedPurchaseLimiter(5, 1, TimeUnit.HOURS, RACES) : PurchaseLimiter.UNLIMITED;
+    }
+
+    /**
+     * What a purchase came to, reduced to something every path can report and that compares by value.
+     */
+    private static final class Outcome {
+        static final String ACCEPTED = "ACCEPTED";
+
+        final String kind;
+        final int totalAmount;
+        final int totalSeats;
+
+        private Outcome(String kind, int totalAmount, int totalSeats) {
+            this.kind = kind;
+            this.totalAmount = totalAmount;
+            this.totalSeats = totalSeats;
+        }
+
+        static Outcome accepted(int totalAmount, int totalSeats) {
+            return new Outcome(ACCEPTED, totalAmount, totalSeats);
+        }
+
+        static Outcome rejected(InvalidPurchaseException.Reason reason) {
+            return new Outcome(String.valueOf(reason), 0, 0);
+        }
+
+        static Outcome failed(String failure) {
+            return new Outcome("FAILED " + failure, 0, 0);
+        }
+
+        static Outcome of(PurchaseResult result) {
+            return result.isAccepted() ? accepted(result.getTotalAmount(), result.getTotalSeats()) : rejected(result.getRejectionReason());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Outcome)) {
+                return false;
+            }
+            Outcome other = (Outcome) o;
+            return kind.equals(other.kind) && totalAmount == other.totalAmount && totalSeats == other.totalSeats;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(kind, totalAmount, totalSeats);
+        }
+
+        @Override
+        public String toString() {
+            return kind.equals(ACCEPTED) ? kind + " amount=" + totalAmount + " seats=" + totalSeats : kind;
+        }
+    }
+
+    /**
+     * Gateway that keeps running totals, and the amount and seats of the last purchase made on each thread so
+     * the outcome of a {@code void} purchase can be read back.
+     */
+    private static final class RecordingGateway implements RefundableTicketPaymentService, ReleasableSeatReservationService {
+        final LongAdder amountPaid = new LongAdder();
+        final LongAdder seatsReserved = new LongAdder();
+        private final ThreadLocal<int[]> lastPurchase = ThreadLocal.withInitial(() -> new int[2]);
+
+        @Override
+        public void makePayment(long accountId, int totalAmountToPay) {
+            amountPaid.add(totalAmountToPay);
+            lastPurchase.get()[0] = totalAmountToPay;
+        }
+
+        @Override
+        public void reserveSeat(long accountId, int totalSeatsToAllocate) {
+            seatsReserved.add(totalSeatsToAllocate);
+            lastPurchase.get()[1] = totalSeatsToAllocate;
+        }
+
+        @Override
+        public void makePayment(long accountId, int totalAmountToPay, long orderReference) {
+            makePayment(accountId, totalAmountToPay);
+        }
+
+        @Override
+        public void reserveSeat(long accountId, int totalSeatsToAllocate, long orderReference) {
+            reserveSeat(accountId, totalSeatsToAllocate);
+        }
+
+        @Override
+        public void refundPayment(long accountId, int totalAmountToRefund, long orderReference) {
+            amountPaid.add(-totalAmountToRefund);
+        }
+
+        @Override
+        public void releaseSeat(long accountId, int totalSeatsToRelease, long orderReference) {
+            seatsReserved.add(-totalSeatsToRelease);
+        }
+
+        Outcome record(Runnable purchase) {
+            try {
+                purchase.run();
+            } catch (InvalidPurchaseException e) {
+                return Outcome.rejected(e.getReason());
+            } catch (RuntimeException e) {
+                return Outcome.failed(e.getClass().getSimpleName());
+            }
+            int[] last = lastPurchase.get();
+            return Outcome.accepted(last[0], last[1]);
+        }
+    }
+
+    private abstract static class Candidate implements AutoCloseable {
+        final String name;
+        final int scale;
+        final RecordingGateway gateway = new RecordingGateway();
+
+        /**
+         * The scale divides the number of orders for paths too slow to run all of them.
+         */
+        Candidate(String name, int scale) {
+            this.name = name;
+            this.scale = scale;
+        }
+
+        void purchase(long[] accountIds, TicketTypeRequest[][] requests, int count, Outcome[] outcomes) throws Exception {
+            for (int i = 0; i < count; i++) {
+                try {
+                    outcomes[i] = purchase(accountIds[i], requests[i]);
+                } catch (RuntimeException e) {
+                    outcomes[i] = Outcome.failed(e.getClass().getSimpleName());
+                }
+            }
+        }
+
+        Outcome purchase(long accountId, TicketTypeRequest[] requests) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() throws Exception {
+        }
+    }
+
+    /**
+     * Starts a whole batch before waiting for any of it, so queues and executors see more than one order at a time.
+     */
+    private abstract static class AsyncCandidate extends Candidate {
+        private final List<CompletableFuture<PurchaseResult>> futures = new CopyOnWriteArrayList<>();
+
+        AsyncCandidate(String name, int scale) {
+            super(name, scale);
+        }
+
+        abstract CompletableFuture<PurchaseResult> submit(long accountId, TicketTypeRequest[] requests);
+
+        @Override
+        void purchase(long[] accountIds, TicketTypeRequest[][] requests, int count, Outcome[] outcomes) {
+            @SuppressWarnings("unchecked")
+            CompletableFuture<PurchaseResult>[] started = new CompletableFuture[count];
+            for (int i = 0; i < count; i++) {
+                started[i] = submit(accountIds[i], requests[i]);
+            }
+            for (int i = 0; i < count; i++) {
+                try {
+                    outcomes[i] = Outcome.of(started[i].join());
+                } catch (CompletionException e) {
+                    outcomes[i] = Outcome.failed(e.getCause().getClass().getSimpleName());
+                }
+            }
+        }
+    }
+
+    /**
+     * Purchases through the HTTP endpoint in front of a sharded processor, pipelining a batch of orders on one
+     * keep-alive connection per thread.
+     */
+    private static final class HttpCandidate extends Candidate {
+        private static final int PIPELINE = 32;
+
+        private final ShardedPurchaseProcessor processor;
+        private final PurchaseHttpServer server;
+        private final List<Socket> sockets = new CopyOnWriteArrayList<>();
+        private final ThreadLocal<Socket> connections = new ThreadLocal<>();
+
+        HttpCandidate(boolean limited) throws IOException {
+            super("PurchaseHttpServer", 10);
+            this.processor = new ShardedPurchaseProcessor(THREADS, 1024,
+                    shard -> new TicketServiceImpl(gateway, gateway, confinedLimiter(limited)));
+            this.server = new PurchaseHttpServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), processor, 2, 8 * 1024);
+        }
+
+        @Override
+        void purchase(long[] accountIds, TicketTypeRequest[][] requests, int count, Outcome[] outcomes) throws IOException {
+            Socket socket = connection();
+            OutputStream out = socket.getOutputStream();
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            for (int from = 0; from < count; from += PIPELINE) {
+                int to = Math.min(count, from + PIPELINE);
+                StringBuilder batch = new StringBuilder();
+                for (int i = from; i < to; i++) {
+                    String body = toJson(accountIds[i], requests[i]);
+                    batch.append("POST /purchases HTTP/1.1\r\nContent-Length: ").append(body.length()).append("\r\n\r\n").append(body);
+                }
+                out.write(batch.toString().getBytes(StandardCharsets.US_ASCII));
+                out.flush();
+                for (int i = from; i < to; i++) {
+                    outcomes[i] = readOutcome(in);
+                }
+            }
+        }
+
+        @Override
+        public void close() throws Exception {
+            for (Socket socket : sockets) {
+                socket.close();
+            }
+            server.close();
+            processor.close();
+        }
+
+        private Socket connection() throws IOException {
+            Socket socket = connections.get();
+            if (socket == null) {
+                socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+                socket.setTcpNoDelay(true);
+                socket.setSoTimeout(10_000);
+                sockets.add(socket);
+                connections.set(socket);
+            }
+            return socket;
+        }
+
+        private static String toJson(long accountId, TicketTypeRequest[] requests) {
+            StringBuilder json = new StringBuilder("{\"accountId\":").append(accountId).append(",\"ticketTypeRequests\":");
+            if (requests == null) {
+                return json.append("null}").toString();
+            }
+            json.append('[');
+            for (int i = 0; i < requests.length; i++) {
+                json.append(i == 0 ? "" : ",");
+                TicketTypeRequest request = requests[i];
+                if (request == null) {
+                    json.append("null");
+                    continue;
+                }
+                TicketTypeRequest.TicketType type = request.getTicketType();
+                json.append("{\"ticketType\":").append(type == null ? "null" : "\"" + type + "\"")
+                        .append(",\"noOfTickets\":").append(request.getNoOfTickets()).append('}');
+            }
+            return json.append("]}").toString();
+        }
+
+        private static Outcome readOutcome(InputStream in) throws IOException {
+            StringBuilder head = new StringBuilder();
+            while (head.length() < 4 || head.lastIndexOf("\r\n\r\n") != head.length() - 4) {
+                int b = in.read();
+                if (b < 0) {
+                    throw new IOException("Connection closed before a response");
+                }
+                head.append((char) b);
+            }
+            int status = Integer.parseInt(head.substring(9, 12));
+            int lengthAt = head.indexOf("Content-Length: ") + 16;
+            int contentLength = Integer.parseInt(head.substring(lengthAt, head.indexOf("\r\n", lengthAt)));
+            String body = new String(in.readNBytes(contentLength), StandardCharsets.US_ASCII);
+            if (status == 200) {
+                return Outcome.accepted(intField(body, "totalAmount"), intField(body, "totalSeats"));
+            }
+            if (status == 422) {
+                int reasonAt = body.indexOf("\"reason\":\"") + 10;
+                return Outcome.rejected(InvalidPurchaseException.Reason.valueOf(body.substring(reasonAt, body.indexOf('"', reasonAt))));
+            }
+            return Outcome.failed("HTTP " + status + " " + body);
+        }
+
+        private static int intField(String body, String name) {
+            int start = body.indexOf("\"" + name + "\":") + name.length() + 3;
+            int end = start;
+            while (end < body.length() && (body.charAt(end) == '-' || Character.isDigit(body.charAt(end)))) {
+                end++;
+            }
+            return Integer.parseInt(body.substring(start, end));
+        }
+    }
+}
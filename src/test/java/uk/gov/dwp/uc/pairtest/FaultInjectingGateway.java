@@ -0,0 +1,123 @@
+package uk.gov.dwp.uc.pairtest;
+
+import thirdparty.paymentgateway.RefundableTicketPaymentService;
+import thirdparty.seatbooking.ReleasableSeatReservationService;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Local stand-in for the payment and reservation gateways that can be degraded while in use.
+ * Each call takes the configured latency; a share of calls can be made to fail or to stall for much longer.
+ */
+public class FaultInjectingGateway implements RefundableTicketPaymentService, ReleasableSeatReservationService {
+
+    private volatile long latencyNanos;
+    private volatile double failureRate;
+    private volatile double stallRate;
+    private volatile long stallNanos;
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong amountPaid = new AtomicLong();
+    private final AtomicLong seatsReserved = new AtomicLong();
+    private final AtomicLong amountRefunded = new AtomicLong();
+    private final AtomicLong seatsReleased = new AtomicLong();
+
+    public FaultInjectingGateway(long latency, TimeUnit unit) {
+        this.latencyNanos = unit.toNanos(latency);
+    }
+
+    /**
+     * Makes the given share of calls fail with an IllegalStateException.
+     */
+    public void failCalls(double failureRate) {
+        this.failureRate = failureRate;
+    }
+
+    /**
+     * Makes the given share of calls take the stall time instead of the normal latency.
+     */
+    public void stallCalls(double stallRate, long stall, TimeUnit unit) {
+        this.stallNanos = unit.toNanos(stall);
+        this.stallRate = stallRate;
+    }
+
+    public void heal() {
+        failureRate = 0;
+        stallRate = 0;
+    }
+
+    @Override
+    public void makePayment(long accountId, int totalAmountToPay) {
+        call();
+        amountPaid.addAndGet(totalAmountToPay);
+    }
+
+    @Override
+    public void reserveSeat(long accountId, int totalSeatsToAllocate) {
+        call();
+        seatsReserved.addAndGet(totalSeatsToAllocate);
+    }
+
+    @Override
+    public void makePayment(long accountId, int totalAmountToPay, long orderReference) {
+        makePayment(accountId, totalAmountToPay);
+    }
+
+    @Override
+    public void reserveSeat(long accountId, int totalSeatsToAllocate, long orderReference) {
+        reserveSeat(accountId, totalSeatsToAllocate);
+    }
+
+    @Override
+    public void refundPayment(long accountId, int totalAmountToRefund, long orderReference) {
+        call();
+        amountRefunded.addAndGet(totalAmountToRefund);
+    }
+
+    @Override
+    public void releaseSeat(long accountId, int totalSeatsToRelease, long orderReference) {
+        call();
+        seatsReleased.addAndGet(totalSeatsToRelease);
+    }
+
+    public long getCalls() {
+        return calls.get();
+    }
+
+    public long getFailures() {
+        return failures.get();
+    }
+
+    public long getAmountPaid() {
+        return amountPaid.get();
+    }
+
+    public long getSeatsReserved() {
+        return seatsReserved.get();
+    }
+
+    public long getAmountRefunded() {
+        return amountRefunded.get();
+    }
+
+    public long getSeatsReleased() {
+        return seatsReleased.get();
+    }
+
+    private void call() {
+        calls.incrementAndGet();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long delay = random.nextDouble() < stallRate ? stallNanos : latencyNanos;
+        long deadline = System.nanoTime() + delay;
+        for (long remaining = delay; remaining > 0; remaining = deadline - System.nanoTime()) {
+            LockSupport.parkNanos(remaining);
+        }
+        if (random.nextDouble() < failureRate) {
+            failures.incrementAndGet();
+            throw new IllegalStateException("Injected gateway failure");
+        }
+    }
+}
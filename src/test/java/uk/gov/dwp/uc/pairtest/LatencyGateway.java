@@ -0,0 +1,144 @@
+package uk.gov.dwp.uc.pairtest;
+
+import thirdparty.paymentgateway.BatchTicketPaymentService;
+import thirdparty.paymentgateway.RefundableTicketPaymentService;
+import thirdparty.seatbooking.BatchSeatReservationService;
+import thirdparty.seatbooking.ReleasableSeatReservationService;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Local stand-in for the payment and reservation gateways.
+ * Every call, single or batched, costs one round-trip. By default calls are served one at a time,
+ * like a gateway reached over a single connection.
+ */
+public class LatencyGateway implements BatchTicketPaymentService, BatchSeatReservationService,
+        RefundableTicketPaymentService, ReleasableSeatReservationService {
+
+    private final long roundTripNanos;
+    private final ReentrantLock connection;
+    private final AtomicLong paymentCalls = new AtomicLong();
+    private final AtomicLong reservationCalls = new AtomicLong();
+    private final AtomicLong amountPaid = new AtomicLong();
+    private final AtomicLong seatsReserved = new AtomicLong();
+    private final AtomicLong ordersPaid = new AtomicLong();
+    private final AtomicLong amountRefunded = new AtomicLong();
+    private final AtomicLong seatsReleased = new AtomicLong();
+
+    public LatencyGateway(long roundTrip, TimeUnit unit) {
+        this(roundTrip, unit, true);
+    }
+
+    /**
+     * Creates a gateway that serves calls one at a time when singleConnection is set,
+     * or in parallel otherwise.
+     */
+    public LatencyGateway(long roundTrip, TimeUnit unit, boolean singleConnection) {
+        this.roundTripNanos = unit.toNanos(roundTrip);
+        this.connection = singleConnection ? new ReentrantLock() : null;
+    }
+
+    @Override
+    public void makePayment(long accountId, int totalAmountToPay) {
+        roundTrip();
+        paymentCalls.incrementAndGet();
+        ordersPaid.incrementAndGet();
+        amountPaid.addAndGet(totalAmountToPay);
+    }
+
+    @Override
+    public void makePayments(long[] accountIds, int[] totalAmountsToPay, int count, RuntimeException[] failures) {
+        roundTrip();
+        paymentCalls.incrementAndGet();
+        for (int i = 0; i < count; i++) {
+            ordersPaid.incrementAndGet();
+            amountPaid.addAndGet(totalAmountsToPay[i]);
+        }
+    }
+
+    @Override
+    public void reserveSeat(long accountId, int totalSeatsToAllocate) {
+        roundTrip();
+        reservationCalls.incrementAndGet();
+        seatsReserved.addAndGet(totalSeatsToAllocate);
+    }
+
+    @Override
+    public void reserveSeats(long[] accountIds, int[] totalSeatsToAllocate, int count, RuntimeException[] failures) {
+        roundTrip();
+        reservationCalls.incrementAndGet();
+        for (int i = 0; i < count; i++) {
+            seatsReserved.addAndGet(totalSeatsToAllocate[i]);
+        }
+    }
+
+    @Override
+    public void makePayment(long accountId, int totalAmountToPay, long orderReference) {
+        makePayment(accountId, totalAmountToPay);
+    }
+
+    @Override
+    public void reserveSeat(long accountId, int totalSeatsToAllocate, long orderReference) {
+        reserveSeat(accountId, totalSeatsToAllocate);
+    }
+
+    @Override
+    public void refundPayment(long accountId, int totalAmountToRefund, long orderReference) {
+        roundTrip();
+        amountRefunded.addAndGet(totalAmountToRefund);
+    }
+
+    @Override
+    public void releaseSeat(long accountId, int totalSeatsToRelease, long orderReference) {
+        roundTrip();
+        seatsReleased.addAndGet(totalSeatsToRelease);
+    }
+
+    private void roundTrip() {
+        if (connection != null) {
+            connection.lock();
+        }
+        try {
+            long deadline = System.nanoTime() + roundTripNanos;
+            long remaining;
+            while ((remaining = deadline - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(remaining);
+            }
+        } finally {
+            if (connection != null) {
+                connection.unlock();
+            }
+        }
+    }
+
+    public long getPaymentCalls() {
+        return paymentCalls.get();
+    }
+
+    public long getReservationCalls() {
+        return reservationCalls.get();
+    }
+
+    public long getAmountPaid() {
+        return amountPaid.get();
+    }
+
+    public long getSeatsReserved() {
+        return seatsReserved.get();
+    }
+
+    public long getOrdersPaid() {
+        return ordersPaid.get();
+    }
+
+    public long getAmountRefunded() {
+        return amountRefunded.get();
+    }
+
+    public long getSeatsReleased() {
+        return seatsReleased.get();
+    }
+}
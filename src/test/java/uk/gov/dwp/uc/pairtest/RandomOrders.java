@@ -0,0 +1,84 @@
+package uk.gov.dwp.uc.pairtest;
+
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Seeded generator of purchase orders for differential tests.
+ * Most orders are plausible; the rest cover every way an order can go wrong: account IDs at and below zero,
+ * null or empty request arrays, null elements and null ticket types, counts either side of the 0 and 25
+ * boundaries, negative counts, and counts large enough to overflow the totals.
+ * Orders never have more than 32 requests, the most the HTTP endpoint accepts.
+ */
+public class RandomOrders {
+
+    private static final TicketTypeRequest.TicketType[] TYPES = TicketTypeRequest.TicketType.values();
+    private static final long[] EDGE_ACCOUNT_IDS = {0, -1, 1, Long.MIN_VALUE, Long.MAX_VALUE};
+    private static final int[] BOUNDARY_COUNTS = {0, 1, 24, 25, 26, -1, -24, -25, -26};
+    private static final int[] EXTREME_COUNTS = {Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE / 25 + 1,
+            Integer.MIN_VALUE / 15 - 1, 1 << 30};
+
+    private final SplittableRandom random;
+
+    public RandomOrders(long seed) {
+        this.random = new SplittableRandom(seed);
+    }
+
+    public long nextAccountId() {
+        return random.nextInt(10) > 0 ? 1 + random.nextInt(1_000_000) : EDGE_ACCOUNT_IDS[random.nextInt(EDGE_ACCOUNT_IDS.length)];
+    }
+
+    public TicketTypeRequest[] nextRequests() {
+        int shape = random.nextInt(100);
+        if (shape == 0) {
+            return null;
+        }
+        if (shape < 3) {
+            return new TicketTypeRequest[0];
+        }
+        TicketTypeRequest[] requests = new TicketTypeRequest[shape < 93 ? 1 + random.nextInt(4) : 5 + random.nextInt(28)];
+        for (int i = 0; i < requests.length; i++) {
+            requests[i] = nextRequest();
+        }
+        return requests;
+    }
+
+    private TicketTypeRequest nextRequest() {
+        int shape = random.nextInt(100);
+        if (shape < 2) {
+            return null;
+        }
+        TicketTypeRequest.TicketType type = shape < 4 ? null : TYPES[random.nextInt(TYPES.length)];
+        return new TicketTypeRequest(type, nextCount());
+    }
+
+    private int nextCount() {
+        int shape = random.nextInt(100);
+        if (shape < 80) {
+            return random.nextInt(13);
+        }
+        if (shape < 90) {
+            return BOUNDARY_COUNTS[random.nextInt(BOUNDARY_COUNTS.length)];
+        }
+        if (shape < 97) {
+            return -random.nextInt(1, 13);
+        }
+        return EXTREME_COUNTS[random.nextInt(EXTREME_COUNTS.length)];
+    }
+
+    /**
+     * Describes an order for assertion messages.
+     */
+    public static String describe(long accountId, TicketTypeRequest[] requests) {
+        if (requests == null) {
+            return "account " + accountId + ": null";
+        }
+        String[] parts = new String[requests.length];
+        for (int i = 0; i < requests.length; i++) {
+            parts[i] = requests[i] == null ? "null" : requests[i].getTicketType() + " x" + requests[i].getNoOfTickets();
+        }
+        return "account " + accountId + ": " + Arrays.toString(parts);
+    }
+}
@@ -0,0 +1,77 @@
+package uk.gov.dwp.uc.pairtest;
+
+import thirdparty.paymentgateway.RefundableTicketPaymentService;
+import thirdparty.paymentgateway.TicketPaymentService;
+import thirdparty.seatbooking.ReleasableSeatReservationService;
+import thirdparty.seatbooking.SeatReservationService;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Gives plain payment and reservation stand-ins, usually lambdas, the referenced calls of the refundable gateways.
+ * Each reference is undone at most once, and a call arriving after its reference was undone is refused.
+ */
+public class ReferencedGateway implements RefundableTicketPaymentService, ReleasableSeatReservationService {
+
+    private final TicketPaymentService paymentService;
+    private final SeatReservationService reservationService;
+    private final Set<Long> refunded = ConcurrentHashMap.newKeySet();
+    private final Set<Long> released = ConcurrentHashMap.newKeySet();
+    private final AtomicLong amountRefunded = new AtomicLong();
+    private final AtomicLong seatsReleased = new AtomicLong();
+
+    public ReferencedGateway(TicketPaymentService paymentService, SeatReservationService reservationService) {
+        this.paymentService = paymentService;
+        this.reservationService = reservationService;
+    }
+
+    @Override
+    public void makePayment(long accountId, int totalAmountToPay) {
+        paymentService.makePayment(accountId, totalAmountToPay);
+    }
+
+    @Override
+    public void makePayment(long accountId, int totalAmountToPay, long orderReference) {
+        if (refunded.contains(orderReference)) {
+            throw new IllegalStateException("Payment was refunded before it arrived.");
+        }
+        paymentService.makePayment(accountId, totalAmountToPay);
+    }
+
+    @Override
+    public void refundPayment(long accountId, int totalAmountToRefund, long orderReference) {
+        if (refunded.add(orderReference)) {
+            amountRefunded.addAndGet(totalAmountToRefund);
+        }
+    }
+
+    @Override
+    public void reserveSeat(long accountId, int totalSeatsToAllocate) {
+        reservationService.reserveSeat(accountId, totalSeatsToAllocate);
+    }
+
+    @Override
+    public void reserveSeat(long accountId, int totalSeatsToAllocate, long orderReference) {
+        if (released.contains(orderReference)) {
+            throw new IllegalStateException("Seats were released before they were reserved.");
+        }
+        reservationService.reserveSeat(accountId, totalSeatsToAllocate);
+    }
+
+    @Override
+    public void releaseSeat(long accountId, int totalSeatsToRelease, long orderReference) {
+        if (released.add(orderReference)) {
+            seatsReleased.addAndGet(totalSeatsToRelease);
+        }
+    }
+
+    public long getAmountRefunded() {
+        return amountRefunded.get();
+    }
+
+    public long getSeatsReleased() {
+        return seatsReleased.get();
+    }
+}
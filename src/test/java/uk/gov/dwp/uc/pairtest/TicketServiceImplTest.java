@@ -5,9 +5,13 @@ import thirdparty.paymentgateway.TicketPaymentService;
 import thirdparty.paymentgateway.TicketPaymentServiceImpl;
 import thirdparty.seatbooking.SeatReservationService;
 import thirdparty.seatbooking.SeatReservationServiceImpl;
+import uk.gov.dwp.uc.pairtest.domain.OrderSummary;
+import uk.gov.dwp.uc.pairtest.domain.PurchaseResult;
 import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
 import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
 
+import java.lang.management.ManagementFactory;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 public class TicketServiceImplTest {
@@ -250,4 +254,126 @@ public class TicketServiceImplTest {
         assertEquals(false, hasAdultTicket); // Does not contain adult ticket
     }
 
+    @Test
+    public void testEvaluateOrder() {
+        TicketPaymentService paymentService = new TicketPaymentServiceImpl();
+        SeatReservationService reservationService = new SeatReservationServiceImpl();
+        TicketServiceImpl ticketService = new TicketServiceImpl(paymentService, reservationService);
+
+        TicketTypeRequest adultTicket = new TicketTypeRequest(TicketTypeRequest.TicketType.ADULT, 2);
+        TicketTypeRequest childTicket = new TicketTypeRequest(TicketTypeRequest.TicketType.CHILD, 3);
+        TicketTypeRequest infantTicket = new TicketTypeRequest(TicketTypeRequest.TicketType.INFANT, 1);
+
+        OrderSummary summary = new OrderSummary();
+        ticketService.evaluateOrder(summary, adultTicket, childTicket, infantTicket);
+        assertEquals(6, summary.getTotalTickets());
+        assertEquals(95, summary.getTotalAmount());
+        assertEquals(5, summary.getTotalSeats());
+        assertTrue(summary.hasAdultTicket());
+
+        ticketService.evaluateOrder(summary, childTicket);
+        assertEquals(3, summary.getTotalTickets()); // Summary is reset between orders
+        assertFalse(summary.hasAdultTicket());
+    }
+
+    @Test
+    public void testPrimitiveAccountIdPurchasePassesTotals() {
+        long[] payment = new long[2];
+        long[] reservation = new long[2];
+        TicketServiceImpl ticketService = new TicketServiceImpl(
+                (accountId, amount) -> { payment[0] = accountId; payment[1] = amount; },
+                (accountId, seats) -> { reservation[0] = accountId; reservation[1] = seats; });
+
+        ticketService.purchaseTickets(7L, new TicketTypeRequest[] {
+                new TicketTypeRequest(TicketTypeRequest.TicketType.ADULT, 2),
+                new TicketTypeRequest(TicketTypeRequest.TicketType.INFANT, 1)
+        });
+
+        assertArrayEquals(new long[] {7L, 50L}, payment);
+        assertArrayEquals(new long[] {7L, 2L}, reservation);
+    }
+
+    @Test
+    public void testPrimitiveAccountIdPurchaseDoesNotAllocate() {
+        TicketServiceImpl ticketService = new TicketServiceImpl((accountId, amount) -> { }, (accountId, seats) -> { });
+        TicketTypeRequest[] order = {
+                new TicketTypeRequest(TicketTypeRequest.TicketType.ADULT, 2),
+                new TicketTypeRequest(TicketTypeRequest.TicketType.CHILD, 3),
+                new TicketTypeRequest(TicketTypeRequest.TicketType.INFANT, 1)
+        };
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        for (int i = 0; i < 20_000; i++) {
+            ticketService.purchaseTickets(1L, order);
+        }
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 100_000; i++) {
+            ticketService.purchaseTickets(1L, order);
+        }
+        long after = threadBean.getThreadAllocatedBytes(threadId);
+
+        // Allow for the bytes allocated by the measurement call itself
+        assertTrue(after - before < 1024, "Allocated " + (after - before) + " bytes");
+    }
+
+    @Test
+    public void testTryPurchaseReportsRejectionReason() {
+        TicketServiceImpl ticketService = new TicketServiceImpl((accountId, amount) -> fail("No payment expected"),
+                (accountId, seats) -> fail("No reservation expected"));
+        TicketTypeRequest adultTicket = new TicketTypeRequest(TicketTypeRequest.TicketType.ADULT, 1);
+
+        assertEquals(InvalidPurchaseException.Reason.INVALID_ACCOUNT_ID,
+                ticketService.tryPurchaseTickets(0L, new TicketTypeRequest[] {adultTicket}).getRejectionReason());
+        assertEquals(InvalidPurchaseException.Reason.NULL_REQUESTS,
+                ticketService.tryPurchaseTickets(1L, null).getRejectionReason());
+        assertEquals(InvalidPurchaseException.Reason.EMPTY_REQUESTS,
+                ticketService.tryPurchaseTickets(1L, new TicketTypeRequest[] {}).getRejectionReason());
+        assertEquals(InvalidPurchaseException.Reason.NULL_REQUEST_ELEMENT,
+                ticketService.tryPurchaseTickets(1L, new TicketTypeRequest[] {adultTicket, null}).getRejectionReason());
+        assertEquals(InvalidPurchaseException.Reason.NULL_TICKET_TYPE,
+                ticketService.tryPurchaseTickets(1L, new TicketTypeRequest[] {adultTicket, new TicketTypeRequest(null, 1)}).getRejectionReason());
+        assertEquals(InvalidPurchaseException.Reason.NO_TICKETS,
+                ticketService.tryPurchaseTickets(1L, new TicketTypeRequest[] {
+                        new TicketTypeRequest(TicketTypeRequest.TicketType.ADULT, 0)}).getRejectionReason());
+        assertEquals(InvalidPurchaseException.Reason.TOO_MANY_TICKETS,
+                ticketService.tryPurchaseTickets(1L, new TicketTypeRequest[] {
+                        new TicketTypeRequest(TicketTypeRequest.TicketType.ADULT, 26)}).getRejectionReason());
+        assertEquals(InvalidPurchaseException.Reason.NO_ADULT_TICKET,
+                ticketService.tryPurchaseTickets(1L, new TicketTypeRequest[] {
+                        new TicketTypeRequest(TicketTypeRequest.TicketType.CHILD, 2)}).getRejectionReason());
+    }
+
+    @Test
+    public void testTryPurchaseAccepted() {
+        TicketServiceImpl ticketService = new TicketServiceImpl((accountId, amount) -> { }, (accountId, seats) -> { });
+
+        PurchaseResult result = ticketService.tryPurchaseTickets(3L, new TicketTypeRequest[] {
+                new TicketTypeRequest(TicketTypeRequest.TicketType.ADULT, 2),
+                new TicketTypeRequest(TicketTypeRequest.TicketType.CHILD, 1)
+        });
+
+        assertTrue(result.isAccepted());
+        assertNull(result.getRejectionReason());
+        assertEquals(3L, result.getAccountId());
+        assertEquals(65, result.getTotalAmount());
+        assertEquals(3, result.getTotalSeats());
+    }
+
+    @Test
+    public void testRejectionExceptionIsPreallocatedAndStackless() {
+        TicketService ticketService = new TicketServiceImpl(new TicketPaymentServiceImpl(), new SeatReservationServiceImpl());
+
+        InvalidPurchaseException first = assertThrows(InvalidPurchaseException.class, () ->
+                ticketService.purchaseTickets(1L, new TicketTypeRequest(TicketTypeRequest.TicketType.CHILD, 3)));
+        InvalidPurchaseException second = assertThrows(InvalidPurchaseException.class, () ->
+                ticketService.purchaseTickets(2L, new TicketTypeRequest(TicketTypeRequest.TicketType.INFANT, 1)));
+
+        assertSame(first, second);
+        assertEquals(InvalidPurchaseException.Reason.NO_ADULT_TICKET, first.getReason());
+        assertEquals("Child and Infant tickets cannot be purchased without an Adult ticket.", first.getMessage());
+        assertEquals(0, first.getStackTrace().length);
+    }
+
 }
@@ -0,0 +1,217 @@
+package uk.gov.dwp.uc.pairtest.batch;
+
+import org.junit.jupiter.api.Test;
+import thirdparty.paymentgateway.BatchTicketPaymentService;
+import thirdparty.paymentgateway.TicketPaymentService;
+import thirdparty.seatbooking.SeatReservationService;
+import uk.gov.dwp.uc.pairtest.LatencyGateway;
+import uk.gov.dwp.uc.pairtest.TicketService;
+import uk.gov.dwp.uc.pairtest.TicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchingServiceTest {
+
+    private static final int THREADS = 32;
+    private static final int ORDERS_PER_THREAD = 20;
+
+    @Test
+    public void testBatchedPurchasesAreAllSubmitted() throws Exception {
+        LatencyGateway gateway = new LatencyGateway(1, TimeUnit.MILLISECONDS);
+        try (BatchingTicketPaymentService paymentService = new BatchingTicketPaymentService(gateway, 64, 2, TimeUnit.MILLISECONDS);
+             BatchingSeatReservationService reservationService = new BatchingSeatReservationService(gateway, 64, 2, TimeUnit.MILLISECONDS)) {
+
+            runConcurrentPurchases(paymentService, reservationService);
+        }
+
+        int orders = THREADS * ORDERS_PER_THREAD;
+        assertEquals(orders, gateway.getOrdersPaid());
+        assertEquals(orders * 95L, gateway.getAmountPaid()); // (2 * 25) + (3 * 15) + 0 = 95 per order
+        assertEquals(orders * 5L, gateway.getSeatsReserved());
+        assertTrue(gateway.getPaymentCalls() < orders / 4, "Payment calls: " + gateway.getPaymentCalls());
+        assertTrue(gateway.getReservationCalls() < orders / 4, "Reservation calls: " + gateway.getReservationCalls());
+    }
+
+    @Test
+    public void testBatchingIncreasesThroughputAgainstSlowGateway() throws Exception {
+        LatencyGateway directGateway = new LatencyGateway(1, TimeUnit.MILLISECONDS);
+        long directNanos = runConcurrentPurchases(directGateway, directGateway);
+
+        LatencyGateway batchedGateway = new LatencyGateway(1, TimeUnit.MILLISECONDS);
+        long batchedNanos;
+        try (BatchingTicketPaymentService paymentService = new BatchingTicketPaymentService(batchedGateway, 64, 2, TimeUnit.MILLISECONDS);
+             BatchingSeatReservationService reservationService = new BatchingSeatReservationService(batchedGateway, 64, 2, TimeUnit.MILLISECONDS)) {
+            batchedNanos = runConcurrentPurchases(paymentService, reservationService);
+        }
+
+        int orders = THREADS * ORDERS_PER_THREAD;
+        System.out.printf("Direct: %.0f orders/s, batched: %.0f orders/s%n",
+                orders * 1e9 / directNanos, orders * 1e9 / batchedNanos);
+        assertEquals(directGateway.getAmountPaid(), batchedGateway.getAmountPaid());
+        assertTrue(batchedNanos * 2 < directNanos, "Batching should at least double throughput");
+    }
+
+    @Test
+    public void testBatchFailureIsReportedToEachCaller() throws Exception {
+        IllegalStateException failure = new IllegalStateException("Gateway unavailable");
+        BatchTicketPaymentService failingGateway = new BatchTicketPaymentService() {
+            @Override
+            public void makePayments(long[] accountIds, int[] totalAmountsToPay, int count, RuntimeException[] failures) {
+                throw failure;
+            }
+
+            @Override
+            public void makePayment(long accountId, int totalAmountToPay) {
+                throw failure;
+            }
+        };
+
+        try (BatchingTicketPaymentService paymentService = new BatchingTicketPaymentService(failingGateway, 8, 5, TimeUnit.MILLISECONDS)) {
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (int i = 1; i <= 5; i++) {
+                futures.add(paymentService.submitPayment(i, 25));
+            }
+            for (CompletableFuture<Void> future : futures) {
+                assertSame(failure, assertThrows(Exception.class, future::join).getCause());
+            }
+            assertSame(failure, assertThrows(IllegalStateException.class, () -> paymentService.makePayment(6L, 25)));
+        }
+    }
+
+    @Test
+    public void testEntryFailureFailsOnlyItsCaller() {
+        IllegalStateException failure = new IllegalStateException("Card declined");
+        List<Long> paid = new ArrayList<>();
+        BatchTicketPaymentService decliningGateway = new BatchTicketPaymentService() {
+            @Override
+            public void makePayments(long[] accountIds, int[] totalAmountsToPay, int count, RuntimeException[] failures) {
+                for (int i = 0; i < count; i++) {
+                    if (accountIds[i] == 3L) {
+                        failures[i] = failure;
+                    } else {
+                        paid.add(accountIds[i]);
+                    }
+                }
+            }
+
+            @Override
+            public void makePayment(long accountId, int totalAmountToPay) {
+                throw new AssertionError("Batch did not fail, so no payment should be made on its own");
+            }
+        };
+
+        try (BatchingTicketPaymentService paymentService = new BatchingTicketPaymentService(decliningGateway, 5, 1, TimeUnit.SECONDS)) {
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (int i = 1; i <= 5; i++) {
+                futures.add(paymentService.submitPayment(i, 25));
+            }
+            for (int i = 1; i <= 5; i++) {
+                if (i == 3) {
+                    assertSame(failure, assertThrows(Exception.class, futures.get(i - 1)::join).getCause());
+                } else {
+                    futures.get(i - 1).join();
+                }
+            }
+        }
+        assertEquals(List.of(1L, 2L, 4L, 5L), paid);
+    }
+
+    @Test
+    public void testFailedBatchFallsBackToEachEntry() {
+        List<Long> paid = new ArrayList<>();
+        BatchTicketPaymentService unbatchableGateway = new BatchTicketPaymentService() {
+            @Override
+            public void makePayments(long[] accountIds, int[] totalAmountsToPay, int count, RuntimeException[] failures) {
+                throw new IllegalStateException("Batch endpoint unavailable");
+            }
+
+            @Override
+            public void makePayment(long accountId, int totalAmountToPay) {
+                if (accountId == 2L) {
+                    throw new IllegalStateException("Card declined");
+                }
+                paid.add(accountId);
+            }
+        };
+
+        try (BatchingTicketPaymentService paymentService = new BatchingTicketPaymentService(unbatchableGateway, 3, 1, TimeUnit.SECONDS)) {
+            CompletableFuture<Void> first = paymentService.submitPayment(1L, 25);
+            CompletableFuture<Void> second = paymentService.submitPayment(2L, 25);
+            CompletableFuture<Void> third = paymentService.submitPayment(3L, 25);
+            first.join();
+            assertEquals("Card declined", assertThrows(Exception.class, second::join).getCause().getMessage());
+            third.join();
+        }
+        assertEquals(List.of(1L, 3L), paid);
+    }
+
+    @Test
+    public void testErrorInHandlerFailsOnlyItsBatch() {
+        AssertionError failure = new AssertionError("Handler bug");
+        List<Integer> handled = new ArrayList<>();
+        try (MicroBatcher batcher = new MicroBatcher("test-batcher", 4, 1, TimeUnit.MILLISECONDS, (accountIds, values, count, failures) -> {
+            if (values[0] < 0) {
+                throw failure;
+            }
+            handled.add(count);
+        }, (accountId, value) -> {
+            throw new AssertionError("An Error is not retried entry by entry");
+        })) {
+            assertSame(failure, assertThrows(Exception.class, () -> batcher.submit(1L, -1).join()).getCause());
+            assertTimeoutPreemptively(Duration.ofSeconds(1), () -> batcher.submit(2L, 25).join());
+        }
+        assertEquals(List.of(1), handled);
+    }
+
+    @Test
+    public void testLingerFlushesPartialBatch() {
+        LatencyGateway gateway = new LatencyGateway(0, TimeUnit.MILLISECONDS);
+        try (BatchingTicketPaymentService paymentService = new BatchingTicketPaymentService(gateway, 1000, 5, TimeUnit.MILLISECONDS)) {
+            assertTimeoutPreemptively(Duration.ofSeconds(1), () -> paymentService.makePayment(1L, 25));
+        }
+        assertEquals(1, gateway.getPaymentCalls());
+    }
+
+    @Test
+    public void testSubmitAfterCloseNotAllowed() {
+        BatchingTicketPaymentService paymentService = new BatchingTicketPaymentService(new LatencyGateway(0, TimeUnit.MILLISECONDS), 8, 1, TimeUnit.MILLISECONDS);
+        paymentService.close();
+        assertThrows(IllegalStateException.class, () -> paymentService.submitPayment(1L, 25));
+    }
+
+    private static long runConcurrentPurchases(TicketPaymentService paymentService, SeatReservationService reservationService) throws Exception {
+        TicketService ticketService = new TicketServiceImpl(paymentService, reservationService);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int t = 0; t < THREADS; t++) {
+                long accountId = t + 1;
+                results.add(executor.submit(() -> {
+                    for (int i = 0; i < ORDERS_PER_THREAD; i++) {
+                        ticketService.purchaseTickets(accountId,
+                                new TicketTypeRequest(TicketTypeRequest.TicketType.ADULT, 2),
+                                new TicketTypeRequest(TicketTypeRequest.TicketType.CHILD, 3),
+                                new TicketTypeRequest(TicketTypeRequest.TicketType.INFANT, 1));
+                    }
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+            return System.nanoTime() - start;
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
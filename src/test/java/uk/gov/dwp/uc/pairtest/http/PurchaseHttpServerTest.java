@@ -0,0 +1,314 @@
+package uk.gov.dwp.uc.pairtest.http;
+
+import org.junit.jupiter.api.Test;
+import uk.gov.dwp.uc.pairtest.AsyncTicketService;
+import uk.gov.dwp.uc.pairtest.TicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.domain.PurchaseResult;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.exception.GatewayUnavailableException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PurchaseHttpServerTest {
+
+    private static final String ORDER = "{\"accountId\":%d,\"ticketTypeRequests\":[{\"ticketType\":\"ADULT\",\"noOfTickets\":2},"
+            + "{\"ticketType\":\"CHILD\",\"noOfTickets\":1},{\"ticketType\":\"INFANT\",\"noOfTickets\":1}]}";
+
+    private static AsyncTicketService immediate() {
+        TicketServiceImpl ticketService = new TicketServiceImpl((accountId, amount) -> { }, (accountId, seats) -> { });
+        return (accountId, requests) -> CompletableFuture.completedFuture(ticketService.tryPurchaseTickets(accountId, requests));
+    }
+
+    private static PurchaseHttpServer start(AsyncTicketService ticketService) throws IOException {
+        return new PurchaseHttpServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), ticketService, 2, 1024);
+    }
+
+    private static Socket connect(PurchaseHttpServer server) throws IOException {
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+        socket.setSoTimeout(5_000);
+        return socket;
+    }
+
+    private static String post(String path, String body, String... headers) {
+        StringBuilder request = new StringBuilder("POST ").append(path).append(" HTTP/1.1\r\nHost: localhost\r\n");
+        for (String header : headers) {
+            request.append(header).append("\r\n");
+        }
+        return request.append("Content-Length: ").append(body.length()).append("\r\n\r\n").append(body).toString();
+    }
+
+    private static void send(Socket socket, String requests) throws IOException {
+        OutputStream out = socket.getOutputStream();
+        out.write(requests.getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+
+    @Test
+    public void testKeepAliveServesSeveralPurchases() throws Exception {
+        try (PurchaseHttpServer server = start(immediate()); Socket socket = connect(server)) {
+            for (long accountId = 1; accountId <= 3; accountId++) {
+                send(socket, post("/purchases", String.format(ORDER, accountId)));
+                Response response = Response.read(socket.getInputStream());
+                assertEquals(200, response.status);
+                assertEquals("{\"accepted\":true,\"accountId\":" + accountId + ",\"totalAmount\":65,\"totalSeats\":3}", response.body);
+            }
+        }
+    }
+
+    @Test
+    public void testPipelinedResponsesFollowRequestOrder() throws Exception {
+        List<CompletableFuture<PurchaseResult>> started = new CopyOnWriteArrayList<>();
+        List<Long> accounts = new CopyOnWriteArrayList<>();
+        AsyncTicketService ticketService = (accountId, requests) -> {
+            CompletableFuture<PurchaseResult> future = new CompletableFuture<>();
+            started.add(future);
+            accounts.add(accountId);
+            return future;
+        };
+        try (PurchaseHttpServer server = start(ticketService); Socket socket = connect(server)) {
+            send(socket, post("/purchases", String.format(ORDER, 1)) + post("/purchases", String.format(ORDER, 2))
+                    + post("/purchases", String.format(ORDER, 3)));
+            long deadline = System.nanoTime() + 5_000_000_000L;
+            while (started.size() < 3) {
+                assertTrue(System.nanoTime() < deadline, "All pipelined purchases should start together");
+                Thread.sleep(1);
+            }
+            for (int i = 2; i >= 0; i--) {
+                started.get(i).complete(PurchaseResult.accepted(accounts.get(i), 20, 1));
+            }
+
+            for (long accountId = 1; accountId <= 3; accountId++) {
+                Response response = Response.read(socket.getInputStream());
+                assertEquals(200, response.status);
+                assertTrue(response.body.contains("\"accountId\":" + accountId + ","), response.body);
+            }
+        }
+    }
+
+    @Test
+    public void testRequestSplitAcrossWrites() throws Exception {
+        try (PurchaseHttpServer server = start(immediate()); Socket socket = connect(server)) {
+            String request = post("/purchases", String.format(ORDER, 7));
+            for (int i = 0; i < request.length(); i += 9) {
+                send(socket, request.substring(i, Math.min(request.length(), i + 9)));
+                Thread.sleep(1);
+            }
+
+            Response response = Response.read(socket.getInputStream());
+            assertEquals(200, response.status);
+            assertTrue(response.body.contains("\"accountId\":7,"));
+        }
+    }
+
+    @Test
+    public void testRejectionReasonIsReturned() throws Exception {
+        try (PurchaseHttpServer server = start(immediate()); Socket socket = connect(server)) {
+            send(socket, post("/purchases", "{\"accountId\":1,\"ticketTypeRequests\":[{\"ticketType\":\"CHILD\",\"noOfTickets\":2}]}")
+                    + post("/purchases", "{\"accountId\":0,\"ticketTypeRequests\":[]}")
+                    + post("/purchases", "{\"accountId\":1}"));
+
+            Response noAdult = Response.read(socket.getInputStream());
+            assertEquals(422, noAdult.status);
+            assertEquals("{\"accepted\":false,\"reason\":\"NO_ADULT_TICKET\"}", noAdult.body);
+            assertTrue(Response.read(socket.getInputStream()).body.contains("INVALID_ACCOUNT_ID"));
+            assertTrue(Response.read(socket.getInputStream()).body.contains("NULL_REQUESTS"));
+        }
+    }
+
+    @Test
+    public void testMalformedOrderKeepsConnectionOpen() throws Exception {
+        try (PurchaseHttpServer server = start(immediate()); Socket socket = connect(server)) {
+            send(socket, post("/purchases", "{\"accountId\":1,\"ticketTypeRequests\":[{\"ticketType\":\"SENIOR\",\"noOfTickets\":1}]}")
+                    + post("/purchases", "not json")
+                    + post("/purchases", String.format(ORDER, 1)));
+
+            assertEquals(400, Response.read(socket.getInputStream()).status);
+            assertEquals(400, Response.read(socket.getInputStream()).status);
+            assertEquals(200, Response.read(socket.getInputStream()).status);
+        }
+    }
+
+    @Test
+    public void testRoutes() throws Exception {
+        try (PurchaseHttpServer server = start(immediate()); Socket socket = connect(server)) {
+            send(socket, "GET /health HTTP/1.1\r\n\r\n" + "GET /purchases HTTP/1.1\r\n\r\n" + post("/tickets", "{}"));
+
+            Response health = Response.read(socket.getInputStream());
+            assertEquals(200, health.status);
+            assertEquals("{\"status\":\"UP\"}", health.body);
+            assertEquals(405, Response.read(socket.getInputStream()).status);
+            assertEquals(404, Response.read(socket.getInputStream()).status);
+        }
+    }
+
+    @Test
+    public void testGatewayFailures() throws Exception {
+        AsyncTicketService ticketService = (accountId, requests) -> CompletableFuture.failedFuture(accountId == 1
+                ? GatewayUnavailableException.of(GatewayUnavailableException.Reason.CIRCUIT_OPEN)
+                : new IllegalStateException("Payment declined"));
+        try (PurchaseHttpServer server = start(ticketService); Socket socket = connect(server)) {
+            send(socket, post("/purchases", String.format(ORDER, 1)) + post("/purchases", String.format(ORDER, 2)));
+
+            Response unavailable = Response.read(socket.getInputStream());
+            assertEquals(503, unavailable.status);
+            assertTrue(unavailable.body.contains("CIRCUIT_OPEN"));
+            assertEquals(502, Response.read(socket.getInputStream()).status);
+        }
+    }
+
+    @Test
+    public void testFailingConnectionDoesNotStopItsLoop() throws Exception {
+        AsyncTicketService poisoned = (accountId, requests) -> accountId == 1 ? new CompletableFuture<>() {
+            @Override
+            public boolean isDone() {
+                throw new IllegalStateException("Broken future");
+            }
+        } : immediate().purchaseTickets(accountId, requests);
+        try (PurchaseHttpServer server = new PurchaseHttpServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), poisoned, 1, 1024)) {
+            try (Socket socket = connect(server)) {
+                send(socket, post("/purchases", String.format(ORDER, 1)));
+                assertEquals(-1, socket.getInputStream().read(), "Only the failing connection is closed");
+            }
+            try (Socket socket = connect(server)) {
+                send(socket, post("/purchases", String.format(ORDER, 2)));
+                assertEquals(200, Response.read(socket.getInputStream()).status);
+            }
+        }
+    }
+
+    @Test
+    public void testConnectionCloseIsHonoured() throws Exception {
+        try (PurchaseHttpServer server = start(immediate()); Socket socket = connect(server)) {
+            send(socket, post("/purchases", String.format(ORDER, 1), "Connection: close")
+                    + post("/purchases", String.format(ORDER, 2)));
+
+            Response response = Response.read(socket.getInputStream());
+            assertEquals(200, response.status);
+            assertTrue(response.closed);
+            assertEquals(-1, socket.getInputStream().read(), "Nothing is answered after the close");
+        }
+    }
+
+    @Test
+    public void testHttp10ClosesByDefault() throws Exception {
+        try (PurchaseHttpServer server = start(immediate()); Socket socket = connect(server)) {
+            send(socket, "GET /health HTTP/1.0\r\n\r\n");
+
+            assertTrue(Response.read(socket.getInputStream()).closed);
+            assertEquals(-1, socket.getInputStream().read());
+        }
+    }
+
+    @Test
+    public void testUnsupportedBodiesAreRefused() throws Exception {
+        try (PurchaseHttpServer server = start(immediate())) {
+            try (Socket socket = connect(server)) {
+                send(socket, "POST /purchases HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n");
+                assertEquals(411, Response.read(socket.getInputStream()).status);
+                assertEquals(-1, socket.getInputStream().read());
+            }
+            try (Socket socket = connect(server)) {
+                send(socket, "POST /purchases HTTP/1.1\r\nContent-Length: 5000\r\n\r\n");
+                assertEquals(413, Response.read(socket.getInputStream()).status);
+                assertEquals(-1, socket.getInputStream().read());
+            }
+            try (Socket socket = connect(server)) {
+                send(socket, "GET /health HTTP/1.1\r\nX-Padding: " + "x".repeat(2048) + "\r\n\r\n");
+                assertEquals(413, Response.read(socket.getInputStream()).status);
+            }
+        }
+    }
+
+    @Test
+    public void testParserReadsOrdersInPlace() {
+        OrderJsonParser parser = new OrderJsonParser();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(256);
+        buffer.put("xx { \"channel\" : {\"web\":[1,true,null]}, \"ticketTypeRequests\" : [ {\"noOfTickets\":3,\"ticketType\":\"INFANT\"} ],"
+                .getBytes(StandardCharsets.US_ASCII));
+        buffer.put(" \"accountId\" : 42 }yy".getBytes(StandardCharsets.US_ASCII));
+
+        assertTrue(parser.parse(buffer, 2, buffer.position() - 2), parser.getError());
+        assertEquals(42, parser.getAccountId());
+        assertEquals(1, parser.getRequests().length);
+        assertEquals(TicketTypeRequest.TicketType.INFANT, parser.getRequests()[0].getTicketType());
+        assertEquals(3, parser.getRequests()[0].getNoOfTickets());
+        assertEquals(0, buffer.get(0) - 'x', "The buffer is only read");
+
+        assertTrue(parseString(parser, "{\"accountId\":-5,\"ticketTypeRequests\":[null,{\"ticketType\":\"ADULT\",\"noOfTickets\":-1}]}"));
+        assertEquals(-5, parser.getAccountId());
+        assertNull(parser.getRequests()[0]);
+        assertEquals(-1, parser.getRequests()[1].getNoOfTickets());
+
+        assertTrue(parseString(parser, "{\"accountId\":-9223372036854775808,\"ticketTypeRequests\":[{\"ticketType\":null,\"noOfTickets\":1}]}"));
+        assertEquals(Long.MIN_VALUE, parser.getAccountId());
+        assertNull(parser.getRequests()[0].getTicketType());
+
+        assertFalse(parseString(parser, "{\"accountId\":9223372036854775808}"));
+        assertFalse(parseString(parser, "{\"accountId\":1.5}"));
+        assertFalse(parseString(parser, "{\"accountId\":1,\"ticketTypeRequests\":[{\"ticketType\":\"ADULT\"}]}"));
+        assertFalse(parseString(parser, "{\"accountId\":99999999999999999999}"));
+        assertFalse(parseString(parser, "{\"accountId\":1} {}"));
+        assertFalse(parseString(parser, "{\"accountId\":1"));
+        assertFalse(parseString(parser, "[" .repeat(100)));
+    }
+
+    private static boolean parseString(OrderJsonParser parser, String body) {
+        ByteBuffer buffer = ByteBuffer.wrap(body.getBytes(StandardCharsets.US_ASCII));
+        return parser.parse(buffer, 0, buffer.limit());
+    }
+
+    private static final class Response {
+        final int status;
+        final String body;
+        final boolean closed;
+
+        private Response(int status, String body, boolean closed) {
+            this.status = status;
+            this.body = body;
+            this.closed = closed;
+        }
+
+        static Response read(InputStream in) throws IOException {
+            String head = readHead(in);
+            int status = Integer.parseInt(head.substring(9, 12));
+            int contentLength = 0;
+            boolean closed = false;
+            for (String line : head.split("\r\n")) {
+                String lower = line.toLowerCase();
+                if (lower.startsWith("content-length:")) {
+                    contentLength = Integer.parseInt(line.substring(15).trim());
+                } else if (lower.equals("connection: close")) {
+                    closed = true;
+                }
+            }
+            byte[] body = in.readNBytes(contentLength);
+            assertEquals(contentLength, body.length, "Truncated body");
+            return new Response(status, new String(body, StandardCharsets.US_ASCII), closed);
+        }
+
+        private static String readHead(InputStream in) throws IOException {
+            ByteArrayOutputStream head = new ByteArrayOutputStream();
+            int matched = 0;
+            while (matched < 4) {
+                int b = in.read();
+                assertNotEquals(-1, b, "Connection closed before a response");
+                head.write(b);
+                matched = (b == (matched % 2 == 0 ? '\r' : '\n')) ? matched + 1 : (b == '\r' ? 1 : 0);
+            }
+            return head.toString(StandardCharsets.US_ASCII);
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package uk.gov.dwp.uc.pairtest.idempotency;
+
+import org.junit.jupiter.api.Test;
+import uk.gov.dwp.uc.pairtest.LatencyGateway;
+import uk.gov.dwp.uc.pairtest.TicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.domain.PurchaseResult;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.exception.IdempotencyConflictException;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IdempotentTicketServiceTest {
+
+    private static final TicketTypeRequest TWO_ADULTS = new TicketTypeRequest(TicketTypeRequest.TicketType.ADULT, 2);
+
+    @Test
+    public void testRetryReturnsOriginalOutcomeWithoutChargingAgain() {
+        LatencyGateway gateway = new LatencyGateway(0, TimeUnit.MILLISECONDS);
+        IdempotentTicketService ticketService = new IdempotentTicketService(new TicketServiceImpl(gateway, gateway),
+                new IdempotencyCache<>(100, 1, TimeUnit.MINUTES));
+
+        PurchaseResult first = ticketService.purchaseTickets("order-1", 1L, TWO_ADULTS);
+        PurchaseResult retry = ticketService.purchaseTickets("order-1", 1L, TWO_ADULTS);
+
+        assertSame(first, retry);
+        assertEquals(1, gateway.getPaymentCalls());
+        assertEquals(1, gateway.getReservationCalls());
+        assertEquals(1, ticketService.getOutcomes().getHits());
+        assertEquals(1, ticketService.getOutcomes().getMisses());
+    }
+
+    @Test
+    public void testDifferentKeysArePurchasedSeparately() {
+        LatencyGateway gateway = new LatencyGateway(0, TimeUnit.MILLISECONDS);
+        IdempotentTicketService ticketService = new IdempotentTicketService(new TicketServiceImpl(gateway, gateway),
+                new IdempotencyCache<>(100, 1, TimeUnit.MINUTES));
+
+        ticketService.purchaseTickets("order-1", 1L, TWO_ADULTS);
+        ticketService.purchaseTickets("order-2", 1L, TWO_ADULTS);
+
+        assertEquals(2, gateway.getPaymentCalls());
+    }
+
+    @Test
+    public void testSameKeyFromAnotherAccountIsPurchasedSeparately() {
+        LatencyGateway gateway = new LatencyGateway(0, TimeUnit.MILLISECONDS);
+        IdempotentTicketService ticketService = new IdempotentTicketService(new TicketServiceImpl(gateway, gateway),
+                new IdempotencyCache<>(100, 1, TimeUnit.MINUTES));
+
+        PurchaseResult first = ticketService.purchaseTickets("order-1", 1L, TWO_ADULTS);
+        PurchaseResult second = ticketService.purchaseTickets("order-1", 2L, TWO_ADULTS);
+
+        assertEquals(1L, first.getAccountId());
+        assertEquals(2L, second.getAccountId());
+        assertEquals(2, gateway.getPaymentCalls());
+        assertEquals(0, ticketService.getOutcomes().getHits());
+    }
+
+    @Test
+    public void testKeyReusedForDifferentRequestIsAConflict() {
+        LatencyGateway gateway = new LatencyGateway(0, TimeUnit.MILLISECONDS);
+        IdempotentTicketService ticketService = new IdempotentTicketService(new TicketServiceImpl(gateway, gateway),
+                new IdempotencyCache<>(100, 1, TimeUnit.MINUTES));
+
+        ticketService.purchaseTickets("order-1", 1L, TWO_ADULTS);
+
+        assertThrows(IdempotencyConflictException.class, () -> ticketService.purchaseTickets("order-1", 1L,
+                new TicketTypeRequest(TicketTypeRequest.TicketType.ADULT, 3)));
+        assertEquals(1, gateway.getPaymentCalls());
+    }
+
+    @Test
+    public void testRejectionIsReplayed() {
+        IdempotentTicketService ticketService = new IdempotentTicketService(
+                new TicketServiceImpl((accountId, amount) -> fail("No payment expected"), (accountId, seats) -> fail("No reservation expected")),
+                new IdempotencyCache<>(100, 1, TimeUnit.MINUTES));
+        TicketTypeRequest childTicket = new TicketTypeRequest(TicketTypeRequest.TicketType.CHILD, 2);
+
+        assertEquals(InvalidPurchaseException.Reason.NO_ADULT_TICKET,
+                ticketService.purchaseTickets("order-1", 1L, childTicket).getRejectionReason());
+        assertEquals(InvalidPurchaseException.Reason.NO_ADULT_TICKET,
+                ticketService.purchaseTickets("order-1", 1L, childTicket).getRejectionReason());
+    }
+
+    @Test
+    public void testGatewayFailureIsReplayedNotRetried() {
+        AtomicInteger payments = new AtomicInteger();
+        IllegalStateException failure = new IllegalStateException("Reservation timed out");
+        IdempotentTicketService ticketService = new IdempotentTicketService(
+                new TicketServiceImpl((accountId, amount) -> payments.incrementAndGet(), (accountId, seats) -> { throw failure; }),
+                new IdempotencyCache<>(100, 1, TimeUnit.MINUTES));
+
+        assertSame(failure, assertThrows(IllegalStateException.class, () -> ticketService.purchaseTickets("order-1", 1L, TWO_ADULTS)));
+        assertSame(failure, assertThrows(IllegalStateException.class, () -> ticketService.purchaseTickets("order-1", 1L, TWO_ADULTS)));
+        assertEquals(1, payments.get());
+    }
+
+    @Test
+    public void testConcurrentDuplicatesShareOneExecution() throws Exception {
+        int threads = 32;
+        LatencyGateway gateway = new LatencyGateway(20, TimeUnit.MILLISECONDS);
+        IdempotentTicketService ticketService = new IdempotentTicketService(new TicketServiceImpl(gateway, gateway),
+                new IdempotencyCache<>(100, 1, TimeUnit.MINUTES));
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<PurchaseResult>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return ticketService.purchaseTickets("order-1", 1L, TWO_ADULTS);
+                }));
+            }
+            start.countDown();
+            PurchaseResult first = results.get(0).get();
+            for (Future<PurchaseResult> result : results) {
+                assertSame(first, result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(1, gateway.getPaymentCalls());
+        assertEquals(threads - 1, ticketService.getOutcomes().getHits());
+    }
+
+    @Test
+    public void testExpiredKeyIsPurchasedAgain() {
+        AtomicLong clock = new AtomicLong();
+        LatencyGateway gateway = new LatencyGateway(0, TimeUnit.MILLISECONDS);
+        IdempotentTicketService ticketService = new IdempotentTicketService(new TicketServiceImpl(gateway, gateway),
+                new IdempotencyCache<>(100, 1, TimeUnit.MINUTES, clock::get));
+
+        ticketService.purchaseTickets("order-1", 1L, TWO_ADULTS);
+        clock.set(TimeUnit.MINUTES.toNanos(1));
+        ticketService.purchaseTickets("order-1", 1L, TWO_ADULTS);
+
+        assertEquals(2, gateway.getPaymentCalls());
+    }
+
+    @Test
+    public void testTimeToLiveStartsWhenTheOperationCompletes() {
+        AtomicLong clock = new AtomicLong();
+        IdempotencyCache<String> outcomes = new IdempotencyCache<>(100, 1, TimeUnit.MINUTES, clock::get);
+
+        outcomes.execute(1L, "order-1", "request", () -> {
+            clock.set(TimeUnit.MINUTES.toNanos(5));
+            return "first";
+        });
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(59));
+
+        assertEquals("first", outcomes.execute(1L, "order-1", "request", () -> "second"));
+    }
+
+    @Test
+    public void testOperationInFlightIsNeitherExpiredNorEvicted() throws Exception {
+        AtomicLong clock = new AtomicLong();
+        IdempotencyCache<String> outcomes = new IdempotencyCache<>(1, 1, TimeUnit.MINUTES, clock::get);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> first = executor.submit(() -> outcomes.execute(1L, "order-1", "request", () -> {
+                runs.incrementAndGet();
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "first";
+            }));
+            started.await();
+            clock.set(TimeUnit.MINUTES.toNanos(10));
+            outcomes.execute(1L, "order-2", "request", () -> "other");
+            outcomes.execute(1L, "order-3", "request", () -> "other");
+
+            Future<String> retry = executor.submit(() -> outcomes.execute(1L, "order-1", "request", () -> {
+                runs.incrementAndGet();
+                return "second";
+            }));
+            release.countDown();
+
+            assertEquals("first", first.get());
+            assertEquals("first", retry.get());
+            assertEquals(1, runs.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testCacheStaysBoundedUnderSustainedLoad() {
+        IdempotencyCache<PurchaseResult> outcomes = new IdempotencyCache<>(1_000, 1, TimeUnit.HOURS);
+        IdempotentTicketService ticketService = new IdempotentTicketService(
+                new TicketServiceImpl((accountId, amount) -> { }, (accountId, seats) -> { }), outcomes);
+
+        for (int i = 0; i < 100_000; i++) {
+            ticketService.purchaseTickets("order-" + i, 1L, TWO_ADULTS);
+            assertTrue(outcomes.size() <= 1_000);
+        }
+        assertEquals(99_000, outcomes.getEvictions());
+        assertEquals(100_000, outcomes.getMisses());
+    }
+
+    @Test
+    public void testNullKeyNotAllowed() {
+        IdempotentTicketService ticketService = new IdempotentTicketService(
+                new TicketServiceImpl((accountId, amount) -> { }, (accountId, seats) -> { }),
+                new IdempotencyCache<>(10, 1, TimeUnit.MINUTES));
+        assertThrows(IllegalArgumentException.class, () -> ticketService.purchaseTickets(null, 1L, TWO_ADULTS));
+    }
+}
@@ -0,0 +1,162 @@
+package uk.gov.dwp.uc.pairtest.ingest;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import uk.gov.dwp.uc.pairtest.LatencyGateway;
+import uk.gov.dwp.uc.pairtest.TicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.domain.OrderSummary;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException.Reason;
+import uk.gov.dwp.uc.pairtest.limit.StripedPurchaseLimiter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BulkPurchaseIngestorTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testEveryOrderGetsAResultLine() throws IOException {
+        LatencyGateway gateway = new LatencyGateway(0, TimeUnit.MILLISECONDS);
+        BulkPurchaseIngestor ingestor = new BulkPurchaseIngestor(new TicketServiceImpl(gateway, gateway));
+        Path input = directory.resolve("orders.txt");
+        Path output = directory.resolve("results.txt");
+        Files.writeString(input, "1001,A2,C1,I1\n"
+                + "1002,C2\r\n"
+                + "\n"
+                + "0,A1\n"
+                + "1003,X1\n"
+                + "1004,A26\n"
+                + "1005\n"
+                + "abc\n"
+                + "1006,A1,\n"
+                + "1007,A1");
+
+        IngestionSummary summary = ingestor.ingest(input, output);
+
+        assertEquals(List.of("1,ACCEPTED,65,3",
+                "2,REJECTED,NO_ADULT_TICKET",
+                "4,REJECTED,INVALID_ACCOUNT_ID",
+                "5,MALFORMED,Unknown ticket type",
+                "6,REJECTED,TOO_MANY_TICKETS",
+                "7,REJECTED,EMPTY_REQUESTS",
+                "8,MALFORMED,Missing account ID",
+                "9,MALFORMED,Missing ticket request",
+                "10,ACCEPTED,25,1"), Files.readAllLines(output));
+        assertEquals(2, summary.getAccepted());
+        assertEquals(4, summary.getRejected());
+        assertEquals(3, summary.getMalformed());
+        assertEquals(90, gateway.getAmountPaid());
+        assertEquals(4, gateway.getSeatsReserved());
+    }
+
+    @Test
+    public void testGatewayFailureIsReportedPerOrder() throws IOException {
+        BulkPurchaseIngestor ingestor = new BulkPurchaseIngestor(new TicketServiceImpl(
+                (accountId, amount) -> {
+                    if (accountId == 2L) {
+                        throw new IllegalStateException("Declined");
+                    }
+                }, (accountId, seats) -> { }));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        IngestionSummary summary = ingestor.ingest(
+                Channels.newChannel(new ByteArrayInputStream("1,A1\n2,A1\n3,A1\n".getBytes(StandardCharsets.US_ASCII))),
+                Channels.newChannel(output));
+
+        assertEquals("1,ACCEPTED,25,1\n2,FAILED,IllegalStateException\n3,ACCEPTED,25,1\n", output.toString(StandardCharsets.US_ASCII));
+        assertEquals(1, summary.getFailed());
+    }
+
+    @Test
+    public void testAccountLimitIsAppliedInFileOrder() throws IOException {
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            input.append("1,A1\n");
+        }
+        ExecutorService validationExecutor = Executors.newFixedThreadPool(4);
+        try {
+            BulkPurchaseIngestor ingestor = new BulkPurchaseIngestor(new TicketServiceImpl((accountId, amount) -> { },
+                    (accountId, seats) -> { }, new StripedPurchaseLimiter(5, 1, TimeUnit.HOURS)), validationExecutor, 1, 8);
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+            IngestionSummary summary = ingestor.ingest(
+                    Channels.newChannel(new ByteArrayInputStream(input.toString().getBytes(StandardCharsets.US_ASCII))),
+                    Channels.newChannel(output));
+
+            assertEquals(5, summary.getAccepted());
+            String[] lines = output.toString(StandardCharsets.US_ASCII).split("\n");
+            for (int i = 0; i < lines.length; i++) {
+                assertEquals((i + 1) + (i < 5 ? ",ACCEPTED,25,1" : ",REJECTED,ACCOUNT_LIMIT_EXCEEDED"), lines[i]);
+            }
+        } finally {
+            validationExecutor.shutdown();
+        }
+    }
+
+    @Test
+    public void testValidationErrorFailsIngestionWithoutBlockingTheReader() {
+        TicketServiceImpl ticketService = new TicketServiceImpl((accountId, amount) -> { }, (accountId, seats) -> { }) {
+            @Override
+            public Reason validateOrder(long accountId, TicketTypeRequest[] ticketTypeRequests, OrderSummary summary) {
+                if (accountId == 3L) {
+                    throw new AssertionError("Validation bug");
+                }
+                return super.validateOrder(accountId, ticketTypeRequests, summary);
+            }
+        };
+        StringBuilder input = new StringBuilder();
+        for (int i = 1; i <= 1_000; i++) {
+            input.append(i).append(",A1\n");
+        }
+        BulkPurchaseIngestor ingestor = new BulkPurchaseIngestor(ticketService, Runnable::run, 1, 2);
+
+        IOException thrown = assertThrows(IOException.class, () -> ingestor.ingest(
+                Channels.newChannel(new ByteArrayInputStream(input.toString().getBytes(StandardCharsets.US_ASCII))),
+                Channels.newChannel(new ByteArrayOutputStream())));
+        assertEquals("Order validation failed.", thrown.getMessage());
+    }
+
+    @Test
+    public void testLargeInputStaysInOrderThroughSmallPipeline() throws IOException {
+        int orders = 100_000;
+        StringBuilder input = new StringBuilder();
+        for (int i = 1; i <= orders; i++) {
+            input.append(i).append(i % 10 == 0 ? ",C1" : ",A1,I1").append('\n');
+        }
+        LatencyGateway gateway = new LatencyGateway(0, TimeUnit.MILLISECONDS);
+        ExecutorService validationExecutor = Executors.newFixedThreadPool(4);
+        try {
+            BulkPurchaseIngestor ingestor = new BulkPurchaseIngestor(new TicketServiceImpl(gateway, gateway),
+                    validationExecutor, 100, 3);
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+            IngestionSummary summary = ingestor.ingest(
+                    Channels.newChannel(new ByteArrayInputStream(input.toString().getBytes(StandardCharsets.US_ASCII))),
+                    Channels.newChannel(output));
+
+            assertEquals(90_000, summary.getAccepted());
+            assertEquals(10_000, summary.getRejected());
+            String[] lines = output.toString(StandardCharsets.US_ASCII).split("\n");
+            assertEquals(orders, lines.length);
+            for (int i = 0; i < orders; i++) {
+                assertTrue(lines[i].startsWith((i + 1) + ","), lines[i]);
+            }
+        } finally {
+            validationExecutor.shutdown();
+        }
+    }
+}
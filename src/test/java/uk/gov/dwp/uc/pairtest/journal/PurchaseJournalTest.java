@@ -0,0 +1,275 @@
+package uk.gov.dwp.uc.pairtest.journal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import uk.gov.dwp.uc.pairtest.LatencyGateway;
+import uk.gov.dwp.uc.pairtest.ReferencedGateway;
+import uk.gov.dwp.uc.pairtest.TicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.limit.StripedPurchaseLimiter;
+import uk.gov.dwp.uc.pairtest.seating.SeatMap;
+import uk.gov.dwp.uc.pairtest.seating.SeatMapReservationService;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PurchaseJournalTest {
+
+    private static final TicketTypeRequest TWO_ADULTS = new TicketTypeRequest(TicketTypeRequest.TicketType.ADULT, 2);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testCompletedOrdersLeaveNothingPending() throws IOException {
+        LatencyGateway gateway = new LatencyGateway(0, TimeUnit.MILLISECONDS);
+        try (PurchaseJournal journal = open()) {
+            JournalingTicketService ticketService = new JournalingTicketService(new TicketServiceImpl(gateway, gateway), journal);
+            ticketService.purchaseTickets(1L, TWO_ADULTS);
+            ticketService.purchaseTickets(2L, TWO_ADULTS);
+
+            assertEquals(6, journal.getRecordCount());
+            assertTrue(journal.pendingOrders().isEmpty());
+        }
+    }
+
+    @Test
+    public void testPaidOrderIsRolledForwardAfterRestart() throws IOException {
+        try (PurchaseJournal journal = open()) {
+            ReferencedGateway gateway = new ReferencedGateway(
+                    (accountId, amount) -> { }, (accountId, seats) -> { throw new IllegalStateException("Crashed"); });
+            JournalingTicketService ticketService = new JournalingTicketService(new TicketServiceImpl(gateway, gateway), journal);
+            assertThrows(IllegalStateException.class, () -> ticketService.purchaseTickets(7L, TWO_ADULTS));
+        }
+
+        LatencyGateway gateway = new LatencyGateway(0, TimeUnit.MILLISECONDS);
+        try (PurchaseJournal journal = open()) {
+            JournalingTicketService ticketService = new JournalingTicketService(new TicketServiceImpl(gateway, gateway), journal);
+            assertTrue(ticketService.recover().isEmpty());
+            assertEquals(0, gateway.getPaymentCalls());
+            assertEquals(2, gateway.getSeatsReserved());
+            assertTrue(journal.pendingOrders().isEmpty());
+        }
+    }
+
+    @Test
+    public void testUnpaidIntentIsReportedForReconciliation() throws IOException {
+        try (PurchaseJournal journal = open()) {
+            journal.logIntent(3L, 40, 2, 2);
+        }
+
+        LatencyGateway gateway = new LatencyGateway(0, TimeUnit.MILLISECONDS);
+        try (PurchaseJournal journal = open()) {
+            List<PendingOrder> unresolved = new JournalingTicketService(new TicketServiceImpl(gateway, gateway), journal).recover();
+
+            assertEquals(1, unresolved.size());
+            assertEquals(3L, unresolved.get(0).getAccountId());
+            assertEquals(40, unresolved.get(0).getTotalAmount());
+            assertFalse(unresolved.get(0).isPaid());
+            assertEquals(0, gateway.getReservationCalls());
+        }
+    }
+
+    @Test
+    public void testDeclinedPaymentIsNotPending() throws IOException {
+        try (PurchaseJournal journal = open()) {
+            ReferencedGateway gateway = new ReferencedGateway(
+                    (accountId, amount) -> { throw new IllegalStateException("Declined"); }, (accountId, seats) -> { });
+            JournalingTicketService ticketService = new JournalingTicketService(new TicketServiceImpl(gateway, gateway), journal);
+            assertThrows(IllegalStateException.class, () -> ticketService.purchaseTickets(7L, TWO_ADULTS));
+
+            assertTrue(journal.pendingOrders().isEmpty());
+        }
+    }
+
+    @Test
+    public void testTornRecordIsIgnored() throws IOException {
+        try (PurchaseJournal journal = open()) {
+            journal.logIntent(1L, 20, 1, 1);
+            journal.logIntent(2L, 20, 1, 1);
+        }
+        try (FileChannel channel = FileChannel.open(directory.resolve("purchases.journal"), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{42}), 2L * PurchaseJournal.RECORD_SIZE + 9);
+        }
+
+        try (PurchaseJournal journal = open()) {
+            assertEquals(1, journal.pendingOrders().size());
+            assertEquals(1L, journal.pendingOrders().get(0).getAccountId());
+            assertEquals(2, journal.logIntent(3L, 20, 1, 1));
+        }
+    }
+
+    @Test
+    public void testConcurrentAppendsAreAllRecorded() throws Exception {
+        int threads = 4;
+        try (PurchaseJournal journal = open()) {
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                List<Future<?>> results = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    long accountId = t + 1;
+                    results.add(executor.submit(() -> {
+                        for (int i = 0; i < 10_000; i++) {
+                            journal.logIntent(accountId, 20, 1, 1);
+                        }
+                    }));
+                }
+                for (Future<?> result : results) {
+                    result.get();
+                }
+            } finally {
+                executor.shutdown();
+            }
+
+            List<PendingOrder> pending = journal.pendingOrders();
+            Set<Long> orderIds = new HashSet<>();
+            for (PendingOrder order : pending) {
+                orderIds.add(order.getOrderId());
+            }
+            assertEquals(40_000, orderIds.size());
+        }
+    }
+
+    @Test
+    public void testFullJournalIsCompactedKeepingPendingOrders() throws IOException {
+        Path file = directory.resolve("small.journal");
+        LatencyGateway gateway = new LatencyGateway(0, TimeUnit.MILLISECONDS);
+        try (PurchaseJournal journal = PurchaseJournal.open(file, 8, 10, TimeUnit.MILLISECONDS)) {
+            long unpaid = journal.logIntent(3L, 40, 2, 2);
+            JournalingTicketService ticketService = new JournalingTicketService(new TicketServiceImpl(gateway, gateway), journal);
+            for (long accountId = 10; accountId < 1_000; accountId++) {
+                ticketService.purchaseTickets(accountId, TWO_ADULTS);
+            }
+
+            assertTrue(journal.getCompactions() > 0);
+            assertEquals(990, gateway.getPaymentCalls());
+            assertEquals(1, journal.pendingOrders().size());
+            assertEquals(unpaid, journal.pendingOrders().get(0).getOrderId());
+        }
+        assertFalse(Files.exists(directory.resolve("small.journal.compacting")));
+
+        try (PurchaseJournal journal = PurchaseJournal.open(file, 8, 10, TimeUnit.MILLISECONDS)) {
+            List<PendingOrder> pending = journal.pendingOrders();
+            assertEquals(1, pending.size());
+            assertEquals(3L, pending.get(0).getAccountId());
+            assertEquals(40, pending.get(0).getTotalAmount());
+            assertEquals(992, journal.logIntent(4L, 20, 1, 1), "Order IDs carry on after those compacted away");
+        }
+    }
+
+    @Test
+    public void testConcurrentAppendsSurviveCompaction() throws Exception {
+        int threads = 4;
+        try (PurchaseJournal journal = PurchaseJournal.open(directory.resolve("small.journal"), 64, 10, TimeUnit.MILLISECONDS)) {
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                List<Future<?>> results = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    long accountId = t + 1;
+                    results.add(executor.submit(() -> {
+                        for (int i = 0; i < 10_000; i++) {
+                            journal.logCompleted(journal.logIntent(accountId, 20, 1, 1));
+                        }
+                    }));
+                }
+                for (Future<?> result : results) {
+                    result.get();
+                }
+            } finally {
+                executor.shutdown();
+            }
+
+            assertTrue(journal.getCompactions() > 0);
+            assertTrue(journal.pendingOrders().isEmpty());
+        }
+    }
+
+    @Test
+    public void testFailedIntentGivesTheTicketsBack() throws IOException {
+        StripedPurchaseLimiter limiter = new StripedPurchaseLimiter(10, 1, TimeUnit.HOURS);
+        PurchaseJournal journal = open();
+        journal.close();
+        ReferencedGateway gateway = new ReferencedGateway(
+                (accountId, amount) -> fail("No payment expected"), (accountId, seats) -> fail("No reservation expected"));
+        JournalingTicketService ticketService = new JournalingTicketService(new TicketServiceImpl(gateway, gateway, limiter), journal);
+
+        assertThrows(IllegalStateException.class, () -> ticketService.purchaseTickets(1L, TWO_ADULTS));
+        assertEquals(0, limiter.getTicketsInWindow(1L));
+    }
+
+    @Test
+    public void testUnrecordedPaymentIsRefunded() throws IOException {
+        StripedPurchaseLimiter limiter = new StripedPurchaseLimiter(10, 1, TimeUnit.HOURS);
+        PurchaseJournal journal = open();
+        ReferencedGateway gateway = new ReferencedGateway((accountId, amount) -> close(journal), (accountId, seats) -> fail("No reservation expected"));
+        JournalingTicketService ticketService = new JournalingTicketService(new TicketServiceImpl(gateway, gateway, limiter), journal);
+
+        assertThrows(IllegalStateException.class, () -> ticketService.purchaseTickets(1L, TWO_ADULTS));
+        assertEquals(50, gateway.getAmountRefunded());
+        assertEquals(0, limiter.getTicketsInWindow(1L));
+    }
+
+    @Test
+    public void testReservationReplayedAfterUnrecordedCompletionIsNotBookedTwice() throws IOException {
+        SeatMap seatMap = new SeatMap(1L, 5, 10);
+        AtomicReference<PurchaseJournal> crashAfterReserving = new AtomicReference<>(open());
+        SeatMapReservationService seats = new SeatMapReservationService(seatMap) {
+            @Override
+            public void reserveSeat(long accountId, int totalSeatsToAllocate, long orderReference) {
+                super.reserveSeat(accountId, totalSeatsToAllocate, orderReference);
+                PurchaseJournal journal = crashAfterReserving.getAndSet(null);
+                if (journal != null) {
+                    close(journal);
+                }
+            }
+        };
+        LatencyGateway payments = new LatencyGateway(0, TimeUnit.MILLISECONDS);
+        new JournalingTicketService(new TicketServiceImpl(payments, seats), crashAfterReserving.get()).purchaseTickets(1L, TWO_ADULTS);
+
+        try (PurchaseJournal journal = open()) {
+            assertEquals(1, journal.pendingOrders().size());
+            JournalingTicketService ticketService = new JournalingTicketService(new TicketServiceImpl(payments, seats), journal);
+            assertTrue(ticketService.recover().isEmpty());
+            assertEquals(48, seatMap.getAvailableSeats());
+            assertEquals(1, seats.getHolds(1L).size());
+            assertTrue(journal.pendingOrders().isEmpty());
+        }
+    }
+
+    @Test
+    public void testFullJournalRejectsAppends() throws IOException {
+        try (PurchaseJournal journal = PurchaseJournal.open(directory.resolve("small.journal"), 2, 10, TimeUnit.MILLISECONDS)) {
+            journal.logIntent(1L, 20, 1, 1);
+            journal.logIntent(1L, 20, 1, 1);
+            assertThrows(IllegalStateException.class, () -> journal.logIntent(1L, 20, 1, 1));
+        }
+    }
+
+    private static void close(PurchaseJournal journal) {
+        try {
+            journal.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private PurchaseJournal open() throws IOException {
+        return PurchaseJournal.open(directory.resolve("purchases.journal"), 100_000, 10, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,176 @@
+package uk.gov.dwp.uc.pairtest.limit;
+
+import org.junit.jupiter.api.Test;
+import uk.gov.dwp.uc.pairtest.TicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StripedPurchaseLimiterTest {
+
+    @Test
+    public void testLimitAppliesWithinWindow() {
+        AtomicLong clock = new AtomicLong();
+        StripedPurchaseLimiter limiter = new StripedPurchaseLimiter(30, 1, TimeUnit.MINUTES, 4, 16, clock::get);
+
+        assertTrue(limiter.tryAcquire(1L, 20));
+        assertFalse(limiter.tryAcquire(1L, 11));
+        assertTrue(limiter.tryAcquire(1L, 10));
+        assertTrue(limiter.tryAcquire(2L, 30)); // Other accounts are unaffected
+        assertEquals(30, limiter.getTicketsInWindow(1L));
+
+        clock.set(TimeUnit.MINUTES.toMillis(1));
+        assertEquals(0, limiter.getTicketsInWindow(1L));
+        assertTrue(limiter.tryAcquire(1L, 30));
+    }
+
+    @Test
+    public void testReleaseGivesTicketsBack() {
+        StripedPurchaseLimiter limiter = new StripedPurchaseLimiter(10, 1, TimeUnit.MINUTES);
+
+        assertTrue(limiter.tryAcquire(5L, 10));
+        limiter.release(5L, 4);
+        assertEquals(6, limiter.getTicketsInWindow(5L));
+        assertTrue(limiter.tryAcquire(5L, 4));
+        assertFalse(limiter.tryAcquire(5L, 1));
+    }
+
+    @Test
+    public void testIdleAccountsAreEvictedWhenFull() {
+        AtomicLong clock = new AtomicLong();
+        StripedPurchaseLimiter limiter = new StripedPurchaseLimiter(10, 1, TimeUnit.SECONDS, 1, 4, clock::get);
+
+        for (long accountId = 1; accountId <= 4; accountId++) {
+            assertTrue(limiter.tryAcquire(accountId, 1));
+        }
+        assertFalse(limiter.tryAcquire(5L, 1)); // Table is full of active accounts
+
+        clock.set(TimeUnit.SECONDS.toMillis(1));
+        assertTrue(limiter.tryAcquire(3L, 10));
+        assertTrue(limiter.tryAcquire(5L, 10)); // Reuses an idle account's slot
+        assertTrue(limiter.tryAcquire(6L, 10));
+        assertEquals(10, limiter.getTicketsInWindow(3L));
+        assertEquals(10, limiter.getTicketsInWindow(5L));
+    }
+
+    @Test
+    public void testConfinedLimiterAppliesSameWindows() {
+        AtomicLong clock = new AtomicLong();
+        ConfinedPurchaseLimiter limiter = new ConfinedPurchaseLimiter(10, 1, TimeUnit.SECONDS, 4, clock::get);
+
+        for (long accountId = 1; accountId <= 4; accountId++) {
+            assertTrue(limiter.tryAcquire(accountId, 5));
+        }
+        assertFalse(limiter.tryAcquire(1L, 6));
+        assertFalse(limiter.tryAcquire(5L, 1)); // Table is full of active accounts
+        limiter.release(1L, 5);
+        assertEquals(0, limiter.getTicketsInWindow(1L));
+
+        clock.set(TimeUnit.SECONDS.toMillis(1));
+        assertTrue(limiter.tryAcquire(5L, 10)); // Reuses an idle account's slot
+        assertEquals(0, limiter.getTicketsInWindow(2L));
+    }
+
+    @Test
+    public void testInvalidAccountIdNotAllowed() {
+        StripedPurchaseLimiter limiter = new StripedPurchaseLimiter(10, 1, TimeUnit.MINUTES);
+        assertThrows(IllegalArgumentException.class, () -> limiter.tryAcquire(0L, 1));
+    }
+
+    @Test
+    public void testConcurrentAcquireNeverExceedsLimit() throws Exception {
+        int threads = 16;
+        int accounts = 64;
+        int limit = 500;
+        StripedPurchaseLimiter limiter = new StripedPurchaseLimiter(limit, 1, TimeUnit.HOURS, 8, 64, () -> 0L);
+        AtomicLongArray granted = new AtomicLongArray(accounts + 1);
+
+        runConcurrently(threads, thread -> {
+            for (int i = 0; i < 20_000; i++) {
+                int accountId = 1 + (i + thread) % accounts;
+                int tickets = 1 + i % 3;
+                if (limiter.tryAcquire(accountId, tickets)) {
+                    granted.addAndGet(accountId, tickets);
+                }
+            }
+        });
+
+        for (int accountId = 1; accountId <= accounts; accountId++) {
+            assertTrue(granted.get(accountId) <= limit, "Account " + accountId + " got " + granted.get(accountId));
+            assertTrue(granted.get(accountId) >= limit - 2, "Account " + accountId + " got " + granted.get(accountId));
+            assertEquals(granted.get(accountId), limiter.getTicketsInWindow(accountId));
+        }
+    }
+
+    @Test
+    public void testParallelSmallOrdersCannotBypassAccountLimit() throws Exception {
+        AtomicInteger ticketsPaidFor = new AtomicInteger();
+        StripedPurchaseLimiter limiter = new StripedPurchaseLimiter(40, 1, TimeUnit.HOURS);
+        TicketServiceImpl ticketService = new TicketServiceImpl(
+                (accountId, amount) -> ticketsPaidFor.addAndGet(amount / 25), (accountId, seats) -> { }, limiter);
+        AtomicInteger rejected = new AtomicInteger();
+
+        runConcurrently(8, thread -> {
+            for (int i = 0; i < 100; i++) {
+                try {
+                    ticketService.purchaseTickets(42L, new TicketTypeRequest(TicketTypeRequest.TicketType.ADULT, 1));
+                } catch (InvalidPurchaseException e) {
+                    assertEquals(InvalidPurchaseException.Reason.ACCOUNT_LIMIT_EXCEEDED, e.getReason());
+                    rejected.incrementAndGet();
+                }
+            }
+        });
+
+        assertEquals(40, ticketsPaidFor.get());
+        assertEquals(760, rejected.get());
+    }
+
+    @Test
+    public void testFailedPaymentReleasesLimit() {
+        StripedPurchaseLimiter limiter = new StripedPurchaseLimiter(10, 1, TimeUnit.HOURS);
+        TicketServiceImpl ticketService = new TicketServiceImpl(
+                (accountId, amount) -> { throw new IllegalStateException("Payment declined"); }, (accountId, seats) -> { }, limiter);
+
+        assertThrows(IllegalStateException.class, () ->
+                ticketService.purchaseTickets(9L, new TicketTypeRequest(TicketTypeRequest.TicketType.ADULT, 10)));
+        assertEquals(0, limiter.getTicketsInWindow(9L));
+    }
+
+    private interface ThreadBody {
+        void run(int thread) throws Exception;
+    }
+
+    private static void runConcurrently(int threads, ThreadBody body) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    body.run(thread);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
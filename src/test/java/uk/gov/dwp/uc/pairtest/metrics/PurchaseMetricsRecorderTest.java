@@ -0,0 +1,156 @@
+package uk.gov.dwp.uc.pairtest.metrics;
+
+import org.junit.jupiter.api.Test;
+import uk.gov.dwp.uc.pairtest.TicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+import uk.gov.dwp.uc.pairtest.limit.PurchaseLimiter;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PurchaseMetricsRecorderTest {
+
+    @Test
+    public void testPurchasesAreCountedByTicketType() {
+        PurchaseMetricsRecorder metrics = new PurchaseMetricsRecorder();
+        TicketServiceImpl ticketService = new TicketServiceImpl((accountId, amount) -> { }, (accountId, seats) -> { },
+                PurchaseLimiter.UNLIMITED, metrics);
+
+        ticketService.purchaseTickets(1L,
+                new TicketTypeRequest(TicketTypeRequest.TicketType.ADULT, 2),
+                new TicketTypeRequest(TicketTypeRequest.TicketType.CHILD, 3),
+                new TicketTypeRequest(TicketTypeRequest.TicketType.ADULT, 1));
+
+        MetricsSnapshot snapshot = metrics.snapshot();
+        assertEquals(1, snapshot.getAdmittedOrders());
+        assertEquals(3, snapshot.getTickets(TicketTypeRequest.TicketType.ADULT));
+        assertEquals(3, snapshot.getTickets(TicketTypeRequest.TicketType.CHILD));
+        assertEquals(0, snapshot.getTickets(TicketTypeRequest.TicketType.INFANT));
+        assertEquals(1, snapshot.getValidation().getCount());
+        assertEquals(1, snapshot.getPayment().getCount());
+        assertEquals(1, snapshot.getReservation().getCount());
+    }
+
+    @Test
+    public void testRejectionsAreCountedByReason() {
+        PurchaseMetricsRecorder metrics = new PurchaseMetricsRecorder();
+        TicketServiceImpl ticketService = new TicketServiceImpl((accountId, amount) -> { }, (accountId, seats) -> { },
+                PurchaseLimiter.UNLIMITED, metrics);
+        TicketTypeRequest childTicket = new TicketTypeRequest(TicketTypeRequest.TicketType.CHILD, 1);
+
+        assertThrows(InvalidPurchaseException.class, () -> ticketService.purchaseTickets(1L, childTicket));
+        assertThrows(InvalidPurchaseException.class, () -> ticketService.purchaseTickets(1L, childTicket));
+        assertThrows(InvalidPurchaseException.class, () -> ticketService.purchaseTickets(0L, childTicket));
+
+        MetricsSnapshot snapshot = metrics.snapshot();
+        assertEquals(2, snapshot.getRejections(InvalidPurchaseException.Reason.NO_ADULT_TICKET));
+        assertEquals(1, snapshot.getRejections(InvalidPurchaseException.Reason.INVALID_ACCOUNT_ID));
+        assertEquals(0, snapshot.getAdmittedOrders());
+        assertEquals(0, snapshot.getPayment().getCount());
+    }
+
+    @Test
+    public void testFailedGatewayCallsAreTimed() {
+        PurchaseMetricsRecorder metrics = new PurchaseMetricsRecorder();
+        IllegalStateException failure = new IllegalStateException("Seat booking timed out");
+        TicketServiceImpl ticketService = new TicketServiceImpl((accountId, amount) -> { },
+                (accountId, seats) -> { throw failure; }, PurchaseLimiter.UNLIMITED, metrics);
+
+        assertSame(failure, assertThrows(IllegalStateException.class, () -> ticketService.purchaseTickets(1L,
+                new TicketTypeRequest(TicketTypeRequest.TicketType.ADULT, 1))));
+
+        MetricsSnapshot snapshot = metrics.snapshot();
+        assertEquals(1, snapshot.getPayment().getCount());
+        assertEquals(1, snapshot.getReservation().getCount());
+    }
+
+    @Test
+    public void testHistogramPercentilesWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long nanos = 1; nanos <= 100_000; nanos++) {
+            histogram.record(nanos);
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(100_000, snapshot.getCount());
+        assertEquals(100_000, snapshot.getMaxNanos());
+        assertEquals(50_000.5, snapshot.getMeanNanos(), 0.001);
+        assertEquals(50_000, snapshot.getPercentileNanos(0.50), 50_000 * 0.04);
+        assertEquals(99_000, snapshot.getPercentileNanos(0.99), 99_000 * 0.04);
+        assertEquals(100_000, snapshot.getPercentileNanos(1.0));
+    }
+
+    @Test
+    public void testBucketsCoverWholeRange() {
+        int previous = -1;
+        for (long value : new long[]{0, 1, 63, 64, 66, 1_000, 1L << 40, Long.MAX_VALUE}) {
+            int index = LatencyHistogram.bucketIndex(value);
+            assertTrue(index > previous);
+            assertTrue(LatencyHistogram.bucketUpperBound(index) >= value);
+            previous = index;
+        }
+    }
+
+    @Test
+    public void testConcurrentRecordingLosesNothing() throws Exception {
+        int threads = 8;
+        PurchaseMetricsRecorder metrics = new PurchaseMetricsRecorder();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                results.add(executor.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        metrics.recordRejection(InvalidPurchaseException.Reason.TOO_MANY_TICKETS);
+                        metrics.recordPayment(metrics.startTimer());
+                    }
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        MetricsSnapshot snapshot = metrics.snapshot();
+        assertEquals(80_000, snapshot.getRejections(InvalidPurchaseException.Reason.TOO_MANY_TICKETS));
+        assertEquals(80_000, snapshot.getPayment().getCount());
+    }
+
+    @Test
+    public void testSampledTimingsKeepExactCounters() {
+        PurchaseMetricsRecorder metrics = new PurchaseMetricsRecorder(1_000);
+        for (int i = 0; i < 10_000; i++) {
+            metrics.recordRejection(InvalidPurchaseException.Reason.NO_TICKETS);
+            metrics.recordValidation(metrics.startTimer());
+        }
+
+        MetricsSnapshot snapshot = metrics.snapshot();
+        assertEquals(10_000, snapshot.getRejections(InvalidPurchaseException.Reason.NO_TICKETS));
+        assertTrue(snapshot.getValidation().getCount() < 100);
+    }
+
+    @Test
+    public void testExporters() {
+        PurchaseMetricsRecorder metrics = new PurchaseMetricsRecorder();
+        metrics.recordRejection(InvalidPurchaseException.Reason.NO_TICKETS);
+        InMemoryMetricsExporter inMemory = new InMemoryMetricsExporter();
+        StringWriter json = new StringWriter();
+
+        metrics.exportTo(inMemory);
+        metrics.exportTo(new JsonMetricsExporter(json));
+
+        assertEquals(1, inMemory.getLatest().getRejections(InvalidPurchaseException.Reason.NO_TICKETS));
+        assertTrue(json.toString().contains("\"NO_TICKETS\":1"));
+        assertTrue(json.toString().contains("\"validation\":{\"count\":0"));
+        assertTrue(json.toString().endsWith("}}\n"));
+    }
+}
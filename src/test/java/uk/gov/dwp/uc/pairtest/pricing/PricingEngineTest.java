@@ -0,0 +1,114 @@
+package uk.gov.dwp.uc.pairtest.pricing;
+
+import org.junit.jupiter.api.Test;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest.TicketType;
+import uk.gov.dwp.uc.pairtest.pricing.PricingRules.TimeBand;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PricingEngineTest {
+
+    @Test
+    public void testDefaultPricesMatchTicketTypes() {
+        PricingEngine pricingEngine = new PricingEngine();
+
+        assertEquals(2500, pricingEngine.getPrice(1L, TimeBand.EVENING, TicketType.ADULT));
+        assertEquals(1500, pricingEngine.getPrice(1L, TimeBand.MATINEE, TicketType.CHILD));
+        assertEquals(0, pricingEngine.getPrice(1L, TimeBand.LATE, TicketType.INFANT));
+        assertEquals(6500, pricingEngine.totalAmount(1L, TimeBand.EVENING,
+                new TicketTypeRequest(TicketType.ADULT, 2),
+                new TicketTypeRequest(TicketType.CHILD, 1),
+                new TicketTypeRequest(TicketType.INFANT, 1)));
+    }
+
+    @Test
+    public void testPerformanceTimeBandAndPromotionRules() {
+        PricingEngine pricingEngine = new PricingEngine(PricingRules.fromTicketTypes()
+                .performancePrice(7L, TicketType.ADULT, 3000)
+                .timeBandAdjustment(TimeBand.MATINEE, -20)
+                .promotion(7L, 10, TicketType.CHILD)
+                .promotion(50, TicketType.INFANT));
+
+        assertEquals(3000, pricingEngine.getPrice(7L, TimeBand.EVENING, TicketType.ADULT));
+        assertEquals(2400, pricingEngine.getPrice(7L, TimeBand.MATINEE, TicketType.ADULT));
+        assertEquals(1350, pricingEngine.getPrice(7L, TimeBand.EVENING, TicketType.CHILD));
+        assertEquals(1080, pricingEngine.getPrice(7L, TimeBand.MATINEE, TicketType.CHILD));
+        assertEquals(2500, pricingEngine.getPrice(8L, TimeBand.EVENING, TicketType.ADULT));
+        assertEquals(1500, pricingEngine.getPrice(8L, TimeBand.EVENING, TicketType.CHILD));
+    }
+
+    @Test
+    public void testLargeTotalsUseLongMinorUnits() {
+        PricingEngine pricingEngine = new PricingEngine(PricingRules.fromTicketTypes()
+                .basePrice(TicketType.ADULT, 1_000_000_000L));
+
+        assertEquals(25_000_000_000L, pricingEngine.totalAmount(1L, TimeBand.EVENING,
+                new TicketTypeRequest(TicketType.ADULT, 25)));
+    }
+
+    @Test
+    public void testOverflowIsReported() {
+        PricingEngine pricingEngine = new PricingEngine(PricingRules.fromTicketTypes()
+                .basePrice(TicketType.ADULT, Long.MAX_VALUE / 2));
+
+        assertThrows(ArithmeticException.class, () -> pricingEngine.totalAmount(1L, TimeBand.EVENING,
+                new TicketTypeRequest(TicketType.ADULT, 3)));
+    }
+
+    @Test
+    public void testInvalidRulesNotAllowed() {
+        assertThrows(IllegalArgumentException.class, () -> new PricingRules().basePrice(TicketType.ADULT, -1));
+        assertThrows(IllegalArgumentException.class, () -> new PricingRules().promotion(110, TicketType.ADULT));
+        assertThrows(IllegalStateException.class, () -> new PricingEngine(new PricingRules().basePrice(TicketType.ADULT, 100)));
+    }
+
+    @Test
+    public void testPublishSwapsWholeCatalogue() {
+        PricingEngine pricingEngine = new PricingEngine();
+        PriceCatalogue before = pricingEngine.getCatalogue();
+
+        PriceCatalogue after = pricingEngine.publish(PricingRules.fromTicketTypes().basePrice(TicketType.ADULT, 2600));
+
+        assertSame(after, pricingEngine.getCatalogue());
+        assertEquals(before.getVersion() + 1, after.getVersion());
+        assertEquals(2500, before.getDefaultTable().getPrice(TimeBand.EVENING, TicketType.ADULT));
+        assertEquals(2600, after.getDefaultTable().getPrice(TimeBand.EVENING, TicketType.ADULT));
+    }
+
+    @Test
+    public void testReadersNeverSeeHalfPublishedPrices() throws Exception {
+        PricingEngine pricingEngine = new PricingEngine(uniformRules(0));
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<String> inconsistency = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            while (running.get()) {
+                PriceTable table = pricingEngine.getCatalogue().forPerformance(3L);
+                long adult = table.getPrice(TimeBand.EVENING, TicketType.ADULT);
+                if (table.getPrice(TimeBand.LATE, TicketType.CHILD) != adult) {
+                    inconsistency.set("Mixed prices in one catalogue: " + adult);
+                }
+            }
+        });
+        reader.start();
+        for (int price = 1; price <= 2_000; price++) {
+            pricingEngine.publish(uniformRules(price));
+        }
+        running.set(false);
+        reader.join();
+
+        assertNull(inconsistency.get());
+        assertEquals(2_001, pricingEngine.getCatalogue().getVersion());
+    }
+
+    private static PricingRules uniformRules(long price) {
+        PricingRules rules = new PricingRules();
+        for (TicketType type : TicketType.values()) {
+            rules.basePrice(type, price).performancePrice(3L, type, price);
+        }
+        return rules;
+    }
+}
@@ -0,0 +1,59 @@
+package uk.gov.dwp.uc.pairtest.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CircuitBreakerTest {
+
+    @Test
+    public void testOpensAfterConsecutiveFailures() {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(3, 1, TimeUnit.SECONDS, () -> 0L);
+
+        circuitBreaker.onFailure();
+        circuitBreaker.onFailure();
+        circuitBreaker.onSuccess();
+        circuitBreaker.onFailure();
+        circuitBreaker.onFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+
+        circuitBreaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.tryAcquirePermission());
+    }
+
+    @Test
+    public void testSingleTrialCallAfterOpenDuration() {
+        AtomicLong clock = new AtomicLong();
+        CircuitBreaker circuitBreaker = new CircuitBreaker(1, 1, TimeUnit.SECONDS, clock::get);
+        circuitBreaker.onFailure();
+
+        clock.set(TimeUnit.SECONDS.toNanos(1));
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.tryAcquirePermission());
+
+        circuitBreaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertTrue(circuitBreaker.tryAcquirePermission());
+    }
+
+    @Test
+    public void testFailedTrialCallReopens() {
+        AtomicLong clock = new AtomicLong();
+        CircuitBreaker circuitBreaker = new CircuitBreaker(1, 1, TimeUnit.SECONDS, clock::get);
+        circuitBreaker.onFailure();
+        clock.set(TimeUnit.SECONDS.toNanos(1));
+        assertTrue(circuitBreaker.tryAcquirePermission());
+
+        circuitBreaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.tryAcquirePermission());
+        clock.set(TimeUnit.SECONDS.toNanos(2));
+        assertTrue(circuitBreaker.tryAcquirePermission());
+    }
+}
@@ -0,0 +1,223 @@
+package uk.gov.dwp.uc.pairtest.resilience;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import thirdparty.seatbooking.SeatReservationService;
+import uk.gov.dwp.uc.pairtest.FaultInjectingGateway;
+import uk.gov.dwp.uc.pairtest.GatewayExecutors;
+import uk.gov.dwp.uc.pairtest.ReferencedGateway;
+import uk.gov.dwp.uc.pairtest.TicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.exception.GatewayUnavailableException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResilientGatewayTest {
+
+    private final ExecutorService gatewayExecutor = GatewayExecutors.newBoundedExecutor(64, 1024);
+
+    @AfterEach
+    public void tearDown() {
+        gatewayExecutor.shutdownNow();
+    }
+
+    @Test
+    public void testSlowGatewayTimesOut() {
+        FaultInjectingGateway gateway = new FaultInjectingGateway(2, TimeUnit.SECONDS);
+        ResilientTicketPaymentService paymentService = new ResilientTicketPaymentService(gateway,
+                guard(GatewayPolicy.defaults().withTimeout(50, TimeUnit.MILLISECONDS)));
+
+        long start = System.nanoTime();
+        GatewayUnavailableException e = assertThrows(GatewayUnavailableException.class, () -> paymentService.makePayment(1L, 25));
+
+        assertEquals(GatewayUnavailableException.Reason.TIMEOUT, e.getReason());
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    public void testStalledCallsFillBulkheadThenFailFast() {
+        FaultInjectingGateway gateway = new FaultInjectingGateway(500, TimeUnit.MILLISECONDS);
+        GatewayGuard guard = guard(GatewayPolicy.defaults()
+                .withTimeout(20, TimeUnit.MILLISECONDS)
+                .withMaxConcurrentCalls(2));
+        ResilientSeatReservationService reservationService = new ResilientSeatReservationService(gateway, guard);
+
+        assertThrows(GatewayUnavailableException.class, () -> reservationService.reserveSeat(1L, 1));
+        assertThrows(GatewayUnavailableException.class, () -> reservationService.reserveSeat(2L, 1));
+        long start = System.nanoTime();
+        GatewayUnavailableException e = assertThrows(GatewayUnavailableException.class, () -> reservationService.reserveSeat(3L, 1));
+
+        assertEquals(GatewayUnavailableException.Reason.BULKHEAD_FULL, e.getReason());
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(50));
+        assertEquals(2, gateway.getCalls());
+    }
+
+    @Test
+    public void testTimedOutCallIsNotSentLate() throws Exception {
+        ExecutorService singleThread = Executors.newSingleThreadExecutor();
+        try {
+            FaultInjectingGateway gateway = new FaultInjectingGateway(0, TimeUnit.MILLISECONDS);
+            GatewayGuard guard = new GatewayGuard(GatewayPolicy.defaults().withTimeout(20, TimeUnit.MILLISECONDS),
+                    singleThread, System::nanoTime);
+            ResilientTicketPaymentService paymentService = new ResilientTicketPaymentService(gateway, guard);
+            singleThread.execute(() -> LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(100)));
+
+            GatewayUnavailableException e = assertThrows(GatewayUnavailableException.class, () -> paymentService.makePayment(1L, 25));
+            assertEquals(GatewayUnavailableException.Reason.TIMEOUT, e.getReason());
+
+            singleThread.submit(() -> { }).get();
+            assertEquals(0, gateway.getCalls());
+            assertEquals(0, gateway.getAmountPaid());
+        } finally {
+            singleThread.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testOpenCircuitFailsFastWithoutCallingGateway() {
+        FaultInjectingGateway gateway = new FaultInjectingGateway(0, TimeUnit.MILLISECONDS);
+        gateway.failCalls(1.0);
+        AtomicLong clock = new AtomicLong();
+        GatewayGuard guard = new GatewayGuard(GatewayPolicy.defaults().withCircuitBreaker(3, 1, TimeUnit.SECONDS),
+                gatewayExecutor, clock::get);
+        ResilientTicketPaymentService paymentService = new ResilientTicketPaymentService(gateway, guard);
+
+        for (int i = 0; i < 3; i++) {
+            assertThrows(IllegalStateException.class, () -> paymentService.makePayment(1L, 25));
+        }
+        GatewayUnavailableException e = assertThrows(GatewayUnavailableException.class, () -> paymentService.makePayment(1L, 25));
+        assertEquals(GatewayUnavailableException.Reason.CIRCUIT_OPEN, e.getReason());
+        assertEquals(3, gateway.getCalls());
+
+        gateway.heal();
+        clock.set(TimeUnit.SECONDS.toNanos(1));
+        paymentService.makePayment(1L, 25);
+        assertEquals(CircuitBreaker.State.CLOSED, guard.getCircuitBreaker().getState());
+        assertEquals(25, gateway.getAmountPaid());
+    }
+
+    @Test
+    public void testIdempotentCallIsRetried() {
+        AtomicInteger calls = new AtomicInteger();
+        ResilientSeatReservationService reservationService = new ResilientSeatReservationService(reservations((accountId, seats) -> {
+            if (calls.incrementAndGet() < 3) {
+                throw new IllegalStateException("Temporary failure");
+            }
+        }), guard(GatewayPolicy.defaults().withRetries(3, 1, 5, TimeUnit.MILLISECONDS).withIdempotentCalls()));
+
+        reservationService.reserveSeat(1L, 2);
+
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    public void testNonIdempotentFailureIsNotRetried() {
+        AtomicInteger calls = new AtomicInteger();
+        ResilientTicketPaymentService paymentService = new ResilientTicketPaymentService(new ReferencedGateway((accountId, amount) -> {
+            calls.incrementAndGet();
+            throw new IllegalStateException("Declined");
+        }, (accountId, seats) -> fail("No reservation expected")), guard(GatewayPolicy.defaults().withRetries(3, 1, 5, TimeUnit.MILLISECONDS)));
+
+        assertThrows(IllegalStateException.class, () -> paymentService.makePayment(1L, 25));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testHedgedCallAnswersFromSecondCopy() {
+        AtomicInteger calls = new AtomicInteger();
+        ResilientSeatReservationService reservationService = new ResilientSeatReservationService(reservations((accountId, seats) -> {
+            if (calls.incrementAndGet() == 1) {
+                sleep(1_000);
+            }
+        }), guard(GatewayPolicy.defaults()
+                .withTimeout(500, TimeUnit.MILLISECONDS)
+                .withHedging(20, TimeUnit.MILLISECONDS)
+                .withIdempotentCalls()));
+
+        long start = System.nanoTime();
+        reservationService.reserveSeat(1L, 2);
+
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(300));
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void testHedgingNeedsIdempotentCalls() {
+        assertThrows(IllegalArgumentException.class,
+                () -> guard(GatewayPolicy.defaults().withHedging(20, TimeUnit.MILLISECONDS)));
+    }
+
+    @Test
+    public void testPurchaseLatencyStaysBoundedWhileGatewayIsDegraded() throws Exception {
+        int threads = 16;
+        int purchasesPerThread = 50;
+        FaultInjectingGateway gateway = new FaultInjectingGateway(1, TimeUnit.MILLISECONDS);
+        gateway.stallCalls(0.3, 2, TimeUnit.SECONDS);
+        gateway.failCalls(0.1);
+        GatewayPolicy policy = GatewayPolicy.defaults()
+                .withTimeout(50, TimeUnit.MILLISECONDS)
+                .withMaxConcurrentCalls(32)
+                .withCircuitBreaker(5, 100, TimeUnit.MILLISECONDS);
+        TicketServiceImpl ticketService = new TicketServiceImpl(
+                new ResilientTicketPaymentService(gateway, guard(policy)),
+                new ResilientSeatReservationService(gateway, guard(policy)));
+        TicketTypeRequest adultTicket = new TicketTypeRequest(TicketTypeRequest.TicketType.ADULT, 1);
+        AtomicLong slowest = new AtomicLong();
+        AtomicInteger succeeded = new AtomicInteger();
+
+        ExecutorService callers = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                results.add(callers.submit(() -> {
+                    for (int i = 0; i < purchasesPerThread; i++) {
+                        long start = System.nanoTime();
+                        try {
+                            ticketService.purchaseTickets(1L, adultTicket);
+                            succeeded.incrementAndGet();
+                        } catch (RuntimeException e) {
+                            // Degraded gateway: failures are expected, hanging is not
+                        }
+                        slowest.accumulateAndGet(System.nanoTime() - start, Math::max);
+                    }
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            callers.shutdown();
+        }
+
+        // Two gateway calls per purchase, each abandoned after 50 ms, against 2 s stalls
+        assertTrue(slowest.get() < TimeUnit.MILLISECONDS.toNanos(1_000),
+                "Slowest purchase took " + TimeUnit.NANOSECONDS.toMillis(slowest.get()) + " ms");
+        assertTrue(succeeded.get() > 0);
+    }
+
+    private GatewayGuard guard(GatewayPolicy policy) {
+        return new GatewayGuard(policy, gatewayExecutor, System::nanoTime);
+    }
+
+    private static ReferencedGateway reservations(SeatReservationService reservationService) {
+        return new ReferencedGateway((accountId, amount) -> fail("No payment expected"), reservationService);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,396 @@
+package uk.gov.dwp.uc.pairtest.saga;
+
+import org.junit.jupiter.api.Test;
+import thirdparty.paymentgateway.RefundableTicketPaymentService;
+import thirdparty.seatbooking.ReleasableSeatReservationService;
+import uk.gov.dwp.uc.pairtest.GatewayExecutors;
+import uk.gov.dwp.uc.pairtest.LatencyGateway;
+import uk.gov.dwp.uc.pairtest.ReferencedGateway;
+import uk.gov.dwp.uc.pairtest.TicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.exception.GatewayUnavailableException;
+import uk.gov.dwp.uc.pairtest.limit.StripedPurchaseLimiter;
+import uk.gov.dwp.uc.pairtest.resilience.GatewayGuard;
+import uk.gov.dwp.uc.pairtest.resilience.GatewayPolicy;
+import uk.gov.dwp.uc.pairtest.resilience.ResilientSeatReservationService;
+import uk.gov.dwp.uc.pairtest.resilience.ResilientTicketPaymentService;
+import uk.gov.dwp.uc.pairtest.seating.SeatMap;
+import uk.gov.dwp.uc.pairtest.seating.SeatMapReservationService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SagaTicketServiceTest {
+
+    private static final int ACCOUNTS = 20;
+    private static final TicketTypeRequest TWO_ADULTS = new TicketTypeRequest(TicketTypeRequest.TicketType.ADULT, 2);
+
+    @Test
+    public void testFailedReservationIsRefunded() {
+        LatencyGateway gateway = new LatencyGateway(0, TimeUnit.MILLISECONDS);
+        try (CompensationQueue compensations = new CompensationQueue(100, 1, 3, 1, 10, TimeUnit.MILLISECONDS)) {
+            SagaTicketService ticketService = new SagaTicketService(new TicketServiceImpl(gateway,
+                    failingReservations()), compensations);
+
+            assertThrows(IllegalStateException.class, () -> ticketService.purchaseTickets(1L, TWO_ADULTS));
+
+            assertTrue(compensations.awaitIdle(5, TimeUnit.SECONDS));
+            assertEquals(50, gateway.getAmountPaid());
+            assertEquals(50, gateway.getAmountRefunded());
+        }
+    }
+
+    @Test
+    public void testDeclinedPaymentIsNotRefunded() {
+        LatencyGateway gateway = new LatencyGateway(0, TimeUnit.MILLISECONDS);
+        try (CompensationQueue compensations = new CompensationQueue(100, 1, 3, 1, 10, TimeUnit.MILLISECONDS)) {
+            SagaTicketService ticketService = new SagaTicketService(new TicketServiceImpl(new ReferencedGateway(
+                    (accountId, amount) -> { throw new IllegalStateException("Declined"); }, gateway), gateway), compensations);
+
+            assertThrows(IllegalStateException.class, () -> ticketService.purchaseTickets(1L, TWO_ADULTS));
+
+            assertTrue(compensations.awaitIdle(5, TimeUnit.SECONDS));
+            assertEquals(0, gateway.getAmountRefunded());
+            assertEquals(0, gateway.getReservationCalls());
+        }
+    }
+
+    @Test
+    public void testTimedOutReservationIsReleasedFromTheSeatMap() throws Exception {
+        SeatMap seatMap = new SeatMap(1L, 5, 10);
+        SeatMapReservationService seats = new SeatMapReservationService(seatMap);
+        CountDownLatch reservationStarted = new CountDownLatch(1);
+        CountDownLatch reservationMayLand = new CountDownLatch(1);
+        CountDownLatch reservationLanded = new CountDownLatch(1);
+        ReleasableSeatReservationService slowSeats = new ReleasableSeatReservationService() {
+            @Override
+            public void reserveSeat(long accountId, int totalSeatsToAllocate) {
+                throw new UnsupportedOperationException("Reservations must carry an order reference.");
+            }
+
+            @Override
+            public void reserveSeat(long accountId, int totalSeatsToAllocate, long orderReference) {
+                reservationStarted.countDown();
+                try {
+                    reservationMayLand.await();
+                    seats.reserveSeat(accountId, totalSeatsToAllocate, orderReference);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    reservationLanded.countDown();
+                }
+            }
+
+            @Override
+            public void releaseSeat(long accountId, int totalSeatsToRelease, long orderReference) {
+                seats.releaseSeat(accountId, totalSeatsToRelease, orderReference);
+            }
+        };
+        LatencyGateway gateway = new LatencyGateway(0, TimeUnit.MILLISECONDS);
+        ExecutorService gatewayExecutor = GatewayExecutors.newBoundedExecutor(4, 16);
+        GatewayPolicy policy = GatewayPolicy.defaults().withTimeout(20, TimeUnit.MILLISECONDS);
+        try (CompensationQueue compensations = new CompensationQueue(100, 1, 5, 1, 10, TimeUnit.MILLISECONDS)) {
+            SagaTicketService ticketService = new SagaTicketService(new TicketServiceImpl(gateway,
+                    new ResilientSeatReservationService(slowSeats, new GatewayGuard(policy, gatewayExecutor, System::nanoTime))),
+                    compensations);
+
+            assertThrows(GatewayUnavailableException.class, () -> ticketService.purchaseTickets(1L, TWO_ADULTS));
+            assertTrue(compensations.awaitIdle(5, TimeUnit.SECONDS));
+
+            // The guard skips a call still queued when it times out; one that started lands after its release
+            reservationMayLand.countDown();
+            if (reservationStarted.getCount() == 0) {
+                assertTrue(reservationLanded.await(5, TimeUnit.SECONDS));
+            }
+            assertTrue(compensations.getDeadLetters().isEmpty());
+            assertEquals(50, gateway.getAmountRefunded());
+            assertEquals(50, seatMap.getAvailableSeats());
+            assertEquals(0, seats.getAccountsWithHolds());
+        } finally {
+            gatewayExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testGatewayWithoutReferencesIsRefused() {
+        try (CompensationQueue compensations = new CompensationQueue(100, 1, 3, 1, 10, TimeUnit.MILLISECONDS)) {
+            TicketServiceImpl ticketService = new TicketServiceImpl((accountId, amount) -> { }, (accountId, seats) -> { });
+
+            assertThrows(IllegalArgumentException.class, () -> new SagaTicketService(ticketService, compensations));
+        }
+    }
+
+    @Test
+    public void testClosedQueueStillGivesTheTicketsBack() {
+        LatencyGateway gateway = new LatencyGateway(0, TimeUnit.MILLISECONDS);
+        StripedPurchaseLimiter limiter = new StripedPurchaseLimiter(2, 1, TimeUnit.HOURS);
+        CompensationQueue compensations = new CompensationQueue(100, 1, 3, 1, 10, TimeUnit.MILLISECONDS);
+        SagaTicketService ticketService = new SagaTicketService(new TicketServiceImpl(gateway,
+                failingReservations(), limiter), compensations);
+        compensations.close();
+
+        IllegalStateException failure = assertThrows(IllegalStateException.class,
+                () -> ticketService.purchaseTickets(1L, TWO_ADULTS));
+
+        assertEquals("No seats", failure.getMessage());
+        assertEquals(1, failure.getSuppressed().length);
+        assertEquals(0, limiter.getTicketsInWindow(1L));
+    }
+
+    @Test
+    public void testErrorInCompensationIsRetried() {
+        AtomicInteger attempts = new AtomicInteger();
+        try (CompensationQueue compensations = new CompensationQueue(100, 1, 5, 1, 10, TimeUnit.MILLISECONDS)) {
+            compensations.submit(new Compensation("Refund", () -> {
+                if (attempts.incrementAndGet() == 1) {
+                    throw new AssertionError("Refund bug");
+                }
+            }));
+
+            assertTrue(compensations.awaitIdle(5, TimeUnit.SECONDS));
+            assertEquals(2, attempts.get());
+            assertTrue(compensations.getDeadLetters().isEmpty());
+        }
+    }
+
+    @Test
+    public void testFailingCompensationIsRetriedWithBackoff() {
+        AtomicInteger attempts = new AtomicInteger();
+        try (CompensationQueue compensations = new CompensationQueue(100, 1, 5, 1, 10, TimeUnit.MILLISECONDS)) {
+            compensations.submit(new Compensation("Refund", () -> {
+                if (attempts.incrementAndGet() < 4) {
+                    throw new IllegalStateException("Refund service down");
+                }
+            }));
+
+            assertTrue(compensations.awaitIdle(5, TimeUnit.SECONDS));
+            assertEquals(4, attempts.get());
+            assertTrue(compensations.getDeadLetters().isEmpty());
+        }
+    }
+
+    @Test
+    public void testExhaustedCompensationBecomesDeadLetter() {
+        try (CompensationQueue compensations = new CompensationQueue(100, 1, 3, 1, 10, TimeUnit.MILLISECONDS)) {
+            compensations.submit(new Compensation("Refund", () -> { throw new IllegalStateException("Refund service down"); }));
+
+            assertTrue(compensations.awaitIdle(5, TimeUnit.SECONDS));
+            List<Compensation> deadLetters = compensations.getDeadLetters();
+            assertEquals(1, deadLetters.size());
+            assertEquals(3, deadLetters.get(0).getAttempts());
+            assertEquals("Refund service down", deadLetters.get(0).getLastFailure().getMessage());
+        }
+    }
+
+    @Test
+    public void testFullQueueRunsCompensationOnCaller() {
+        AtomicInteger ran = new AtomicInteger();
+        CompensationQueue compensations = new CompensationQueue(1, 1, 3, 1, 1, TimeUnit.MINUTES);
+        try {
+            compensations.submit(new Compensation("Stuck", () -> { throw new IllegalStateException("Down"); }));
+            assertTrue(waitFor(() -> compensations.getOutstanding() == 1 && ran.get() == 0));
+            Thread caller = Thread.currentThread();
+            compensations.submit(new Compensation("Refund", () -> {
+                assertSame(caller, Thread.currentThread());
+                ran.incrementAndGet();
+            }));
+            assertEquals(1, ran.get());
+        } finally {
+            compensations.close();
+        }
+        assertEquals(1, compensations.getDeadLetters().size());
+        assertEquals(0, compensations.getOutstanding());
+    }
+
+    @Test
+    public void testNoMoneyLostUnderRandomFailures() throws Exception {
+        int threads = 16;
+        int purchasesPerThread = 200;
+        ChaosGateway gateway = new ChaosGateway();
+        ExecutorService gatewayExecutor = GatewayExecutors.newBoundedExecutor(64, 4096);
+        GatewayPolicy policy = GatewayPolicy.defaults().withTimeout(15, TimeUnit.MILLISECONDS).withMaxConcurrentCalls(48)
+                .withCircuitBreaker(5, 20, TimeUnit.MILLISECONDS);
+        TicketServiceImpl ticketServiceImpl = new TicketServiceImpl(
+                new ResilientTicketPaymentService(gateway, new GatewayGuard(policy, gatewayExecutor, System::nanoTime)),
+                new ResilientSeatReservationService(gateway, new GatewayGuard(policy, gatewayExecutor, System::nanoTime)));
+        Map<Long, Integer> completedAdults = new ConcurrentHashMap<>();
+
+        ExecutorService callers = Executors.newFixedThreadPool(threads);
+        try (CompensationQueue compensations = new CompensationQueue(10_000, 4, 50, 1, 50, TimeUnit.MILLISECONDS)) {
+            SagaTicketService ticketService = new SagaTicketService(ticketServiceImpl, compensations);
+            List<Future<?>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                results.add(callers.submit(() -> {
+                    for (int i = 0; i < purchasesPerThread; i++) {
+                        // Few accounts, so every account has many orders in flight and compensations must pick the right one
+                        long accountId = 1 + ThreadLocalRandom.current().nextInt(ACCOUNTS);
+                        int adults = 1 + ThreadLocalRandom.current().nextInt(5);
+                        try {
+                            ticketService.purchaseTickets(accountId, new TicketTypeRequest(TicketTypeRequest.TicketType.ADULT, adults));
+                            completedAdults.merge(accountId, adults, Integer::sum);
+                        } catch (RuntimeException e) {
+                            // Failed purchases must be compensated, which is checked below
+                        }
+                    }
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+
+            assertTrue(compensations.awaitIdle(30, TimeUnit.SECONDS));
+            assertTrue(compensations.getDeadLetters().isEmpty(), () -> compensations.getDeadLetters().toString());
+        } finally {
+            callers.shutdown();
+            gatewayExecutor.shutdown();
+            gatewayExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        }
+
+        assertTrue(gateway.faults.get() > 0);
+        assertFalse(completedAdults.isEmpty());
+        assertEquals(0, gateway.mismatches.get(), "Compensations naming another order's amount or account");
+        for (long accountId = 1; accountId <= ACCOUNTS; accountId++) {
+            long adults = completedAdults.getOrDefault(accountId, 0);
+            assertEquals(adults * 25, gateway.balance(gateway.payments, accountId), "Charged amount for account " + accountId);
+            assertEquals(adults, gateway.balance(gateway.reservations, accountId), "Seats for account " + accountId);
+        }
+    }
+
+    private static ReleasableSeatReservationService failingReservations() {
+        return new ReferencedGateway((accountId, amount) -> fail("No payment expected"), (accountId, seats) -> {
+            throw new IllegalStateException("No seats");
+        });
+    }
+
+    private static boolean waitFor(java.util.function.BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        return true;
+    }
+
+    /**
+     * Gateway with a ledger entry per order reference that randomly declines calls before they take effect and
+     * delays responses past the caller's deadline after they take effect, refunds and releases included.
+     * As the service contracts require, undoing marks the reference as undone: repeating it changes nothing,
+     * and a payment or reservation that arrives after it is refused.
+     */
+    private static final class ChaosGateway implements RefundableTicketPaymentService, ReleasableSeatReservationService {
+        final Map<Long, Entry> payments = new ConcurrentHashMap<>();
+        final Map<Long, Entry> reservations = new ConcurrentHashMap<>();
+        final AtomicLong faults = new AtomicLong();
+        final AtomicLong mismatches = new AtomicLong();
+
+        @Override
+        public void makePayment(long accountId, int totalAmountToPay) {
+            throw new UnsupportedOperationException("Payments must carry an order reference.");
+        }
+
+        @Override
+        public void makePayment(long accountId, int totalAmountToPay, long orderReference) {
+            maybeFail(0.1);
+            take(payments, orderReference, accountId, totalAmountToPay);
+            maybeDelay();
+        }
+
+        @Override
+        public void refundPayment(long accountId, int totalAmountToRefund, long orderReference) {
+            maybeFail(0.3);
+            undo(payments, orderReference, accountId, totalAmountToRefund);
+            maybeDelay();
+        }
+
+        @Override
+        public void reserveSeat(long accountId, int totalSeatsToAllocate) {
+            throw new UnsupportedOperationException("Reservations must carry an order reference.");
+        }
+
+        @Override
+        public void reserveSeat(long accountId, int totalSeatsToAllocate, long orderReference) {
+            maybeFail(0.2);
+            take(reservations, orderReference, accountId, totalSeatsToAllocate);
+            maybeDelay();
+        }
+
+        @Override
+        public void releaseSeat(long accountId, int totalSeatsToRelease, long orderReference) {
+            maybeFail(0.3);
+            undo(reservations, orderReference, accountId, totalSeatsToRelease);
+            maybeDelay();
+        }
+
+        long balance(Map<Long, Entry> ledger, long accountId) {
+            long balance = 0;
+            for (Entry entry : ledger.values()) {
+                if (entry.accountId == accountId && !entry.undone) {
+                    balance += entry.value;
+                }
+            }
+            return balance;
+        }
+
+        private void take(Map<Long, Entry> ledger, long orderReference, long accountId, int value) {
+            Entry entry = ledger.compute(orderReference, (reference, existing) -> {
+                if (existing != null && !existing.undone) {
+                    mismatches.incrementAndGet();
+                }
+                return existing != null ? existing : new Entry(accountId, value, false);
+            });
+            if (entry.undone) {
+                throw new IllegalStateException("Order was cancelled before it arrived.");
+            }
+        }
+
+        private void undo(Map<Long, Entry> ledger, long orderReference, long accountId, int value) {
+            ledger.compute(orderReference, (reference, existing) -> {
+                if (existing != null && (existing.accountId != accountId || existing.value != value)) {
+                    mismatches.incrementAndGet();
+                }
+                return new Entry(accountId, value, true);
+            });
+        }
+
+        private void maybeFail(double rate) {
+            if (ThreadLocalRandom.current().nextDouble() < rate) {
+                faults.incrementAndGet();
+                throw new IllegalStateException("Injected failure");
+            }
+        }
+
+        private void maybeDelay() {
+            if (ThreadLocalRandom.current().nextDouble() < 0.05) {
+                faults.incrementAndGet();
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(40));
+            }
+        }
+    }
+
+    private static final class Entry {
+        final long accountId;
+        final int value;
+        final boolean undone;
+
+        Entry(long accountId, int value, boolean undone) {
+            this.accountId = accountId;
+            this.value = value;
+            this.undone = undone;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package uk.gov.dwp.uc.pairtest.seating;
+
+import org.junit.jupiter.api.Test;
+import uk.gov.dwp.uc.pairtest.TicketService;
+import uk.gov.dwp.uc.pairtest.TicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.exception.SeatsUnavailableException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SeatMapTest {
+
+    @Test
+    public void testGroupIsSeatedTogether() {
+        SeatMap seatMap = new SeatMap(1L, 10, 20);
+
+        SeatHold hold = seatMap.hold(7L, 3, 2, 1);
+
+        assertTrue(hold.isContiguous());
+        assertEquals(5, hold.getSeatCount());
+        assertEquals(1, hold.getLapInfants());
+        assertEquals(195, seatMap.getAvailableSeats());
+        long mask = hold.getSeatMask(0);
+        assertEquals(5, Long.bitCount(mask));
+        assertEquals(mask >>> Long.numberOfTrailingZeros(mask), 0b11111L); // Adjacent seats
+    }
+
+    @Test
+    public void testReleaseFreesSeats() {
+        SeatMap seatMap = new SeatMap(1L, 2, 8);
+
+        SeatHold hold = seatMap.hold(1L, 8);
+        seatMap.release(hold);
+
+        assertEquals(16, seatMap.getAvailableSeats());
+        assertThrows(IllegalStateException.class, () -> seatMap.release(hold));
+    }
+
+    @Test
+    public void testFragmentedRowsStillSeatGroupContiguously() {
+        SeatMap seatMap = new SeatMap(1L, 1, 10);
+        SeatHold first = seatMap.hold(1L, 3);
+        seatMap.hold(2L, 3);
+        seatMap.release(first);
+
+        // Seats 0-2 and 6-9 are free; a group of 4 fits only at 6-9
+        SeatHold hold = seatMap.hold(3L, 4);
+        assertEquals(0b1111000000L, hold.getSeatMask(0));
+    }
+
+    @Test
+    public void testGroupIsSplitWhenNoRowHasRoom() {
+        SeatMap seatMap = new SeatMap(1L, 3, 4);
+        seatMap.hold(1L, 3);
+        seatMap.hold(2L, 3);
+
+        SeatHold hold = seatMap.hold(3L, 6);
+
+        assertFalse(hold.isContiguous());
+        assertEquals(6, hold.getSeatCount());
+        assertEquals(0, seatMap.getAvailableSeats());
+    }
+
+    @Test
+    public void testSoldOutRollsBackPartialHold() {
+        SeatMap seatMap = new SeatMap(1L, 2, 4);
+        seatMap.hold(1L, 4);
+        seatMap.hold(2L, 2);
+
+        assertThrows(SeatsUnavailableException.class, () -> seatMap.hold(3L, 3));
+        assertEquals(2, seatMap.getAvailableSeats());
+    }
+
+    @Test
+    public void testMoreInfantsThanAdultsNotAllowed() {
+        SeatMap seatMap = new SeatMap(1L, 2, 4);
+        assertThrows(IllegalArgumentException.class, () -> seatMap.hold(1L, 1, 2, 2));
+    }
+
+    @Test
+    public void testFullWidthRows() {
+        SeatMap seatMap = new SeatMap(1L, 1, 64);
+        assertEquals(-1L, seatMap.hold(1L, 64).getSeatMask(0));
+    }
+
+    @Test
+    public void testOnSaleRushNeverDoubleBooks() throws Exception {
+        int threads = 16;
+        SeatMap seatMap = new SeatMap(1L, 40, 30);
+        ConcurrentLinkedQueue<SeatHold> holds = new ConcurrentLinkedQueue<>();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    for (long accountId = thread + 1; ; accountId += threads) {
+                        try {
+                            holds.add(seatMap.hold(accountId, 1 + (int) (accountId % 6)));
+                        } catch (SeatsUnavailableException e) {
+                            if (seatMap.getAvailableSeats() == 0) {
+                                return null;
+                            }
+                        }
+                    }
+                }));
+            }
+            start.countDown();
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        long[] seen = new long[40];
+        int seated = 0;
+        for (SeatHold hold : holds) {
+            for (int block = 0; block < hold.getBlockCount(); block++) {
+                assertEquals(0, seen[hold.getRow(block)] & hold.getSeatMask(block), "Seat held twice");
+                seen[hold.getRow(block)] |= hold.getSeatMask(block);
+            }
+            seated += hold.getSeatCount();
+        }
+        assertEquals(1200, seated);
+    }
+
+    @Test
+    public void testTicketServiceReservesFromSeatMap() {
+        SeatMap seatMap = new SeatMap(1L, 5, 10);
+        SeatMapReservationService reservationService = new SeatMapReservationService(seatMap);
+        TicketService ticketService = new TicketServiceImpl((accountId, amount) -> { }, reservationService);
+
+        ticketService.purchaseTickets(4L,
+                new TicketTypeRequest(TicketTypeRequest.TicketType.ADULT, 2),
+                new TicketTypeRequest(TicketTypeRequest.TicketType.CHILD, 1),
+                new TicketTypeRequest(TicketTypeRequest.TicketType.INFANT, 1));
+
+        assertEquals(47, seatMap.getAvailableSeats());
+        assertEquals(1, reservationService.getHolds(4L).size());
+        assertEquals(3, reservationService.getHolds(4L).get(0).getSeatCount());
+    }
+
+    @Test
+    public void testReleasedAccountsAreForgotten() {
+        SeatMap seatMap = new SeatMap(1L, 5, 10);
+        SeatMapReservationService reservationService = new SeatMapReservationService(seatMap);
+
+        for (long accountId = 1; accountId <= 1_000; accountId++) {
+            reservationService.reserveSeat(accountId, 2, accountId * 2);
+            reservationService.reserveSeat(accountId, 1, accountId * 2 + 1);
+            reservationService.releaseSeat(accountId, 2, accountId * 2);
+            assertEquals(1, reservationService.getAccountsWithHolds());
+            reservationService.releaseSeat(accountId, 1, accountId * 2 + 1);
+            assertEquals(0, reservationService.getAccountsWithHolds());
+        }
+        assertEquals(50, seatMap.getAvailableSeats());
+        assertTrue(reservationService.getHolds(1_000L).isEmpty());
+    }
+
+    @Test
+    public void testReleaseByReferenceIsIdempotentAndRefusesLateReservation() {
+        SeatMap seatMap = new SeatMap(1L, 5, 10);
+        SeatMapReservationService reservationService = new SeatMapReservationService(seatMap);
+
+        reservationService.reserveSeat(1L, 2, 100L);
+        reservationService.reserveSeat(1L, 3, 101L);
+        reservationService.reserveSeat(1L, 3, 101L);
+        reservationService.releaseSeat(1L, 2, 100L);
+        reservationService.releaseSeat(1L, 2, 100L);
+
+        assertEquals(47, seatMap.getAvailableSeats());
+        assertEquals(1, reservationService.getHolds(1L).size());
+        assertThrows(IllegalStateException.class, () -> reservationService.reserveSeat(1L, 2, 100L));
+        reservationService.releaseSeat(1L, 4, 102L);
+        assertThrows(IllegalStateException.class, () -> reservationService.reserveSeat(1L, 4, 102L));
+        assertEquals(47, seatMap.getAvailableSeats());
+    }
+}
@@ -0,0 +1,260 @@
+package uk.gov.dwp.uc.pairtest.shard;
+
+import org.junit.jupiter.api.Test;
+import uk.gov.dwp.uc.pairtest.TicketServiceImpl;
+import uk.gov.dwp.uc.pairtest.domain.PurchaseResult;
+import uk.gov.dwp.uc.pairtest.domain.TicketTypeRequest;
+import uk.gov.dwp.uc.pairtest.exception.InvalidPurchaseException;
+import uk.gov.dwp.uc.pairtest.limit.ConfinedPurchaseLimiter;
+import uk.gov.dwp.uc.pairtest.limit.PurchaseLimiter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShardedPurchaseProcessorTest {
+
+    @Test
+    public void testRingHandsOverEveryOrderInClaimOrder() throws Exception {
+        int producers = 4;
+        int ordersPerProducer = 2_000;
+        OrderRing ring = new OrderRing(64);
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                long producer = p;
+                results.add(executor.submit(() -> {
+                    for (long i = 0; i < ordersPerProducer; i++) {
+                        while (!ring.offer(producer << 32 | i, null, null)) {
+                            // Yield rather than spin so the test keeps moving on a single CPU
+                            Thread.yield();
+                        }
+                    }
+                }));
+            }
+            long[] next = new long[producers];
+            int[] taken = new int[1];
+            while (taken[0] < producers * ordersPerProducer) {
+                int drained = ring.drain((accountId, requests, future) -> {
+                    int producer = (int) (accountId >>> 32);
+                    assertEquals(next[producer]++, accountId & 0xFFFFFFFFL, "Orders from one producer reordered");
+                }, 100);
+                if (drained == 0) {
+                    Thread.yield();
+                }
+                taken[0] += drained;
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+            assertFalse(ring.hasNext());
+            assertEquals(0, ring.size());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testFullRingRefusesOrders() {
+        OrderRing ring = new OrderRing(3);
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(ring.offer(i + 1, null, null));
+        }
+        assertFalse(ring.offer(5, null, null));
+        assertEquals(4, ring.size());
+        assertEquals(1, ring.drain((accountId, requests, future) -> assertEquals(1, accountId), 1));
+        assertTrue(ring.offer(5, null, null));
+    }
+
+    @Test
+    public void testAccountIsProcessedByOneShardInSubmissionOrder() {
+        Map<Long, List<String>> threads = new ConcurrentHashMap<>();
+        Map<Long, List<Integer>> amounts = new ConcurrentHashMap<>();
+        Map<Long, List<Integer>> expected = new ConcurrentHashMap<>();
+        List<CompletableFuture<PurchaseResult>> results = new ArrayList<>();
+        try (ShardedPurchaseProcessor processor = new ShardedPurchaseProcessor(4, 16, shard -> new TicketServiceImpl(
+                (accountId, amount) -> {
+                    threads.computeIfAbsent(accountId, id -> new ArrayList<>()).add(Thread.currentThread().getName());
+                    amounts.computeIfAbsent(accountId, id -> new ArrayList<>()).add(amount);
+                }, (accountId, seats) -> { }))) {
+            for (int i = 0; i < 1_000; i++) {
+                long accountId = 1 + i % 10;
+                int adults = 1 + i % 25;
+                expected.computeIfAbsent(accountId, id -> new ArrayList<>()).add(adults * 25);
+                results.add(processor.purchaseTickets(accountId, new TicketTypeRequest(TicketTypeRequest.TicketType.ADULT, adults)));
+            }
+            CompletableFuture.allOf(results.toArray(new CompletableFuture[0])).join();
+
+            for (long accountId = 1; accountId <= 10; accountId++) {
+                assertEquals(expected.get(accountId), amounts.get(accountId));
+                assertEquals(1, threads.get(accountId).stream().distinct().count());
+                assertEquals("purchase-shard-" + processor.shardOf(accountId), threads.get(accountId).get(0));
+            }
+        }
+    }
+
+    @Test
+    public void testShardLocalLimitsHoldUnderConcurrentSubmitters() throws Exception {
+        int threads = 8;
+        int accounts = 5;
+        AtomicInteger paid = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try (ShardedPurchaseProcessor processor = new ShardedPurchaseProcessor(3, 64, shard -> new TicketServiceImpl(
+                (accountId, amount) -> paid.incrementAndGet(), (accountId, seats) -> { },
+                new ConfinedPurchaseLimiter(100, 1, TimeUnit.HOURS, accounts)))) {
+            List<Future<List<PurchaseResult>>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    List<CompletableFuture<PurchaseResult>> purchases = new ArrayList<>();
+                    for (int i = 0; i < 200; i++) {
+                        purchases.add(processor.purchaseTickets(1 + i % accounts,
+                                new TicketTypeRequest(TicketTypeRequest.TicketType.ADULT, 1)));
+                    }
+                    List<PurchaseResult> outcomes = new ArrayList<>();
+                    for (CompletableFuture<PurchaseResult> purchase : purchases) {
+                        outcomes.add(purchase.join());
+                    }
+                    return outcomes;
+                }));
+            }
+            start.countDown();
+            int accepted = 0;
+            for (Future<List<PurchaseResult>> result : results) {
+                for (PurchaseResult outcome : result.get()) {
+                    if (outcome.isAccepted()) {
+                        accepted++;
+                    } else {
+                        assertEquals(InvalidPurchaseException.Reason.ACCOUNT_LIMIT_EXCEEDED, outcome.getRejectionReason());
+                    }
+                }
+            }
+            assertEquals(accounts * 100, accepted);
+            assertEquals(accounts * 100, paid.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testStatsReportQueueDepthAndProcessedOrders() {
+        CountDownLatch gatewayOpen = new CountDownLatch(1);
+        List<CompletableFuture<PurchaseResult>> results = new ArrayList<>();
+        try (ShardedPurchaseProcessor processor = new ShardedPurchaseProcessor(2, 16, shard -> new TicketServiceImpl(
+                (accountId, amount) -> awaitUninterruptibly(gatewayOpen), (accountId, seats) -> { }))) {
+            int shard = processor.shardOf(7L);
+            for (int i = 0; i < 10; i++) {
+                results.add(processor.purchaseTickets(7L, new TicketTypeRequest(TicketTypeRequest.TicketType.ADULT, 1)));
+            }
+            assertTrue(waitFor(() -> processor.getStats().get(shard).getQueueDepth() == 9));
+            assertEquals(0, processor.getStats().get(shard).getProcessed());
+
+            gatewayOpen.countDown();
+            CompletableFuture.allOf(results.toArray(new CompletableFuture[0])).join();
+
+            ShardStats stats = processor.getStats().get(shard);
+            assertEquals(10, stats.getProcessed());
+            assertEquals(0, stats.getQueueDepth());
+            assertEquals(16, stats.getQueueCapacity());
+            assertTrue(stats.getThroughputPerSecond() > 0);
+            assertEquals(0, processor.getStats().get(1 - shard).getProcessed());
+        }
+    }
+
+    @Test
+    public void testGatewayFailureFailsOnlyThatOrder() {
+        IllegalStateException failure = new IllegalStateException("Payment declined");
+        try (ShardedPurchaseProcessor processor = new ShardedPurchaseProcessor(1, 16, shard -> new TicketServiceImpl(
+                (accountId, amount) -> {
+                    if (accountId == 1L) {
+                        throw failure;
+                    }
+                }, (accountId, seats) -> { }, PurchaseLimiter.UNLIMITED))) {
+            CompletableFuture<PurchaseResult> failed = processor.purchaseTickets(1L, new TicketTypeRequest(TicketTypeRequest.TicketType.ADULT, 1));
+            CompletableFuture<PurchaseResult> rejected = processor.purchaseTickets(2L, new TicketTypeRequest(TicketTypeRequest.TicketType.CHILD, 1));
+            CompletableFuture<PurchaseResult> accepted = processor.purchaseTickets(2L, new TicketTypeRequest(TicketTypeRequest.TicketType.ADULT, 1));
+
+            assertSame(failure, assertThrows(Exception.class, failed::join).getCause());
+            assertEquals(InvalidPurchaseException.Reason.NO_ADULT_TICKET, rejected.join().getRejectionReason());
+            assertTrue(accepted.join().isAccepted());
+            assertEquals(1, processor.getStats().get(0).getFailed());
+            assertEquals(3, processor.getStats().get(0).getProcessed());
+        }
+    }
+
+    @Test
+    public void testErrorFailsOnlyThatOrder() {
+        AssertionError failure = new AssertionError("Gateway bug");
+        try (ShardedPurchaseProcessor processor = new ShardedPurchaseProcessor(1, 16, shard -> new TicketServiceImpl(
+                (accountId, amount) -> {
+                    if (accountId == 1L) {
+                        throw failure;
+                    }
+                }, (accountId, seats) -> { }, PurchaseLimiter.UNLIMITED))) {
+            CompletableFuture<PurchaseResult> failed = processor.purchaseTickets(1L, new TicketTypeRequest(TicketTypeRequest.TicketType.ADULT, 1));
+            CompletableFuture<PurchaseResult> accepted = processor.purchaseTickets(2L, new TicketTypeRequest(TicketTypeRequest.TicketType.ADULT, 1));
+
+            assertSame(failure, assertThrows(Exception.class, failed::join).getCause());
+            assertTrue(accepted.orTimeout(10, TimeUnit.SECONDS).join().isAccepted());
+            assertEquals(1, processor.getStats().get(0).getFailed());
+        }
+    }
+
+    @Test
+    public void testCloseProcessesQueuedOrdersThenRefusesNewOnes() {
+        AtomicInteger paid = new AtomicInteger();
+        List<CompletableFuture<PurchaseResult>> results = new ArrayList<>();
+        ShardedPurchaseProcessor processor = new ShardedPurchaseProcessor(2, 1024, shard -> new TicketServiceImpl(
+                (accountId, amount) -> paid.incrementAndGet(), (accountId, seats) -> { }));
+        for (int i = 0; i < 500; i++) {
+            results.add(processor.purchaseTickets(1 + i, new TicketTypeRequest(TicketTypeRequest.TicketType.ADULT, 1)));
+        }
+
+        processor.close();
+
+        assertEquals(500, paid.get());
+        for (CompletableFuture<PurchaseResult> result : results) {
+            assertTrue(result.isDone());
+        }
+        assertThrows(IllegalStateException.class,
+                () -> processor.purchaseTickets(1L, new TicketTypeRequest(TicketTypeRequest.TicketType.ADULT, 1)));
+    }
+
+    @Test
+    public void testInvalidSizesNotAllowed() {
+        assertThrows(IllegalArgumentException.class, () -> new ShardedPurchaseProcessor(0, 16, shard -> null));
+        assertThrows(IllegalArgumentException.class, () -> new OrderRing(0));
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static boolean waitFor(java.util.function.BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            Thread.onSpinWait();
+        }
+        return true;
+    }
+}